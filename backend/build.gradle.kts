@@ -1,6 +1,7 @@
 plugins {
     id("org.springframework.boot") version "3.2.3"
     id("io.spring.dependency-management") version "1.1.4"
+    id("me.champeau.jmh") version "0.7.2"
     java
 }
 
@@ -22,6 +23,11 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-security")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
+    implementation("org.springframework.boot:spring-boot-starter-cache")
+
+    // Cache
+    implementation("com.github.ben-manes.caffeine:caffeine")
 
     // Base de datos
     runtimeOnly("com.mysql:mysql-connector-j")
@@ -55,3 +61,10 @@ dependencies {
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// Microbenchmarks (src/jmh/java): ./gradlew jmh
+jmh {
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+}
@@ -0,0 +1,83 @@
+package com.digital.mecommerces.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.userdetails.User;
+
+import java.lang.reflect.Field;
+import java.security.Key;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo por petición de autenticar un token JWT.
+ * - antes: parser nuevo en cada llamada y dos verificaciones (validateToken + getUsernameFromToken)
+ * - unaPasada: parser reutilizado y una sola verificación de firma
+ * - cacheado: validateAndGetClaims con el token ya verificado (caso habitual: el mismo token en cada petición)
+ *
+ * Ejecutar con ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRETO = "mecommerces-super-secret-key-for-jwt-token-generation-2024";
+
+    private JwtTokenProvider jwtTokenProvider;
+    private Key key;
+    private JwtParser jwtParser;
+    private String token;
+
+    @Setup
+    public void preparar() throws Exception {
+        jwtTokenProvider = new JwtTokenProvider(username -> User.withUsername(username)
+                .password("")
+                .authorities("ROLE_COMPRADOR")
+                .build());
+        // Valores que Spring inyecta con @Value
+        asignar("jwtSecret", SECRETO);
+        asignar("jwtExpirationInMs", 86_400_000L);
+        asignar("jwtRefreshExpirationInMs", 604_800_000L);
+        asignar("claimsCacheMaxSize", 10_000L);
+        jwtTokenProvider.init();
+
+        key = Keys.hmacShaKeyFor(SECRETO.getBytes());
+        jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
+        token = jwtTokenProvider.generateToken("comprador@test.com");
+        jwtTokenProvider.validateAndGetClaims(token);
+    }
+
+    @Benchmark
+    public String antes() {
+        Claims validacion = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        if (validacion.getExpiration() == null) {
+            return null;
+        }
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String unaPasada() {
+        return jwtParser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String cacheado() {
+        return jwtTokenProvider.validateAndGetClaims(token).getSubject();
+    }
+
+    private void asignar(String campo, Object valor) throws Exception {
+        Field field = JwtTokenProvider.class.getDeclaredField(campo);
+        field.setAccessible(true);
+        field.set(jwtTokenProvider, valor);
+    }
+}
@@ -3,6 +3,7 @@ package com.digital.mecommerces.aspect;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -14,9 +15,11 @@ import java.util.Arrays;
 /**
  * Aspecto para auditoría de acciones del sistema
  * Optimizado para el sistema medbcommerce 3.0
+ * Se desactiva con app.aspects.auditing.enabled=false
  */
 @Aspect
 @Component
+@ConditionalOnProperty(name = "app.aspects.auditing.enabled", havingValue = "true", matchIfMissing = true)
 @Slf4j
 public class AuditingAspect {
 
@@ -52,47 +55,6 @@ public class AuditingAspect {
         }
     }
 
-    // === AUDITORÍA DE SERVICIOS ===
-
-    @Before("execution(* com.digital.mecommerces.service.*.*(..))")
-    public void auditServiceCallBefore(JoinPoint joinPoint) {
-        try {
-            String service = joinPoint.getSignature().getDeclaringTypeName();
-            String method = joinPoint.getSignature().getName();
-
-            if (isImportantServiceOperation(service, method)) {
-                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-                String username = authentication != null ? authentication.getName() : "SISTEMA";
-
-                log.debug("⚡ SERVICE_START | Usuario: {} | Servicio: {}.{}",
-                        username, getSimpleClassName(service), method);
-            }
-
-        } catch (Exception e) {
-            log.error("❌ Error en auditoría de servicio (before): {}", e.getMessage());
-        }
-    }
-
-    @AfterReturning(pointcut = "execution(* com.digital.mecommerces.service.*.*(..))", returning = "result")
-    public void auditServiceCallAfter(JoinPoint joinPoint, Object result) {
-        try {
-            String service = joinPoint.getSignature().getDeclaringTypeName();
-            String method = joinPoint.getSignature().getName();
-
-            if (isImportantServiceOperation(service, method)) {
-                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-                String username = authentication != null ? authentication.getName() : "SISTEMA";
-
-                String resultInfo = getResultInfo(result);
-                log.debug("✅ SERVICE_SUCCESS | Usuario: {} | Servicio: {}.{} | Resultado: {}",
-                        username, getSimpleClassName(service), method, resultInfo);
-            }
-
-        } catch (Exception e) {
-            log.error("❌ Error en auditoría de servicio (after): {}", e.getMessage());
-        }
-    }
-
     // === AUDITORÍA DE AUTENTICACIÓN ===
 
     @After("execution(* com.digital.mecommerces.controller.AuthController.autenticarUsuario(..))")
@@ -193,18 +155,6 @@ public class AuditingAspect {
                         (method.contains("crear") || method.contains("eliminar")));
     }
 
-    private boolean isImportantServiceOperation(String service, String method) {
-        String serviceName = getSimpleClassName(service);
-
-        return serviceName.contains("Usuario") ||
-                serviceName.contains("Producto") ||
-                serviceName.contains("Carrito") ||
-                serviceName.contains("Admin") ||
-                method.contains("crear") ||
-                method.contains("actualizar") ||
-                method.contains("eliminar");
-    }
-
     private String getSimpleClassName(String fullClassName) {
         return fullClassName.substring(fullClassName.lastIndexOf('.') + 1);
     }
@@ -229,18 +179,4 @@ public class AuditingAspect {
         // En un entorno real, esto se obtendría del HttpServletRequest
         return "IP_NO_DISPONIBLE";
     }
-
-    private String getResultInfo(Object result) {
-        if (result == null) {
-            return "NULL";
-        } else if (result instanceof String) {
-            return (String) result;
-        } else if (result instanceof Number) {
-            return result.toString();
-        } else if (result instanceof Boolean) {
-            return result.toString();
-        } else {
-            return result.getClass().getSimpleName();
-        }
-    }
 }
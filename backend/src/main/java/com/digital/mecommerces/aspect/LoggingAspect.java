@@ -2,8 +2,8 @@ package com.digital.mecommerces.aspect;
 
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -15,9 +15,11 @@ import java.util.Arrays;
 /**
  * Aspecto para logging avanzado del sistema
  * Optimizado para el sistema medbcommerce 3.0
+ * Los tiempos de ejecución los mide PerformanceAspect como métricas; se desactiva con app.aspects.logging.enabled=false
  */
 @Aspect
 @Component
+@ConditionalOnProperty(name = "app.aspects.logging.enabled", havingValue = "true", matchIfMissing = true)
 @Slf4j
 public class LoggingAspect {
 
@@ -88,70 +90,13 @@ public class LoggingAspect {
         }
     }
 
-    // === MEDICIÓN DE PERFORMANCE ===
-
-    @Around("execution(* com.digital.mecommerces.service.*.*(..))")
-    public Object logServiceExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
-        String service = getSimpleClassName(joinPoint.getSignature().getDeclaringTypeName());
-        String method = joinPoint.getSignature().getName();
-
-        long startTime = System.currentTimeMillis();
-
-        try {
-            Object result = joinPoint.proceed();
-            long executionTime = System.currentTimeMillis() - startTime;
-
-            if (executionTime > 1000) { // Log si toma más de 1 segundo
-                log.warn("🐌 SLOW_SERVICE | Servicio: {}.{} | Tiempo: {}ms",
-                        service, method, executionTime);
-            } else if (executionTime > 500) { // Log si toma más de 500ms
-                log.info("⏱️ SERVICE_PERFORMANCE | Servicio: {}.{} | Tiempo: {}ms",
-                        service, method, executionTime);
-            }
-
-            return result;
-
-        } catch (Throwable throwable) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            log.error("💥 SERVICE_ERROR_TIME | Servicio: {}.{} | Tiempo antes del error: {}ms",
-                    service, method, executionTime);
-            throw throwable;
-        }
-    }
-
-    @Around("execution(* com.digital.mecommerces.repository.*.*(..))")
-    public Object logRepositoryExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
-        String repository = getSimpleClassName(joinPoint.getSignature().getDeclaringTypeName());
-        String method = joinPoint.getSignature().getName();
-
-        long startTime = System.currentTimeMillis();
-
-        try {
-            Object result = joinPoint.proceed();
-            long executionTime = System.currentTimeMillis() - startTime;
-
-            if (executionTime > 2000) { // Log si la consulta toma más de 2 segundos
-                log.warn("🐌 SLOW_QUERY | Repository: {}.{} | Tiempo: {}ms",
-                        repository, method, executionTime);
-            } else if (executionTime > 1000) {
-                log.debug("⏱️ DB_PERFORMANCE | Repository: {}.{} | Tiempo: {}ms",
-                        repository, method, executionTime);
-            }
-
-            return result;
-
-        } catch (Throwable throwable) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            log.error("💾 DB_ERROR_TIME | Repository: {}.{} | Tiempo antes del error: {}ms",
-                    repository, method, executionTime);
-            throw throwable;
-        }
-    }
-
     // === LOGGING DE CACHE ===
 
     @Before("@annotation(org.springframework.cache.annotation.Cacheable)")
     public void logCacheableOperation(JoinPoint joinPoint) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
         try {
             String method = joinPoint.getSignature().getName();
             String className = getSimpleClassName(joinPoint.getSignature().getDeclaringTypeName());
@@ -166,6 +111,9 @@ public class LoggingAspect {
 
     @After("@annotation(org.springframework.cache.annotation.CacheEvict)")
     public void logCacheEvictOperation(JoinPoint joinPoint) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
         try {
             String method = joinPoint.getSignature().getName();
             String className = getSimpleClassName(joinPoint.getSignature().getDeclaringTypeName());
@@ -182,6 +130,9 @@ public class LoggingAspect {
 
     @Before("execution(* com.digital.mecommerces.security.*.*(..))")
     public void logSecurityOperation(JoinPoint joinPoint) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
         try {
             String securityClass = getSimpleClassName(joinPoint.getSignature().getDeclaringTypeName());
             String method = joinPoint.getSignature().getName();
@@ -199,6 +150,9 @@ public class LoggingAspect {
 
     @Before("@annotation(org.springframework.transaction.annotation.Transactional)")
     public void logTransactionalOperation(JoinPoint joinPoint) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
         try {
             String method = joinPoint.getSignature().getName();
             String className = getSimpleClassName(joinPoint.getSignature().getDeclaringTypeName());
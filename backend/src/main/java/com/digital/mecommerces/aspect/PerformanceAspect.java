@@ -0,0 +1,136 @@
+package com.digital.mecommerces.aspect;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempos de ejecución de servicios y repositorios como métricas de Micrometer.
+ * Cada método tiene su Timer (app.servicio / app.repositorio, tags clase, metodo, resultado, excepcion),
+ * publicado en /actuator/prometheus; los histogramas de percentiles se activan en application.properties.
+ * La clase es el repositorio o servicio invocado, no la que declara el método: save o findById heredados de
+ * JpaRepository se miden por separado en cada repositorio.
+ * El Timer de cada método se crea una sola vez, así medir una llamada es leer System.nanoTime() dos veces.
+ * Solo se escribe en el log cuando la llamada supera los umbrales de lentitud.
+ * Se desactiva con app.aspects.performance.enabled=false.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "app.aspects.performance.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class PerformanceAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final Capa servicios = new Capa("app.servicio", "com.digital.mecommerces.service", TimeUnit.MILLISECONDS.toNanos(1000), TimeUnit.MILLISECONDS.toNanos(500));
+    private final Capa repositorios = new Capa("app.repositorio", "com.digital.mecommerces.repository", TimeUnit.MILLISECONDS.toNanos(2000), TimeUnit.MILLISECONDS.toNanos(1000));
+
+    public PerformanceAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* com.digital.mecommerces.service.*.*(..))")
+    public Object medirServicio(ProceedingJoinPoint joinPoint) throws Throwable {
+        return medir(joinPoint, servicios);
+    }
+
+    @Around("execution(* com.digital.mecommerces.repository.*.*(..))")
+    public Object medirRepositorio(ProceedingJoinPoint joinPoint) throws Throwable {
+        return medir(joinPoint, repositorios);
+    }
+
+    private Object medir(ProceedingJoinPoint joinPoint, Capa capa) throws Throwable {
+        long inicio = System.nanoTime();
+        try {
+            Object resultado = joinPoint.proceed();
+            registrar(joinPoint, capa, System.nanoTime() - inicio, null);
+            return resultado;
+        } catch (Throwable throwable) {
+            registrar(joinPoint, capa, System.nanoTime() - inicio, throwable);
+            throw throwable;
+        }
+    }
+
+    private void registrar(ProceedingJoinPoint joinPoint, Capa capa, long nanos, Throwable error) {
+        Method metodo = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> tipo = tipoInvocado(joinPoint, capa, metodo);
+
+        // Los errores son poco frecuentes: su Timer se busca en el registro en lugar de cachearse
+        Timer timer = error == null
+                ? capa.timers.computeIfAbsent(new ClaveTimer(tipo, metodo), clave -> crearTimer(capa, tipo, metodo, "ok", "none"))
+                : crearTimer(capa, tipo, metodo, "error", error.getClass().getSimpleName());
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+
+        if (nanos > capa.umbralAviso) {
+            log.warn("🐌 SLOW_CALL | {}.{} | Tiempo: {}ms",
+                    tipo.getSimpleName(), metodo.getName(), TimeUnit.NANOSECONDS.toMillis(nanos));
+        } else if (nanos > capa.umbralInfo && log.isDebugEnabled()) {
+            log.debug("⏱️ CALL_PERFORMANCE | {}.{} | Tiempo: {}ms",
+                    tipo.getSimpleName(), metodo.getName(), TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    // Los repositorios llegan como proxies de Spring Data: se toma su interfaz de la capa.
+    // Los servicios pueden ser subclases CGLIB: se toma la clase del usuario.
+    private Class<?> tipoInvocado(ProceedingJoinPoint joinPoint, Capa capa, Method metodo) {
+        Object target = joinPoint.getTarget();
+        if (target == null) {
+            return metodo.getDeclaringClass();
+        }
+        return capa.tipos.computeIfAbsent(target.getClass(), claseTarget -> {
+            Class<?> clase = ClassUtils.getUserClass(claseTarget);
+            if (capa.paquete.equals(clase.getPackageName())) {
+                return clase;
+            }
+            for (Class<?> interfaz : ClassUtils.getAllInterfacesForClassAsSet(claseTarget)) {
+                if (capa.paquete.equals(interfaz.getPackageName())) {
+                    return interfaz;
+                }
+            }
+            return clase;
+        });
+    }
+
+    private Timer crearTimer(Capa capa, Class<?> tipo, Method metodo, String resultado, String excepcion) {
+        return Timer.builder(capa.metrica)
+                .description("Tiempo de ejecución por método")
+                .tag("clase", tipo.getSimpleName())
+                .tag("metodo", metodo.getName())
+                .tag("resultado", resultado)
+                .tag("excepcion", excepcion)
+                .register(meterRegistry);
+    }
+
+    // Un mismo método heredado tiene un Timer por cada repositorio o servicio que lo invoca
+    private record ClaveTimer(Class<?> tipo, Method metodo) {
+    }
+
+    // Métrica, paquete, umbrales de log, tipos resueltos y Timers ya creados de una capa (servicios o repositorios)
+    private static final class Capa {
+
+        private final String metrica;
+        private final String paquete;
+        private final long umbralAviso;
+        private final long umbralInfo;
+        private final Map<Class<?>, Class<?>> tipos = new ConcurrentHashMap<>();
+        private final Map<ClaveTimer, Timer> timers = new ConcurrentHashMap<>();
+
+        private Capa(String metrica, String paquete, long umbralAviso, long umbralInfo) {
+            this.metrica = metrica;
+            this.paquete = paquete;
+            this.umbralAviso = umbralAviso;
+            this.umbralInfo = umbralInfo;
+        }
+    }
+}
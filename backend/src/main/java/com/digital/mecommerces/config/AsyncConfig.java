@@ -0,0 +1,160 @@
+package com.digital.mecommerces.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuración de ejecución asíncrona y tareas programadas
+ * Cada tipo de trabajo en segundo plano usa su propio pool acotado (hilos y cola),
+ * para que una ráfaga de un tipo no consuma los recursos de los demás.
+ * Sistema medbcommerce 3.0
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+@Slf4j
+public class AsyncConfig {
+
+    /**
+     * Pool para generar variantes de imágenes (miniaturas, tarjetas, detalle).
+     * Si la cola está llena la tarea se rechaza (TaskRejectedException): ImagenVarianteService la cuenta
+     * y la vuelve a programar cuando se pide la variante; mientras tanto se sirve la imagen original.
+     */
+    @Bean(name = "imagenesExecutor")
+    public Executor imagenesExecutor(
+            @Value("${app.upload.variantes.threads:2}") int hilos,
+            @Value("${app.upload.variantes.queue-capacity:200}") int capacidadCola) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("imagenes-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+
+        log.info("✅ Pool de variantes de imágenes: {} hilos, cola de {}", hilos, capacidadCola);
+        return executor;
+    }
+
+    /**
+     * Pool para procesar en paralelo los archivos de una subida múltiple.
+     * Si está saturado, el propio hilo de la petición procesa el archivo (se degrada a secuencial).
+     */
+    @Bean(name = "uploadsExecutor")
+    public Executor uploadsExecutor(
+            @Value("${app.upload.paralelo.threads:4}") int hilos,
+            @Value("${app.upload.paralelo.queue-capacity:100}") int capacidadCola) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("uploads-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+
+        log.info("✅ Pool de subidas de imágenes: {} hilos, cola de {}", hilos, capacidadCola);
+        return executor;
+    }
+
+    /**
+     * Pool para enviar los lotes de la bandeja de salida de emails; cada tarea usa una conexión SMTP.
+     * Si está saturado, el hilo del planificador envía el grupo él mismo.
+     */
+    @Bean(name = "emailExecutor")
+    public Executor emailExecutor(@Value("${app.email.outbox.threads:2}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("email-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool para los envíos masivos de notificaciones: cada tarea recorre todos los destinatarios por bloques.
+     * Sin política de rechazo propia: con la cola llena el envío se rechaza (429) en lugar de acumularse.
+     */
+    @Bean(name = "notificacionesExecutor")
+    public Executor notificacionesExecutor(
+            @Value("${app.notificaciones.threads:1}") int hilos,
+            @Value("${app.notificaciones.queue-capacity:5}") int capacidadCola) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("notificaciones-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool para calcular hashes de contraseñas (login, registro, cambios de contraseña).
+     * Sin política de rechazo propia: con la cola llena se lanza TaskRejectedException y la petición recibe 429.
+     * Sin app.security.hash.queue-capacity, la cola se dimensiona con el tiempo máximo de espera
+     * (ver capacidadColaHash): una petición que entra en la cola termina antes de app.security.hash.timeout-ms.
+     */
+    @Bean(name = "hashExecutor")
+    public ThreadPoolTaskExecutor hashExecutor(
+            @Value("${app.security.hash.threads:2}") int hilos,
+            @Value("${app.security.hash.timeout-ms:5000}") long tiempoMaximoMs,
+            @Value("${app.security.hash.coste-estimado-ms:250}") long costeEstimadoMs,
+            @Value("${app.security.hash.queue-capacity:0}") int capacidadCola) {
+
+        int capacidadMaxima = capacidadColaHash(hilos, tiempoMaximoMs, costeEstimadoMs);
+        int capacidad = capacidadCola > 0 ? capacidadCola : capacidadMaxima;
+        if (capacidad > capacidadMaxima) {
+            log.warn("⚠️ Cola de hash de {} con {} hilos y {} ms por hash: los últimos en cola superarán el timeout de {} ms",
+                    capacidad, hilos, costeEstimadoMs, tiempoMaximoMs);
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidad);
+        executor.setThreadNamePrefix("hash-");
+        executor.initialize();
+
+        log.info("✅ Pool de hash de contraseñas: {} hilos, cola de {}", hilos, capacidad);
+        return executor;
+    }
+
+    /**
+     * Hashes que caben en cola sin que el último espere más del tiempo máximo: la cola se vacía a
+     * hilos / coste hashes por milisegundo, y se deja la mitad del tiempo de margen para los hashes
+     * en curso y la variación de CPU (2 hilos × 5000 ms / 250 ms / 2 = 20)
+     */
+    public static int capacidadColaHash(int hilos, long tiempoMaximoMs, long costeEstimadoMs) {
+        return (int) Math.max(1, hilos * tiempoMaximoMs / Math.max(1, costeEstimadoMs) / 2);
+    }
+
+    /**
+     * Pool para borrar en paralelo los archivos sin referencias que encuentra el recolector
+     */
+    @Bean(name = "gcExecutor")
+    public Executor gcExecutor(@Value("${app.upload.gc.threads:2}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("gc-imagenes-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
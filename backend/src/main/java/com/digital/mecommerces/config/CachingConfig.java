@@ -1,16 +1,23 @@
 package com.digital.mecommerces.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
-import java.util.Arrays;
+import java.time.Duration;
+import java.util.List;
 
 /**
  * Configuración de caché optimizada para el sistema
+ * Usa Caffeine (admisión W-TinyLFU) con tamaño máximo y TTL por caché.
+ * Las estadísticas de cada caché se publican en /actuator/metrics (cache.gets, cache.evictions...)
  * Sistema medbcommerce 3.0
  */
 @Configuration
@@ -18,71 +25,119 @@ import java.util.Arrays;
 @Slf4j
 public class CachingConfig {
 
+    /**
+     * Cachés conocidos por la aplicación. Se registran al arrancar para que
+     * el actuator pueda enlazar sus métricas (los cachés creados dinámicamente no se enlazan).
+     */
+    private static final List<String> CACHE_NAMES = List.of(
+            // Cachés de productos
+            "productos",
+            "productosPorCategoria",
+            "productosPorVendedor",
+            "productosDestacados",
+            "productosRecientes",
+            "productosPorSlug",
+            "conteoProductos",
+
+            // Cachés de categorías
+            "categorias",
+            "categoria",
+            "categoriasPrincipales",
+            "categoriasActivas",
+            "categoriasPorSlug",
+            "jerarquiaCategorias",
+
+            // Cachés de usuarios
+            "usuarios",
+            "usuariosPorRol",
+            "usuariosActivos",
+            "perfilesUsuario",
+            "usuariosAutenticados",
+            "adminDetalles",
+            "compradorDetalles",
+            "vendedorDetalles",
+
+            // Cachés de roles y permisos
+            "roles",
+            "rol",
+            "permisos",
+            "permiso",
+            "rolesPermisos",
+            "permisosDelSistema",
+
+            // Cachés de imágenes
+            "imagenesProducto",
+            "imagenesPrincipales",
+
+            // Cachés de estadísticas
+            "estadisticasGenerales",
+            "estadisticasVendedor",
+            "dashboardAdmin",
+
+            // Cachés de carritos
+            "carritosActivos",
+            "itemsCarrito",
+
+            // Cachés de configuración
+            "configuracionSistema",
+            "rolesDelSistema"
+    );
+
+    private static final String SPEC_PREFIX = "app.cache.specs.";
+
+    private final Environment environment;
+
+    @Value("${app.cache.max-size:2000}")
+    private long defaultMaxSize;
+
+    @Value("${app.cache.default-ttl:900}")
+    private long defaultTtlSeconds;
+
+    public CachingConfig(Environment environment) {
+        this.environment = environment;
+    }
+
     /**
      * Define el gestor de caché para la aplicación.
-     * Incluye todos los cachés necesarios para optimizar el rendimiento.
+     * Cada caché usa app.cache.specs.&lt;nombre&gt; (formato CaffeineSpec) si está definido,
+     * o el tamaño/TTL por defecto (app.cache.max-size, app.cache.default-ttl).
+     * refreshAfterWrite no se admite: los cachés anotados no tienen CacheLoader para recargar.
      */
     @Bean
     public CacheManager cacheManager() {
-        log.info("🚀 Configurando Cache Manager para medbcommerce 3.0");
-
-        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
-
-        // Definir todos los cachés necesarios
-        cacheManager.setCacheNames(Arrays.asList(
-                // Cachés de productos
-                "productos",
-                "productosPorCategoria",
-                "productosPorVendedor",
-                "productosDestacados",
-                "productosRecientes",
-                "productosPorSlug",
-
-                // Cachés de categorías
-                "categorias",
-                "categoriasPrincipales",
-                "categoriasActivas",
-                "categoriasPorSlug",
-                "jerarquiaCategorias",
-
-                // Cachés de usuarios
-                "usuarios",
-                "usuariosPorRol",
-                "usuariosActivos",
-                "perfilesUsuario",
-
-                // Cachés de roles y permisos
-                "roles",
-                "permisos",
-                "rolesPermisos",
-                "permisosDelSistema",
-
-                // Cachés de imágenes
-                "imagenesProducto",
-                "imagenesPrincipales",
-
-                // Cachés de estadísticas
-                "estadisticasGenerales",
-                "estadisticasVendedor",
-                "dashboardAdmin",
-
-                // Cachés de carritos
-                "carritosActivos",
-                "itemsCarrito",
-
-                // Cachés de configuración
-                "configuracionSistema",
-                "rolesDelSistema"
-        ));
-
-        // Permitir la creación dinámica de cachés
+        log.info("🚀 Configurando Cache Manager (Caffeine) para medbcommerce 3.0");
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+
+        // Cachés creados dinámicamente usan la política por defecto
+        cacheManager.setCaffeine(defaultBuilder());
         cacheManager.setAllowNullValues(true);
 
-        log.info("✅ Cache Manager configurado con {} cachés predefinidos",
-                cacheManager.getCacheNames().size());
+        for (String cacheName : CACHE_NAMES) {
+            String spec = environment.getProperty(SPEC_PREFIX + cacheName);
+            Caffeine<Object, Object> builder = spec != null
+                    ? Caffeine.from(CaffeineSpec.parse(spec)).recordStats()
+                    : defaultBuilder();
+
+            cacheManager.registerCustomCache(cacheName, builder.build());
+
+            if (spec != null) {
+                log.info("⚙️ Caché '{}' con política personalizada: {}", cacheName, spec);
+            }
+        }
+
+        log.info("✅ Cache Manager configurado con {} cachés predefinidos (maxSize={}, ttl={}s por defecto)",
+                cacheManager.getCacheNames().size(), defaultMaxSize, defaultTtlSeconds);
 
         log.info("📋 Cachés configurados: {}", cacheManager.getCacheNames());
 
         return cacheManager;
     }
+
+    private Caffeine<Object, Object> defaultBuilder() {
+        return Caffeine.newBuilder()
+                .maximumSize(defaultMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(defaultTtlSeconds))
+                .recordStats();
+    }
 }
@@ -72,6 +72,37 @@ public class DataInitializer {
         };
     }
 
+    /**
+     * Alinea las secuencias de IDs y completa datos que la paginación necesita antes de atender peticiones
+     */
+    @Bean
+    public CommandLineRunner alinearSecuencias(OrdenDetalleRepository ordenDetalleRepository,
+                                               EmailOutboxRepository emailOutboxRepository,
+                                               ProductoRepository productoRepository) {
+        return args -> {
+            try {
+                ordenDetalleRepository.alinearSecuencia();
+                log.info("✅ Secuencia de detalles de orden alineada");
+            } catch (Exception e) {
+                log.warn("⚠️ No se pudo alinear la secuencia de detalles de orden: {}", e.getMessage());
+            }
+            try {
+                emailOutboxRepository.alinearSecuencia();
+                log.info("✅ Secuencia de la bandeja de emails alineada");
+            } catch (Exception e) {
+                log.warn("⚠️ No se pudo alinear la secuencia de la bandeja de emails: {}", e.getMessage());
+            }
+            try {
+                int completados = productoRepository.completarFechasCreacion();
+                if (completados > 0) {
+                    log.info("✅ {} productos sin fecha de creación completados", completados);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ No se pudieron completar las fechas de creación de productos: {}", e.getMessage());
+            }
+        };
+    }
+
     private void crearPermisosDelSistema(PermisoRepository permisoRepository) {
         log.info("🔑 Creando permisos del sistema...");
 
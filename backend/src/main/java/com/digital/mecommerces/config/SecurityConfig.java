@@ -2,10 +2,15 @@ package com.digital.mecommerces.config;
 
 import com.digital.mecommerces.constants.RoleConstants;
 import com.digital.mecommerces.security.JwtAuthenticationFilter;
+import com.digital.mecommerces.security.PasswordEncoderAcotado;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -13,7 +18,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -40,9 +44,16 @@ public class SecurityConfig {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
     }
 
+    /**
+     * BCrypt (fuerza 12 por defecto) ejecutado en el pool acotado "hashExecutor".
+     * Los hashes con menor coste se recalculan al iniciar sesión (ver CustomUserDetailsService.updatePassword).
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12); // Fuerza 12 para mejor seguridad
+    public PasswordEncoder passwordEncoder(@Qualifier("hashExecutor") ThreadPoolTaskExecutor hashExecutor,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${app.security.bcrypt.strength:12}") int coste,
+                                           @Value("${app.security.hash.timeout-ms:5000}") long tiempoMaximoMs) {
+        return new PasswordEncoderAcotado(coste, hashExecutor, tiempoMaximoMs, meterRegistry);
     }
 
     @Bean
@@ -1,6 +1,7 @@
 package com.digital.mecommerces.controller;
 
 import com.digital.mecommerces.constants.RoleConstants;
+import com.digital.mecommerces.dto.CursorPageDTO;
 import com.digital.mecommerces.dto.ProductoDTO;
 import com.digital.mecommerces.dto.UsuarioDTO;
 import com.digital.mecommerces.exception.ResourceNotFoundException;
@@ -41,19 +42,22 @@ public class AdminController {
     private final RolUsuarioService rolUsuarioService;
     private final CategoriaProductoService categoriaProductoService;
     private final AdminDetallesService adminDetallesService;
+    private final OrdenEstadisticasService ordenEstadisticasService;
 
     public AdminController(UsuarioService usuarioService,
                            ProductoService productoService,
                            OrdenRepository ordenRepository,
                            RolUsuarioService rolUsuarioService,
                            CategoriaProductoService categoriaProductoService,
-                           AdminDetallesService adminDetallesService) {
+                           AdminDetallesService adminDetallesService,
+                           OrdenEstadisticasService ordenEstadisticasService) {
         this.usuarioService = usuarioService;
         this.productoService = productoService;
         this.ordenRepository = ordenRepository;
         this.rolUsuarioService = rolUsuarioService;
         this.categoriaProductoService = categoriaProductoService;
         this.adminDetallesService = adminDetallesService;
+        this.ordenEstadisticasService = ordenEstadisticasService;
     }
 
     // === GESTIÓN DE USUARIOS ===
@@ -168,6 +172,22 @@ public class AdminController {
         return ResponseEntity.ok(productosDTO);
     }
 
+    @GetMapping("/productos/cursor")
+    @Operation(summary = "Listar productos con paginación por cursor")
+    @PreAuthorize("hasAuthority('" + RoleConstants.PERM_ADMIN_TOTAL + "')")
+    public ResponseEntity<CursorPageDTO<ProductoDTO>> listarProductosPorCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "recientes") String orden,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "true") boolean incluirTotal) {
+        log.info("👑 Admin obteniendo productos por cursor");
+
+        CursorPageDTO<Producto> productos = productoService.obtenerProductosPorCursor(
+                null, null, orden, cursor, size, incluirTotal);
+
+        return ResponseEntity.ok(productos.map(ProductoDTO::fromEntity));
+    }
+
     @GetMapping("/productos/{id}")
     @Operation(summary = "Obtener producto por ID")
     @PreAuthorize("hasAuthority('" + RoleConstants.PERM_ADMIN_TOTAL + "')")
@@ -306,33 +326,21 @@ public class AdminController {
             usuariosPorRol.put("VENDEDOR", usuarioService.contarVendedores());
             usuariosPorRol.put("COMPRADOR", usuarioService.contarCompradores());
 
-            // Estadísticas de productos
-            Map<String, Object> productosStats = new HashMap<>();
-            productosStats.put("total", productoService.contarProductosActivos());
-            productosStats.put("destacados", productoService.contarProductosDestacados());
-            productosStats.put("agotados", productoService.contarProductosAgotados());
-            productosStats.put("precioPromedio", productoService.obtenerPrecioPromedio());
-
-            // Estadísticas de órdenes
-            List<Orden> ordenes = ordenRepository.findAll();
-            Map<String, Long> ordenesPorEstado = new HashMap<>();
-            ordenes.forEach(orden -> {
-                String estado = orden.getEstado();
-                ordenesPorEstado.merge(estado, 1L, Long::sum);
-            });
-
-            // Ingresos totales
-            double ingresosTotales = ordenes.stream()
-                    .mapToDouble(Orden::getTotal)
-                    .sum();
+            // Estadísticas de productos (una sola consulta agregada)
+            Map<String, Object> productosStats = productoService.obtenerResumenProductos();
+
+            // Estadísticas de órdenes (GROUP BY en SQL, cacheado unos segundos)
+            Map<String, Object> resumenOrdenes = ordenEstadisticasService.obtenerResumenOrdenes();
 
             // Compilar dashboard
             dashboard.put("usuariosPorRol", usuariosPorRol);
             dashboard.put("productosStats", productosStats);
-            dashboard.put("ordenesPorEstado", ordenesPorEstado);
-            dashboard.put("ingresosTotales", ingresosTotales);
+            dashboard.put("ordenesPorEstado", resumenOrdenes.get("ordenesPorEstado"));
+            dashboard.put("ingresosPorEstado", resumenOrdenes.get("ingresosPorEstado"));
+            dashboard.put("ingresosTotales", resumenOrdenes.get("ingresosTotales"));
+            dashboard.put("ordenesHoy", resumenOrdenes.get("ordenesHoy"));
             dashboard.put("totalUsuarios", usuarioService.contarUsuarios());
-            dashboard.put("totalOrdenes", ordenes.size());
+            dashboard.put("totalOrdenes", resumenOrdenes.get("totalOrdenes"));
             dashboard.put("timestamp", LocalDateTime.now());
 
             log.info("✅ Dashboard generado exitosamente");
@@ -372,12 +380,14 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> obtenerEstadisticasProductos() {
         log.info("👑 Admin obteniendo estadísticas de productos");
 
+        Map<String, Object> resumen = productoService.obtenerResumenProductos();
+
         Map<String, Object> stats = new HashMap<>();
-        stats.put("activos", productoService.contarProductosActivos());
-        stats.put("destacados", productoService.contarProductosDestacados());
-        stats.put("agotados", productoService.contarProductosAgotados());
-        stats.put("stockTotal", productoService.obtenerStockTotal());
-        stats.put("precioPromedio", productoService.obtenerPrecioPromedio());
+        stats.put("activos", resumen.get("total"));
+        stats.put("destacados", resumen.get("destacados"));
+        stats.put("agotados", resumen.get("agotados"));
+        stats.put("stockTotal", resumen.get("stockTotal"));
+        stats.put("precioPromedio", resumen.get("precioPromedio"));
         stats.put("porCategoria", productoService.obtenerEstadisticasPorCategoria());
         stats.put("porVendedor", productoService.obtenerEstadisticasPorVendedor());
 
@@ -13,6 +13,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -110,6 +111,14 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(AuthResponseDTO.error("Credenciales inválidas"));
 
+        } catch (BusinessException e) {
+            if (e.getHttpStatus() == HttpStatus.TOO_MANY_REQUESTS) {
+                return demasiadasSolicitudes(e);
+            }
+            log.error("❌ Error de negocio en login para {}: {}", loginDTO.getEmail(), e.getMessage());
+            return ResponseEntity.status(e.getHttpStatus())
+                    .body(AuthResponseDTO.error(e.getMessage()));
+
         } catch (Exception e) {
             log.error("❌ Error durante login para {}: {}", loginDTO.getEmail(), e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -150,6 +159,9 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
         } catch (BusinessException e) {
+            if (e.getHttpStatus() == HttpStatus.TOO_MANY_REQUESTS) {
+                return demasiadasSolicitudes(e);
+            }
             log.error("❌ Error de negocio en registro: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(AuthResponseDTO.error("Error en el registro: " + e.getMessage()));
@@ -347,4 +359,12 @@ public class AuthController {
                     .body(AuthResponseDTO.error("Error obteniendo perfil"));
         }
     }
+
+    // El pool de hash de contraseñas está saturado: el cliente puede reintentar en unos segundos
+    private ResponseEntity<AuthResponseDTO> demasiadasSolicitudes(BusinessException e) {
+        log.warn("⏳ Autenticación rechazada por saturación: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .body(AuthResponseDTO.error(e.getMessage()));
+    }
 }
@@ -3,9 +3,11 @@ package com.digital.mecommerces.controller;
 import com.digital.mecommerces.constants.RoleConstants;
 import com.digital.mecommerces.dto.CarritoCompraDTO;
 import com.digital.mecommerces.dto.CarritoItemDTO;
+import com.digital.mecommerces.exception.BusinessException;
 import com.digital.mecommerces.exception.ResourceNotFoundException;
 import com.digital.mecommerces.model.CarritoCompra;
 import com.digital.mecommerces.model.CarritoItem;
+import com.digital.mecommerces.model.Orden;
 import com.digital.mecommerces.model.Usuario;
 import com.digital.mecommerces.service.CarritoService;
 import com.digital.mecommerces.service.UsuarioService;
@@ -189,10 +191,11 @@ public class CarritoCompraController {
             }
 
             // Convertir carrito a orden
-            // Orden orden = carritoService.convertirCarritoAOrden(usuarioId);
+            Orden orden = carritoService.convertirCarritoAOrden(usuarioId);
 
             Map<String, Object> response = Map.of(
                     "mensaje", "Checkout procesado exitosamente",
+                    "ordenId", orden.getOrdenId(),
                     "carritoId", carrito.getCarritoId(),
                     "total", carritoDTO.getTotalEstimado(),
                     "items", carritoDTO.getTotalItems(),
@@ -202,6 +205,13 @@ public class CarritoCompraController {
             log.info("✅ Checkout procesado exitosamente");
             return ResponseEntity.ok(response);
 
+        } catch (BusinessException e) {
+            log.warn("⚠️ Checkout rechazado: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", "No se pudo procesar el checkout",
+                    "detalle", e.getMessage(),
+                    "timestamp", LocalDateTime.now()
+            ));
         } catch (Exception e) {
             log.error("❌ Error procesando checkout: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
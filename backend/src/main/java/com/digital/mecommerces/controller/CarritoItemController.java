@@ -46,15 +46,9 @@ public class CarritoItemController {
         Long usuarioId = obtenerUsuarioIdAutenticado();
         log.info("🛒 Obteniendo item {} para usuario {}", itemId, usuarioId);
 
-        // Implementar obtención de item específico
-        // CarritoItem item = carritoService.obtenerItem(usuarioId, itemId);
-        // CarritoItemDTO itemDTO = CarritoItemDTO.fromEntity(item);
-
-        // Por ahora retornamos un placeholder
-        CarritoItemDTO itemDTO = new CarritoItemDTO();
-        itemDTO.setItemId(itemId);
-
-        return ResponseEntity.ok(itemDTO);
+        // El carrito activo está en memoria: no hace falta consultar la base de datos
+        CarritoItem item = carritoService.obtenerItem(usuarioId, itemId);
+        return ResponseEntity.ok(CarritoItemDTO.fromEntity(item));
     }
 
     @PutMapping("/{itemId}/cantidad")
@@ -2,23 +2,34 @@ package com.digital.mecommerces.controller;
 
 import com.digital.mecommerces.constants.RoleConstants;
 import com.digital.mecommerces.service.ImageStorageService;
+import com.digital.mecommerces.service.ImagenCacheService;
+import com.digital.mecommerces.service.ImagenEntregaService;
+import com.digital.mecommerces.service.ImagenRecolectorService;
+import com.digital.mecommerces.service.ImagenVarianteService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Controlador para gestión de imágenes del sistema
@@ -31,6 +42,12 @@ import java.util.Map;
 public class ImagenController {
 
     private final ImageStorageService imageStorageService;
+    private final ImagenEntregaService imagenEntregaService;
+    private final ImagenVarianteService imagenVarianteService;
+    private final ImagenCacheService imagenCacheService;
+    private final ImagenRecolectorService imagenRecolectorService;
+    private final Executor uploadsExecutor;
+    private final int maxArchivosPorSolicitud;
 
     // Tipos de contenido de imagen permitidos
     private static final List<String> ALLOWED_CONTENT_TYPES = Arrays.asList(
@@ -40,8 +57,20 @@ public class ImagenController {
     // Tamaño máximo de archivo (5MB)
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024;
 
-    public ImagenController(ImageStorageService imageStorageService) {
+    public ImagenController(ImageStorageService imageStorageService,
+                            ImagenEntregaService imagenEntregaService,
+                            ImagenVarianteService imagenVarianteService,
+                            ImagenCacheService imagenCacheService,
+                            ImagenRecolectorService imagenRecolectorService,
+                            @Qualifier("uploadsExecutor") Executor uploadsExecutor,
+                            @Value("${app.upload.max-files-per-request:20}") int maxArchivosPorSolicitud) {
         this.imageStorageService = imageStorageService;
+        this.imagenEntregaService = imagenEntregaService;
+        this.imagenVarianteService = imagenVarianteService;
+        this.imagenCacheService = imagenCacheService;
+        this.imagenRecolectorService = imagenRecolectorService;
+        this.uploadsExecutor = uploadsExecutor;
+        this.maxArchivosPorSolicitud = maxArchivosPorSolicitud;
     }
 
     @PostMapping("/upload")
@@ -110,53 +139,27 @@ public class ImagenController {
             @RequestParam(value = "tipo", defaultValue = "producto") String tipo) {
 
         log.info("📸 Subiendo {} imágenes de tipo: {}", files.length, tipo);
+        long inicio = System.currentTimeMillis();
 
-        if (files.length > 10) {
+        if (files.length > maxArchivosPorSolicitud) {
             return ResponseEntity.badRequest().body(Map.of(
                     "success", false,
-                    "mensaje", "Máximo 10 imágenes permitidas por solicitud",
+                    "mensaje", "Máximo " + maxArchivosPorSolicitud + " imágenes permitidas por solicitud",
                     "timestamp", LocalDateTime.now()
             ));
         }
 
-        Map<String, Object> response = new HashMap<>();
-        List<Map<String, Object>> resultados = new java.util.ArrayList<>();
-        int exitosos = 0;
-        int fallidos = 0;
-
-        for (MultipartFile file : files) {
-            try {
-                Map<String, Object> validationResult = validateFile(file);
-                if ((Boolean) validationResult.get("valid")) {
-                    String url = imageStorageService.store(file, tipo);
-
-                    Map<String, Object> resultado = new HashMap<>();
-                    resultado.put("success", true);
-                    resultado.put("url", url);
-                    resultado.put("nombreOriginal", file.getOriginalFilename());
-                    resultado.put("tamanio", file.getSize());
-
-                    resultados.add(resultado);
-                    exitosos++;
-                } else {
-                    Map<String, Object> resultado = new HashMap<>();
-                    resultado.put("success", false);
-                    resultado.put("error", validationResult.get("mensaje"));
-                    resultado.put("nombreOriginal", file.getOriginalFilename());
-
-                    resultados.add(resultado);
-                    fallidos++;
-                }
-            } catch (Exception e) {
-                Map<String, Object> resultado = new HashMap<>();
-                resultado.put("success", false);
-                resultado.put("error", e.getMessage());
-                resultado.put("nombreOriginal", file.getOriginalFilename());
+        // Validación, hash y almacenamiento de cada archivo en paralelo sobre el pool de subidas
+        List<CompletableFuture<Map<String, Object>>> tareas = Arrays.stream(files)
+                .map(file -> CompletableFuture.supplyAsync(() -> procesarArchivo(file, tipo), uploadsExecutor))
+                .toList();
 
-                resultados.add(resultado);
-                fallidos++;
-            }
-        }
+        Map<String, Object> response = new HashMap<>();
+        List<Map<String, Object>> resultados = tareas.stream()
+                .map(CompletableFuture::join)
+                .toList();
+        long exitosos = resultados.stream().filter(r -> Boolean.TRUE.equals(r.get("success"))).count();
+        long fallidos = resultados.size() - exitosos;
 
         response.put("success", exitosos > 0);
         response.put("mensaje", String.format("Procesadas %d imágenes: %d exitosas, %d fallidas",
@@ -164,6 +167,7 @@ public class ImagenController {
         response.put("resultados", resultados);
         response.put("exitosos", exitosos);
         response.put("fallidos", fallidos);
+        response.put("tiempoTotalMs", System.currentTimeMillis() - inicio);
         response.put("timestamp", LocalDateTime.now());
 
         log.info("✅ Proceso de subida múltiple completado: {} exitosos, {} fallidos", exitosos, fallidos);
@@ -171,29 +175,27 @@ public class ImagenController {
     }
 
     @GetMapping("/{filename}")
-    @Operation(summary = "Obtener imagen", description = "Descarga una imagen por su nombre de archivo")
-    public ResponseEntity<Resource> obtenerImagen(@PathVariable String filename) {
+    @Operation(summary = "Obtener imagen", description = "Descarga una imagen por su nombre de archivo. " +
+            "Con size (thumb, card, detail) o w (ancho en px) se entrega la variante redimensionada")
+    public void obtenerImagen(@PathVariable String filename,
+                              @RequestParam(required = false) String size,
+                              @RequestParam(value = "w", required = false) Integer ancho,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
         log.debug("📸 Obteniendo imagen: {}", filename);
+        servirImagen(imageStorageService.load(filename), size, ancho, request, response);
+    }
 
-        try {
-            Resource resource = imageStorageService.load(filename);
-
-            if (resource.exists() && resource.isReadable()) {
-                // Determinar tipo de contenido
-                String contentType = determineContentType(filename);
-
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                        .body(resource);
-            } else {
-                log.warn("❌ Imagen no encontrada o no legible: {}", filename);
-                return ResponseEntity.notFound().build();
-            }
-        } catch (Exception e) {
-            log.error("❌ Error obteniendo imagen {}: {}", filename, e.getMessage());
-            return ResponseEntity.notFound().build();
-        }
+    @GetMapping("/{tipo}/{filename}")
+    @Operation(summary = "Obtener imagen por tipo", description = "Descarga una imagen con la URL generada al subirla")
+    public void obtenerImagenPorTipo(@PathVariable String tipo,
+                                     @PathVariable String filename,
+                                     @RequestParam(required = false) String size,
+                                     @RequestParam(value = "w", required = false) Integer ancho,
+                                     HttpServletRequest request,
+                                     HttpServletResponse response) throws IOException {
+        log.debug("📸 Obteniendo imagen: {}/{}", tipo, filename);
+        servirImagen(imageStorageService.resolverImagenPublica(tipo, filename), size, ancho, request, response);
     }
 
     @DeleteMapping("/{filename}")
@@ -237,15 +239,15 @@ public class ImagenController {
         log.debug("📸 Obteniendo información de imagen: {}", filename);
 
         try {
-            Resource resource = imageStorageService.load(filename);
+            Path archivo = imageStorageService.load(filename);
 
-            if (resource.exists()) {
+            if (archivo != null) {
                 Map<String, Object> info = new HashMap<>();
                 info.put("filename", filename);
                 info.put("exists", true);
-                info.put("readable", resource.isReadable());
-                info.put("contentLength", resource.contentLength());
-                info.put("lastModified", resource.lastModified());
+                info.put("readable", Files.isReadable(archivo));
+                info.put("contentLength", Files.size(archivo));
+                info.put("lastModified", Files.getLastModifiedTime(archivo).toMillis());
                 info.put("contentType", determineContentType(filename));
                 info.put("url", "/api/imagenes/" + filename);
                 info.put("timestamp", LocalDateTime.now());
@@ -265,6 +267,27 @@ public class ImagenController {
         }
     }
 
+    @GetMapping("/cache/estadisticas")
+    @Operation(summary = "Estadísticas de la caché de imágenes en memoria")
+    @PreAuthorize("hasAuthority('" + RoleConstants.PERM_ADMIN_TOTAL + "')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasCache() {
+        Map<String, Object> estadisticas = new HashMap<>(imagenCacheService.obtenerEstadisticas());
+        estadisticas.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(estadisticas);
+    }
+
+    @PostMapping("/gc")
+    @Operation(summary = "Recolectar imágenes sin referencias",
+            description = "Ejecuta una pasada del recolector (continúa donde terminó la anterior)")
+    @PreAuthorize("hasAuthority('" + RoleConstants.PERM_ADMIN_TOTAL + "')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Object>> recolectarImagenes() {
+        Map<String, Object> resultado = new HashMap<>(imagenRecolectorService.ejecutar());
+        resultado.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(resultado);
+    }
+
     @GetMapping("/tipos")
     @Operation(summary = "Obtener tipos de imagen permitidos")
     public ResponseEntity<Map<String, Object>> obtenerTiposPermitidos() {
@@ -276,6 +299,7 @@ public class ImagenController {
                         "dimensions", "No hay límite específico"
                 ),
                 "contentTypesPermitidos", ALLOWED_CONTENT_TYPES,
+                "variantes", ImagenVarianteService.nombresVariantes(),
                 "timestamp", LocalDateTime.now()
         );
 
@@ -284,6 +308,47 @@ public class ImagenController {
 
     // Métodos privados de utilidad
 
+    private Map<String, Object> procesarArchivo(MultipartFile file, String tipo) {
+        long inicio = System.currentTimeMillis();
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("nombreOriginal", file.getOriginalFilename());
+
+        try {
+            Map<String, Object> validationResult = validateFile(file);
+            if ((Boolean) validationResult.get("valid")) {
+                resultado.put("success", true);
+                resultado.put("url", imageStorageService.store(file, tipo));
+                resultado.put("tamanio", file.getSize());
+            } else {
+                resultado.put("success", false);
+                resultado.put("error", validationResult.get("mensaje"));
+            }
+        } catch (Exception e) {
+            resultado.put("success", false);
+            resultado.put("error", e.getMessage());
+        }
+
+        resultado.put("tiempoMs", System.currentTimeMillis() - inicio);
+        return resultado;
+    }
+
+    private void servirImagen(Path original, String size, Integer ancho,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (original == null) {
+            log.warn("❌ Imagen no encontrada: {}", request.getRequestURI());
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Path archivo = imagenVarianteService.resolverVariante(original, size, ancho);
+        // Si se pidió una variante que aún no existe se entrega el original sin cachearlo
+        boolean provisional = (size != null || ancho != null) && archivo.equals(original);
+
+        String nombre = archivo.getFileName().toString();
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + nombre + "\"");
+        imagenEntregaService.servir(archivo, determineContentType(nombre), provisional, request, response);
+    }
+
     private Map<String, Object> validateFile(MultipartFile file) {
         Map<String, Object> result = new HashMap<>();
 
@@ -1,12 +1,15 @@
 package com.digital.mecommerces.controller;
 
 import com.digital.mecommerces.constants.RoleConstants;
+import com.digital.mecommerces.dto.CursorPageDTO;
 import com.digital.mecommerces.dto.ProductoDTO;
+import com.digital.mecommerces.dto.SugerenciaDTO;
 import com.digital.mecommerces.model.CategoriaProducto;
 import com.digital.mecommerces.model.Producto;
 import com.digital.mecommerces.model.Usuario;
 import com.digital.mecommerces.service.CategoriaProductoService;
 import com.digital.mecommerces.service.ProductoService;
+import com.digital.mecommerces.service.ProductoSugerenciaService;
 import com.digital.mecommerces.service.UsuarioService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -39,13 +42,16 @@ public class ProductoController {
     private final ProductoService productoService;
     private final CategoriaProductoService categoriaProductoService;
     private final UsuarioService usuarioService;
+    private final ProductoSugerenciaService productoSugerenciaService;
 
     public ProductoController(ProductoService productoService,
                               CategoriaProductoService categoriaProductoService,
-                              UsuarioService usuarioService) {
+                              UsuarioService usuarioService,
+                              ProductoSugerenciaService productoSugerenciaService) {
         this.productoService = productoService;
         this.categoriaProductoService = categoriaProductoService;
         this.usuarioService = usuarioService;
+        this.productoSugerenciaService = productoSugerenciaService;
     }
 
     // === ENDPOINTS PÚBLICOS ===
@@ -63,6 +69,22 @@ public class ProductoController {
         return ResponseEntity.ok(productosDTO);
     }
 
+    @GetMapping("/cursor")
+    @Operation(summary = "Listar productos por cursor",
+            description = "Paginación por keyset: enviar el nextCursor recibido para obtener la página siguiente")
+    public ResponseEntity<CursorPageDTO<ProductoDTO>> listarProductosPorCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "recientes") String orden,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean incluirTotal) {
+        log.info("🛍️ Obteniendo productos por cursor");
+
+        CursorPageDTO<Producto> productos = productoService.obtenerProductosPorCursor(
+                null, null, orden, cursor, size, incluirTotal);
+
+        return ResponseEntity.ok(productos.map(ProductoDTO::fromEntity).map(ProductoDTO::toPublic));
+    }
+
     @GetMapping("/destacados")
     @Operation(summary = "Listar productos destacados", description = "Obtiene productos marcados como destacados")
     public ResponseEntity<List<ProductoDTO>> listarProductosDestacados() {
@@ -126,6 +148,22 @@ public class ProductoController {
         return ResponseEntity.ok(productosDTO);
     }
 
+    @GetMapping("/categoria/{categoriaId}/cursor")
+    @Operation(summary = "Obtener productos por categoría con paginación por cursor")
+    public ResponseEntity<CursorPageDTO<ProductoDTO>> obtenerProductosPorCategoriaCursor(
+            @PathVariable Long categoriaId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "recientes") String orden,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean incluirTotal) {
+        log.info("🛍️ Obteniendo productos por cursor de la categoría ID: {}", categoriaId);
+
+        CursorPageDTO<Producto> productos = productoService.obtenerProductosPorCursor(
+                categoriaId, null, orden, cursor, size, incluirTotal);
+
+        return ResponseEntity.ok(productos.map(ProductoDTO::fromEntity).map(ProductoDTO::toPublic));
+    }
+
     @GetMapping("/vendedor/{vendedorId}")
     @Operation(summary = "Obtener productos por vendedor")
     public ResponseEntity<Page<ProductoDTO>> obtenerProductosPorVendedor(@PathVariable Long vendedorId,
@@ -139,6 +177,22 @@ public class ProductoController {
         return ResponseEntity.ok(productosDTO);
     }
 
+    @GetMapping("/vendedor/{vendedorId}/cursor")
+    @Operation(summary = "Obtener productos por vendedor con paginación por cursor")
+    public ResponseEntity<CursorPageDTO<ProductoDTO>> obtenerProductosPorVendedorCursor(
+            @PathVariable Long vendedorId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "recientes") String orden,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean incluirTotal) {
+        log.info("🛍️ Obteniendo productos por cursor del vendedor ID: {}", vendedorId);
+
+        CursorPageDTO<Producto> productos = productoService.obtenerProductosPorCursor(
+                null, vendedorId, orden, cursor, size, incluirTotal);
+
+        return ResponseEntity.ok(productos.map(ProductoDTO::fromEntity).map(ProductoDTO::toPublic));
+    }
+
     @GetMapping("/buscar")
     @Operation(summary = "Buscar productos", description = "Busca productos por nombre o descripción")
     public ResponseEntity<Page<ProductoDTO>> buscarProductos(@RequestParam String q, Pageable pageable) {
@@ -151,6 +205,14 @@ public class ProductoController {
         return ResponseEntity.ok(productosDTO);
     }
 
+    @GetMapping("/sugerencias")
+    @Operation(summary = "Sugerencias de búsqueda", description = "Autocompletado de productos, categorías y vendedores por prefijo")
+    public ResponseEntity<List<SugerenciaDTO>> obtenerSugerencias(@RequestParam String prefix,
+                                                                  @RequestParam(defaultValue = "8") int limite) {
+        // Sin log por petición: este endpoint se llama en cada tecla
+        return ResponseEntity.ok(productoSugerenciaService.obtenerSugerencias(prefix, limite));
+    }
+
     @GetMapping("/filtrar")
     @Operation(summary = "Filtrar productos", description = "Filtra productos por múltiples criterios")
     public ResponseEntity<Page<ProductoDTO>> filtrarProductos(
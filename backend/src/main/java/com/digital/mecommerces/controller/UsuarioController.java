@@ -2,8 +2,10 @@ package com.digital.mecommerces.controller;
 
 import com.digital.mecommerces.constants.RoleConstants;
 import com.digital.mecommerces.dto.UsuarioDTO;
+import com.digital.mecommerces.exception.BusinessException;
 import com.digital.mecommerces.model.RolUsuario;
 import com.digital.mecommerces.model.Usuario;
+import com.digital.mecommerces.service.NotificacionMasivaService;
 import com.digital.mecommerces.service.RolUsuarioService;
 import com.digital.mecommerces.service.UsuarioService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,6 +15,7 @@ import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -37,10 +40,13 @@ public class UsuarioController {
 
     private final UsuarioService usuarioService;
     private final RolUsuarioService rolUsuarioService;
+    private final NotificacionMasivaService notificacionMasivaService;
 
-    public UsuarioController(UsuarioService usuarioService, RolUsuarioService rolUsuarioService) {
+    public UsuarioController(UsuarioService usuarioService, RolUsuarioService rolUsuarioService,
+                             NotificacionMasivaService notificacionMasivaService) {
         this.usuarioService = usuarioService;
         this.rolUsuarioService = rolUsuarioService;
+        this.notificacionMasivaService = notificacionMasivaService;
     }
 
     @GetMapping
@@ -347,25 +353,34 @@ public class UsuarioController {
     }
 
     @PostMapping("/enviar-notificacion")
-    @Operation(summary = "Enviar notificación a usuarios")
+    @Operation(summary = "Enviar notificación a usuarios",
+            description = "Programa un envío masivo por email a los usuarios indicados, a un rol o a todos; devuelve el ID para consultar el progreso")
     @PreAuthorize("hasAuthority('" + RoleConstants.PERM_ADMIN_TOTAL + "')")
     public ResponseEntity<Map<String, Object>> enviarNotificacion(@RequestBody Map<String, Object> request) {
         String mensaje = (String) request.get("mensaje");
-        List<Long> usuariosIds = (List<Long>) request.get("usuariosIds");
+        String asunto = (String) request.get("asunto");
+        String rol = (String) request.get("rol");
+        // Jackson entrega los números como Integer o Long según su tamaño
+        List<Long> usuariosIds = request.get("usuariosIds") instanceof List<?> ids
+                ? ids.stream().filter(Number.class::isInstance).map(id -> ((Number) id).longValue()).toList()
+                : null;
 
-        log.info("👤 Enviando notificación a {} usuarios", usuariosIds.size());
+        log.info("👤 Programando notificación para {}", usuariosIds != null ? usuariosIds.size() + " usuarios" : "rol " + (rol != null ? rol : "TODOS"));
 
         try {
-            int notificacionesEnviadas = usuarioService.enviarNotificacion(usuariosIds, mensaje);
-
-            Map<String, Object> response = Map.of(
-                    "mensaje", "Notificaciones enviadas exitosamente",
-                    "notificacionesEnviadas", notificacionesEnviadas,
+            NotificacionMasivaService.EnvioMasivo envio = notificacionMasivaService.iniciar(asunto, mensaje, rol, usuariosIds);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(envio.resumen());
+
+        } catch (BusinessException e) {
+            log.warn("⚠️ Notificación rechazada: {}", e.getMessage());
+            ResponseEntity.BodyBuilder respuesta = ResponseEntity.status(e.getHttpStatus());
+            if (e.getHttpStatus() == HttpStatus.TOO_MANY_REQUESTS) {
+                respuesta.header(HttpHeaders.RETRY_AFTER, "30");
+            }
+            return respuesta.body(Map.of(
+                    "error", e.getMessage(),
                     "timestamp", LocalDateTime.now()
-            );
-
-            return ResponseEntity.ok(response);
-
+            ));
         } catch (Exception e) {
             log.error("❌ Error enviando notificaciones: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of(
@@ -375,6 +390,22 @@ public class UsuarioController {
         }
     }
 
+    @GetMapping("/notificaciones/{envioId}")
+    @Operation(summary = "Consultar el progreso de un envío masivo de notificaciones")
+    @PreAuthorize("hasAuthority('" + RoleConstants.PERM_ADMIN_TOTAL + "')")
+    public ResponseEntity<Map<String, Object>> obtenerEstadoNotificacion(@PathVariable String envioId) {
+        return ResponseEntity.ok(notificacionMasivaService.obtenerEstado(envioId).resumen());
+    }
+
+    @GetMapping("/notificaciones")
+    @Operation(summary = "Listar los envíos masivos de notificaciones recientes")
+    @PreAuthorize("hasAuthority('" + RoleConstants.PERM_ADMIN_TOTAL + "')")
+    public ResponseEntity<List<Map<String, Object>>> listarNotificaciones() {
+        return ResponseEntity.ok(notificacionMasivaService.listarEnvios().stream()
+                .map(NotificacionMasivaService.EnvioMasivo::resumen)
+                .toList());
+    }
+
     // Método auxiliar para obtener email del usuario autenticado
     private String obtenerEmailUsuarioAutenticado() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
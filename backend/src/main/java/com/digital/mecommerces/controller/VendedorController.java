@@ -187,13 +187,15 @@ public class VendedorController {
         Long vendedorId = obtenerUsuarioIdAutenticado();
         log.info("🏪 Obteniendo estadísticas de productos para vendedor ID: {}", vendedorId);
 
+        VendedorEstadisticas resumen = productoService.obtenerEstadisticasVendedor(vendedorId);
+
         Map<String, Object> estadisticas = Map.of(
-                "totalProductos", productoService.contarProductosPorVendedor(vendedorId),
-                "productosActivos", productoService.contarProductosActivosPorVendedor(vendedorId),
-                "productosAgotados", productoService.contarProductosAgotadosPorVendedor(vendedorId),
-                "stockTotal", productoService.obtenerStockTotalPorVendedor(vendedorId),
-                "precioPromedio", productoService.obtenerPrecioPromedioPorVendedor(vendedorId),
-                "valorInventario", productoService.obtenerValorInventarioPorVendedor(vendedorId),
+                "totalProductos", resumen.getTotalProductos(),
+                "productosActivos", resumen.getTotalProductos(),
+                "productosAgotados", resumen.getProductosAgotados(),
+                "stockTotal", resumen.getStockTotal(),
+                "precioPromedio", resumen.getPrecioPromedio(),
+                "valorInventario", resumen.getValorInventario(),
                 "porCategoria", productoService.obtenerEstadisticasPorCategoriaVendedor(vendedorId),
                 "timestamp", LocalDateTime.now()
         );
@@ -296,12 +298,15 @@ public class VendedorController {
         try {
             Map<String, Object> dashboard = new HashMap<>();
 
+            // Resumen materializado del vendedor: una sola fila
+            VendedorEstadisticas resumen = productoService.obtenerEstadisticasVendedor(vendedorId);
+
             // Estadísticas de productos
             dashboard.put("productos", Map.of(
-                    "total", productoService.contarProductosPorVendedor(vendedorId),
-                    "activos", productoService.contarProductosActivosPorVendedor(vendedorId),
-                    "agotados", productoService.contarProductosAgotadosPorVendedor(vendedorId),
-                    "valorInventario", productoService.obtenerValorInventarioPorVendedor(vendedorId)
+                    "total", resumen.getTotalProductos(),
+                    "activos", resumen.getTotalProductos(),
+                    "agotados", resumen.getProductosAgotados(),
+                    "valorInventario", resumen.getValorInventario()
             ));
 
             // Estadísticas de ventas
@@ -317,7 +322,7 @@ public class VendedorController {
 
             // Resumen rápido
             dashboard.put("resumen", Map.of(
-                    "necesitanRestock", productoService.contarProductosConPocoStockPorVendedor(vendedorId),
+                    "necesitanRestock", resumen.getProductosPocoStock(),
                     "ventasPendientes", productoService.contarVentasPendientesPorVendedor(vendedorId),
                     "calificacionPromedio", vendedorDetallesService.obtenerCalificacionPromedio(vendedorId)
             ));
@@ -0,0 +1,43 @@
+package com.digital.mecommerces.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de resultados con paginación por cursor (keyset)
+ * Optimizado para el sistema medbcommerce 3.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    @JsonProperty("content")
+    private List<T> content;
+
+    // Cursor opaco para pedir la página siguiente; null si no hay más
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+    @JsonProperty("hasNext")
+    private boolean hasNext;
+
+    @JsonProperty("size")
+    private int size;
+
+    // Total aproximado (cacheado unos segundos); solo se calcula si se pide incluirTotal=true
+    @JsonProperty("totalElements")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+
+    public <R> CursorPageDTO<R> map(Function<? super T, ? extends R> conversor) {
+        List<R> convertidos = content.stream().<R>map(conversor).toList();
+        return new CursorPageDTO<>(convertidos, nextCursor, hasNext, size, totalElements);
+    }
+}
@@ -0,0 +1,21 @@
+package com.digital.mecommerces.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Destinatario de una notificación masiva: solo lo necesario para personalizar y encolar el email,
+ * sin cargar la entidad Usuario con su rol
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DestinatarioDTO {
+
+    private Long usuarioId;
+
+    private String email;
+
+    private String usuarioNombre;
+}
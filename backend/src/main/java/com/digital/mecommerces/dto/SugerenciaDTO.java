@@ -0,0 +1,27 @@
+package com.digital.mecommerces.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para las sugerencias de autocompletado del buscador
+ * Optimizado para el sistema medbcommerce 3.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SugerenciaDTO {
+
+    @JsonProperty("texto")
+    private String texto;
+
+    // PRODUCTO, CATEGORIA o VENDEDOR
+    @JsonProperty("tipo")
+    private String tipo;
+
+    // ID del producto cuando tipo = PRODUCTO; null en otro caso
+    @JsonProperty("productoId")
+    private Long productoId;
+}
@@ -0,0 +1,19 @@
+package com.digital.mecommerces.event;
+
+/**
+ * Evento publicado cuando un registro deja de apuntar a una imagen almacenada
+ * (se elimina una ProductoImagen o cambia su URL). Tras el commit, el almacén
+ * borra el archivo si ya no queda ninguna referencia a él.
+ */
+public class ImagenLiberadaEvent {
+
+    private final String url;
+
+    public ImagenLiberadaEvent(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+}
@@ -0,0 +1,9 @@
+package com.digital.mecommerces.event;
+
+/**
+ * Evento publicado cuando cambia un permiso o su asignación a un rol.
+ * Afecta a todos los usuarios del rol, así que tras el commit se descartan
+ * todos los principales cacheados y los listados de permisos.
+ */
+public class PermisosModificadosEvent {
+}
@@ -0,0 +1,77 @@
+package com.digital.mecommerces.event;
+
+import com.digital.mecommerces.model.Producto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento publicado cuando un producto se crea, modifica o desactiva.
+ * Lleva una copia de los datos de texto y del precio del producto, tomada dentro de la transacción,
+ * para que los oyentes (índices y carritos en memoria) no necesiten volver a la base de datos.
+ */
+public class ProductoModificadoEvent {
+
+    private final Long productoId;
+    private final String productoNombre;
+    private final String descripcion;
+    private final String categoriaNombre;
+    private final String slug;
+    private final String vendedorNombre;
+    private final Double precio;
+    private final boolean activo;
+    private final boolean destacado;
+    private final LocalDateTime createdat;
+
+    public ProductoModificadoEvent(Producto producto) {
+        this.productoId = producto.getProductoId();
+        this.productoNombre = producto.getProductoNombre();
+        this.descripcion = producto.getDescripcion();
+        this.categoriaNombre = producto.getCategoria() != null ? producto.getCategoria().getNombre() : null;
+        this.slug = producto.getSlug();
+        this.vendedorNombre = producto.getVendedor() != null ? producto.getVendedor().getUsuarioNombre() : null;
+        this.precio = producto.getPrecio();
+        this.activo = Boolean.TRUE.equals(producto.getActivo());
+        this.destacado = Boolean.TRUE.equals(producto.getDestacado());
+        this.createdat = producto.getCreatedat();
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+
+    public String getProductoNombre() {
+        return productoNombre;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public String getCategoriaNombre() {
+        return categoriaNombre;
+    }
+
+    public String getSlug() {
+        return slug;
+    }
+
+    public String getVendedorNombre() {
+        return vendedorNombre;
+    }
+
+    public Double getPrecio() {
+        return precio;
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    public boolean isDestacado() {
+        return destacado;
+    }
+
+    public LocalDateTime getCreatedat() {
+        return createdat;
+    }
+}
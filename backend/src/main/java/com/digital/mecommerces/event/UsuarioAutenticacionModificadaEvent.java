@@ -0,0 +1,19 @@
+package com.digital.mecommerces.event;
+
+/**
+ * Evento publicado cuando cambia algo que afecta la autenticación de un usuario
+ * (rol, estado activo o contraseña). Los principales cacheados de ese usuario se descartan
+ * tras el commit, así la siguiente petición vuelve a leer sus datos.
+ */
+public class UsuarioAutenticacionModificadaEvent {
+
+    private final String email;
+
+    public UsuarioAutenticacionModificadaEvent(String email) {
+        this.email = email;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+}
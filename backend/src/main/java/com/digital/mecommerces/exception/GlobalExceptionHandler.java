@@ -1,6 +1,7 @@
 package com.digital.mecommerces.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -28,6 +29,9 @@ import java.util.Map;
 @Slf4j
 public class GlobalExceptionHandler {
 
+    // Retry-After de las respuestas 429 (el mismo que usa AuthController)
+    private static final String SEGUNDOS_REINTENTO = "2";
+
     // === MANEJO DE RESOURCE NOT FOUND ===
 
     @ExceptionHandler(ResourceNotFoundException.class)
@@ -63,6 +67,13 @@ public class GlobalExceptionHandler {
             errorDetails.setData((Map<String, Object>) ex.getData());
         }
 
+        // Pools saturados (p.ej. hash de contraseñas): el cliente puede reintentar en unos segundos
+        if (ex.getHttpStatus() == HttpStatus.TOO_MANY_REQUESTS) {
+            return ResponseEntity.status(ex.getHttpStatus())
+                    .header(HttpHeaders.RETRY_AFTER, SEGUNDOS_REINTENTO)
+                    .body(errorDetails);
+        }
+
         return new ResponseEntity<>(errorDetails, ex.getHttpStatus());
     }
 
@@ -7,7 +7,9 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Entity
 @Table(name = "carritocompra")
@@ -41,9 +43,18 @@ public class CarritoCompra {
     @Column(name = "totalestimado")
     private Double totalEstimado = 0.0;
 
+    // Control de concurrencia optimista: la copia en memoria solo se guarda si nadie cambió el carrito después
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version = 0L;
+
     @OneToMany(mappedBy = "carritoCompra", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     private List<CarritoItem> items = new ArrayList<>();
 
+    // Índice productoId -> item para buscar sin recorrer la lista; se reconstruye si la lista cambió por fuera
+    @Transient
+    private Map<Long, CarritoItem> itemsPorProducto;
+
     // Constructor vacío requerido por JPA
     public CarritoCompra() {
         this.fechaCreacion = LocalDateTime.now();
@@ -74,11 +85,11 @@ public class CarritoCompra {
         }
     }
 
-    // Métodos de gestión del carrito optimizados
+    // Métodos de gestión del carrito optimizados.
+    // Los totales se mantienen con cada cambio; el recálculo completo queda para el checkout y los cambios de precio.
     @PreUpdate
     public void preUpdate() {
         this.fechaModificacion = LocalDateTime.now();
-        recalcularTotales();
         log.debug("🔄 Carrito actualizado - ID: {}, Items: {}", this.carritoId, this.totalItems);
     }
 
@@ -93,25 +104,31 @@ public class CarritoCompra {
 
         if (existente != null) {
             // Actualizar cantidad del item existente
-            existente.setCantidad(existente.getCantidad() + item.getCantidad());
+            actualizarCantidadItem(existente, existente.getCantidad() + item.getCantidad());
             log.debug("🔄 Cantidad actualizada para producto {} en carrito {}",
                     item.getProducto().getProductoId(), this.carritoId);
-        } else {
-            // Agregar nuevo item
-            items.add(item);
-            item.setCarritoCompra(this);
-            log.debug("➕ Nuevo item agregado al carrito {}: {}",
-                    this.carritoId, item.getProducto().getProductoNombre());
+            return;
         }
 
-        recalcularTotales();
+        // Agregar nuevo item
+        items.add(item);
+        item.setCarritoCompra(this);
+        indice().put(item.getProducto().getProductoId(), item);
+        this.totalItems = items.size();
+        this.totalEstimado = totalEstimadoActual() + item.calcularSubtotal();
         this.fechaModificacion = LocalDateTime.now();
+        log.debug("➕ Nuevo item agregado al carrito {}: {}",
+                this.carritoId, item.getProducto().getProductoNombre());
     }
 
     public void removeItem(CarritoItem item) {
         if (item != null && items.remove(item)) {
+            if (item.getProducto() != null && itemsPorProducto != null) {
+                itemsPorProducto.remove(item.getProducto().getProductoId(), item);
+            }
             item.setCarritoCompra(null);
-            recalcularTotales();
+            this.totalItems = items.size();
+            this.totalEstimado = totalEstimadoActual() - item.calcularSubtotal();
             this.fechaModificacion = LocalDateTime.now();
             log.debug("➖ Item eliminado del carrito {}: {}",
                     this.carritoId, item.getProducto().getProductoNombre());
@@ -126,15 +143,29 @@ public class CarritoCompra {
     }
 
     public CarritoItem findItemByProducto(Producto producto) {
-        if (producto == null || producto.getProductoId() == null) {
+        if (producto == null) {
+            return null;
+        }
+
+        return findItemByProductoId(producto.getProductoId());
+    }
+
+    public CarritoItem findItemByProductoId(Long productoId) {
+        if (productoId == null) {
             return null;
         }
 
-        return items.stream()
-                .filter(item -> item.getProducto() != null &&
-                        producto.getProductoId().equals(item.getProducto().getProductoId()))
-                .findFirst()
-                .orElse(null);
+        return indice().get(productoId);
+    }
+
+    /**
+     * Cambia la cantidad de un item del carrito ajustando el total solo con la diferencia
+     */
+    public void actualizarCantidadItem(CarritoItem item, Integer nuevaCantidad) {
+        Double subtotalAnterior = item.calcularSubtotal();
+        item.setCantidad(nuevaCantidad);
+        this.totalEstimado = totalEstimadoActual() + item.calcularSubtotal() - subtotalAnterior;
+        this.fechaModificacion = LocalDateTime.now();
     }
 
     public void actualizarCantidadProducto(Producto producto, Integer nuevaCantidad) {
@@ -144,9 +175,7 @@ public class CarritoCompra {
             if (nuevaCantidad <= 0) {
                 removeItem(item);
             } else {
-                item.setCantidad(nuevaCantidad);
-                recalcularTotales();
-                this.fechaModificacion = LocalDateTime.now();
+                actualizarCantidadItem(item, nuevaCantidad);
                 log.debug("🔄 Cantidad actualizada para producto {} a {}",
                         producto.getProductoId(), nuevaCantidad);
             }
@@ -156,7 +185,9 @@ public class CarritoCompra {
     public void vaciarCarrito() {
         items.forEach(item -> item.setCarritoCompra(null));
         items.clear();
-        recalcularTotales();
+        itemsPorProducto = null;
+        this.totalItems = 0;
+        this.totalEstimado = 0.0;
         this.fechaModificacion = LocalDateTime.now();
         log.info("🗑️ Carrito {} vaciado completamente", this.carritoId);
     }
@@ -171,6 +202,40 @@ public class CarritoCompra {
                 this.carritoId, this.totalItems, this.totalEstimado);
     }
 
+    /**
+     * Toma el precio actual de cada producto y, si alguno cambió, recalcula los totales completos.
+     * Devuelve true si hubo cambios de precio.
+     */
+    public boolean actualizarPrecios() {
+        boolean cambio = false;
+        for (CarritoItem item : items) {
+            if (item.getPrecioUnitario() == null || item.necesitaActualizacionPrecio()) {
+                item.actualizarPrecioDesdeProducto();
+                cambio = true;
+            }
+        }
+        if (cambio) {
+            recalcularTotales();
+        }
+        return cambio;
+    }
+
+    private Map<Long, CarritoItem> indice() {
+        if (itemsPorProducto == null || itemsPorProducto.size() != items.size()) {
+            itemsPorProducto = new HashMap<>(Math.max(16, items.size() * 2));
+            for (CarritoItem item : items) {
+                if (item.getProducto() != null) {
+                    itemsPorProducto.putIfAbsent(item.getProducto().getProductoId(), item);
+                }
+            }
+        }
+        return itemsPorProducto;
+    }
+
+    private double totalEstimadoActual() {
+        return totalEstimado != null ? totalEstimado : 0.0;
+    }
+
     public boolean estaVacio() {
         return items.isEmpty();
     }
@@ -201,6 +266,27 @@ public class CarritoCompra {
         log.info("🛒➡️📦 Carrito {} convertido a orden", this.carritoId);
     }
 
+    /**
+     * Copia independiente del carrito y de sus items, para leerla sin bloquear el original.
+     * Usuario y productos se comparten: el carrito no los modifica.
+     */
+    public CarritoCompra copia() {
+        CarritoCompra copia = new CarritoCompra();
+        copia.carritoId = this.carritoId;
+        copia.usuario = this.usuario;
+        copia.fechaCreacion = this.fechaCreacion;
+        copia.activo = this.activo;
+        copia.fechaModificacion = this.fechaModificacion;
+        copia.estado = this.estado;
+        copia.totalItems = this.totalItems;
+        copia.totalEstimado = this.totalEstimado;
+        copia.version = this.version;
+        for (CarritoItem item : items) {
+            copia.items.add(item.copia(copia));
+        }
+        return copia;
+    }
+
     // Getters y Setters optimizados
     public Long getCarritoId() {
         return carritoId;
@@ -269,12 +355,21 @@ public class CarritoCompra {
         this.totalEstimado = totalEstimado;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<CarritoItem> getItems() {
         return items;
     }
 
     public void setItems(List<CarritoItem> items) {
         this.items = items != null ? items : new ArrayList<>();
+        this.itemsPorProducto = null;
         recalcularTotales();
     }
 
@@ -167,6 +167,23 @@ public class CarritoItem {
         }
     }
 
+    /**
+     * Copia del item para la copia del carrito indicada; comparte el producto
+     */
+    public CarritoItem copia(CarritoCompra carrito) {
+        CarritoItem copia = new CarritoItem();
+        copia.itemId = this.itemId;
+        copia.carritoCompra = carrito;
+        copia.producto = this.producto;
+        copia.cantidad = this.cantidad;
+        copia.precioUnitario = this.precioUnitario;
+        copia.fechaAgregado = this.fechaAgregado;
+        copia.fechaModificacion = this.fechaModificacion;
+        copia.guardadoDespues = this.guardadoDespues;
+        copia.disponible = this.disponible;
+        return copia;
+    }
+
     // Getters y Setters optimizados
     public Long getItemId() {
         return itemId;
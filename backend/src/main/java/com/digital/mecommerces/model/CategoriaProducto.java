@@ -8,7 +8,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "categoriaproducto")
+@Table(name = "categoriaproducto", indexes = {
+        @Index(name = "idx_categoriaproducto_imagen", columnList = "imagen")
+})
 @Slf4j
 public class CategoriaProducto {
 
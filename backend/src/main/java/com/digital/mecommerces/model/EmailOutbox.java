@@ -0,0 +1,205 @@
+package com.digital.mecommerces.model;
+
+import jakarta.persistence.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+
+/**
+ * Email pendiente de envío (bandeja de salida persistente).
+ * EmailService solo inserta la fila; EmailOutboxService la envía en lotes y, si falla,
+ * la reprograma con espera exponencial hasta agotar los intentos.
+ * Mientras se envía, proximoIntento marca hasta cuándo está reservada: si la aplicación
+ * se cae a mitad de un lote, la fila vuelve a estar disponible al vencer la reserva.
+ */
+@Entity
+@Table(name = "emailoutbox", indexes = {
+        @Index(name = "idx_emailoutbox_estado_proximo", columnList = "estado, proximointento")
+})
+@Slf4j
+public class EmailOutbox {
+
+    public static final String ESTADO_PENDIENTE = "PENDIENTE";
+    public static final String ESTADO_ENVIANDO = "ENVIANDO";
+    public static final String ESTADO_ENVIADO = "ENVIADO";
+    public static final String ESTADO_FALLIDO = "FALLIDO";
+
+    // Secuencia con reserva de 50 IDs: los envíos masivos se insertan en lotes JDBC
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "emailoutbox_seq")
+    @SequenceGenerator(name = "emailoutbox_seq", sequenceName = "emailoutbox_seq", allocationSize = 50)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "destinatario", nullable = false, length = 255)
+    private String destinatario;
+
+    @Column(name = "asunto", nullable = false, length = 255)
+    private String asunto;
+
+    @Lob
+    @Column(name = "contenido", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String contenido;
+
+    @Column(name = "html", nullable = false)
+    private Boolean html = true;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado = ESTADO_PENDIENTE;
+
+    @Column(name = "intentos", nullable = false)
+    private Integer intentos = 0;
+
+    @Column(name = "proximointento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimoerror", length = 500)
+    private String ultimoError;
+
+    @Column(name = "createdat", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "fechaenvio")
+    private LocalDateTime fechaEnvio;
+
+    // Constructor vacío requerido por JPA
+    public EmailOutbox() {
+        this.createdAt = LocalDateTime.now();
+        this.proximoIntento = this.createdAt;
+    }
+
+    public EmailOutbox(String destinatario, String asunto, String contenido, boolean html) {
+        this();
+        this.destinatario = destinatario;
+        this.asunto = asunto;
+        this.contenido = contenido;
+        this.html = html;
+    }
+
+    // Métodos de gestión del envío
+    public void reservar(LocalDateTime hasta) {
+        this.estado = ESTADO_ENVIANDO;
+        this.proximoIntento = hasta;
+    }
+
+    public void marcarEnviado() {
+        this.estado = ESTADO_ENVIADO;
+        this.fechaEnvio = LocalDateTime.now();
+        this.ultimoError = null;
+    }
+
+    /**
+     * Registra un intento fallido: se reprograma para proximoIntento o, sin reintento, queda FALLIDO
+     */
+    public void registrarFallo(String error, LocalDateTime proximoIntento) {
+        this.intentos++;
+        this.ultimoError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        if (proximoIntento == null) {
+            this.estado = ESTADO_FALLIDO;
+            log.warn("❌ Email {} a {} descartado tras {} intentos", this.id, this.destinatario, this.intentos);
+        } else {
+            this.estado = ESTADO_PENDIENTE;
+            this.proximoIntento = proximoIntento;
+        }
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDestinatario() {
+        return destinatario;
+    }
+
+    public void setDestinatario(String destinatario) {
+        this.destinatario = destinatario;
+    }
+
+    public String getAsunto() {
+        return asunto;
+    }
+
+    public void setAsunto(String asunto) {
+        this.asunto = asunto;
+    }
+
+    public String getContenido() {
+        return contenido;
+    }
+
+    public void setContenido(String contenido) {
+        this.contenido = contenido;
+    }
+
+    public Boolean getHtml() {
+        return html;
+    }
+
+    public void setHtml(Boolean html) {
+        this.html = html;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public Integer getIntentos() {
+        return intentos;
+    }
+
+    public void setIntentos(Integer intentos) {
+        this.intentos = intentos;
+    }
+
+    public LocalDateTime getProximoIntento() {
+        return proximoIntento;
+    }
+
+    public void setProximoIntento(LocalDateTime proximoIntento) {
+        this.proximoIntento = proximoIntento;
+    }
+
+    public String getUltimoError() {
+        return ultimoError;
+    }
+
+    public void setUltimoError(String ultimoError) {
+        this.ultimoError = ultimoError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getFechaEnvio() {
+        return fechaEnvio;
+    }
+
+    public void setFechaEnvio(LocalDateTime fechaEnvio) {
+        this.fechaEnvio = fechaEnvio;
+    }
+
+    @Override
+    public String toString() {
+        return "EmailOutbox{" +
+                "id=" + id +
+                ", destinatario='" + destinatario + '\'' +
+                ", asunto='" + asunto + '\'' +
+                ", estado='" + estado + '\'' +
+                ", intentos=" + intentos +
+                '}';
+    }
+}
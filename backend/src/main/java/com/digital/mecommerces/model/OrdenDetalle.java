@@ -10,8 +10,10 @@ import java.time.LocalDateTime;
 @Slf4j
 public class OrdenDetalle {
 
+    // Secuencia con bloques de 50 IDs: con IDENTITY Hibernate no puede agrupar los INSERT en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ordendetalle_seq")
+    @SequenceGenerator(name = "ordendetalle_seq", sequenceName = "ordendetalle_seq", allocationSize = 50)
     @Column(name = "detalleid", nullable = false)
     private Long detalleId;
 
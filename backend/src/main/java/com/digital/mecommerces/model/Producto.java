@@ -9,7 +9,25 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "producto")
+// Plan de carga para listados: categoría y vendedor (con su rol EAGER) en la misma consulta.
+// Las imágenes se cargan aparte con ProductoRepository.cargarImagenes para no paginar en memoria.
+@NamedEntityGraph(
+        name = "Producto.listado",
+        attributeNodes = {
+                @NamedAttributeNode("categoria"),
+                @NamedAttributeNode(value = "vendedor", subgraph = "vendedor")
+        },
+        subgraphs = @NamedSubgraph(name = "vendedor", attributeNodes = @NamedAttributeNode("rol"))
+)
+// Índices para la paginación por keyset (ver ProductoRepository.find*Desde)
+@Table(name = "producto", indexes = {
+        @Index(name = "idx_producto_activo_createdat", columnList = "activo, createdat, productoid"),
+        @Index(name = "idx_producto_activo_precio", columnList = "activo, precio, productoid"),
+        @Index(name = "idx_producto_categoria_createdat", columnList = "categoriaid, activo, createdat, productoid"),
+        @Index(name = "idx_producto_categoria_precio", columnList = "categoriaid, activo, precio, productoid"),
+        @Index(name = "idx_producto_vendedor_createdat", columnList = "vendedorid, activo, createdat, productoid"),
+        @Index(name = "idx_producto_vendedor_precio", columnList = "vendedorid, activo, precio, productoid")
+})
 @Slf4j
 public class Producto {
 
@@ -30,6 +48,11 @@ public class Producto {
     @Column(name = "stock", nullable = false)
     private Integer stock;
 
+    // Control de concurrencia optimista; el descuento de stock del checkout también lo incrementa
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version = 0L;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "categoriaid", nullable = false)
     private CategoriaProducto categoria;
@@ -345,6 +368,14 @@ public class Producto {
         this.createdat = createdat;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public LocalDateTime getUpdatedat() {
         return updatedat;
     }
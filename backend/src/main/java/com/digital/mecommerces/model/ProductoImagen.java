@@ -14,7 +14,9 @@ import java.time.LocalDateTime;
  * Optimizada para el sistema medbcommerce 3.0
  */
 @Entity
-@Table(name = "productoimagen")
+@Table(name = "productoimagen", indexes = {
+        @Index(name = "idx_productoimagen_url", columnList = "url")
+})
 @Data
 @NoArgsConstructor
 @EqualsAndHashCode(exclude = {"producto"})
@@ -44,15 +44,8 @@ public class Usuario {
     @Column(name = "ultimologin")
     private LocalDateTime ultimoLogin;
 
-    // Relaciones con detalles específicos por rol
-    @OneToOne(mappedBy = "usuario", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
-    private AdminDetalles adminDetalles;
-
-    @OneToOne(mappedBy = "usuario", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
-    private CompradorDetalles compradorDetalles;
-
-    @OneToOne(mappedBy = "usuario", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
-    private VendedorDetalles vendedorDetalles;
+    // Los detalles por rol (AdminDetalles, CompradorDetalles, VendedorDetalles) son dueños de la relación con @MapsId
+    // y se consultan por su repositorio: un @OneToOne inverso no admite proxy y Hibernate lo cargaría con cada usuario
 
     // Relaciones con entidades del negocio
     @OneToMany(mappedBy = "vendedor", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -201,30 +194,6 @@ public class Usuario {
         log.debug("🔐 Login registrado para usuario: {}", this.email);
     }
 
-    // Métodos de gestión de detalles por rol optimizados
-    public Object getDetallesEspecificos() {
-        if (esAdministrador()) {
-            return this.adminDetalles;
-        } else if (esComprador()) {
-            return this.compradorDetalles;
-        } else if (esVendedor()) {
-            return this.vendedorDetalles;
-        }
-        return null;
-    }
-
-    public boolean tieneDetallesCompletos() {
-        if (esAdministrador()) {
-            return this.adminDetalles != null;
-        } else if (esComprador()) {
-            return this.compradorDetalles != null &&
-                    this.compradorDetalles.tieneInformacionCompleta();
-        } else if (esVendedor()) {
-            return this.vendedorDetalles != null;
-        }
-        return true; // Para roles personalizados
-    }
-
     // Métodos de gestión de carritos optimizados
     public CarritoCompra getCarritoActivo() {
         return this.carritos.stream()
@@ -409,30 +378,6 @@ public class Usuario {
         this.ultimoLogin = ultimoLogin;
     }
 
-    public AdminDetalles getAdminDetalles() {
-        return adminDetalles;
-    }
-
-    public void setAdminDetalles(AdminDetalles adminDetalles) {
-        this.adminDetalles = adminDetalles;
-    }
-
-    public CompradorDetalles getCompradorDetalles() {
-        return compradorDetalles;
-    }
-
-    public void setCompradorDetalles(CompradorDetalles compradorDetalles) {
-        this.compradorDetalles = compradorDetalles;
-    }
-
-    public VendedorDetalles getVendedorDetalles() {
-        return vendedorDetalles;
-    }
-
-    public void setVendedorDetalles(VendedorDetalles vendedorDetalles) {
-        this.vendedorDetalles = vendedorDetalles;
-    }
-
     public List<Producto> getProductos() {
         return productos;
     }
@@ -0,0 +1,136 @@
+package com.digital.mecommerces.model;
+
+import jakarta.persistence.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resumen materializado del inventario de un vendedor.
+ * Se recalcula con una única consulta agregada poco después de cada cambio en los productos del vendedor,
+ * de modo que el dashboard lee una sola fila por clave primaria.
+ */
+@Entity
+@Table(name = "vendedorestadisticas")
+@Slf4j
+public class VendedorEstadisticas {
+
+    @Id
+    @Column(name = "vendedorid", nullable = false)
+    private Long vendedorId;
+
+    @Column(name = "totalproductos", nullable = false)
+    private Long totalProductos = 0L;
+
+    @Column(name = "productosagotados", nullable = false)
+    private Long productosAgotados = 0L;
+
+    @Column(name = "productospocostock", nullable = false)
+    private Long productosPocoStock = 0L;
+
+    @Column(name = "stocktotal", nullable = false)
+    private Long stockTotal = 0L;
+
+    @Column(name = "preciopromedio", nullable = false)
+    private Double precioPromedio = 0.0;
+
+    @Column(name = "valorinventario", nullable = false)
+    private Double valorInventario = 0.0;
+
+    @Column(name = "fechaactualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    // Constructor vacío requerido por JPA
+    public VendedorEstadisticas() {
+        this.fechaActualizacion = LocalDateTime.now();
+    }
+
+    public VendedorEstadisticas(Long vendedorId) {
+        this();
+        this.vendedorId = vendedorId;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void preSave() {
+        this.fechaActualizacion = LocalDateTime.now();
+        log.debug("🔄 Estadísticas del vendedor {} actualizadas: {} productos", this.vendedorId, this.totalProductos);
+    }
+
+    // Getters y Setters
+    public Long getVendedorId() {
+        return vendedorId;
+    }
+
+    public void setVendedorId(Long vendedorId) {
+        this.vendedorId = vendedorId;
+    }
+
+    public Long getTotalProductos() {
+        return totalProductos;
+    }
+
+    public void setTotalProductos(Long totalProductos) {
+        this.totalProductos = totalProductos;
+    }
+
+    public Long getProductosAgotados() {
+        return productosAgotados;
+    }
+
+    public void setProductosAgotados(Long productosAgotados) {
+        this.productosAgotados = productosAgotados;
+    }
+
+    public Long getProductosPocoStock() {
+        return productosPocoStock;
+    }
+
+    public void setProductosPocoStock(Long productosPocoStock) {
+        this.productosPocoStock = productosPocoStock;
+    }
+
+    public Long getStockTotal() {
+        return stockTotal;
+    }
+
+    public void setStockTotal(Long stockTotal) {
+        this.stockTotal = stockTotal;
+    }
+
+    public Double getPrecioPromedio() {
+        return precioPromedio;
+    }
+
+    public void setPrecioPromedio(Double precioPromedio) {
+        this.precioPromedio = precioPromedio;
+    }
+
+    public Double getValorInventario() {
+        return valorInventario;
+    }
+
+    public void setValorInventario(Double valorInventario) {
+        this.valorInventario = valorInventario;
+    }
+
+    public LocalDateTime getFechaActualizacion() {
+        return fechaActualizacion;
+    }
+
+    public void setFechaActualizacion(LocalDateTime fechaActualizacion) {
+        this.fechaActualizacion = fechaActualizacion;
+    }
+
+    @Override
+    public String toString() {
+        return "VendedorEstadisticas{" +
+                "vendedorId=" + vendedorId +
+                ", totalProductos=" + totalProductos +
+                ", productosAgotados=" + productosAgotados +
+                ", productosPocoStock=" + productosPocoStock +
+                ", stockTotal=" + stockTotal +
+                ", valorInventario=" + valorInventario +
+                '}';
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +25,18 @@ public interface CarritoCompraRepository extends JpaRepository<CarritoCompra, Lo
 
     Optional<CarritoCompra> findByUsuarioUsuarioIdAndActivo(Long usuarioId, Boolean activo);
 
+    // Carrito activo con todo lo que necesitan los DTO, para mantenerlo en memoria desconectado
+    @Query("SELECT DISTINCT c FROM CarritoCompra c JOIN FETCH c.usuario u JOIN FETCH u.rol " +
+            "LEFT JOIN FETCH c.items i LEFT JOIN FETCH i.producto p " +
+            "LEFT JOIN FETCH p.categoria LEFT JOIN FETCH p.vendedor " +
+            "WHERE u.usuarioId = :usuarioId AND c.activo = true")
+    Optional<CarritoCompra> findActivoCompletoByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    // Estado actual de varios carritos con sus items, para guardar en bloque los que están en memoria
+    @Query("SELECT DISTINCT c FROM CarritoCompra c LEFT JOIN FETCH c.items i LEFT JOIN FETCH i.producto " +
+            "WHERE c.carritoId IN :ids")
+    List<CarritoCompra> findConItemsByCarritoIdIn(@Param("ids") Collection<Long> ids);
+
     // Múltiples carritos activos por usuario (para verificación)
     List<CarritoCompra> findByUsuarioUsuarioIdAndActivoTrue(Long usuarioId);
 
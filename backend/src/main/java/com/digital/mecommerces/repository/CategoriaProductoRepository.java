@@ -27,6 +27,16 @@ public interface CategoriaProductoRepository extends JpaRepository<CategoriaProd
 
     boolean existsBySlug(String slug);
 
+    // Referencias a un archivo almacenado por su URL pública (consulta por índice)
+    long countByImagen(String url);
+
+    // Referencias cuya URL termina en la ruta indicada, con cualquier host o base URL (sin ESCAPE, como en ProductoImagenRepository)
+    @Query("SELECT COUNT(c) FROM CategoriaProducto c WHERE c.imagen LIKE CONCAT('%', :ruta)")
+    long countByImagenTerminadaEn(@Param("ruta") String ruta);
+
+    @Query("SELECT DISTINCT c.imagen FROM CategoriaProducto c WHERE c.imagen IS NOT NULL")
+    List<String> findImagenesDistintas();
+
     // Categorías principales (sin padre) - optimizado
     @Query("SELECT c FROM CategoriaProducto c WHERE c.categoriaPadre IS NULL")
     List<CategoriaProducto> findCategoriasPrincipales();
@@ -131,12 +141,12 @@ public interface CategoriaProductoRepository extends JpaRepository<CategoriaProd
     boolean existsBySlugAndCategoriaIdNot(@Param("slug") String slug, @Param("id") Long id);
 
     // Obtener ruta completa de una categoría (breadcrumb)
-    @Query("WITH RECURSIVE categoria_path AS (" +
+    @Query(value = "WITH RECURSIVE categoria_path AS (" +
             "SELECT c.categoriaId, c.nombre, c.slug, c.categoriapadreId, 0 as nivel " +
             "FROM CategoriaProducto c WHERE c.categoriaId = :categoriaId " +
             "UNION ALL " +
             "SELECT p.categoriaId, p.nombre, p.slug, p.categoriapadreId, cp.nivel + 1 " +
             "FROM CategoriaProducto p INNER JOIN categoria_path cp ON p.categoriaId = cp.categoriapadreId) " +
-            "SELECT * FROM categoria_path ORDER BY nivel DESC")
+            "SELECT * FROM categoria_path ORDER BY nivel DESC", nativeQuery = true)
     List<Object[]> findRutaCompleta(@Param("categoriaId") Long categoriaId);
 }
@@ -0,0 +1,49 @@
+package com.digital.mecommerces.repository;
+
+import com.digital.mecommerces.model.EmailOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    /**
+     * Adelanta la secuencia de IDs (tabla emailoutbox_seq) por encima del mayor ID existente,
+     * para bases de datos donde la tabla se creó con AUTO_INCREMENT
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE emailoutbox_seq SET next_val = GREATEST(next_val, " +
+            "(SELECT COALESCE(MAX(id), 0) + 51 FROM emailoutbox))", nativeQuery = true)
+    int alinearSecuencia();
+
+    /**
+     * Emails listos para enviar: pendientes cuyo reintento ya venció o reservas abandonadas.
+     * Las filas quedan bloqueadas hasta el commit; SKIP LOCKED (lock.timeout = -2) evita que
+     * dos instancias tomen el mismo lote.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EmailOutbox e WHERE e.estado IN ('PENDIENTE', 'ENVIANDO') " +
+            "AND e.proximoIntento <= :ahora ORDER BY e.proximoIntento, e.id")
+    List<EmailOutbox> findListosParaEnviar(@Param("ahora") LocalDateTime ahora, Pageable pageable);
+
+    long countByEstado(String estado);
+
+    // Limpieza de emails ya enviados
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e WHERE e.estado = 'ENVIADO' AND e.fechaEnvio < :fecha")
+    int eliminarEnviadosAntesDe(@Param("fecha") LocalDateTime fecha);
+}
@@ -4,9 +4,11 @@ import com.digital.mecommerces.model.Orden;
 import com.digital.mecommerces.model.OrdenDetalle;
 import com.digital.mecommerces.model.Producto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,6 +17,16 @@ import java.util.Optional;
 @Repository
 public interface OrdenDetalleRepository extends JpaRepository<OrdenDetalle, Long> {
 
+    /**
+     * Adelanta la secuencia de IDs (tabla ordendetalle_seq en MySQL) por encima del mayor ID existente,
+     * para bases de datos que venían usando AUTO_INCREMENT
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE ordendetalle_seq SET next_val = GREATEST(next_val, " +
+            "(SELECT COALESCE(MAX(detalleid), 0) + 51 FROM ordendetalle))", nativeQuery = true)
+    int alinearSecuencia();
+
     // Búsquedas básicas por orden
     List<OrdenDetalle> findByOrdenOrdenId(Long ordenId);
 
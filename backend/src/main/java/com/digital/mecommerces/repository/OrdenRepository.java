@@ -135,6 +135,10 @@ public interface OrdenRepository extends JpaRepository<Orden, Long> {
     @Query("SELECT SUM(o.total) FROM Orden o WHERE o.estado = 'ENTREGADA'")
     Double sumTotalVentasEntregadas();
 
+    // Histograma por estado con ingresos: una fila por estado, independiente del tamaño de la tabla
+    @Query("SELECT o.estado, COUNT(o), COALESCE(SUM(o.total), 0.0) FROM Orden o GROUP BY o.estado")
+    List<Object[]> findResumenPorEstado();
+
     @Query("SELECT SUM(o.total) FROM Orden o WHERE o.fechaCreacion >= :fecha")
     Double sumVentasDesde(@Param("fecha") LocalDateTime fecha);
 
@@ -112,6 +112,29 @@ public interface ProductoImagenRepository extends JpaRepository<ProductoImagen,
      */
     boolean existsByUrl(String url);
 
+    /**
+     * Contar referencias a un archivo almacenado por su URL pública (consulta por índice)
+     */
+    long countByUrl(String url);
+
+    /**
+     * Contar referencias cuya URL termina en la ruta indicada, con cualquier host o base URL.
+     * Sin ESCAPE: un '_' del nombre solo puede añadir coincidencias, nunca quitarlas.
+     */
+    @Query("SELECT COUNT(pi) FROM ProductoImagen pi WHERE pi.url LIKE CONCAT('%', :ruta)")
+    long countByUrlTerminadaEn(@Param("ruta") String ruta);
+
+    /**
+     * Todas las URLs distintas (el recolector las reduce a claves de almacenamiento)
+     */
+    @Query("SELECT DISTINCT pi.url FROM ProductoImagen pi WHERE pi.url IS NOT NULL")
+    List<String> findUrlsDistintas();
+
+    /**
+     * Imágenes sin producto asociado
+     */
+    List<ProductoImagen> findByProductoIsNull();
+
     /**
      * Buscar imágenes por tamaño
      */
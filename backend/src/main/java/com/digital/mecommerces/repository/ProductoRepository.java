@@ -5,17 +5,21 @@ import com.digital.mecommerces.model.CategoriaProducto;
 import com.digital.mecommerces.model.Usuario;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, ProductoStockRepository {
 
     // Búsqueda básica por nombre
     Optional<Producto> findByProductoNombre(String productoNombre);
@@ -33,16 +37,20 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     // Productos activos
     List<Producto> findByActivoTrue();
 
+    @EntityGraph("Producto.listado")
     Page<Producto> findByActivoTrue(Pageable pageable);
 
     List<Producto> findByActivoFalse();
 
+    @EntityGraph("Producto.listado")
     @Query("SELECT p FROM Producto p WHERE p.activo = true ORDER BY p.createdat DESC")
     List<Producto> findProductosActivosRecientes();
 
     // Productos destacados
+    @EntityGraph("Producto.listado")
     List<Producto> findByDestacadoTrueAndActivoTrue();
 
+    @EntityGraph("Producto.listado")
     Page<Producto> findByDestacadoTrueAndActivoTrue(Pageable pageable);
 
     @Query("SELECT p FROM Producto p WHERE p.destacado = true AND p.activo = true ORDER BY p.createdat DESC")
@@ -56,6 +64,7 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT p FROM Producto p WHERE p.categoria.categoriaId = :categoriaId AND p.activo = true ORDER BY p.createdat DESC")
     List<Producto> findByCategoriaIdAndActivoTrue(@Param("categoriaId") Long categoriaId);
 
+    @EntityGraph("Producto.listado")
     @Query("SELECT p FROM Producto p WHERE p.categoria.categoriaId = :categoriaId AND p.activo = true")
     Page<Producto> findByCategoriaIdAndActivoTrue(@Param("categoriaId") Long categoriaId, Pageable pageable);
 
@@ -90,6 +99,7 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT p FROM Producto p WHERE p.vendedor.usuarioId = :vendedorId AND p.activo = true ORDER BY p.createdat DESC")
     List<Producto> findByVendedorUsuarioIdAndActivoTrue(@Param("vendedorId") Long vendedorId);
 
+    @EntityGraph("Producto.listado")
     @Query("SELECT p FROM Producto p WHERE p.vendedor.usuarioId = :vendedorId AND p.activo = true")
     Page<Producto> findByVendedorUsuarioIdAndActivoTrue(@Param("vendedorId") Long vendedorId, Pageable pageable);
 
@@ -124,7 +134,7 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT p FROM Producto p WHERE p.stock > 0 AND p.activo = true ORDER BY p.stock DESC")
     List<Producto> findProductosConStock();
 
-    @Query("SELECT p FROM Producto p WHERE p.stock = 0 AND p.activo = true ORDER BY p.createdat DESC")
+    @Query("SELECT p FROM Producto p WHERE p.stock <= 0 AND p.activo = true ORDER BY p.createdat DESC")
     List<Producto> findProductosAgotados();
 
     @Query("SELECT p FROM Producto p WHERE p.stock <= :limite AND p.stock > 0 AND p.activo = true ORDER BY p.stock ASC")
@@ -150,16 +160,18 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT p FROM Producto p WHERE p.activo = true AND (LOWER(p.productoNombre) LIKE LOWER(CONCAT('%', :termino, '%')) OR LOWER(p.descripcion) LIKE LOWER(CONCAT('%', :termino, '%'))) ORDER BY p.createdat DESC")
     List<Producto> findByTextoEnNombreODescripcion(@Param("termino") String termino);
 
+    @EntityGraph("Producto.listado")
     @Query("SELECT p FROM Producto p WHERE p.activo = true AND (LOWER(p.productoNombre) LIKE LOWER(CONCAT('%', :termino, '%')) OR LOWER(p.descripcion) LIKE LOWER(CONCAT('%', :termino, '%')))")
     Page<Producto> findByTextoEnNombreODescripcion(@Param("termino") String termino, Pageable pageable);
 
     // Búsqueda avanzada con múltiples filtros
+    @EntityGraph("Producto.listado")
     @Query("SELECT p FROM Producto p WHERE p.activo = true " +
             "AND (:categoria IS NULL OR p.categoria.categoriaId = :categoria) " +
             "AND (:vendedor IS NULL OR p.vendedor.usuarioId = :vendedor) " +
             "AND (:minPrecio IS NULL OR p.precio >= :minPrecio) " +
             "AND (:maxPrecio IS NULL OR p.precio <= :maxPrecio) " +
-            "AND (:soloConStock IS FALSE OR p.stock > 0)")
+            "AND (:soloConStock = false OR p.stock > 0)")
     Page<Producto> findConFiltrosAvanzados(@Param("categoria") Long categoria,
                                            @Param("vendedor") Long vendedor,
                                            @Param("minPrecio") Double minPrecio,
@@ -174,10 +186,14 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT COUNT(p) FROM Producto p WHERE p.activo = false")
     long countProductosInactivos();
 
+    long countByCategoriaCategoriaIdAndActivoTrue(Long categoriaId);
+
+    long countByVendedorUsuarioIdAndActivoTrue(Long vendedorId);
+
     @Query("SELECT COUNT(p) FROM Producto p WHERE p.destacado = true AND p.activo = true")
     long countProductosDestacados();
 
-    @Query("SELECT COUNT(p) FROM Producto p WHERE p.stock = 0 AND p.activo = true")
+    @Query("SELECT COUNT(p) FROM Producto p WHERE p.stock <= 0 AND p.activo = true")
     long countProductosAgotados();
 
     @Query("SELECT AVG(p.precio) FROM Producto p WHERE p.activo = true")
@@ -186,6 +202,15 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT SUM(p.stock) FROM Producto p WHERE p.activo = true")
     Long sumStockTotal();
 
+    // Resumen de productos activos en una sola consulta: total, agotados, destacados, stock total y precio promedio
+    @Query("SELECT COUNT(p), " +
+            "COALESCE(SUM(CASE WHEN p.stock <= 0 THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN p.destacado = true THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(p.stock), 0), " +
+            "COALESCE(AVG(p.precio), 0.0) " +
+            "FROM Producto p WHERE p.activo = true")
+    List<Object[]> findResumenProductosActivos();
+
     // Productos más caros y más baratos
     @Query("SELECT p FROM Producto p WHERE p.activo = true ORDER BY p.precio DESC LIMIT 10")
     List<Producto> findProductosMasCaros();
@@ -204,6 +229,97 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT p.vendedor.usuarioNombre, COUNT(p) FROM Producto p WHERE p.activo = true GROUP BY p.vendedor.usuarioId ORDER BY COUNT(p) DESC")
     List<Object[]> countProductosPorVendedor();
 
+    // Resumen de un vendedor en una sola consulta: total, agotados, poco stock, stock total, precio promedio y valor de inventario
+    @Query("SELECT COUNT(p), " +
+            "COALESCE(SUM(CASE WHEN p.stock <= 0 THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN p.stock > 0 AND p.stock <= 5 THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(p.stock), 0), " +
+            "COALESCE(AVG(p.precio), 0.0), " +
+            "COALESCE(SUM(p.precio * p.stock), 0.0) " +
+            "FROM Producto p WHERE p.vendedor.usuarioId = :vendedorId AND p.activo = true")
+    List<Object[]> findResumenPorVendedor(@Param("vendedorId") Long vendedorId);
+
+    @Query("SELECT p.categoria.nombre, COUNT(p) FROM Producto p WHERE p.vendedor.usuarioId = :vendedorId AND p.activo = true " +
+            "GROUP BY p.categoria.categoriaId, p.categoria.nombre ORDER BY COUNT(p) DESC")
+    List<Object[]> countProductosPorCategoriaVendedor(@Param("vendedorId") Long vendedorId);
+
+    // Proyección ligera (id, nombre, precio, stock, categoría) de los productos más recientes de un vendedor
+    @Query("SELECT p.productoId, p.productoNombre, p.precio, p.stock, c.nombre FROM Producto p JOIN p.categoria c " +
+            "WHERE p.vendedor.usuarioId = :vendedorId AND p.activo = true ORDER BY p.createdat DESC")
+    List<Object[]> findTopProductosVendedor(@Param("vendedorId") Long vendedorId, Pageable pageable);
+
+    // Productos por IDs con categoría y vendedor (resultados del índice de búsqueda)
+    @EntityGraph("Producto.listado")
+    List<Producto> findByProductoIdIn(Collection<Long> productoIds);
+
+    // Inicializa en el contexto de persistencia las imágenes de los productos de una página, en una sola consulta
+    @Query("SELECT DISTINCT p FROM Producto p LEFT JOIN FETCH p.imagenes WHERE p.productoId IN :productoIds")
+    List<Producto> cargarImagenes(@Param("productoIds") Collection<Long> productoIds);
+
+    // Paginación por keyset: la página siguiente empieza después del último (createdat, productoId) o (precio, productoId).
+    // Recientes en orden descendente, precio en orden ascendente; sin OFFSET ni COUNT.
+    // Los productos sin createdat no pueden ordenarse por fecha: se excluyen (completarFechasCreacion los corrige al arrancar)
+    @EntityGraph("Producto.listado")
+    @Query("SELECT p FROM Producto p WHERE p.activo = true " +
+            "AND p.createdat IS NOT NULL " +
+            "AND (p.createdat < :createdat OR (p.createdat = :createdat AND p.productoId < :productoId)) " +
+            "ORDER BY p.createdat DESC, p.productoId DESC")
+    List<Producto> findActivosRecientesDesde(@Param("createdat") LocalDateTime createdat,
+                                             @Param("productoId") Long productoId, Pageable pageable);
+
+    @EntityGraph("Producto.listado")
+    @Query("SELECT p FROM Producto p WHERE p.activo = true " +
+            "AND (p.precio > :precio OR (p.precio = :precio AND p.productoId > :productoId)) " +
+            "ORDER BY p.precio ASC, p.productoId ASC")
+    List<Producto> findActivosPorPrecioDesde(@Param("precio") Double precio,
+                                             @Param("productoId") Long productoId, Pageable pageable);
+
+    @EntityGraph("Producto.listado")
+    @Query("SELECT p FROM Producto p WHERE p.categoria.categoriaId = :categoriaId AND p.activo = true " +
+            "AND p.createdat IS NOT NULL " +
+            "AND (p.createdat < :createdat OR (p.createdat = :createdat AND p.productoId < :productoId)) " +
+            "ORDER BY p.createdat DESC, p.productoId DESC")
+    List<Producto> findPorCategoriaRecientesDesde(@Param("categoriaId") Long categoriaId,
+                                                  @Param("createdat") LocalDateTime createdat,
+                                                  @Param("productoId") Long productoId, Pageable pageable);
+
+    @EntityGraph("Producto.listado")
+    @Query("SELECT p FROM Producto p WHERE p.categoria.categoriaId = :categoriaId AND p.activo = true " +
+            "AND (p.precio > :precio OR (p.precio = :precio AND p.productoId > :productoId)) " +
+            "ORDER BY p.precio ASC, p.productoId ASC")
+    List<Producto> findPorCategoriaPorPrecioDesde(@Param("categoriaId") Long categoriaId,
+                                                  @Param("precio") Double precio,
+                                                  @Param("productoId") Long productoId, Pageable pageable);
+
+    @EntityGraph("Producto.listado")
+    @Query("SELECT p FROM Producto p WHERE p.vendedor.usuarioId = :vendedorId AND p.activo = true " +
+            "AND p.createdat IS NOT NULL " +
+            "AND (p.createdat < :createdat OR (p.createdat = :createdat AND p.productoId < :productoId)) " +
+            "ORDER BY p.createdat DESC, p.productoId DESC")
+    List<Producto> findPorVendedorRecientesDesde(@Param("vendedorId") Long vendedorId,
+                                                 @Param("createdat") LocalDateTime createdat,
+                                                 @Param("productoId") Long productoId, Pageable pageable);
+
+    @EntityGraph("Producto.listado")
+    @Query("SELECT p FROM Producto p WHERE p.vendedor.usuarioId = :vendedorId AND p.activo = true " +
+            "AND (p.precio > :precio OR (p.precio = :precio AND p.productoId > :productoId)) " +
+            "ORDER BY p.precio ASC, p.productoId ASC")
+    List<Producto> findPorVendedorPorPrecioDesde(@Param("vendedorId") Long vendedorId,
+                                                 @Param("precio") Double precio,
+                                                 @Param("productoId") Long productoId, Pageable pageable);
+
+    // Productos antiguos sin fecha de creación: se les asigna la de actualización (o la actual) para que entren en el keyset
+    @Modifying
+    @Transactional
+    @Query("UPDATE Producto p SET p.createdat = COALESCE(p.updatedat, CURRENT_TIMESTAMP) WHERE p.createdat IS NULL")
+    int completarFechasCreacion();
+
+    // Datos de productos activos para los índices en memoria (búsqueda y sugerencias), por lotes con keyset sobre productoId
+    @Query("SELECT p.productoId, p.productoNombre, p.descripcion, c.nombre, p.slug, v.usuarioNombre, p.destacado, p.createdat " +
+            "FROM Producto p LEFT JOIN p.categoria c LEFT JOIN p.vendedor v " +
+            "WHERE p.activo = true AND p.productoId > :ultimoId ORDER BY p.productoId ASC")
+    List<Object[]> findDatosIndexacionDesde(@Param("ultimoId") Long ultimoId, Pageable pageable);
+
     // Productos relacionados (misma categoría, diferente producto)
     @Query("SELECT p FROM Producto p WHERE p.categoria.categoriaId = :categoriaId AND p.productoId != :productoId AND p.activo = true ORDER BY p.createdat DESC")
     List<Producto> findProductosRelacionados(@Param("categoriaId") Long categoriaId, @Param("productoId") Long productoId, Pageable pageable);
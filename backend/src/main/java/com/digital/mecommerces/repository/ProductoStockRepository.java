@@ -0,0 +1,18 @@
+package com.digital.mecommerces.repository;
+
+import java.util.SortedMap;
+
+/**
+ * Operaciones de stock de ProductoRepository que no se pueden expresar con métodos derivados
+ */
+public interface ProductoStockRepository {
+
+    /**
+     * Descuenta el stock de varios productos en una sola sentencia UPDATE condicional:
+     * solo se actualizan los productos activos con stock suficiente.
+     * Los IDs van ordenados para que las filas se bloqueen siempre en el mismo orden.
+     *
+     * @return número de productos actualizados (si es menor que el tamaño del mapa, faltó stock)
+     */
+    int descontarStock(SortedMap<Long, Integer> cantidadesPorProducto);
+}
@@ -0,0 +1,52 @@
+package com.digital.mecommerces.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.StringJoiner;
+
+/**
+ * Implementación de ProductoStockRepository (fragmento de ProductoRepository)
+ */
+public class ProductoStockRepositoryImpl implements ProductoStockRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int descontarStock(SortedMap<Long, Integer> cantidadesPorProducto) {
+        if (cantidadesPorProducto.isEmpty()) {
+            return 0;
+        }
+
+        // CASE productoid WHEN ?1 THEN ?2 WHEN ?3 THEN ?4 ... END; los IDs se reutilizan en el IN
+        StringBuilder cantidad = new StringBuilder("CASE productoid");
+        StringJoiner ids = new StringJoiner(", ", "(", ")");
+        int parametro = 1;
+        for (int i = 0; i < cantidadesPorProducto.size(); i++) {
+            cantidad.append(" WHEN ?").append(parametro).append(" THEN ?").append(parametro + 1);
+            ids.add("?" + parametro);
+            parametro += 2;
+        }
+        cantidad.append(" END");
+
+        String sql = "UPDATE producto SET stock = stock - " + cantidad +
+                ", version = version + 1, updatedat = ?" + parametro +
+                " WHERE productoid IN " + ids +
+                " AND activo = true AND stock >= " + cantidad;
+
+        Query query = entityManager.createNativeQuery(sql);
+        int posicion = 1;
+        for (Map.Entry<Long, Integer> entrada : cantidadesPorProducto.entrySet()) {
+            query.setParameter(posicion++, entrada.getKey());
+            query.setParameter(posicion++, entrada.getValue());
+        }
+        query.setParameter(parametro, LocalDateTime.now());
+
+        return query.executeUpdate();
+    }
+}
@@ -1,12 +1,15 @@
 package com.digital.mecommerces.repository;
 
+import com.digital.mecommerces.dto.DestinatarioDTO;
 import com.digital.mecommerces.model.Usuario;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -217,4 +220,21 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
     @Query("SELECT u.rol.nombre, AVG(DATEDIFF(CURRENT_DATE, DATE(u.ultimoLogin))) FROM Usuario u WHERE u.ultimoLogin IS NOT NULL GROUP BY u.rol.nombre")
     List<Object[]> findPromedioInactividadPorRol();
+
+    List<Usuario> findAllByOrderByCreatedAtDesc(Pageable pageable);
+
+    // Destinatarios de notificaciones masivas por keyset (usuarioId creciente), sin cargar entidades.
+    // rol null = todos los usuarios activos
+    @Query("SELECT new com.digital.mecommerces.dto.DestinatarioDTO(u.usuarioId, u.email, u.usuarioNombre) " +
+            "FROM Usuario u WHERE u.activo = true AND u.usuarioId > :usuarioId " +
+            "AND (:rol IS NULL OR u.rol.nombre = :rol) ORDER BY u.usuarioId")
+    List<DestinatarioDTO> findDestinatariosDesde(@Param("usuarioId") Long usuarioId, @Param("rol") String rol,
+                                                 Pageable pageable);
+
+    @Query("SELECT new com.digital.mecommerces.dto.DestinatarioDTO(u.usuarioId, u.email, u.usuarioNombre) " +
+            "FROM Usuario u WHERE u.activo = true AND u.usuarioId IN :usuarioIds ORDER BY u.usuarioId")
+    List<DestinatarioDTO> findDestinatariosPorIds(@Param("usuarioIds") Collection<Long> usuarioIds);
+
+    @Query("SELECT COUNT(u) FROM Usuario u WHERE u.activo = true AND (:rol IS NULL OR u.rol.nombre = :rol)")
+    long countDestinatarios(@Param("rol") String rol);
 }
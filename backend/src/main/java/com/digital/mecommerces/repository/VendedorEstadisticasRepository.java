@@ -0,0 +1,27 @@
+package com.digital.mecommerces.repository;
+
+import com.digital.mecommerces.model.VendedorEstadisticas;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface VendedorEstadisticasRepository extends JpaRepository<VendedorEstadisticas, Long> {
+
+    /**
+     * Inserta o reemplaza la fila del vendedor en una sola sentencia: dos lecturas concurrentes
+     * de un vendedor sin fila no chocan con la clave primaria
+     */
+    @Modifying
+    @Query(value = "INSERT INTO vendedorestadisticas (vendedorid, totalproductos, productosagotados, productospocostock, " +
+            "stocktotal, preciopromedio, valorinventario, fechaactualizacion) " +
+            "VALUES (:#{#e.vendedorId}, :#{#e.totalProductos}, :#{#e.productosAgotados}, :#{#e.productosPocoStock}, " +
+            ":#{#e.stockTotal}, :#{#e.precioPromedio}, :#{#e.valorInventario}, :#{#e.fechaActualizacion}) " +
+            "ON DUPLICATE KEY UPDATE totalproductos = VALUES(totalproductos), productosagotados = VALUES(productosagotados), " +
+            "productospocostock = VALUES(productospocostock), stocktotal = VALUES(stocktotal), " +
+            "preciopromedio = VALUES(preciopromedio), valorinventario = VALUES(valorinventario), " +
+            "fechaactualizacion = VALUES(fechaactualizacion)", nativeQuery = true)
+    int guardar(@Param("e") VendedorEstadisticas estadisticas);
+}
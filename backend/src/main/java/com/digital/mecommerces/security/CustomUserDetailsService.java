@@ -9,9 +9,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,7 +21,7 @@ import java.util.stream.Collectors;
 
 @Service
 @Slf4j
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UsuarioRepository usuarioRepository;
     private final RolPermisoRepository rolPermisoRepository;
@@ -65,6 +67,24 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .build();
     }
 
+    /**
+     * Llamado por Spring Security tras un login correcto cuando el hash guardado usa un coste BCrypt
+     * menor que app.security.bcrypt.strength: se guarda el hash recalculado con la contraseña recién validada.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        usuarioRepository.findByEmail(user.getUsername()).ifPresent(usuario -> {
+            usuario.setPassword(newPassword);
+            usuarioRepository.save(usuario);
+            log.info("🔐 Hash de contraseña actualizado al coste configurado para: {}", user.getUsername());
+        });
+
+        return User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
     private List<SimpleGrantedAuthority> cargarAutoridadesDelUsuario(Usuario usuario) {
         List<SimpleGrantedAuthority> authorities = new ArrayList<>();
         RolUsuario rol = usuario.getRol();
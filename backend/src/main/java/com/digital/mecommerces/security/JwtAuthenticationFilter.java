@@ -1,5 +1,6 @@
 package com.digital.mecommerces.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,7 +9,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -23,7 +23,7 @@ import java.util.List;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
-    private final UserDetailsService userDetailsService;
+    private final UsuarioAutenticadoCache usuarioAutenticadoCache;
 
     // Rutas que no requieren autenticación
     private final List<String> excludedPaths = Arrays.asList(
@@ -40,9 +40,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     );
 
     public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider,
-                                   UserDetailsService userDetailsService) {
+                                   UsuarioAutenticadoCache usuarioAutenticadoCache) {
         this.jwtTokenProvider = jwtTokenProvider;
-        this.userDetailsService = userDetailsService;
+        this.usuarioAutenticadoCache = usuarioAutenticadoCache;
     }
 
     @Override
@@ -89,17 +89,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private void processTokenAuthentication(String token, HttpServletRequest request) {
         try {
-            // Validar token
-            if (jwtTokenProvider.validateToken(token)) {
-                // Obtener username del token
-                String username = jwtTokenProvider.getUsernameFromToken(token);
+            // Validar token y obtener sus claims en una sola pasada
+            Claims claims = jwtTokenProvider.validateAndGetClaims(token);
+            if (claims != null) {
+                String username = claims.getSubject();
                 log.debug("✅ Token válido para usuario: {}", username);
 
                 // Verificar si ya hay autenticación en el contexto
                 if (SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                    // Cargar detalles del usuario
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    // Cargar detalles del usuario (cacheados; solo va a la base de datos si no están en caché)
+                    UserDetails userDetails = usuarioAutenticadoCache.cargarUsuario(username);
 
                     // Verificar que el usuario esté activo
                     if (userDetails.isEnabled() && userDetails.isAccountNonLocked()) {
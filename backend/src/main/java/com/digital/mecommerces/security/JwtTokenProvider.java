@@ -1,5 +1,8 @@
 package com.digital.mecommerces.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
@@ -10,8 +13,12 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -28,9 +35,19 @@ public class JwtTokenProvider {
     @Value("${app.jwt.refresh-expiration:604800000}") // 7 días en millisegundos
     private long jwtRefreshExpirationInMs;
 
+    // Máximo de tokens verificados que se recuerdan
+    @Value("${app.jwt.claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+
     private final UserDetailsService userDetailsService;
     private Key key;
 
+    // El parser de jjwt es inmutable y thread-safe: se construye una sola vez
+    private JwtParser jwtParser;
+
+    // Claims ya verificados, por hash SHA-256 del token; cada entrada vence junto con su token
+    private Cache<String, Claims> claimsVerificados;
+
     public JwtTokenProvider(UserDetailsService userDetailsService) {
         this.userDetailsService = userDetailsService;
     }
@@ -39,6 +56,13 @@ public class JwtTokenProvider {
     public void init() {
         // Generar clave secreta para firma del token
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.claimsVerificados = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new ExpiracionDelToken())
+                .build();
         log.info("🔑 JwtTokenProvider inicializado con expiración de {} ms", jwtExpirationInMs);
     }
 
@@ -161,12 +185,40 @@ public class JwtTokenProvider {
 
     // Validar token JWT
     public boolean validateToken(String token) {
+        return validateAndGetClaims(token) != null;
+    }
+
+    /**
+     * Valida el token y devuelve sus claims en una sola pasada, o null si no es válido.
+     * Un token ya verificado se resuelve desde caché sin volver a decodificarlo ni comprobar la firma.
+     */
+    public Claims validateAndGetClaims(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        String hash = hashToken(token);
+        Claims cacheados = claimsVerificados.getIfPresent(hash);
+        if (cacheados != null) {
+            // La entrada vence con el token, pero se comprueba por si el reloj la alcanzó antes de la limpieza
+            if (cacheados.getExpiration().after(new Date())) {
+                return cacheados;
+            }
+            claimsVerificados.invalidate(hash);
+        }
+
+        Claims claims = verificarToken(token);
+        if (claims != null) {
+            claimsVerificados.put(hash, claims);
+        }
+        return claims;
+    }
+
+    private Claims verificarToken(String token) {
         try {
             log.debug("🔍 Validando token JWT...");
 
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
+            Claims claims = jwtParser
                     .parseClaimsJws(token)
                     .getBody();
 
@@ -176,25 +228,25 @@ public class JwtTokenProvider {
 
             if (isExpired) {
                 log.warn("⏰ Token JWT expirado: {}", expiration);
-                return false;
+                return null;
             }
 
             // Verificar issuer
             String issuer = claims.getIssuer();
             if (!"mecommerces".equals(issuer)) {
                 log.warn("⚠️ Issuer inválido en token: {}", issuer);
-                return false;
+                return null;
             }
 
             // Verificar que tenga username
             String username = claims.getSubject();
             if (username == null || username.trim().isEmpty()) {
                 log.warn("⚠️ Token sin username válido");
-                return false;
+                return null;
             }
 
             log.debug("✅ Token JWT válido para usuario: {}", username);
-            return true;
+            return claims;
 
         } catch (ExpiredJwtException e) {
             log.warn("⏰ Token JWT expirado: {}", e.getMessage());
@@ -210,7 +262,7 @@ public class JwtTokenProvider {
             log.error("❌ Error inesperado validando token JWT: {}", e.getMessage());
         }
 
-        return false;
+        return null;
     }
 
     // Refrescar token usando refresh token
@@ -274,13 +326,45 @@ public class JwtTokenProvider {
     }
 
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
+        Claims cacheados = claimsVerificados.getIfPresent(hashToken(token));
+        if (cacheados != null) {
+            return cacheados;
+        }
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
+    private String hashToken(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 está garantizado en toda JVM
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    // Cada entrada del caché de claims vive hasta la expiración de su token
+    private static class ExpiracionDelToken implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String hash, Claims claims, long currentTime) {
+            long restanteMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, restanteMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String hash, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(hash, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String hash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
     // Métodos para información y debugging
 
     public Map<String, Object> getTokenInfo(String token) {
@@ -0,0 +1,113 @@
+package com.digital.mecommerces.security;
+
+import com.digital.mecommerces.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * PasswordEncoder BCrypt que ejecuta cada hash en un pool propio y acotado ("hashExecutor").
+ * Un hash de coste 12 consume unos 250 ms de CPU: limitando los hilos y la cola, una ráfaga de
+ * logins o registros no ocupa toda la CPU del servidor. Si el pool está saturado se responde
+ * 429 de inmediato en lugar de encolar sin límite.
+ * upgradeEncoding permite que el login vuelva a calcular los hashes con un coste menor al configurado,
+ * solo cuando la cola está vacía para no añadir trabajo en plena ráfaga.
+ * Métricas: seguridad.password.hash (latencia por operación), seguridad.password.cola y
+ * seguridad.password.rechazos.
+ */
+@Slf4j
+public class PasswordEncoderAcotado implements PasswordEncoder {
+
+    private final BCryptPasswordEncoder delegado;
+    private final ThreadPoolTaskExecutor executor;
+    private final long tiempoMaximoMs;
+    private final Timer tiempoEncode;
+    private final Timer tiempoMatches;
+    private final Counter rechazos;
+
+    public PasswordEncoderAcotado(int coste, ThreadPoolTaskExecutor executor, long tiempoMaximoMs,
+                                  MeterRegistry meterRegistry) {
+        this.delegado = new BCryptPasswordEncoder(coste);
+        this.executor = executor;
+        this.tiempoMaximoMs = tiempoMaximoMs;
+        this.tiempoEncode = Timer.builder("seguridad.password.hash")
+                .description("Tiempo de cálculo de hashes de contraseña")
+                .tag("operacion", "encode")
+                .register(meterRegistry);
+        this.tiempoMatches = Timer.builder("seguridad.password.hash")
+                .description("Tiempo de cálculo de hashes de contraseña")
+                .tag("operacion", "matches")
+                .register(meterRegistry);
+        this.rechazos = Counter.builder("seguridad.password.rechazos")
+                .description("Hashes rechazados por pool saturado")
+                .register(meterRegistry);
+        Gauge.builder("seguridad.password.cola", executor,
+                        pool -> pool.getThreadPoolExecutor().getQueue().size())
+                .description("Hashes de contraseña esperando en cola")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return ejecutar(() -> tiempoEncode.recordCallable(() -> delegado.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return ejecutar(() -> tiempoMatches.recordCallable(() -> delegado.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegado.upgradeEncoding(encodedPassword)
+                && executor.getThreadPoolExecutor().getQueue().isEmpty();
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) {
+        Future<T> resultado;
+        try {
+            resultado = executor.submit(tarea);
+        } catch (TaskRejectedException e) {
+            rechazos.increment();
+            log.warn("⚠️ Pool de hash de contraseñas saturado, solicitud rechazada");
+            throw saturado();
+        }
+
+        try {
+            return resultado.get(tiempoMaximoMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // BCrypt no es interrumpible: el hash termina en segundo plano, pero la petición no lo espera
+            resultado.cancel(false);
+            rechazos.increment();
+            log.warn("⚠️ Hash de contraseña sin terminar tras {} ms, solicitud rechazada", tiempoMaximoMs);
+            throw saturado();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Hash de contraseña interrumpido", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Error calculando hash de contraseña", causa);
+        }
+    }
+
+    private BusinessException saturado() {
+        return new BusinessException("Demasiadas solicitudes de autenticación. Intenta nuevamente en unos segundos",
+                "TOO_MANY_REQUESTS", HttpStatus.TOO_MANY_REQUESTS);
+    }
+}
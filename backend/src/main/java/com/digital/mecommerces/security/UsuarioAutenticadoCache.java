@@ -0,0 +1,79 @@
+package com.digital.mecommerces.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de principales autenticados usado por JwtAuthenticationFilter.
+ * Evita leer usuario, rol y permisos de MySQL en cada petición con token: solo se consulta
+ * la primera vez (o tras expirar/invalidarse la entrada en el caché "usuariosAutenticados").
+ * Se invalida por usuario al cambiar su rol, estado o contraseña, y completo al cambiar permisos de roles,
+ * siempre tras el commit (UsuarioAutenticadoCacheListener).
+ * La clave incluye la versión de permisos y la del usuario: una carga que leyó los datos anteriores
+ * y termina después de invalidarse queda guardada con la versión vieja y ya no se sirve.
+ */
+@Component
+@Slf4j
+public class UsuarioAutenticadoCache {
+
+    public static final String CACHE_NAME = "usuariosAutenticados";
+
+    private final UserDetailsService userDetailsService;
+
+    // Versión global (cambios de permisos) y por usuario (rol, estado o contraseña).
+    // El mapa solo contiene usuarios modificados desde el arranque.
+    private final AtomicLong versionPermisos = new AtomicLong();
+    private final Map<String, Long> versionesUsuario = new ConcurrentHashMap<>();
+
+    public UsuarioAutenticadoCache(UserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    /**
+     * Carga el principal del usuario. Se guarda sin el hash de la contraseña:
+     * el filtro solo necesita nombre, estado y autoridades.
+     */
+    @Cacheable(value = CACHE_NAME, key = "#root.target.clave(#email)")
+    public UserDetails cargarUsuario(String email) {
+        log.debug("🔍 Principal no cacheado, cargando desde base de datos: {}", email);
+        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+
+        return User.withUsername(userDetails.getUsername())
+                .password("")
+                .authorities(userDetails.getAuthorities())
+                .accountExpired(!userDetails.isAccountNonExpired())
+                .accountLocked(!userDetails.isAccountNonLocked())
+                .credentialsExpired(!userDetails.isCredentialsNonExpired())
+                .disabled(!userDetails.isEnabled())
+                .build();
+    }
+
+    /**
+     * Clave de caché del usuario con las versiones vigentes
+     */
+    public String clave(String email) {
+        return email + ':' + versionPermisos.get() + ':' + versionesUsuario.getOrDefault(email, 0L);
+    }
+
+    // La entrada vigente se borra con la clave previa y luego se avanza la versión del usuario
+    @CacheEvict(value = CACHE_NAME, key = "#root.target.clave(#email)", beforeInvocation = true)
+    public void invalidar(String email) {
+        versionesUsuario.merge(email, 1L, Long::sum);
+        log.debug("🗑️ Principal invalidado: {}", email);
+    }
+
+    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    public void invalidarTodos() {
+        versionPermisos.incrementAndGet();
+        log.info("🗑️ Caché de principales autenticados invalidado");
+    }
+}
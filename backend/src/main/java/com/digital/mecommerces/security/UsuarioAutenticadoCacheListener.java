@@ -0,0 +1,32 @@
+package com.digital.mecommerces.security;
+
+import com.digital.mecommerces.event.PermisosModificadosEvent;
+import com.digital.mecommerces.event.UsuarioAutenticacionModificadaEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Invalida el principal cacheado cuando se confirma un cambio de rol, estado o contraseña,
+ * y todos los principales cuando se confirma un cambio de permisos.
+ * Es un bean aparte para que la llamada a UsuarioAutenticadoCache pase por el proxy de caché.
+ */
+@Component
+public class UsuarioAutenticadoCacheListener {
+
+    private final UsuarioAutenticadoCache usuarioAutenticadoCache;
+
+    public UsuarioAutenticadoCacheListener(UsuarioAutenticadoCache usuarioAutenticadoCache) {
+        this.usuarioAutenticadoCache = usuarioAutenticadoCache;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUsuarioAutenticacionModificada(UsuarioAutenticacionModificadaEvent evento) {
+        usuarioAutenticadoCache.invalidar(evento.getEmail());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPermisosModificados(PermisosModificadosEvent evento) {
+        usuarioAutenticadoCache.invalidarTodos();
+    }
+}
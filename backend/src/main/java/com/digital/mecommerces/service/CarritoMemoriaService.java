@@ -0,0 +1,328 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.event.ProductoModificadoEvent;
+import com.digital.mecommerces.model.CarritoCompra;
+import com.digital.mecommerces.model.CarritoItem;
+import com.digital.mecommerces.repository.CarritoCompraRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Almacén en memoria de los carritos activos, por usuario (write-behind).
+ * Las modificaciones se aplican sobre el carrito cacheado y se marcan como pendientes;
+ * una tarea periódica (app.carrito.write-behind.intervalo-ms) guarda todos los carritos
+ * pendientes en una sola transacción: una consulta trae el estado actual de todos y los UPDATE
+ * salen en lotes JDBC (hibernate.jdbc.batch_size). Al expulsar un carrito de la caché, antes del checkout
+ * y al apagar la aplicación los cambios se guardan de forma síncrona, así una caída
+ * pierde como mucho lo modificado en el último intervalo.
+ * Los cambios de precio o estado de un producto (ProductoModificadoEvent) se aplican a los carritos
+ * en memoria que lo contienen, sin esperar a que expiren.
+ * Una copia en memoria solo se guarda si el carrito sigue activo y con la misma versión en la base de datos;
+ * si no (convertido en orden o modificado por otra instancia) se descarta y se vuelve a cargar.
+ * Con app.carrito.write-behind.enabled=false cada modificación se guarda en el momento.
+ */
+@Service
+@Slf4j
+public class CarritoMemoriaService {
+
+    private final CarritoCompraRepository carritoCompraRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final Cache<Long, EntradaCarrito> cache;
+
+    public CarritoMemoriaService(CarritoCompraRepository carritoCompraRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.carrito.write-behind.enabled:true}") boolean habilitado,
+                                 @Value("${app.carrito.write-behind.max-carritos:10000}") long maxCarritos,
+                                 @Value("${app.carrito.write-behind.expiracion-minutos:30}") long expiracionMinutos) {
+        this.carritoCompraRepository = carritoCompraRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+
+        // El listener de expulsión corre dentro de la operación atómica de la clave:
+        // nadie puede volver a cargar ese carrito hasta que sus cambios estén guardados
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxCarritos)
+                .expireAfterAccess(Duration.ofMinutes(expiracionMinutos))
+                .evictionListener((Long usuarioId, EntradaCarrito entrada, RemovalCause causa) -> {
+                    if (entrada != null) {
+                        guardarAlExpulsar(usuarioId, entrada);
+                    }
+                })
+                .build();
+
+        if (habilitado) {
+            log.info("✅ Carritos en memoria (write-behind): hasta {} carritos, expiración {} min",
+                    maxCarritos, expiracionMinutos);
+        }
+    }
+
+    /**
+     * Devuelve una copia del carrito activo del usuario, cargándolo con el cargador la primera vez
+     */
+    public CarritoCompra obtener(Long usuarioId, Function<Long, CarritoCompra> cargador) {
+        if (!habilitado) {
+            return cargador.apply(usuarioId);
+        }
+
+        while (true) {
+            EntradaCarrito entrada = cache.get(usuarioId, id -> new EntradaCarrito(cargador.apply(id)));
+            synchronized (entrada) {
+                if (entrada.descartada) {
+                    continue;
+                }
+                // Copia hecha bajo el bloqueo: quien la lea no ve a medias los cambios de otra petición
+                return entrada.carrito.copia();
+            }
+        }
+    }
+
+    /**
+     * Aplica un cambio sobre el carrito activo del usuario y lo deja pendiente de guardar.
+     * El cambio debe validar antes de modificar: si lanza una excepción el carrito no se marca.
+     */
+    public <T> T modificar(Long usuarioId, Function<Long, CarritoCompra> cargador,
+                           Function<CarritoCompra, T> cambio) {
+        if (!habilitado) {
+            CarritoCompra carrito = cargador.apply(usuarioId);
+            T resultado = cambio.apply(carrito);
+            transactionTemplate.executeWithoutResult(status -> carritoCompraRepository.save(carrito));
+            return resultado;
+        }
+
+        while (true) {
+            EntradaCarrito entrada = cache.get(usuarioId, id -> new EntradaCarrito(cargador.apply(id)));
+            synchronized (entrada) {
+                // Descartada mientras esperábamos (checkout): se vuelve a cargar desde la base de datos
+                if (entrada.descartada) {
+                    continue;
+                }
+                T resultado = cambio.apply(entrada.carrito);
+                entrada.cambios++;
+                return resultado;
+            }
+        }
+    }
+
+    /**
+     * Guarda de forma síncrona los cambios pendientes del carrito del usuario y lo quita de la caché.
+     * Se usa antes del checkout: a partir de ahí la base de datos es la única copia del carrito.
+     */
+    public void persistirYDescartar(Long usuarioId) {
+        EntradaCarrito entrada = cache.getIfPresent(usuarioId);
+        if (entrada == null) {
+            return;
+        }
+
+        synchronized (entrada) {
+            if (entrada.cambios > entrada.cambiosGuardados) {
+                guardar(List.of(Map.entry(usuarioId, entrada)));
+            }
+            entrada.descartada = true;
+            cache.asMap().remove(usuarioId, entrada);
+        }
+    }
+
+    /**
+     * Quita de la caché el carrito del usuario sin guardarlo. Se usa tras un checkout correcto:
+     * una copia recargada mientras se convertía ya no es el carrito activo y no debe volver a escribirse.
+     */
+    public void descartar(Long usuarioId) {
+        EntradaCarrito entrada = cache.getIfPresent(usuarioId);
+        if (entrada == null) {
+            return;
+        }
+
+        synchronized (entrada) {
+            entrada.descartada = true;
+            cache.asMap().remove(usuarioId, entrada);
+        }
+    }
+
+    /**
+     * Lleva el precio y el estado nuevos del producto a los carritos en memoria que lo contienen;
+     * los totales se recalculan y el carrito queda pendiente de guardar
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductoModificado(ProductoModificadoEvent evento) {
+        if (!habilitado) {
+            return;
+        }
+
+        int actualizados = 0;
+        for (EntradaCarrito entrada : cache.asMap().values()) {
+            synchronized (entrada) {
+                CarritoItem item = entrada.descartada ? null : entrada.carrito.findItemByProductoId(evento.getProductoId());
+                if (item == null) {
+                    continue;
+                }
+                Boolean disponibleAntes = item.getDisponible();
+                item.getProducto().setPrecio(evento.getPrecio());
+                item.getProducto().setActivo(evento.isActivo());
+                item.verificarDisponibilidad();
+                boolean cambioPrecio = entrada.carrito.actualizarPrecios();
+                if (cambioPrecio || !Objects.equals(disponibleAntes, item.getDisponible())) {
+                    entrada.cambios++;
+                    actualizados++;
+                }
+            }
+        }
+
+        if (actualizados > 0) {
+            log.info("💰 Producto {} actualizado en {} carritos en memoria", evento.getProductoId(), actualizados);
+        }
+    }
+
+    /**
+     * Guarda en una sola transacción todos los carritos con cambios pendientes
+     */
+    @Scheduled(fixedDelayString = "${app.carrito.write-behind.intervalo-ms:2000}")
+    public void persistirPendientes() {
+        if (!habilitado) {
+            return;
+        }
+
+        List<Map.Entry<Long, EntradaCarrito>> pendientes = new ArrayList<>();
+        for (Map.Entry<Long, EntradaCarrito> entrada : cache.asMap().entrySet()) {
+            if (entrada.getValue().cambios > entrada.getValue().cambiosGuardados) {
+                pendientes.add(entrada);
+            }
+        }
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        int guardados;
+        try {
+            guardados = guardar(pendientes);
+        } catch (RuntimeException e) {
+            // Los carritos siguen pendientes y se reintentan en el siguiente ciclo
+            log.error("❌ Error guardando {} carritos pendientes: {}", pendientes.size(), e.getMessage());
+            return;
+        }
+
+        // Los descartados por obsoletos se vuelven a cargar de la base de datos en el siguiente acceso
+        for (Map.Entry<Long, EntradaCarrito> entrada : pendientes) {
+            if (entrada.getValue().descartada) {
+                cache.asMap().remove(entrada.getKey(), entrada.getValue());
+            }
+        }
+
+        log.debug("💾 {} carritos guardados en {} ms", guardados, System.currentTimeMillis() - inicio);
+    }
+
+    @PreDestroy
+    public void persistirAlApagar() {
+        if (habilitado) {
+            log.info("💾 Guardando carritos pendientes antes de apagar");
+            persistirPendientes();
+        }
+    }
+
+    public long contarCarritosEnMemoria() {
+        return cache.estimatedSize();
+    }
+
+    private void guardarAlExpulsar(Long usuarioId, EntradaCarrito entrada) {
+        synchronized (entrada) {
+            if (entrada.cambios > entrada.cambiosGuardados) {
+                try {
+                    guardar(List.of(Map.entry(usuarioId, entrada)));
+                } catch (RuntimeException e) {
+                    log.error("❌ Error guardando el carrito expulsado del usuario {}: {}", usuarioId, e.getMessage());
+                }
+            }
+            entrada.descartada = true;
+        }
+    }
+
+    /**
+     * Guarda los carritos dados en una transacción y devuelve cuántos se guardaron.
+     * Los que ya no están activos o cambiaron de versión en la base de datos se marcan como descartados
+     * en lugar de sobrescribirlos; quitarlos de la caché queda a cargo de quien llama.
+     */
+    private int guardar(List<Map.Entry<Long, EntradaCarrito>> entradas) {
+        List<Long> ids = new ArrayList<>(entradas.size());
+        for (Map.Entry<Long, EntradaCarrito> entrada : entradas) {
+            ids.add(entrada.getValue().carrito.getCarritoId());
+        }
+
+        CarritoCompra[] guardados = new CarritoCompra[entradas.size()];
+        long[] cambiosEnviados = new long[entradas.size()];
+        transactionTemplate.executeWithoutResult(status -> {
+            // Estado actual de todos en una consulta: el merge de cada carrito ya no hace su propio SELECT
+            Map<Long, CarritoCompra> actuales = new HashMap<>();
+            for (CarritoCompra actual : carritoCompraRepository.findConItemsByCarritoIdIn(ids)) {
+                actuales.put(actual.getCarritoId(), actual);
+            }
+
+            for (int i = 0; i < entradas.size(); i++) {
+                Long usuarioId = entradas.get(i).getKey();
+                EntradaCarrito entrada = entradas.get(i).getValue();
+                // El merge copia el estado bajo el bloqueo; el commit ya no depende del carrito en memoria
+                synchronized (entrada) {
+                    if (entrada.descartada) {
+                        continue;
+                    }
+                    CarritoCompra actual = actuales.get(entrada.carrito.getCarritoId());
+                    if (actual == null || !Boolean.TRUE.equals(actual.getActivo())
+                            || !Objects.equals(actual.getVersion(), entrada.carrito.getVersion())) {
+                        log.warn("⚠️ El carrito {} del usuario {} cambió en la base de datos: se descartan sus cambios en memoria",
+                                entrada.carrito.getCarritoId(), usuarioId);
+                        entrada.descartada = true;
+                        continue;
+                    }
+                    cambiosEnviados[i] = entrada.cambios;
+                    guardados[i] = carritoCompraRepository.save(entrada.carrito);
+                }
+            }
+        });
+
+        // Solo se marcan como guardados los cambios que entraron en la transacción; la copia en memoria
+        // toma la versión nueva para que el siguiente guardado no se tome por obsoleto
+        int total = 0;
+        for (int i = 0; i < entradas.size(); i++) {
+            if (guardados[i] == null) {
+                continue;
+            }
+            EntradaCarrito entrada = entradas.get(i).getValue();
+            synchronized (entrada) {
+                entrada.cambiosGuardados = Math.max(entrada.cambiosGuardados, cambiosEnviados[i]);
+                entrada.carrito.setVersion(guardados[i].getVersion());
+            }
+            total++;
+        }
+        return total;
+    }
+
+    // Carrito desconectado del contexto de persistencia y contadores de cambios aplicados/guardados
+    private static final class EntradaCarrito {
+        private final CarritoCompra carrito;
+        private long cambios;
+        private long cambiosGuardados;
+        private boolean descartada;
+
+        private EntradaCarrito(CarritoCompra carrito) {
+            this.carrito = carrito;
+        }
+    }
+}
@@ -7,11 +7,20 @@ import com.digital.mecommerces.exception.ResourceNotFoundException;
 import com.digital.mecommerces.model.*;
 import com.digital.mecommerces.repository.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @Slf4j
@@ -22,38 +31,44 @@ public class CarritoService {
     private final UsuarioRepository usuarioRepository;
     private final ProductoRepository productoRepository;
     private final OrdenRepository ordenRepository;
+    private final VendedorEstadisticasService vendedorEstadisticasService;
+    private final CarritoMemoriaService carritoMemoriaService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.checkout.max-reintentos:3}")
+    private int maxReintentosCheckout;
 
     public CarritoService(CarritoCompraRepository carritoCompraRepository,
                           CarritoItemRepository carritoItemRepository,
                           UsuarioRepository usuarioRepository,
                           ProductoRepository productoRepository,
-                          OrdenRepository ordenRepository) {
+                          OrdenRepository ordenRepository,
+                          VendedorEstadisticasService vendedorEstadisticasService,
+                          CarritoMemoriaService carritoMemoriaService,
+                          PlatformTransactionManager transactionManager) {
         this.carritoCompraRepository = carritoCompraRepository;
         this.carritoItemRepository = carritoItemRepository;
         this.usuarioRepository = usuarioRepository;
         this.productoRepository = productoRepository;
         this.ordenRepository = ordenRepository;
+        this.vendedorEstadisticasService = vendedorEstadisticasService;
+        this.carritoMemoriaService = carritoMemoriaService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    /**
+     * Copia del carrito activo del usuario desde la caché en memoria (ver CarritoMemoriaService).
+     * El usuario se valida al cargar el carrito; los cambios de rol o estado invalidan el carrito al expirar.
+     */
     public CarritoCompra obtenerCarritoActivo(Long usuarioId) {
-        log.info("🛒 Obteniendo carrito activo para usuario ID: {}", usuarioId);
-
-        Usuario usuario = usuarioRepository.findById(usuarioId)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con ID: " + usuarioId));
-
-        // Verificar que el usuario puede tener carrito
-        validarUsuarioPuedeComprar(usuario);
+        log.debug("🛒 Obteniendo carrito activo para usuario ID: {}", usuarioId);
+        return carritoMemoriaService.obtener(usuarioId, this::cargarCarritoActivo);
+    }
 
-        // Buscar carrito activo o crear uno nuevo
-        return carritoCompraRepository.findByUsuarioAndActivo(usuario, true)
-                .orElseGet(() -> {
-                    log.info("📝 Creando nuevo carrito para usuario: {}", usuario.getEmail());
-                    CarritoCompra nuevoCarrito = new CarritoCompra(usuario);
-                    return carritoCompraRepository.save(nuevoCarrito);
-                });
+    public CarritoItem obtenerItem(Long usuarioId, Long itemId) {
+        return buscarItem(obtenerCarritoActivo(usuarioId), itemId);
     }
 
-    @Transactional
     public CarritoItem agregarProductoAlCarrito(Long usuarioId, Long productoId, Integer cantidad) {
         log.info("➕ Agregando producto {} al carrito del usuario {} (cantidad: {})",
                 productoId, usuarioId, cantidad);
@@ -62,45 +77,37 @@ public class CarritoService {
             throw new BusinessException("La cantidad debe ser mayor a 0");
         }
 
-        CarritoCompra carrito = obtenerCarritoActivo(usuarioId);
-
-        Producto producto = productoRepository.findById(productoId)
-                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con ID: " + productoId));
+        // Categoría y vendedor en la misma consulta: el item vive desconectado en la caché
+        Producto producto = leerProducto(productoId);
 
         // Validaciones del producto
         validarProductoParaCarrito(producto, cantidad);
 
-        // Verificar si ya existe el producto en el carrito
-        CarritoItem itemExistente = carrito.findItemByProducto(producto);
+        return carritoMemoriaService.modificar(usuarioId, this::cargarCarritoActivo, carrito -> {
+            // Verificar si ya existe el producto en el carrito
+            CarritoItem itemExistente = carrito.findItemByProducto(producto);
 
-        if (itemExistente != null) {
-            // Actualizar cantidad del item existente
-            Integer nuevaCantidad = itemExistente.getCantidad() + cantidad;
-            validarProductoParaCarrito(producto, nuevaCantidad);
+            if (itemExistente != null) {
+                // Actualizar cantidad del item existente; se guarda con el resto del carrito
+                Integer nuevaCantidad = itemExistente.getCantidad() + cantidad;
+                validarProductoParaCarrito(producto, nuevaCantidad);
+                copiarDisponibilidad(producto, itemExistente.getProducto());
 
-            itemExistente.setCantidad(nuevaCantidad);
-            CarritoItem itemActualizado = carritoItemRepository.save(itemExistente);
+                carrito.actualizarCantidadItem(itemExistente, nuevaCantidad);
 
-            // Recalcular totales del carrito
-            carrito.recalcularTotales();
-            carritoCompraRepository.save(carrito);
-
-            log.info("✅ Cantidad actualizada del producto en carrito: {}", nuevaCantidad);
-            return itemActualizado;
-        } else {
-            // Crear nuevo item
-            CarritoItem nuevoItem = new CarritoItem(producto, cantidad, carrito);
-            carrito.addItem(nuevoItem);
+                log.info("✅ Cantidad actualizada del producto en carrito: {}", nuevaCantidad);
+                return itemExistente.copia(carrito);
+            }
 
-            CarritoItem itemGuardado = carritoItemRepository.save(nuevoItem);
-            carritoCompraRepository.save(carrito);
+            // Un item nuevo se inserta en el momento para que tenga ID desde la primera respuesta
+            CarritoItem itemGuardado = carritoItemRepository.save(new CarritoItem(producto, cantidad, carrito));
+            carrito.addItem(itemGuardado);
 
             log.info("✅ Producto agregado exitosamente al carrito");
-            return itemGuardado;
-        }
+            return itemGuardado.copia(carrito);
+        });
     }
 
-    @Transactional
     public CarritoItem actualizarCantidadProducto(Long usuarioId, Long itemId, Integer cantidad) {
         log.info("🔄 Actualizando cantidad del item {} para usuario {} (nueva cantidad: {})",
                 itemId, usuarioId, cantidad);
@@ -111,67 +118,75 @@ public class CarritoService {
             return null;
         }
 
-        CarritoCompra carrito = obtenerCarritoActivo(usuarioId);
+        return carritoMemoriaService.modificar(usuarioId, this::cargarCarritoActivo, carrito -> {
+            CarritoItem item = buscarItem(carrito, itemId);
 
-        CarritoItem item = carritoItemRepository.findById(itemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Item no encontrado con ID: " + itemId));
-
-        // Verificar que el item pertenece al carrito del usuario
-        if (!item.getCarritoCompra().getCarritoId().equals(carrito.getCarritoId())) {
-            throw new BusinessException("El item no pertenece al carrito del usuario");
-        }
+            // Validar disponibilidad con la nueva cantidad, contra el stock actual y no el de la carga del carrito
+            Producto actual = leerProducto(item.getProducto().getProductoId());
+            validarProductoParaCarrito(actual, cantidad);
+            copiarDisponibilidad(actual, item.getProducto());
 
-        // Validar disponibilidad con la nueva cantidad
-        validarProductoParaCarrito(item.getProducto(), cantidad);
-
-        item.setCantidad(cantidad);
-        CarritoItem itemActualizado = carritoItemRepository.save(item);
-
-        // Recalcular totales del carrito
-        carrito.recalcularTotales();
-        carritoCompraRepository.save(carrito);
+            carrito.actualizarCantidadItem(item, cantidad);
 
-        log.info("✅ Cantidad actualizada exitosamente");
-        return itemActualizado;
+            log.info("✅ Cantidad actualizada exitosamente");
+            return item.copia(carrito);
+        });
     }
 
-    @Transactional
     public void eliminarProductoDelCarrito(Long usuarioId, Long itemId) {
         log.info("🗑️ Eliminando item {} del carrito del usuario {}", itemId, usuarioId);
 
-        CarritoCompra carrito = obtenerCarritoActivo(usuarioId);
-
-        CarritoItem item = carritoItemRepository.findById(itemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Item no encontrado con ID: " + itemId));
-
-        // Verificar que el item pertenece al carrito del usuario
-        if (!item.getCarritoCompra().getCarritoId().equals(carrito.getCarritoId())) {
-            throw new BusinessException("El item no pertenece al carrito del usuario");
-        }
-
-        carrito.removeItem(item);
-        carritoItemRepository.delete(item);
-        carritoCompraRepository.save(carrito);
+        carritoMemoriaService.modificar(usuarioId, this::cargarCarritoActivo, carrito -> {
+            // orphanRemoval borra la fila al guardar el carrito
+            carrito.removeItem(buscarItem(carrito, itemId));
+            return null;
+        });
 
         log.info("✅ Producto eliminado exitosamente del carrito");
     }
 
-    @Transactional
     public void vaciarCarrito(Long usuarioId) {
         log.info("🗑️ Vaciando carrito completo del usuario {}", usuarioId);
 
-        CarritoCompra carrito = obtenerCarritoActivo(usuarioId);
-        carrito.vaciarCarrito();
-        carritoCompraRepository.save(carrito);
+        carritoMemoriaService.modificar(usuarioId, this::cargarCarritoActivo, carrito -> {
+            carrito.vaciarCarrito();
+            return null;
+        });
 
         log.info("✅ Carrito vaciado exitosamente");
     }
 
-    @Transactional
+    /**
+     * Convierte el carrito activo en una orden descontando el stock de forma atómica.
+     * Cada intento corre en su propia transacción; ante un conflicto de concurrencia
+     * (bloqueo, deadlock o versión optimista) se reintenta hasta app.checkout.max-reintentos veces.
+     */
     public Orden convertirCarritoAOrden(Long usuarioId) {
+        // Los cambios pendientes en memoria se guardan antes: el checkout trabaja sobre la base de datos
+        carritoMemoriaService.persistirYDescartar(usuarioId);
+
+        for (int intento = 1; ; intento++) {
+            try {
+                Orden orden = transactionTemplate.execute(status -> procesarCheckout(usuarioId));
+                // Una copia del carrito recargada durante el checkout ya está convertida: no se vuelve a guardar
+                carritoMemoriaService.descartar(usuarioId);
+                return orden;
+            } catch (ConcurrencyFailureException e) {
+                if (intento >= maxReintentosCheckout) {
+                    log.error("❌ Checkout del usuario {} abortado tras {} conflictos de concurrencia", usuarioId, intento);
+                    throw new BusinessException("No se pudo completar la compra por alta demanda, inténtalo de nuevo");
+                }
+                log.warn("🔄 Conflicto de concurrencia en checkout del usuario {} (intento {}/{}): {}",
+                        usuarioId, intento, maxReintentosCheckout, e.getMessage());
+                esperarAntesDeReintentar(intento);
+            }
+        }
+    }
+
+    private Orden procesarCheckout(Long usuarioId) {
         log.info("📦 Convirtiendo carrito a orden para usuario {}", usuarioId);
 
-        CarritoCompra carrito = obtenerCarritoActivo(usuarioId);
+        CarritoCompra carrito = cargarCarritoActivo(usuarioId);
 
         if (carrito.estaVacio()) {
             throw new BusinessException("No se puede crear una orden con un carrito vacío");
@@ -181,25 +196,40 @@ public class CarritoService {
             throw new BusinessException("El carrito contiene productos no disponibles o sin stock suficiente");
         }
 
-        // Crear nueva orden
-        Orden orden = new Orden(carrito.getUsuario(), "PENDIENTE", carrito.getTotalEstimado());
-        orden.setDireccionEntrega("Por definir"); // Se puede actualizar después
+        // Los totales se llevan de forma incremental; aquí se recalculan completos antes de cobrar
+        carrito.recalcularTotales();
 
-        // Reducir stock de productos y crear la orden
+        // Cantidades por producto ordenadas por ID: las filas se bloquean siempre en el mismo orden
+        SortedMap<Long, Integer> cantidades = new TreeMap<>();
+        Set<Long> vendedoresAfectados = new HashSet<>();
         for (CarritoItem item : carrito.getItems()) {
             Producto producto = item.getProducto();
+            cantidades.merge(producto.getProductoId(), item.getCantidad(), Integer::sum);
+            vendedoresAfectados.add(producto.getVendedor().getUsuarioId());
+        }
 
-            // Verificar stock una vez más antes de procesar
-            if (producto.getStock() < item.getCantidad()) {
-                throw new BusinessException("Stock insuficiente para el producto: " + producto.getProductoNombre());
-            }
+        // Un único UPDATE condicional: el stock se comprueba y se descuenta en la base de datos
+        int actualizados = productoRepository.descontarStock(cantidades);
+        if (actualizados != cantidades.size()) {
+            // La excepción revierte también los productos que sí se descontaron
+            throw new BusinessException("Stock insuficiente para uno o más productos del carrito");
+        }
 
-            // Reducir stock
-            producto.reducirStock(item.getCantidad());
-            productoRepository.save(producto);
+        // Crear nueva orden con una línea por item, al precio que tenía en el carrito
+        Orden orden = new Orden(carrito.getUsuario(), "PENDIENTE", carrito.getTotalEstimado());
+        orden.setDireccionEntrega("Por definir"); // Se puede actualizar después
+        for (CarritoItem item : carrito.getItems()) {
+            OrdenDetalle detalle = new OrdenDetalle(item.getProducto(), item.getCantidad());
+            if (item.getPrecioUnitario() != null) {
+                detalle.setPrecioUnitario(item.getPrecioUnitario());
+            }
+            orden.addDetalle(detalle);
         }
 
-        // Guardar la orden
+        // El resumen de inventario de los vendedores afectados se recalcula tras el commit
+        vendedorEstadisticasService.actualizarEstadisticas(vendedoresAfectados);
+
+        // Guardar la orden; los detalles se insertan en cascada en lotes JDBC (hibernate.jdbc.batch_size)
         Orden ordenGuardada = ordenRepository.save(orden);
 
         // Marcar carrito como convertido
@@ -210,6 +240,16 @@ public class CarritoService {
         return ordenGuardada;
     }
 
+    // Espera creciente con variación aleatoria para que los reintentos no vuelvan a coincidir
+    private void esperarAntesDeReintentar(int intento) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(10, 50) * intento);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Checkout interrumpido");
+        }
+    }
+
     public List<CarritoCompra> obtenerCarritosPorUsuario(Long usuarioId) {
         log.info("📋 Obteniendo historial de carritos para usuario {}", usuarioId);
         return carritoCompraRepository.findByUsuarioUsuarioId(usuarioId);
@@ -220,21 +260,13 @@ public class CarritoService {
         return carritoCompraRepository.findCarritosAbandonados(fecha);
     }
 
-    @Transactional
     public void marcarItemComoGuardadoDespues(Long usuarioId, Long itemId) {
         log.info("💾 Marcando item {} como guardado para después", itemId);
 
-        CarritoCompra carrito = obtenerCarritoActivo(usuarioId);
-
-        CarritoItem item = carritoItemRepository.findById(itemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Item no encontrado con ID: " + itemId));
-
-        if (!item.getCarritoCompra().getCarritoId().equals(carrito.getCarritoId())) {
-            throw new BusinessException("El item no pertenece al carrito del usuario");
-        }
-
-        item.marcarComoGuardadoDespues();
-        carritoItemRepository.save(item);
+        carritoMemoriaService.modificar(usuarioId, this::cargarCarritoActivo, carrito -> {
+            buscarItem(carrito, itemId).marcarComoGuardadoDespues();
+            return null;
+        });
 
         log.info("✅ Item marcado como guardado para después");
     }
@@ -270,6 +302,54 @@ public class CarritoService {
         return carritoCompraRepository.countCarritosConProductos();
     }
 
+    /**
+     * Lee (o crea) el carrito activo con usuario, items, productos, categorías y vendedores ya cargados,
+     * en su propia transacción: el resultado queda desconectado y se puede usar fuera de ella.
+     */
+    private CarritoCompra cargarCarritoActivo(Long usuarioId) {
+        return transactionTemplate.execute(status -> {
+            Usuario usuario = usuarioRepository.findById(usuarioId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con ID: " + usuarioId));
+
+            // Verificar que el usuario puede tener carrito
+            validarUsuarioPuedeComprar(usuario);
+
+            // Buscar carrito activo o crear uno nuevo
+            CarritoCompra carrito = carritoCompraRepository.findActivoCompletoByUsuarioId(usuarioId)
+                    .orElseGet(() -> {
+                        log.info("📝 Creando nuevo carrito para usuario: {}", usuario.getEmail());
+                        return carritoCompraRepository.save(new CarritoCompra(usuario));
+                    });
+
+            // Al cargar se alinean los precios con los productos; después los totales van por diferencias
+            if (carrito.actualizarPrecios()) {
+                log.info("💰 Precios del carrito {} actualizados", carrito.getCarritoId());
+            }
+            return carrito;
+        });
+    }
+
+    // Producto con categoría y vendedor, tal como está ahora en la base de datos
+    private Producto leerProducto(Long productoId) {
+        return productoRepository.findByProductoIdIn(List.of(productoId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con ID: " + productoId));
+    }
+
+    // El producto del carrito en memoria se cargó con él: se le copian el stock y el estado recién leídos
+    private void copiarDisponibilidad(Producto actual, Producto enCarrito) {
+        enCarrito.setStock(actual.getStock());
+        enCarrito.setActivo(actual.getActivo());
+    }
+
+    // El item debe pertenecer al carrito activo del usuario
+    private CarritoItem buscarItem(CarritoCompra carrito, Long itemId) {
+        return carrito.getItems().stream()
+                .filter(item -> itemId.equals(item.getItemId()))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Item no encontrado con ID: " + itemId));
+    }
+
     // Métodos privados de validación
     private void validarUsuarioPuedeComprar(Usuario usuario) {
         if (!usuario.getActivo()) {
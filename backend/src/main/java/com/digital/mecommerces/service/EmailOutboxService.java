@@ -0,0 +1,210 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.model.EmailOutbox;
+import com.digital.mecommerces.repository.EmailOutboxRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Envía la bandeja de salida de emails (tabla emailoutbox).
+ * Cada ciclo reserva un lote de filas listas y lo reparte en grupos entre los hilos de "emailExecutor";
+ * cada grupo se envía con una sola conexión SMTP (JavaMailSender.send con varios mensajes).
+ * Los fallos se reintentan con espera exponencial (app.email.outbox.backoff-*) hasta
+ * app.email.outbox.max-intentos; después el email queda FALLIDO con el último error.
+ */
+@Service
+@Slf4j
+public class EmailOutboxService {
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final JavaMailSender mailSender;
+    private final Executor emailExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.mail.from:noreply@mecommerces.com}")
+    private String fromEmail;
+
+    @Value("${app.mail.enabled:false}")
+    private boolean emailEnabled;
+
+    @Value("${app.email.outbox.lote:50}")
+    private int tamanoLote;
+
+    @Value("${app.email.outbox.mensajes-por-conexion:10}")
+    private int mensajesPorConexion;
+
+    @Value("${app.email.outbox.max-intentos:6}")
+    private int maxIntentos;
+
+    @Value("${app.email.outbox.backoff-inicial-segundos:30}")
+    private long backoffInicialSegundos;
+
+    @Value("${app.email.outbox.backoff-maximo-segundos:3600}")
+    private long backoffMaximoSegundos;
+
+    @Value("${app.email.outbox.reserva-segundos:300}")
+    private long reservaSegundos;
+
+    @Value("${app.email.outbox.dias-retencion:7}")
+    private int diasRetencion;
+
+    public EmailOutboxService(EmailOutboxRepository emailOutboxRepository,
+                              JavaMailSender mailSender,
+                              @Qualifier("emailExecutor") Executor emailExecutor,
+                              PlatformTransactionManager transactionManager) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.mailSender = mailSender;
+        this.emailExecutor = emailExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Agrega un email a la bandeja de salida. Si hay una transacción en curso se inserta en ella:
+     * el email solo sale si esa transacción se confirma.
+     */
+    public EmailOutbox encolar(String destinatario, String asunto, String contenido, boolean html) {
+        EmailOutbox email = emailOutboxRepository.save(new EmailOutbox(destinatario, asunto, contenido, html));
+        log.debug("📥 Email {} encolado para {}", email.getId(), destinatario);
+        return email;
+    }
+
+    // Encolado de envíos masivos en una sola llamada
+    public List<EmailOutbox> encolarTodos(List<EmailOutbox> emails) {
+        return emailOutboxRepository.saveAll(emails);
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.outbox.intervalo-ms:5000}")
+    public void procesarPendientes() {
+        if (!emailEnabled) {
+            return;
+        }
+
+        // Mientras salgan lotes completos hay más pendientes esperando
+        int procesados;
+        do {
+            procesados = procesarLote();
+        } while (procesados == tamanoLote);
+    }
+
+    private int procesarLote() {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<EmailOutbox> lote;
+        try {
+            lote = transactionTemplate.execute(status -> {
+                List<EmailOutbox> listos = emailOutboxRepository.findListosParaEnviar(ahora, PageRequest.of(0, tamanoLote));
+                LocalDateTime reservaHasta = ahora.plusSeconds(reservaSegundos);
+                listos.forEach(email -> email.reservar(reservaHasta));
+                return listos;
+            });
+        } catch (RuntimeException e) {
+            log.error("❌ Error leyendo la bandeja de salida de emails: {}", e.getMessage());
+            return 0;
+        }
+
+        if (lote == null || lote.isEmpty()) {
+            return 0;
+        }
+
+        long inicio = System.currentTimeMillis();
+        List<CompletableFuture<?>> envios = new ArrayList<>();
+        for (int desde = 0; desde < lote.size(); desde += mensajesPorConexion) {
+            List<EmailOutbox> grupo = lote.subList(desde, Math.min(desde + mensajesPorConexion, lote.size()));
+            envios.add(CompletableFuture.runAsync(() -> enviarGrupo(grupo), emailExecutor));
+        }
+        CompletableFuture.allOf(envios.toArray(new CompletableFuture<?>[0])).join();
+
+        transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.saveAll(lote));
+
+        long enviados = lote.stream().filter(email -> EmailOutbox.ESTADO_ENVIADO.equals(email.getEstado())).count();
+        log.info("📧 Lote de emails procesado en {} ms: {} enviados, {} con error",
+                System.currentTimeMillis() - inicio, enviados, lote.size() - enviados);
+        return lote.size();
+    }
+
+    // Un grupo = una conexión SMTP para todos sus mensajes
+    private void enviarGrupo(List<EmailOutbox> grupo) {
+        Map<MimeMessage, EmailOutbox> porMensaje = new IdentityHashMap<>();
+        for (EmailOutbox email : grupo) {
+            try {
+                porMensaje.put(crearMensaje(email), email);
+            } catch (MessagingException | RuntimeException e) {
+                // Dirección o contenido inválido: reintentar no lo arregla
+                email.registrarFallo(e.getMessage(), null);
+            }
+        }
+        if (porMensaje.isEmpty()) {
+            return;
+        }
+
+        try {
+            mailSender.send(porMensaje.keySet().toArray(new MimeMessage[0]));
+            porMensaje.values().forEach(EmailOutbox::marcarEnviado);
+        } catch (MailSendException e) {
+            // Solo se reprograman los mensajes que fallaron; sin fallidos, lo que falló fue el cierre de la conexión
+            Map<Object, Exception> fallidos = e.getFailedMessages();
+            porMensaje.forEach((mensaje, email) -> {
+                Exception error = fallidos.get(mensaje);
+                if (error == null) {
+                    email.marcarEnviado();
+                } else {
+                    registrarReintento(email, error.getMessage());
+                }
+            });
+        } catch (MailException e) {
+            log.warn("⚠️ Error de conexión SMTP, {} emails reprogramados: {}", porMensaje.size(), e.getMessage());
+            porMensaje.values().forEach(email -> registrarReintento(email, e.getMessage()));
+        }
+    }
+
+    private MimeMessage crearMensaje(EmailOutbox email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, Boolean.TRUE.equals(email.getHtml()), "UTF-8");
+
+        helper.setFrom(fromEmail);
+        helper.setTo(email.getDestinatario());
+        helper.setSubject(email.getAsunto());
+        helper.setText(email.getContenido(), Boolean.TRUE.equals(email.getHtml()));
+        return message;
+    }
+
+    // Espera exponencial: backoff-inicial, x2, x4... hasta backoff-maximo
+    private void registrarReintento(EmailOutbox email, String error) {
+        int intento = email.getIntentos() + 1;
+        if (intento >= maxIntentos) {
+            email.registrarFallo(error, null);
+            return;
+        }
+        long espera = Math.min(backoffMaximoSegundos, backoffInicialSegundos << Math.min(intento - 1, 20));
+        email.registrarFallo(error, LocalDateTime.now().plusSeconds(espera));
+        log.debug("🔄 Email {} reprogramado en {} s (intento {}/{})", email.getId(), espera, intento, maxIntentos);
+    }
+
+    @Scheduled(cron = "${app.email.outbox.limpieza-cron:0 30 3 * * *}")
+    public void limpiarEnviados() {
+        Integer eliminados = transactionTemplate.execute(status ->
+                emailOutboxRepository.eliminarEnviadosAntesDe(LocalDateTime.now().minusDays(diasRetencion)));
+        if (eliminados != null && eliminados > 0) {
+            log.info("🧹 {} emails enviados eliminados de la bandeja de salida", eliminados);
+        }
+    }
+}
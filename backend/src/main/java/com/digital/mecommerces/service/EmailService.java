@@ -1,25 +1,28 @@
 package com.digital.mecommerces.service;
 
+import com.digital.mecommerces.model.EmailOutbox;
 import com.digital.mecommerces.model.Usuario;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import java.util.concurrent.CompletableFuture;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Compone los emails del sistema con las plantillas de PlantillaEmailService
+ * y los deja en la bandeja de salida persistente.
+ * El envío (lotes, reintentos, pool propio) lo hace EmailOutboxService.
+ */
 @Service
 @Slf4j
 public class EmailService {
 
-    private final JavaMailSender mailSender;
-
-    @Value("${app.mail.from:noreply@mecommerces.com}")
-    private String fromEmail;
+    private final EmailOutboxService emailOutboxService;
+    private final PlantillaEmailService plantillaEmailService;
 
     @Value("${app.mail.enabled:false}")
     private boolean emailEnabled;
@@ -27,8 +30,10 @@ public class EmailService {
     @Value("${app.frontend.url:http://localhost:3000}")
     private String frontendUrl;
 
-    public EmailService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailService(EmailOutboxService emailOutboxService,
+                        PlantillaEmailService plantillaEmailService) {
+        this.emailOutboxService = emailOutboxService;
+        this.plantillaEmailService = plantillaEmailService;
     }
 
     public void enviarEmailBienvenida(Usuario usuario) {
@@ -37,20 +42,13 @@ public class EmailService {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                log.info("📧 Enviando email de bienvenida a: {}", usuario.getEmail());
-
-                String asunto = "¡Bienvenido a MeCommerces! 🎉";
-                String contenido = generarContenidoBienvenida(usuario);
+        log.info("📧 Encolando email de bienvenida a: {}", usuario.getEmail());
 
-                enviarEmailHtml(usuario.getEmail(), asunto, contenido);
-                log.info("✅ Email de bienvenida enviado exitosamente");
+        String asunto = "¡Bienvenido a MeCommerces! 🎉";
+        String contenido = generarContenidoBienvenida(usuario);
 
-            } catch (Exception e) {
-                log.error("❌ Error enviando email de bienvenida: {}", e.getMessage());
-            }
-        });
+        encolarEmailHtml(usuario.getEmail(), asunto, contenido);
+        log.info("✅ Email de bienvenida encolado");
     }
 
     public void enviarEmailResetPassword(Usuario usuario, String token) {
@@ -59,20 +57,13 @@ public class EmailService {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                log.info("🔑 Enviando email de reset de contraseña a: {}", usuario.getEmail());
+        log.info("🔑 Encolando email de reset de contraseña a: {}", usuario.getEmail());
 
-                String asunto = "Restablecer contraseña - MeCommerces";
-                String contenido = generarContenidoResetPassword(usuario, token);
+        String asunto = "Restablecer contraseña - MeCommerces";
+        String contenido = generarContenidoResetPassword(usuario, token);
 
-                enviarEmailHtml(usuario.getEmail(), asunto, contenido);
-                log.info("✅ Email de reset de contraseña enviado exitosamente");
-
-            } catch (Exception e) {
-                log.error("❌ Error enviando email de reset: {}", e.getMessage());
-            }
-        });
+        encolarEmailHtml(usuario.getEmail(), asunto, contenido);
+        log.info("✅ Email de reset de contraseña encolado");
     }
 
     public void enviarEmailConfirmacionOrden(Usuario usuario, Long ordenId, Double total) {
@@ -81,20 +72,13 @@ public class EmailService {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                log.info("📦 Enviando confirmación de orden {} a: {}", ordenId, usuario.getEmail());
-
-                String asunto = "Confirmación de orden #" + ordenId + " - MeCommerces";
-                String contenido = generarContenidoConfirmacionOrden(usuario, ordenId, total);
+        log.info("📦 Encolando confirmación de orden {} a: {}", ordenId, usuario.getEmail());
 
-                enviarEmailHtml(usuario.getEmail(), asunto, contenido);
-                log.info("✅ Email de confirmación de orden enviado exitosamente");
+        String asunto = "Confirmación de orden #" + ordenId + " - MeCommerces";
+        String contenido = generarContenidoConfirmacionOrden(usuario, ordenId, total);
 
-            } catch (Exception e) {
-                log.error("❌ Error enviando confirmación de orden: {}", e.getMessage());
-            }
-        });
+        encolarEmailHtml(usuario.getEmail(), asunto, contenido);
+        log.info("✅ Email de confirmación de orden encolado");
     }
 
     public void enviarEmailCambioEstadoOrden(Usuario usuario, Long ordenId, String nuevoEstado) {
@@ -103,20 +87,13 @@ public class EmailService {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                log.info("📋 Enviando cambio de estado de orden {} a: {}", ordenId, usuario.getEmail());
+        log.info("📋 Encolando cambio de estado de orden {} a: {}", ordenId, usuario.getEmail());
 
-                String asunto = "Actualización de orden #" + ordenId + " - MeCommerces";
-                String contenido = generarContenidoCambioEstado(usuario, ordenId, nuevoEstado);
+        String asunto = "Actualización de orden #" + ordenId + " - MeCommerces";
+        String contenido = generarContenidoCambioEstado(usuario, ordenId, nuevoEstado);
 
-                enviarEmailHtml(usuario.getEmail(), asunto, contenido);
-                log.info("✅ Email de cambio de estado enviado exitosamente");
-
-            } catch (Exception e) {
-                log.error("❌ Error enviando cambio de estado: {}", e.getMessage());
-            }
-        });
+        encolarEmailHtml(usuario.getEmail(), asunto, contenido);
+        log.info("✅ Email de cambio de estado encolado");
     }
 
     public void enviarEmailVendedorVerificado(Usuario usuario) {
@@ -125,20 +102,13 @@ public class EmailService {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                log.info("✅ Enviando notificación de verificación de vendedor a: {}", usuario.getEmail());
-
-                String asunto = "¡Tu cuenta de vendedor ha sido verificada! ✅ - MeCommerces";
-                String contenido = generarContenidoVendedorVerificado(usuario);
+        log.info("✅ Encolando notificación de verificación de vendedor a: {}", usuario.getEmail());
 
-                enviarEmailHtml(usuario.getEmail(), asunto, contenido);
-                log.info("✅ Email de verificación de vendedor enviado exitosamente");
+        String asunto = "¡Tu cuenta de vendedor ha sido verificada! ✅ - MeCommerces";
+        String contenido = generarContenidoVendedorVerificado(usuario);
 
-            } catch (Exception e) {
-                log.error("❌ Error enviando email de verificación: {}", e.getMessage());
-            }
-        });
+        encolarEmailHtml(usuario.getEmail(), asunto, contenido);
+        log.info("✅ Email de verificación de vendedor encolado");
     }
 
     public void enviarEmailSimple(String destinatario, String asunto, String mensaje) {
@@ -147,284 +117,94 @@ public class EmailService {
             return;
         }
 
-        try {
-            log.info("📧 Enviando email simple a: {}", destinatario);
-
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(destinatario);
-            message.setSubject(asunto);
-            message.setText(mensaje);
+        log.info("📧 Encolando email simple a: {}", destinatario);
+        emailOutboxService.encolar(destinatario, asunto, mensaje, false);
+    }
 
-            mailSender.send(message);
-            log.info("✅ Email simple enviado exitosamente");
+    /**
+     * Envía la misma plantilla a muchos usuarios: se compila una vez, se personaliza por destinatario
+     * y todos los emails se encolan juntos. Devuelve cuántos se encolaron.
+     */
+    public int enviarEmailMasivo(String plantilla, String asunto, List<Usuario> usuarios,
+                                 Function<Usuario, Map<String, ?>> valores) {
+        return enviarEmailMasivo(plantilla, asunto, usuarios, Usuario::getEmail, valores);
+    }
 
-        } catch (Exception e) {
-            log.error("❌ Error enviando email simple: {}", e.getMessage());
+    public <T> int enviarEmailMasivo(String plantilla, String asunto, List<T> destinatarios,
+                                     Function<T, String> email, Function<T, Map<String, ?>> valores) {
+        if (!emailEnabled) {
+            log.info("📧 Email deshabilitado - Simulando envío masivo '{}' a {} destinatarios",
+                    plantilla, destinatarios.size());
+            return 0;
         }
-    }
 
-    private void enviarEmailHtml(String destinatario, String asunto, String contenidoHtml) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        List<String> contenidos = plantillaEmailService.renderizarLote(plantilla, destinatarios, valores);
+        List<EmailOutbox> emails = new ArrayList<>(destinatarios.size());
+        for (int i = 0; i < destinatarios.size(); i++) {
+            emails.add(new EmailOutbox(email.apply(destinatarios.get(i)), asunto, contenidos.get(i), true));
+        }
+        emailOutboxService.encolarTodos(emails);
 
-        helper.setFrom(fromEmail);
-        helper.setTo(destinatario);
-        helper.setSubject(asunto);
-        helper.setText(contenidoHtml, true);
+        log.info("✅ {} emails '{}' encolados", emails.size(), plantilla);
+        return emails.size();
+    }
 
-        mailSender.send(message);
+    // El envío real lo hace EmailOutboxService en lotes, con reintentos
+    private void encolarEmailHtml(String destinatario, String asunto, String contenidoHtml) {
+        emailOutboxService.encolar(destinatario, asunto, contenidoHtml, true);
     }
 
     private String generarContenidoBienvenida(Usuario usuario) {
-        return """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <title>Bienvenido a MeCommerces</title>
-            </head>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px;">
-                    <h2 style="color: #2563eb;">¡Bienvenido a MeCommerces! 🎉</h2>
-                    
-                    <p>Hola <strong>%s</strong>,</p>
-                    
-                    <p>¡Nos complace darte la bienvenida a MeCommerces! Tu cuenta ha sido creada exitosamente.</p>
-                    
-                    <p><strong>Detalles de tu cuenta:</strong></p>
-                    <ul>
-                        <li>Nombre: %s</li>
-                        <li>Email: %s</li>
-                        <li>Rol: %s</li>
-                    </ul>
-                    
-                    <p>Ahora puedes:</p>
-                    <ul>
-                        <li>Explorar nuestro catálogo de productos</li>
-                        <li>Gestionar tu perfil</li>
-                        <li>Realizar compras de forma segura</li>
-                    </ul>
-                    
-                    <div style="margin: 30px 0;">
-                        <a href="%s" style="background-color: #2563eb; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px;">
-                            Acceder a mi cuenta
-                        </a>
-                    </div>
-                    
-                    <p>Si tienes alguna pregunta, no dudes en contactarnos.</p>
-                    
-                    <p>¡Gracias por elegir MeCommerces!</p>
-                    
-                    <hr style="margin: 30px 0;">
-                    <p style="font-size: 12px; color: #666;">
-                        Este es un email automático, por favor no respondas a este mensaje.
-                    </p>
-                </div>
-            </body>
-            </html>
-            """.formatted(
-                usuario.getUsuarioNombre(),
-                usuario.getUsuarioNombre(),
-                usuario.getEmail(),
-                usuario.getRol() != null ? usuario.getRol().getDescripcion() : "Usuario",
-                frontendUrl + "/login"
-        );
+        return plantillaEmailService.renderizar("bienvenida", Map.of(
+                "nombre", texto(usuario.getUsuarioNombre()),
+                "email", texto(usuario.getEmail()),
+                "rol", usuario.getRol() != null ? texto(usuario.getRol().getDescripcion()) : "Usuario",
+                "url", frontendUrl + "/login"
+        ));
     }
 
     private String generarContenidoResetPassword(Usuario usuario, String token) {
-        String resetUrl = frontendUrl + "/reset-password?token=" + token;
-
-        return """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <title>Restablecer Contraseña</title>
-            </head>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px;">
-                    <h2 style="color: #dc2626;">Restablecer contraseña 🔑</h2>
-                    
-                    <p>Hola <strong>%s</strong>,</p>
-                    
-                    <p>Hemos recibido una solicitud para restablecer la contraseña de tu cuenta en MeCommerces.</p>
-                    
-                    <p>Si no realizaste esta solicitud, puedes ignorar este email. Tu contraseña no será cambiada.</p>
-                    
-                    <p>Para restablecer tu contraseña, haz clic en el siguiente enlace:</p>
-                    
-                    <div style="margin: 30px 0;">
-                        <a href="%s" style="background-color: #dc2626; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px;">
-                            Restablecer contraseña
-                        </a>
-                    </div>
-                    
-                    <p style="font-size: 14px; color: #666;">
-                        Este enlace expirará en 1 hora por seguridad.
-                    </p>
-                    
-                    <p>Si el botón no funciona, copia y pega este enlace en tu navegador:</p>
-                    <p style="word-break: break-all; background-color: #f5f5f5; padding: 10px; border-radius: 3px;">
-                        %s
-                    </p>
-                    
-                    <hr style="margin: 30px 0;">
-                    <p style="font-size: 12px; color: #666;">
-                        Este es un email automático, por favor no respondas a este mensaje.
-                    </p>
-                </div>
-            </body>
-            </html>
-            """.formatted(
-                usuario.getUsuarioNombre(),
-                resetUrl,
-                resetUrl
-        );
+        return plantillaEmailService.renderizar("reset-password", Map.of(
+                "nombre", texto(usuario.getUsuarioNombre()),
+                "url", frontendUrl + "/reset-password?token=" + token
+        ));
     }
 
     private String generarContenidoConfirmacionOrden(Usuario usuario, Long ordenId, Double total) {
-        return """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <title>Confirmación de Orden</title>
-            </head>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px;">
-                    <h2 style="color: #16a34a;">¡Orden confirmada! 📦</h2>
-                    
-                    <p>Hola <strong>%s</strong>,</p>
-                    
-                    <p>Tu orden ha sido confirmada y está siendo procesada.</p>
-                    
-                    <div style="background-color: #f0f9ff; padding: 20px; border-radius: 5px; margin: 20px 0;">
-                        <h3 style="margin-top: 0;">Detalles de la orden:</h3>
-                        <p><strong>Número de orden:</strong> #%d</p>
-                        <p><strong>Total:</strong> $%.2f</p>
-                        <p><strong>Estado:</strong> Pendiente de procesamiento</p>
-                    </div>
-                    
-                    <p>Te notificaremos cuando tu orden sea enviada.</p>
-                    
-                    <div style="margin: 30px 0;">
-                        <a href="%s" style="background-color: #16a34a; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px;">
-                            Ver mis órdenes
-                        </a>
-                    </div>
-                    
-                    <p>¡Gracias por tu compra!</p>
-                    
-                    <hr style="margin: 30px 0;">
-                    <p style="font-size: 12px; color: #666;">
-                        Este es un email automático, por favor no respondas a este mensaje.
-                    </p>
-                </div>
-            </body>
-            </html>
-            """.formatted(
-                usuario.getUsuarioNombre(),
-                ordenId,
-                total,
-                frontendUrl + "/mis-ordenes"
-        );
+        return plantillaEmailService.renderizar("confirmacion-orden", Map.of(
+                "nombre", texto(usuario.getUsuarioNombre()),
+                "ordenId", texto(ordenId),
+                "total", total != null ? String.format("%.2f", total) : "",
+                "url", frontendUrl + "/mis-ordenes"
+        ));
     }
 
     private String generarContenidoCambioEstado(Usuario usuario, Long ordenId, String nuevoEstado) {
-        String estadoDescriptivo = obtenerEstadoDescriptivo(nuevoEstado);
-        String color = obtenerColorEstado(nuevoEstado);
-
-        return """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <title>Actualización de Orden</title>
-            </head>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px;">
-                    <h2 style="color: %s;">Actualización de orden 📋</h2>
-                    
-                    <p>Hola <strong>%s</strong>,</p>
-                    
-                    <p>Tu orden #%d ha sido actualizada.</p>
-                    
-                    <div style="background-color: #f0f9ff; padding: 20px; border-radius: 5px; margin: 20px 0;">
-                        <h3 style="margin-top: 0;">Estado actual:</h3>
-                        <p style="font-size: 18px; color: %s;"><strong>%s</strong></p>
-                    </div>
-                    
-                    <div style="margin: 30px 0;">
-                        <a href="%s" style="background-color: %s; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px;">
-                            Ver detalles de la orden
-                        </a>
-                    </div>
-                    
-                    <hr style="margin: 30px 0;">
-                    <p style="font-size: 12px; color: #666;">
-                        Este es un email automático, por favor no respondas a este mensaje.
-                    </p>
-                </div>
-            </body>
-            </html>
-            """.formatted(
-                color,
-                usuario.getUsuarioNombre(),
-                ordenId,
-                color,
-                estadoDescriptivo,
-                frontendUrl + "/orden/" + ordenId,
-                color
-        );
+        return plantillaEmailService.renderizar("cambio-estado-orden", Map.of(
+                "nombre", texto(usuario.getUsuarioNombre()),
+                "ordenId", texto(ordenId),
+                "estado", obtenerEstadoDescriptivo(nuevoEstado),
+                "color", obtenerColorEstado(nuevoEstado),
+                "url", frontendUrl + "/orden/" + ordenId
+        ));
     }
 
     private String generarContenidoVendedorVerificado(Usuario usuario) {
-        return """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <title>Cuenta Verificada</title>
-            </head>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px;">
-                    <h2 style="color: #16a34a;">¡Cuenta verificada! ✅</h2>
-                    
-                    <p>Hola <strong>%s</strong>,</p>
-                    
-                    <p>¡Excelentes noticias! Tu cuenta de vendedor ha sido verificada exitosamente.</p>
-                    
-                    <p>Ahora puedes:</p>
-                    <ul>
-                        <li>Publicar productos en nuestro marketplace</li>
-                        <li>Gestionar tu inventario</li>
-                        <li>Recibir y procesar órdenes</li>
-                        <li>Acceder a herramientas de vendedor</li>
-                    </ul>
-                    
-                    <div style="margin: 30px 0;">
-                        <a href="%s" style="background-color: #16a34a; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px;">
-                            Acceder al panel de vendedor
-                        </a>
-                    </div>
-                    
-                    <p>¡Bienvenido a la comunidad de vendedores de MeCommerces!</p>
-                    
-                    <hr style="margin: 30px 0;">
-                    <p style="font-size: 12px; color: #666;">
-                        Este es un email automático, por favor no respondas a este mensaje.
-                    </p>
-                </div>
-            </body>
-            </html>
-            """.formatted(
-                usuario.getUsuarioNombre(),
-                frontendUrl + "/vendedor/dashboard"
-        );
+        return plantillaEmailService.renderizar("vendedor-verificado", Map.of(
+                "nombre", texto(usuario.getUsuarioNombre()),
+                "url", frontendUrl + "/vendedor/dashboard"
+        ));
+    }
+
+    // Map.of no admite valores null: un dato ausente se muestra vacío en la plantilla
+    private static Object texto(Object valor) {
+        return Objects.requireNonNullElse(valor, "");
     }
 
     private String obtenerEstadoDescriptivo(String estado) {
+        if (estado == null) {
+            return "";
+        }
         return switch (estado.toUpperCase()) {
             case "PENDIENTE" -> "Pendiente de pago";
             case "PAGADA" -> "Pagada - Preparando envío";
@@ -437,6 +217,9 @@ public class EmailService {
     }
 
     private String obtenerColorEstado(String estado) {
+        if (estado == null) {
+            return "#6b7280";
+        }
         return switch (estado.toUpperCase()) {
             case "PENDIENTE" -> "#f59e0b";
             case "PAGADA" -> "#3b82f6";
@@ -1,20 +1,38 @@
 package com.digital.mecommerces.service;
 
+import com.digital.mecommerces.event.ImagenLiberadaEvent;
 import com.digital.mecommerces.exception.BusinessException;
+import com.digital.mecommerces.repository.CategoriaProductoRepository;
+import com.digital.mecommerces.repository.ProductoImagenRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Service
 @Slf4j
@@ -34,10 +52,40 @@ public class ImageStorageService {
             "image/jpeg", "image/jpg", "image/png", "image/gif", "image/webp"
     );
 
+    // Directorios cuyas imágenes se sirven públicamente
+    private static final List<String> TIPOS_PUBLICOS = List.of("productos", "categorias", "perfiles", "sistema");
+
+    // Tipos que recibe la API de subida -> directorio de almacenamiento
+    private static final Map<String, String> DIRECTORIOS_POR_TIPO = Map.of(
+            "producto", "productos",
+            "categoria", "categorias",
+            "usuario", "perfiles",
+            "sistema", "sistema"
+    );
+
+    // {sha256}.{ext}: nombre de los archivos almacenados por contenido
+    private static final Pattern NOMBRE_POR_CONTENIDO = Pattern.compile("^[0-9a-f]{64}\\.[a-z0-9]+$");
+
+    // Tiempo durante el que no se libera un archivo recién subido o reutilizado por una subida duplicada
+    private static final long GRACIA_REUTILIZACION_MS = 60 * 60 * 1000L;
+
+    // Marca junto al archivo por contenido ({hash}.{ext}.reuso): su fecha es la de la última reutilización
+    public static final String SUFIJO_MARCA_REUSO = ".reuso";
+
+    private final ImagenVarianteService imagenVarianteService;
+    private final ProductoImagenRepository productoImagenRepository;
+    private final CategoriaProductoRepository categoriaProductoRepository;
+
     private Path fileStorageLocation;
 
-    public ImageStorageService(@Value("${app.upload.dir:uploads}") String uploadDir) {
+    public ImageStorageService(@Value("${app.upload.dir:uploads}") String uploadDir,
+                               ImagenVarianteService imagenVarianteService,
+                               ProductoImagenRepository productoImagenRepository,
+                               CategoriaProductoRepository categoriaProductoRepository) {
         this.uploadDir = uploadDir;
+        this.imagenVarianteService = imagenVarianteService;
+        this.productoImagenRepository = productoImagenRepository;
+        this.categoriaProductoRepository = categoriaProductoRepository;
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
 
         try {
@@ -46,6 +94,7 @@ public class ImageStorageService {
             Files.createDirectories(this.fileStorageLocation.resolve("productos"));
             Files.createDirectories(this.fileStorageLocation.resolve("perfiles"));
             Files.createDirectories(this.fileStorageLocation.resolve("categorias"));
+            Files.createDirectories(this.fileStorageLocation.resolve("sistema"));
             Files.createDirectories(this.fileStorageLocation.resolve("temp"));
 
             log.info("✅ Directorio de almacenamiento de imágenes creado en: {}", this.fileStorageLocation);
@@ -71,53 +120,80 @@ public class ImageStorageService {
         return almacenarImagen(archivo, "temp");
     }
 
+    /**
+     * Almacena una imagen recibida por la API de subida (tipos producto, categoria, usuario, sistema)
+     */
+    public String store(MultipartFile archivo, String tipo) {
+        String directorio = DIRECTORIOS_POR_TIPO.get(tipo.toLowerCase());
+        if (directorio == null) {
+            throw new BusinessException("Tipo de imagen inválido: " + tipo);
+        }
+        return almacenarImagen(archivo, directorio);
+    }
+
+    /**
+     * Almacena una imagen. En los directorios públicos el archivo se guarda por contenido:
+     * el nombre es el SHA-256 (calculado mientras se copia) y una imagen idéntica ya almacenada se reutiliza.
+     * Las imágenes temporales conservan un nombre aleatorio.
+     */
     public String almacenarImagen(MultipartFile archivo, String tipo) {
         log.info("📁 Almacenando imagen tipo: {} - Archivo: {}", tipo, archivo.getOriginalFilename());
 
         // Validaciones básicas
         validarArchivo(archivo);
 
-        try {
-            // Limpiar el nombre del archivo
-            String nombreOriginal = StringUtils.cleanPath(archivo.getOriginalFilename());
-
-            // Generar nuevo nombre único
-            String extension = obtenerExtensionArchivo(nombreOriginal);
-            String nuevoNombre = UUID.randomUUID().toString() + "." + extension;
+        // Limpiar el nombre del archivo
+        String nombreOriginal = StringUtils.cleanPath(archivo.getOriginalFilename());
+        String extension = obtenerExtensionArchivo(nombreOriginal).toLowerCase();
 
-            // Crear directorio del tipo si no existe
-            Path directorioTipo = this.fileStorageLocation.resolve(tipo);
-            Files.createDirectories(directorioTipo);
-
-            // Ruta completa del archivo
-            Path rutaDestino = directorioTipo.resolve(nuevoNombre);
+        if (!TIPOS_PUBLICOS.contains(tipo)) {
+            return almacenarConNombreAleatorio(archivo, tipo, extension);
+        }
 
-            // Verificar que el archivo no contiene ".." en el path
-            if (rutaDestino.normalize().toString().contains("..")) {
-                throw new BusinessException("Nombre de archivo inválido: " + nombreOriginal);
+        Path temporal = this.fileStorageLocation.resolve("temp").resolve(UUID.randomUUID() + ".part");
+        try {
+            // Copiar al temporal calculando el hash en la misma lectura
+            MessageDigest digest = nuevoDigest();
+            try (InputStream entrada = new DigestInputStream(archivo.getInputStream(), digest)) {
+                Files.copy(entrada, temporal, StandardCopyOption.REPLACE_EXISTING);
             }
 
-            // Copiar archivo al destino
-            Files.copy(archivo.getInputStream(), rutaDestino, StandardCopyOption.REPLACE_EXISTING);
-
-            // Generar URL pública
-            String urlPublica = generarUrlPublica(tipo, nuevoNombre);
+            String nombreArchivo = HexFormat.of().formatHex(digest.digest()) + "." + extension;
+            publicarArchivo(temporal, tipo, nombreArchivo);
 
+            String urlPublica = generarUrlPublica(tipo, nombreArchivo);
             log.info("✅ Imagen almacenada exitosamente: {}", urlPublica);
             return urlPublica;
 
         } catch (IOException ex) {
             log.error("❌ Error almacenando imagen: {}", ex.getMessage());
             throw new BusinessException("Error almacenando imagen: " + ex.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(temporal);
+            } catch (IOException e) {
+                log.warn("⚠️ No se pudo eliminar el temporal {}: {}", temporal.getFileName(), e.getMessage());
+            }
         }
     }
 
     public boolean eliminarImagen(String nombreArchivo, String tipo) {
         log.info("🗑️ Eliminando imagen: {} del tipo: {}", nombreArchivo, tipo);
 
+        long referencias = contarReferencias(tipo, nombreArchivo);
+        if (referencias > 0) {
+            throw new BusinessException("La imagen está en uso por " + referencias + " registro(s)");
+        }
+
+        Path rutaArchivo = rutaAlmacenamiento(tipo, nombreArchivo);
+        // Igual que el recolector: el registro que la usa puede no estar guardado todavía
+        if (Files.exists(rutaArchivo) && enPeriodoDeGracia(rutaArchivo)) {
+            throw new BusinessException("La imagen se subió o se reutilizó hace menos de "
+                    + GRACIA_REUTILIZACION_MS / 60000 + " minutos, no se puede eliminar todavía");
+        }
+
         try {
-            Path rutaArchivo = this.fileStorageLocation.resolve(tipo).resolve(nombreArchivo);
-            boolean eliminado = Files.deleteIfExists(rutaArchivo);
+            boolean eliminado = eliminarArchivo(rutaArchivo);
 
             if (eliminado) {
                 log.info("✅ Imagen eliminada exitosamente: {}", nombreArchivo);
@@ -133,6 +209,19 @@ public class ImageStorageService {
         }
     }
 
+    /**
+     * Elimina una imagen (y sus variantes) buscándola por nombre en los directorios públicos
+     */
+    public boolean delete(String nombreArchivo) {
+        for (String tipo : TIPOS_PUBLICOS) {
+            if (resolverImagen(tipo, nombreArchivo) != null) {
+                return eliminarImagen(nombreArchivo, tipo);
+            }
+        }
+        log.warn("⚠️ Imagen no encontrada para eliminar: {}", nombreArchivo);
+        return false;
+    }
+
     public boolean eliminarImagenPorUrl(String url) {
         log.info("🗑️ Eliminando imagen por URL: {}", url);
 
@@ -155,18 +244,170 @@ public class ImageStorageService {
         }
     }
 
+    /**
+     * Tras el commit, borra el archivo de una URL que dejó de usarse si ya no tiene referencias.
+     * Los archivos reutilizados hace poco por una subida duplicada se conservan: su nuevo
+     * registro puede no estar guardado todavía.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onImagenLiberada(ImagenLiberadaEvent evento) {
+        String[] partes = extraerInfoDeUrl(evento.getUrl());
+        if (partes.length != 2 || !TIPOS_PUBLICOS.contains(partes[0]) || !esNombrePorContenido(partes[1])) {
+            return;
+        }
+
+        String tipo = partes[0];
+        String nombreArchivo = partes[1];
+        Path ruta = resolverImagen(tipo, nombreArchivo);
+        if (ruta == null || contarReferencias(tipo, nombreArchivo) > 0) {
+            return;
+        }
+
+        if (enPeriodoDeGracia(ruta)) {
+            log.debug("🔄 Imagen {} subida o reutilizada recientemente, se conserva", nombreArchivo);
+            return;
+        }
+
+        try {
+            eliminarArchivo(ruta);
+            log.info("🗑️ Imagen sin referencias eliminada: {}", nombreArchivo);
+        } catch (IOException e) {
+            log.warn("⚠️ Error liberando imagen {}: {}", nombreArchivo, e.getMessage());
+        }
+    }
+
+    /**
+     * Número de registros (imágenes de producto y categorías) que apuntan a un archivo.
+     * Se compara la clave de almacenamiento y no la URL completa: las URLs guardadas con otro host
+     * u otra app.base-url también cuentan. El mismo nombre en otro tipo es otro archivo y no suma;
+     * las URLs antiguas sin tipo (/api/imagenes/{nombre}) cuentan para cualquier tipo.
+     * Primero se busca la URL pública actual (índice) y solo si no aparece, por sufijo.
+     */
+    public long contarReferencias(String tipo, String nombreArchivo) {
+        String url = generarUrlPublica(tipo, nombreArchivo);
+        long exactas = productoImagenRepository.countByUrl(url) + categoriaProductoRepository.countByImagen(url);
+        if (exactas > 0) {
+            return exactas;
+        }
+
+        long referencias = 0;
+        for (String ruta : List.of("/" + tipo + "/" + nombreArchivo, "/api/imagenes/" + nombreArchivo)) {
+            referencias += productoImagenRepository.countByUrlTerminadaEn(ruta)
+                    + categoriaProductoRepository.countByImagenTerminadaEn(ruta);
+        }
+        return referencias;
+    }
+
+    /**
+     * Clave de almacenamiento de una URL de imagen, sin host ni app.base-url: "tipo/nombre" si la URL
+     * indica un tipo público, o solo "nombre" en otro caso (p.ej. /api/imagenes/{nombre}).
+     * Devuelve null si la URL no termina en un nombre de archivo.
+     */
+    public static String claveAlmacenamiento(String url) {
+        if (!StringUtils.hasText(url)) {
+            return null;
+        }
+
+        String ruta = url.trim();
+        int fin = ruta.length();
+        for (char separador : new char[]{'?', '#'}) {
+            int posicion = ruta.indexOf(separador);
+            if (posicion >= 0) {
+                fin = Math.min(fin, posicion);
+            }
+        }
+        ruta = ruta.substring(0, fin);
+
+        int barra = ruta.lastIndexOf('/');
+        String nombre = ruta.substring(barra + 1);
+        if (nombre.isEmpty()) {
+            return null;
+        }
+        String tipo = barra > 0 ? ruta.substring(ruta.lastIndexOf('/', barra - 1) + 1, barra) : "";
+        return TIPOS_PUBLICOS.contains(tipo) ? tipo + "/" + nombre : nombre;
+    }
+
+    /**
+     * Si el archivo se subió o lo reutilizó una subida duplicada dentro del periodo de gracia.
+     * La subida se mide con la fecha del propio archivo y la reutilización con la de su marca .reuso,
+     * así el contenido almacenado no se modifica. Ante un error de lectura se considera reciente.
+     */
+    public boolean enPeriodoDeGracia(Path ruta) {
+        long limite = System.currentTimeMillis() - GRACIA_REUTILIZACION_MS;
+        try {
+            if (Files.getLastModifiedTime(ruta).toMillis() >= limite) {
+                return true;
+            }
+            Path marca = rutaMarcaReuso(ruta);
+            return Files.exists(marca) && Files.getLastModifiedTime(marca).toMillis() >= limite;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    public Path rutaMarcaReuso(Path ruta) {
+        return ruta.resolveSibling(ruta.getFileName() + SUFIJO_MARCA_REUSO);
+    }
+
     public Path cargarImagen(String nombreArchivo, String tipo) {
-        return this.fileStorageLocation.resolve(tipo).resolve(nombreArchivo);
+        return rutaAlmacenamiento(tipo, nombreArchivo);
+    }
+
+    /**
+     * Resuelve la ruta de una imagen dentro del directorio de almacenamiento.
+     * Devuelve null si el nombre intenta salir del directorio o si el archivo no existe.
+     */
+    public Path resolverImagen(String tipo, String nombreArchivo) {
+        if (!StringUtils.hasText(tipo) || !StringUtils.hasText(nombreArchivo)) {
+            return null;
+        }
+
+        Path ruta = rutaAlmacenamiento(tipo, nombreArchivo).normalize();
+        if (!ruta.startsWith(this.fileStorageLocation) || !Files.isRegularFile(ruta)) {
+            return null;
+        }
+        return ruta;
+    }
+
+    /**
+     * Busca una imagen por nombre en los directorios de imágenes públicas (URLs antiguas sin tipo)
+     */
+    public Path load(String nombreArchivo) {
+        for (String tipo : TIPOS_PUBLICOS) {
+            Path ruta = resolverImagen(tipo, nombreArchivo);
+            if (ruta != null) {
+                return ruta;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resuelve la ruta de una imagen pública a partir de su URL (la guardada en ProductoImagen.url)
+     */
+    public Path resolverUrl(String url) {
+        if (!StringUtils.hasText(url)) {
+            return null;
+        }
+        String[] partes = extraerInfoDeUrl(url);
+        return partes.length == 2 ? resolverImagenPublica(partes[0], partes[1]) : null;
+    }
+
+    /**
+     * Como resolverImagen, pero solo para los directorios públicos (nunca temp)
+     */
+    public Path resolverImagenPublica(String tipo, String nombreArchivo) {
+        return TIPOS_PUBLICOS.contains(tipo) ? resolverImagen(tipo, nombreArchivo) : null;
     }
 
     public boolean existeImagen(String nombreArchivo, String tipo) {
-        Path rutaArchivo = this.fileStorageLocation.resolve(tipo).resolve(nombreArchivo);
+        Path rutaArchivo = rutaAlmacenamiento(tipo, nombreArchivo);
         return Files.exists(rutaArchivo);
     }
 
     public long obtenerTamanoImagen(String nombreArchivo, String tipo) {
         try {
-            Path rutaArchivo = this.fileStorageLocation.resolve(tipo).resolve(nombreArchivo);
+            Path rutaArchivo = rutaAlmacenamiento(tipo, nombreArchivo);
             return Files.size(rutaArchivo);
         } catch (IOException e) {
             log.error("❌ Error obteniendo tamaño de imagen: {}", e.getMessage());
@@ -184,16 +425,19 @@ public class ImageStorageService {
                 throw new BusinessException("Imagen temporal no encontrada: " + nombreArchivo);
             }
 
-            // Crear directorio destino si no existe
-            Path directorioDestino = this.fileStorageLocation.resolve(tipoDestino);
-            Files.createDirectories(directorioDestino);
-
-            Path rutaDestino = directorioDestino.resolve(nombreArchivo);
-
-            // Mover archivo
-            Files.move(rutaOrigen, rutaDestino, StandardCopyOption.REPLACE_EXISTING);
+            // En los directorios públicos el archivo pasa a nombrarse por su contenido
+            String nombreDestino = nombreArchivo;
+            if (TIPOS_PUBLICOS.contains(tipoDestino)) {
+                nombreDestino = calcularHash(rutaOrigen) + "." + obtenerExtensionArchivo(nombreArchivo).toLowerCase();
+                publicarArchivo(rutaOrigen, tipoDestino, nombreDestino);
+                Files.deleteIfExists(rutaOrigen);
+            } else {
+                Path directorioDestino = this.fileStorageLocation.resolve(tipoDestino);
+                Files.createDirectories(directorioDestino);
+                Files.move(rutaOrigen, directorioDestino.resolve(nombreArchivo), StandardCopyOption.REPLACE_EXISTING);
+            }
 
-            String nuevaUrl = generarUrlPublica(tipoDestino, nombreArchivo);
+            String nuevaUrl = generarUrlPublica(tipoDestino, nombreDestino);
             log.info("✅ Imagen movida exitosamente a: {}", nuevaUrl);
 
             return nuevaUrl;
@@ -204,39 +448,144 @@ public class ImageStorageService {
         }
     }
 
-    public void limpiarImagenesTemporales() {
+    /**
+     * Elimina los archivos temporales (subidas sin confirmar, .part interrumpidos) de más de 24 horas
+     * @return bytes liberados
+     */
+    public long limpiarImagenesTemporales() {
         log.info("🧹 Limpiando imágenes temporales antiguas");
 
-        try {
-            Path directorioTemp = this.fileStorageLocation.resolve("temp");
+        Path directorioTemp = this.fileStorageLocation.resolve("temp");
+        if (!Files.exists(directorioTemp)) {
+            return 0;
+        }
 
-            if (!Files.exists(directorioTemp)) {
-                return;
-            }
+        long limite = System.currentTimeMillis() - 24L * 60 * 60 * 1000;
+        long[] liberados = {0, 0};
 
-            Files.list(directorioTemp)
-                    .filter(Files::isRegularFile)
-                    .forEach(archivo -> {
+        try {
+            Files.walkFileTree(directorioTemp, Set.of(), 1, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path archivo, BasicFileAttributes atributos) {
+                    if (atributos.isRegularFile() && atributos.lastModifiedTime().toMillis() < limite) {
                         try {
-                            long tiempoCreacion = Files.getLastModifiedTime(archivo).toMillis();
-                            long ahora = System.currentTimeMillis();
-                            long diferenciaHoras = (ahora - tiempoCreacion) / (1000 * 60 * 60);
-
-                            // Eliminar archivos temporales de más de 24 horas
-                            if (diferenciaHoras > 24) {
-                                Files.delete(archivo);
-                                log.debug("🗑️ Imagen temporal eliminada: {}", archivo.getFileName());
-                            }
+                            Files.delete(archivo);
+                            liberados[0] += atributos.size();
+                            liberados[1]++;
+                            log.debug("🗑️ Imagen temporal eliminada: {}", archivo.getFileName());
                         } catch (IOException e) {
                             log.warn("⚠️ Error eliminando imagen temporal: {}", e.getMessage());
                         }
-                    });
-
-            log.info("✅ Limpieza de imágenes temporales completada");
-
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path archivo, IOException e) {
+                    log.warn("⚠️ No se pudo leer {}: {}", archivo.getFileName(), e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            log.info("✅ Limpieza de imágenes temporales completada: {} archivos, {} bytes", liberados[1], liberados[0]);
         } catch (IOException e) {
             log.error("❌ Error durante limpieza de imágenes temporales: {}", e.getMessage());
         }
+
+        return liberados[0];
+    }
+
+    // Métodos privados de almacenamiento por contenido
+
+    /**
+     * Ruta de un archivo: los nombres por contenido van en dos niveles de subdirectorios
+     * con los primeros caracteres del hash (productos/ab/cd/abcd...jpg); el resto, planos.
+     */
+    private Path rutaAlmacenamiento(String tipo, String nombreArchivo) {
+        Path directorioTipo = this.fileStorageLocation.resolve(tipo);
+        if (esNombrePorContenido(nombreArchivo)) {
+            return directorioTipo.resolve(nombreArchivo.substring(0, 2))
+                    .resolve(nombreArchivo.substring(2, 4))
+                    .resolve(nombreArchivo);
+        }
+        return directorioTipo.resolve(nombreArchivo);
+    }
+
+    private boolean esNombrePorContenido(String nombreArchivo) {
+        return nombreArchivo != null && NOMBRE_POR_CONTENIDO.matcher(nombreArchivo).matches();
+    }
+
+    /**
+     * Mueve el archivo a su ruta por contenido. Si ya existe (subida duplicada) se conserva
+     * el existente y se renueva su marca .reuso, para que no se libere mientras se registra la nueva referencia.
+     */
+    private void publicarArchivo(Path origen, String tipo, String nombreArchivo) throws IOException {
+        Path destino = rutaAlmacenamiento(tipo, nombreArchivo);
+        Files.createDirectories(destino.getParent());
+
+        if (Files.exists(destino)) {
+            marcarReutilizacion(destino);
+            log.info("♻️ Imagen duplicada, se reutiliza: {}", nombreArchivo);
+            return;
+        }
+
+        try {
+            Files.move(origen, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Otra subida del mismo contenido terminó antes
+            marcarReutilizacion(destino);
+            log.info("♻️ Imagen duplicada, se reutiliza: {}", nombreArchivo);
+            return;
+        }
+
+        // Miniatura, tarjeta y detalle se generan en segundo plano
+        imagenVarianteService.generarVariantes(destino);
+    }
+
+    // Reescribir la marca actualiza su fecha; el archivo por contenido no se toca
+    private void marcarReutilizacion(Path destino) throws IOException {
+        Files.write(rutaMarcaReuso(destino), new byte[0]);
+    }
+
+    // Borra el archivo, su marca de reutilización y sus variantes
+    private boolean eliminarArchivo(Path ruta) throws IOException {
+        boolean eliminado = Files.deleteIfExists(ruta);
+        Files.deleteIfExists(rutaMarcaReuso(ruta));
+        imagenVarianteService.eliminarVariantes(ruta);
+        return eliminado;
+    }
+
+    private String almacenarConNombreAleatorio(MultipartFile archivo, String tipo, String extension) {
+        try {
+            String nuevoNombre = UUID.randomUUID() + "." + extension;
+            Path directorioTipo = this.fileStorageLocation.resolve(tipo);
+            Files.createDirectories(directorioTipo);
+
+            Files.copy(archivo.getInputStream(), directorioTipo.resolve(nuevoNombre), StandardCopyOption.REPLACE_EXISTING);
+
+            String urlPublica = generarUrlPublica(tipo, nuevoNombre);
+            log.info("✅ Imagen almacenada exitosamente: {}", urlPublica);
+            return urlPublica;
+        } catch (IOException ex) {
+            log.error("❌ Error almacenando imagen: {}", ex.getMessage());
+            throw new BusinessException("Error almacenando imagen: " + ex.getMessage());
+        }
+    }
+
+    private String calcularHash(Path archivo) throws IOException {
+        MessageDigest digest = nuevoDigest();
+        try (InputStream entrada = new DigestInputStream(Files.newInputStream(archivo), digest)) {
+            entrada.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest nuevoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
 
     // Métodos privados de validación y utilidad
@@ -280,7 +629,7 @@ public class ImageStorageService {
         return nombreArchivo.substring(nombreArchivo.lastIndexOf('.') + 1);
     }
 
-    private String generarUrlPublica(String tipo, String nombreArchivo) {
+    public String generarUrlPublica(String tipo, String nombreArchivo) {
         return baseUrl + "/api/imagenes/" + tipo + "/" + nombreArchivo;
     }
 
@@ -301,6 +650,14 @@ public class ImageStorageService {
     }
 
     // Getters para configuración
+    public Path getDirectorioAlmacenamiento() {
+        return fileStorageLocation;
+    }
+
+    public long getGraciaReutilizacionMs() {
+        return GRACIA_REUTILIZACION_MS;
+    }
+
     public String getUploadDir() {
         return uploadDir;
     }
@@ -0,0 +1,213 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.model.ProductoImagen;
+import com.digital.mecommerces.repository.ProductoRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché en memoria (fuera del heap, ByteBuffer directos) para las imágenes pequeñas más pedidas.
+ * Caffeine limita el total de bytes (app.upload.cache-memoria.max-bytes) y decide qué conservar
+ * según la frecuencia de acceso (W-TinyLFU). Se precarga con las imágenes principales de los
+ * productos destacados y publica sus métricas como cache.* con cache=imagenesCalientes.
+ * Una imagen solo se copia a memoria la segunda vez que se pide (la primera se sirve desde disco),
+ * así las imágenes pedidas una sola vez no reservan memoria directa.
+ * Los buffers no se liberan a mano: cada respuesta envía una vista de solo lectura que mantiene vivo
+ * su buffer, y el GC (Cleaner) devuelve la memoria cuando la entrada salió de la caché y no queda ninguna vista.
+ * Desactivada por defecto: la memoria directa reservada debe cubrir el presupuesto (-XX:MaxDirectMemorySize).
+ */
+@Service
+@Slf4j
+public class ImagenCacheService {
+
+    private static final String NOMBRE_CACHE = "imagenesCalientes";
+
+    private final ProductoRepository productoRepository;
+    private final ProductoImagenService productoImagenService;
+    private final ImageStorageService imageStorageService;
+    private final ImagenVarianteService imagenVarianteService;
+
+    private final boolean habilitada;
+    private final long tamanoMaximoArchivo;
+    private final Cache<Path, EntradaImagen> cache;
+
+    // Imágenes pedidas una vez y aún no admitidas en la caché
+    private final Cache<Path, Boolean> vistas;
+
+    public ImagenCacheService(ProductoRepository productoRepository,
+                              ProductoImagenService productoImagenService,
+                              ImageStorageService imageStorageService,
+                              ImagenVarianteService imagenVarianteService,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.upload.cache-memoria.enabled:false}") boolean habilitada,
+                              @Value("${app.upload.cache-memoria.max-bytes:67108864}") long presupuestoBytes,
+                              @Value("${app.upload.cache-memoria.max-file-size:262144}") long tamanoMaximoArchivo) {
+        this.productoRepository = productoRepository;
+        this.productoImagenService = productoImagenService;
+        this.imageStorageService = imageStorageService;
+        this.imagenVarianteService = imagenVarianteService;
+        this.habilitada = habilitada;
+        this.tamanoMaximoArchivo = tamanoMaximoArchivo;
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(presupuestoBytes)
+                .weigher((Path ruta, EntradaImagen entrada) -> entrada.contenido.capacity())
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+        this.vistas = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .build();
+
+        if (habilitada) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, NOMBRE_CACHE);
+            log.info("✅ Caché de imágenes en memoria: {} bytes, archivos de hasta {} bytes",
+                    presupuestoBytes, tamanoMaximoArchivo);
+        }
+    }
+
+    /**
+     * Contenido de la imagen en memoria, como vista de solo lectura con su propia posición.
+     * La primera petición de una imagen no la copia a memoria; la segunda la lee del disco y la guarda.
+     * El tamaño y la fecha deben coincidir con los del archivo: si cambió, se vuelve a leer.
+     * Devuelve null si la imagen se debe servir desde disco (caché desactivada, archivo demasiado
+     * grande o primera petición). La vista sigue siendo válida aunque la entrada salga de la caché.
+     */
+    public ByteBuffer obtenerContenido(Path archivo, long tamano, long ultimaModificacion) {
+        if (!habilitada || tamano > tamanoMaximoArchivo || tamano == 0) {
+            return null;
+        }
+
+        EntradaImagen entrada = cache.getIfPresent(archivo);
+        boolean vigente = entrada != null && entrada.tamano == tamano && entrada.ultimaModificacion == ultimaModificacion;
+        if (!vigente) {
+            if (entrada == null && vistas.asMap().putIfAbsent(archivo, Boolean.TRUE) == null) {
+                return null;
+            }
+            entrada = leer(archivo, tamano, ultimaModificacion);
+            if (entrada == null) {
+                return null;
+            }
+            vistas.invalidate(archivo);
+            cache.put(archivo, entrada);
+        }
+
+        return entrada.contenido.asReadOnlyBuffer();
+    }
+
+    /**
+     * Precarga las imágenes principales de los productos destacados (original y tarjeta)
+     */
+    @Async("imagenesExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargar() {
+        if (!habilitada) {
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        int precargadas = 0;
+        try {
+            List<Producto> destacados = productoRepository.findByDestacadoTrueAndActivoTrue();
+            for (Producto producto : destacados) {
+                ProductoImagen principal = productoImagenService.obtenerImagenPrincipal(producto.getProductoId());
+                Path original = principal != null ? imageStorageService.resolverUrl(principal.getUrl()) : null;
+                if (original == null) {
+                    continue;
+                }
+
+                for (Path ruta : List.of(original, imagenVarianteService.resolverVariante(original, "card", null))) {
+                    if (precargar(ruta)) {
+                        precargadas++;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Error precargando la caché de imágenes: {}", e.getMessage());
+        }
+
+        log.info("✅ Caché de imágenes precargada: {} archivos en {} ms", precargadas,
+                System.currentTimeMillis() - inicio);
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("habilitada", habilitada);
+        estadisticas.put("entradas", cache.estimatedSize());
+        estadisticas.put("bytes", cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L));
+        estadisticas.put("aciertos", stats.hitCount());
+        estadisticas.put("fallos", stats.missCount());
+        estadisticas.put("tasaAciertos", stats.hitRate());
+        estadisticas.put("desalojos", stats.evictionCount());
+        return estadisticas;
+    }
+
+    private boolean precargar(Path ruta) {
+        try {
+            EntradaImagen existente = cache.getIfPresent(ruta);
+            if (existente != null) {
+                return false;
+            }
+            long tamano = Files.size(ruta);
+            long ultimaModificacion = Files.getLastModifiedTime(ruta).toMillis();
+            if (tamano == 0 || tamano > tamanoMaximoArchivo) {
+                return false;
+            }
+            EntradaImagen entrada = leer(ruta, tamano, ultimaModificacion);
+            if (entrada != null) {
+                // put no cuenta como acierto ni fallo: la precarga no altera la tasa de aciertos
+                cache.put(ruta, entrada);
+                return true;
+            }
+        } catch (IOException e) {
+            log.debug("⚠️ No se pudo precargar {}: {}", ruta.getFileName(), e.getMessage());
+        }
+        return false;
+    }
+
+    private EntradaImagen leer(Path archivo, long tamano, long ultimaModificacion) {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer contenido = ByteBuffer.allocateDirect((int) tamano);
+            while (contenido.hasRemaining() && canal.read(contenido) >= 0) {
+                // leer hasta completar el buffer
+            }
+            if (contenido.hasRemaining()) {
+                // El archivo cambió mientras se leía
+                return null;
+            }
+            contenido.flip();
+            return new EntradaImagen(contenido, tamano, ultimaModificacion);
+        } catch (IOException e) {
+            log.debug("⚠️ No se pudo leer {} para la caché: {}", archivo.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private record EntradaImagen(ByteBuffer contenido, long tamano, long ultimaModificacion) {
+    }
+}
@@ -0,0 +1,264 @@
+package com.digital.mecommerces.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * Entrega de imágenes desde disco con validadores y caché HTTP.
+ * - ETag fuerte y Last-Modified; If-None-Match / If-Modified-Since responden 304.
+ *   Los archivos por contenido usan su hash como ETag; el resto, tamaño y fecha de modificación
+ * - Rangos de bytes (un solo rango, con If-Range); un Range que no se entiende se ignora (RFC 9110)
+ * - Cache-Control inmutable de larga duración para nombres únicos por contenido (UUID o hash)
+ * - Imágenes calientes desde la caché en memoria (ImagenCacheService)
+ * - Envío sin copias: sendfile de Tomcat cuando está disponible, si no FileChannel.transferTo
+ */
+@Service
+@Slf4j
+public class ImagenEntregaService {
+
+    // Atributos del conector de Tomcat para delegar el envío del archivo al sistema operativo
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Nombres que nunca cambian de contenido: UUID (subidas actuales) o hash hexadecimal
+    private static final Pattern NOMBRE_INMUTABLE = Pattern.compile(
+            "^([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}|[0-9a-f]{32,64})(_[a-z0-9]+)?\\.[a-z0-9]+$");
+
+    // {sha256}.{ext} o {sha256}_{variante}.{ext}: el nombre ya identifica el contenido
+    private static final Pattern NOMBRE_POR_CONTENIDO = Pattern.compile("^([0-9a-f]{64}(_[a-z0-9]+)?)\\.[a-z0-9]+$");
+
+    private static final Pattern RANGO_BYTES = Pattern.compile("^bytes=(\\d*)-(\\d*)$", Pattern.CASE_INSENSITIVE);
+
+    // Rango válido que no se puede satisfacer con el tamaño del archivo (416)
+    private static final long[] RANGO_INSATISFACIBLE = new long[0];
+
+    private static final String CACHE_INMUTABLE = "public, max-age=31536000, immutable";
+
+    @Value("${app.upload.cache-max-age:86400}")
+    private long cacheMaxAgeSegundos;
+
+    private final ImagenCacheService imagenCacheService;
+
+    public ImagenEntregaService(ImagenCacheService imagenCacheService) {
+        this.imagenCacheService = imagenCacheService;
+    }
+
+    public void servir(Path archivo, String contentType, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        servir(archivo, contentType, false, request, response);
+    }
+
+    /**
+     * @param provisional true si se entrega un sustituto temporal (p.ej. el original mientras
+     *                    se genera la variante pedida): se revalida siempre en lugar de cachearse
+     */
+    public void servir(Path archivo, String contentType, boolean provisional, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        long tamano = Files.size(archivo);
+        long ultimaModificacion = Files.getLastModifiedTime(archivo).toMillis();
+        // Precisión de segundos, como la cabecera Last-Modified
+        long ultimaModificacionSeg = ultimaModificacion / 1000 * 1000;
+        String etag = etag(archivo, tamano, ultimaModificacion);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, ultimaModificacionSeg);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (provisional) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        } else {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, esInmutable(archivo)
+                    ? CACHE_INMUTABLE
+                    : "public, max-age=" + cacheMaxAgeSegundos);
+        }
+
+        if (noModificado(request, etag, ultimaModificacionSeg)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(contentType);
+
+        long inicio = 0;
+        long fin = tamano - 1;
+        long[] limites = null;
+        String rango = request.getHeader(HttpHeaders.RANGE);
+        if (rango != null && tamano > 0 && aplicaRango(request, etag, ultimaModificacionSeg)) {
+            limites = parsearRango(rango, tamano);
+            if (limites == RANGO_INSATISFACIBLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamano);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        if (limites != null) {
+            inicio = limites[0];
+            fin = limites[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + tamano);
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+
+        long longitud = tamano == 0 ? 0 : fin - inicio + 1;
+        response.setContentLengthLong(longitud);
+
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || longitud == 0) {
+            return;
+        }
+
+        // Las imágenes pequeñas y muy pedidas se sirven desde memoria, sin tocar el disco
+        ByteBuffer contenido = imagenCacheService.obtenerContenido(archivo, tamano, ultimaModificacion);
+        if (contenido != null) {
+            contenido.position((int) inicio).limit((int) (fin + 1));
+            WritableByteChannel destino = Channels.newChannel(response.getOutputStream());
+            while (contenido.hasRemaining()) {
+                destino.write(contenido);
+            }
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat envía el archivo con sendfile al terminar la petición
+            request.setAttribute(SENDFILE_FILENAME, archivo.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, inicio);
+            request.setAttribute(SENDFILE_END, fin + 1);
+            return;
+        }
+
+        transferir(archivo, inicio, longitud, response.getOutputStream());
+    }
+
+    private void transferir(Path archivo, long inicio, long longitud, OutputStream salida) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            WritableByteChannel destino = Channels.newChannel(salida);
+            long enviado = 0;
+            while (enviado < longitud) {
+                long n = canal.transferTo(inicio + enviado, longitud - enviado, destino);
+                if (n <= 0) {
+                    break;
+                }
+                enviado += n;
+            }
+        }
+    }
+
+    private boolean noModificado(HttpServletRequest request, String etag, long ultimaModificacion) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-None-Match tiene prioridad sobre If-Modified-Since
+            return coincideEtag(ifNoneMatch, etag);
+        }
+
+        long ifModifiedSince = leerFecha(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && ultimaModificacion <= ifModifiedSince;
+    }
+
+    // If-Range: el rango solo se aplica si el recurso no cambió desde que el cliente lo obtuvo
+    private boolean aplicaRango(HttpServletRequest request, String etag, long ultimaModificacion) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        long fecha = leerFecha(request, HttpHeaders.IF_RANGE);
+        return fecha >= 0 && ultimaModificacion <= fecha;
+    }
+
+    private boolean coincideEtag(String cabecera, String etag) {
+        for (String candidato : cabecera.split(",")) {
+            String valor = candidato.trim();
+            if (valor.equals("*") || valor.equals(etag) || valor.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Un solo rango de bytes. Devuelve null si la cabecera no se entiende (varios rangos, otra unidad,
+     * inicio mayor que el final...): se ignora y se entrega el archivo completo con 200.
+     * Un rango válido que empieza fuera del archivo (o un sufijo de 0 bytes) es RANGO_INSATISFACIBLE.
+     */
+    private long[] parsearRango(String rango, long tamano) {
+        var matcher = RANGO_BYTES.matcher(rango.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        String desde = matcher.group(1);
+        String hasta = matcher.group(2);
+
+        if (desde.isEmpty()) {
+            // "bytes=-500": los últimos 500 bytes
+            if (hasta.isEmpty()) {
+                return null;
+            }
+            long sufijo = leerPosicion(hasta);
+            if (sufijo == 0) {
+                return RANGO_INSATISFACIBLE;
+            }
+            return new long[]{Math.max(0, tamano - sufijo), tamano - 1};
+        }
+
+        long inicio = leerPosicion(desde);
+        long fin = hasta.isEmpty() ? Long.MAX_VALUE : leerPosicion(hasta);
+        if (inicio > fin) {
+            return null;
+        }
+        if (inicio >= tamano) {
+            return RANGO_INSATISFACIBLE;
+        }
+        return new long[]{inicio, Math.min(fin, tamano - 1)};
+    }
+
+    // Posiciones con más dígitos de los que caben en un long se saturan: un inicio así queda
+    // fuera del archivo (416) y un final o sufijo así abarca hasta el último byte
+    private long leerPosicion(String digitos) {
+        try {
+            return Long.parseLong(digitos);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private long leerFecha(HttpServletRequest request, String cabecera) {
+        try {
+            return request.getDateHeader(cabecera);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    // El hash del nombre no cambia aunque cambie la fecha del archivo; la variante se incluye
+    private String etag(Path archivo, long tamano, long ultimaModificacion) {
+        var porContenido = NOMBRE_POR_CONTENIDO.matcher(archivo.getFileName().toString().toLowerCase());
+        if (porContenido.matches()) {
+            return "\"" + porContenido.group(1) + "\"";
+        }
+        return "\"" + Long.toHexString(tamano) + "-" + Long.toHexString(ultimaModificacion) + "\"";
+    }
+
+    private boolean esInmutable(Path archivo) {
+        return NOMBRE_INMUTABLE.matcher(archivo.getFileName().toString().toLowerCase()).matches();
+    }
+}
@@ -0,0 +1,372 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.exception.BusinessException;
+import com.digital.mecommerces.repository.CategoriaProductoRepository;
+import com.digital.mecommerces.repository.ProductoImagenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Recolector de archivos de imágenes sin referencias.
+ * Al empezar cada pasada reduce las URLs guardadas (ProductoImagen.url, CategoriaProducto.imagen) a claves
+ * de almacenamiento (tipo/nombre), así una URL con otro host u otra app.base-url sigue protegiendo su archivo.
+ * Después recorre el almacenamiento por unidades (la raíz de cada tipo y cada subdirectorio ab/cd) en orden
+ * y borra en paralelo los archivos cuya clave no aparece. Solo recorre productos y categorías: perfiles y
+ * sistema no tienen tabla de referencias, así que sus archivos nunca se consideran huérfanos.
+ * Cada ejecución tiene un tiempo máximo; la siguiente continúa desde la última unidad terminada
+ * (guardada en {uploads}/.gc-cursor).
+ * Desactivado por defecto (app.upload.gc.enabled) y, aun activado, en modo simulación (app.upload.gc.dry-run):
+ * solo registra en el log lo que borraría.
+ */
+@Service
+@Slf4j
+public class ImagenRecolectorService {
+
+    private static final String ARCHIVO_CURSOR = ".gc-cursor";
+    // Tipos cuyas referencias están en base de datos, en orden lexicográfico
+    private static final List<String> TIPOS_RECOLECTADOS = List.of("categorias", "productos");
+    private static final Pattern SUBDIRECTORIO = Pattern.compile("^[0-9a-f]{2}$");
+    private static final Pattern VARIANTE = Pattern.compile(
+            "^(.+)_(" + String.join("|", ImagenVarianteService.nombresVariantes()) + ")\\.[a-z0-9]+$");
+
+    private final ImageStorageService imageStorageService;
+    private final ImagenVarianteService imagenVarianteService;
+    private final ProductoImagenRepository productoImagenRepository;
+    private final CategoriaProductoRepository categoriaProductoRepository;
+    private final Executor gcExecutor;
+    private final AtomicBoolean enEjecucion = new AtomicBoolean(false);
+
+    @Value("${app.upload.gc.enabled:false}")
+    private boolean habilitado;
+
+    @Value("${app.upload.gc.dry-run:true}")
+    private boolean simulacion;
+
+    @Value("${app.upload.gc.max-duration-seconds:60}")
+    private long duracionMaximaSegundos;
+
+    public ImagenRecolectorService(ImageStorageService imageStorageService,
+                                   ImagenVarianteService imagenVarianteService,
+                                   ProductoImagenRepository productoImagenRepository,
+                                   CategoriaProductoRepository categoriaProductoRepository,
+                                   @Qualifier("gcExecutor") Executor gcExecutor) {
+        this.imageStorageService = imageStorageService;
+        this.imagenVarianteService = imagenVarianteService;
+        this.productoImagenRepository = productoImagenRepository;
+        this.categoriaProductoRepository = categoriaProductoRepository;
+        this.gcExecutor = gcExecutor;
+    }
+
+    @Scheduled(cron = "${app.upload.gc.cron:0 30 3 * * *}")
+    public void ejecutarProgramado() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            ejecutar();
+        } catch (RuntimeException e) {
+            log.error("❌ Error en la recolección de imágenes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ejecuta una pasada del recolector (limitada por app.upload.gc.max-duration-seconds)
+     */
+    public Map<String, Object> ejecutar() {
+        if (!enEjecucion.compareAndSet(false, true)) {
+            throw new BusinessException("Ya hay una recolección de imágenes en curso");
+        }
+
+        try {
+            return recolectar();
+        } finally {
+            enEjecucion.set(false);
+        }
+    }
+
+    private Map<String, Object> recolectar() {
+        long inicio = System.currentTimeMillis();
+        long limite = inicio + duracionMaximaSegundos * 1000;
+        Path raiz = imageStorageService.getDirectorioAlmacenamiento();
+        String cursor = leerCursor(raiz);
+        log.info("🧹 Recolección de imágenes iniciada{}{}", cursor != null ? " desde " + cursor : "",
+                simulacion ? " (simulación: no se borra nada)" : "");
+
+        Contadores contadores = new Contadores();
+        if (!simulacion) {
+            contadores.bytes.addAndGet(imageStorageService.limpiarImagenesTemporales());
+        }
+        Set<String> referencias = clavesReferenciadas();
+
+        boolean completo = true;
+        String ultimaUnidad = null;
+        try {
+            for (String unidad : unidades(raiz)) {
+                if (cursor != null && unidad.compareTo(cursor) <= 0) {
+                    continue;
+                }
+                if (System.currentTimeMillis() >= limite) {
+                    completo = false;
+                    break;
+                }
+
+                recolectarUnidad(raiz, unidad, referencias, contadores);
+                contadores.unidades.incrementAndGet();
+                ultimaUnidad = unidad;
+                guardarCursor(raiz, ultimaUnidad);
+            }
+        } catch (IOException e) {
+            completo = false;
+            log.error("❌ Error recorriendo el almacenamiento de imágenes: {}", e.getMessage());
+        }
+
+        if (completo) {
+            // Vuelta completa: la próxima ejecución empieza desde el principio
+            guardarCursor(raiz, null);
+        }
+
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("completo", completo);
+        resultado.put("simulacion", simulacion);
+        resultado.put("cursor", completo ? null : ultimaUnidad != null ? ultimaUnidad : cursor);
+        resultado.put("unidadesRecorridas", contadores.unidades.get());
+        resultado.put("archivosRevisados", contadores.revisados.get());
+        resultado.put("archivosEliminados", contadores.eliminados.get());
+        resultado.put("bytesLiberados", contadores.bytes.get());
+        resultado.put("duracionMs", System.currentTimeMillis() - inicio);
+
+        log.info("✅ Recolección de imágenes {}{}: {} archivos revisados, {} eliminados, {} bytes liberados",
+                completo ? "completa" : "parcial", simulacion ? " (simulación)" : "", contadores.revisados.get(),
+                contadores.eliminados.get(), contadores.bytes.get());
+        return resultado;
+    }
+
+    /**
+     * Unidades de recorrido en orden lexicográfico: "productos" (archivos planos) y "productos/ab/cd"
+     */
+    private List<String> unidades(Path raiz) throws IOException {
+        List<String> unidades = new ArrayList<>();
+        for (String tipo : TIPOS_RECOLECTADOS) {
+            Path directorioTipo = raiz.resolve(tipo);
+            if (!Files.isDirectory(directorioTipo)) {
+                continue;
+            }
+            unidades.add(tipo);
+            for (String nivel1 : subdirectorios(directorioTipo)) {
+                for (String nivel2 : subdirectorios(directorioTipo.resolve(nivel1))) {
+                    unidades.add(tipo + "/" + nivel1 + "/" + nivel2);
+                }
+            }
+        }
+        return unidades;
+    }
+
+    private List<String> subdirectorios(Path directorio) throws IOException {
+        try (Stream<Path> hijos = Files.list(directorio)) {
+            return hijos.filter(Files::isDirectory)
+                    .map(hijo -> hijo.getFileName().toString())
+                    .filter(nombre -> SUBDIRECTORIO.matcher(nombre).matches())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void recolectarUnidad(Path raiz, String unidad, Set<String> referencias,
+                                  Contadores contadores) throws IOException {
+        String tipo = unidad.contains("/") ? unidad.substring(0, unidad.indexOf('/')) : unidad;
+        Path directorio = raiz.resolve(unidad);
+        long limiteGracia = System.currentTimeMillis() - imageStorageService.getGraciaReutilizacionMs();
+
+        Map<String, BasicFileAttributes> archivos = new HashMap<>();
+        Files.walkFileTree(directorio, Set.of(), 1, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path archivo, BasicFileAttributes atributos) {
+                if (atributos.isRegularFile()) {
+                    archivos.put(archivo.getFileName().toString(), atributos);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path archivo, IOException e) {
+                log.warn("⚠️ No se pudo leer {}: {}", archivo.getFileName(), e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        contadores.revisados.addAndGet(archivos.size());
+
+        List<String> originales = new ArrayList<>();
+        Set<String> basesOriginales = new HashSet<>();
+        List<String> huerfanos = new ArrayList<>();
+        for (Map.Entry<String, BasicFileAttributes> entrada : archivos.entrySet()) {
+            String nombre = entrada.getKey();
+            if (nombre.endsWith(".tmp") || nombre.endsWith(".part")) {
+                // Escrituras interrumpidas
+                if (entrada.getValue().lastModifiedTime().toMillis() < limiteGracia) {
+                    huerfanos.add(nombre);
+                }
+            } else if (nombre.endsWith(ImageStorageService.SUFIJO_MARCA_REUSO)) {
+                // Marcas de reutilización de un archivo que ya no existe
+                String original = nombre.substring(0, nombre.length() - ImageStorageService.SUFIJO_MARCA_REUSO.length());
+                if (!archivos.containsKey(original) && entrada.getValue().lastModifiedTime().toMillis() < limiteGracia) {
+                    huerfanos.add(nombre);
+                }
+            } else if (!VARIANTE.matcher(nombre).matches()) {
+                originales.add(nombre);
+                basesOriginales.add(base(nombre));
+            }
+        }
+
+        // Variantes cuyo original ya no existe
+        for (Map.Entry<String, BasicFileAttributes> entrada : archivos.entrySet()) {
+            Matcher variante = VARIANTE.matcher(entrada.getKey());
+            if (variante.matches() && !basesOriginales.contains(variante.group(1))
+                    && entrada.getValue().lastModifiedTime().toMillis() < limiteGracia) {
+                huerfanos.add(entrada.getKey());
+            }
+        }
+
+        // Fuera del periodo de gracia: ni subidos ni reutilizados (marca .reuso) recientemente
+        List<String> candidatos = originales.stream()
+                .filter(nombre -> archivos.get(nombre).lastModifiedTime().toMillis() < limiteGracia)
+                .filter(nombre -> {
+                    BasicFileAttributes marca = archivos.get(nombre + ImageStorageService.SUFIJO_MARCA_REUSO);
+                    return marca == null || marca.lastModifiedTime().toMillis() < limiteGracia;
+                })
+                .toList();
+        List<String> sinReferencias = candidatos.stream()
+                .filter(nombre -> !referencias.contains(tipo + "/" + nombre) && !referencias.contains(nombre))
+                .toList();
+
+        List<CompletableFuture<?>> borrados = new ArrayList<>();
+        for (String nombre : sinReferencias) {
+            borrados.add(CompletableFuture.runAsync(
+                    () -> eliminarOriginal(directorio.resolve(nombre), archivos, contadores), gcExecutor));
+        }
+        for (String nombre : huerfanos) {
+            borrados.add(CompletableFuture.runAsync(
+                    () -> eliminar(directorio.resolve(nombre), archivos.get(nombre).size(), contadores), gcExecutor));
+        }
+        CompletableFuture.allOf(borrados.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Claves de almacenamiento de todas las URLs referenciadas (ver ImageStorageService.claveAlmacenamiento).
+     * Una clave sin tipo (URLs antiguas /api/imagenes/{nombre}) protege al archivo en cualquier tipo.
+     */
+    private Set<String> clavesReferenciadas() {
+        Set<String> claves = new HashSet<>();
+        for (List<String> urls : List.of(productoImagenRepository.findUrlsDistintas(),
+                categoriaProductoRepository.findImagenesDistintas())) {
+            for (String url : urls) {
+                String clave = ImageStorageService.claveAlmacenamiento(url);
+                if (clave != null) {
+                    claves.add(clave);
+                }
+            }
+        }
+        return claves;
+    }
+
+    private void eliminarOriginal(Path ruta, Map<String, BasicFileAttributes> archivos, Contadores contadores) {
+        // Una subida duplicada pudo reutilizar el archivo durante la pasada
+        if (imageStorageService.enPeriodoDeGracia(ruta)) {
+            return;
+        }
+
+        eliminar(ruta, archivos.get(ruta.getFileName().toString()).size(), contadores);
+        Path marca = imageStorageService.rutaMarcaReuso(ruta);
+        BasicFileAttributes atributosMarca = archivos.get(marca.getFileName().toString());
+        if (atributosMarca != null) {
+            eliminar(marca, atributosMarca.size(), contadores);
+        }
+        for (ImagenVarianteService.Variante variante : ImagenVarianteService.Variante.values()) {
+            String nombreVariante = imagenVarianteService.rutaVariante(ruta, variante).getFileName().toString();
+            BasicFileAttributes atributos = archivos.get(nombreVariante);
+            if (atributos != null) {
+                eliminar(ruta.resolveSibling(nombreVariante), atributos.size(), contadores);
+            }
+        }
+    }
+
+    private void eliminar(Path ruta, long tamano, Contadores contadores) {
+        if (simulacion) {
+            contadores.eliminados.incrementAndGet();
+            contadores.bytes.addAndGet(tamano);
+            log.info("🔎 Simulación: se eliminaría {}", ruta.getFileName());
+            return;
+        }
+
+        try {
+            if (Files.deleteIfExists(ruta)) {
+                contadores.eliminados.incrementAndGet();
+                contadores.bytes.addAndGet(tamano);
+                log.debug("🗑️ Archivo sin referencias eliminado: {}", ruta.getFileName());
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ Error eliminando {}: {}", ruta.getFileName(), e.getMessage());
+        }
+    }
+
+    private String base(String nombre) {
+        int punto = nombre.lastIndexOf('.');
+        return punto > 0 ? nombre.substring(0, punto) : nombre;
+    }
+
+    private String leerCursor(Path raiz) {
+        Path archivo = raiz.resolve(ARCHIVO_CURSOR);
+        try {
+            if (Files.exists(archivo)) {
+                String cursor = Files.readString(archivo, StandardCharsets.UTF_8).trim();
+                return cursor.isEmpty() ? null : cursor;
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ No se pudo leer el cursor del recolector: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private void guardarCursor(Path raiz, String cursor) {
+        Path archivo = raiz.resolve(ARCHIVO_CURSOR);
+        try {
+            if (cursor == null) {
+                Files.deleteIfExists(archivo);
+            } else {
+                Files.writeString(archivo, cursor, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ No se pudo guardar el cursor del recolector: {}", e.getMessage());
+        }
+    }
+
+    private static class Contadores {
+        private final AtomicLong unidades = new AtomicLong();
+        private final AtomicLong revisados = new AtomicLong();
+        private final AtomicLong eliminados = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+    }
+}
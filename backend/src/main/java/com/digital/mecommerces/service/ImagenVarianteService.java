@@ -0,0 +1,335 @@
+package com.digital.mecommerces.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Genera variantes redimensionadas de las imágenes subidas (miniatura, tarjeta y detalle).
+ * Se ejecuta en el pool acotado "imagenesExecutor" después de guardar el original.
+ * Si el pool está saturado la generación se descarta (métrica imagenes.variantes.rechazadas) y se
+ * vuelve a programar la próxima vez que se pida una variante que no existe.
+ * Las variantes se guardan junto al original como {nombre}_{variante}.{ext}; la de detalle
+ * respeta app.upload.max-width / max-height y todas usan app.upload.image-quality.
+ * Antes de decodificar se leen las dimensiones de la cabecera: las imágenes de más de
+ * app.upload.variantes.max-pixeles no se decodifican y las mayores que la variante de detalle
+ * se leen submuestreadas, sin cargar nunca el original completo en memoria.
+ */
+@Service
+@Slf4j
+public class ImagenVarianteService {
+
+    /**
+     * Variantes disponibles, de menor a mayor ancho
+     */
+    public enum Variante {
+        THUMB("thumb", 200, 200),
+        CARD("card", 480, 480),
+        DETAIL("detail", Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+        private final String sufijo;
+        private final int anchoMaximo;
+        private final int altoMaximo;
+
+        Variante(String sufijo, int anchoMaximo, int altoMaximo) {
+            this.sufijo = sufijo;
+            this.anchoMaximo = anchoMaximo;
+            this.altoMaximo = altoMaximo;
+        }
+
+        public String getSufijo() {
+            return sufijo;
+        }
+
+        public static Variante desdeNombre(String nombre) {
+            for (Variante variante : values()) {
+                if (variante.sufijo.equalsIgnoreCase(nombre) || variante.name().equalsIgnoreCase(nombre)) {
+                    return variante;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Value("${app.upload.image-quality:0.85}")
+    private float calidad;
+
+    @Value("${app.upload.max-width:1920}")
+    private int anchoMaximo;
+
+    @Value("${app.upload.max-height:1080}")
+    private int altoMaximo;
+
+    @Value("${app.upload.variantes.max-pixeles:40000000}")
+    private long maxPixeles;
+
+    private final Executor imagenesExecutor;
+    private final Counter rechazos;
+
+    // Originales con la generación en cola o en curso: no se programan dos veces
+    private final Set<Path> pendientes = ConcurrentHashMap.newKeySet();
+
+    public ImagenVarianteService(@Qualifier("imagenesExecutor") Executor imagenesExecutor,
+                                 MeterRegistry meterRegistry) {
+        this.imagenesExecutor = imagenesExecutor;
+        this.rechazos = Counter.builder("imagenes.variantes.rechazadas")
+                .description("Generaciones de variantes descartadas por pool saturado")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Programa la generación de las variantes en el pool "imagenesExecutor"
+     */
+    public void generarVariantes(Path original) {
+        if (formatoSalida(original) == null) {
+            log.debug("⚠️ Formato sin soporte para variantes: {}", original.getFileName());
+            return;
+        }
+        if (!pendientes.add(original)) {
+            return;
+        }
+
+        try {
+            imagenesExecutor.execute(() -> {
+                try {
+                    generar(original);
+                } finally {
+                    pendientes.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendientes.remove(original);
+            rechazos.increment();
+            log.warn("⚠️ Cola de variantes llena, {} se generará cuando se pida una variante",
+                    original.getFileName());
+        }
+    }
+
+    private void generar(Path original) {
+        long inicio = System.currentTimeMillis();
+        String formato = formatoSalida(original);
+
+        try {
+            BufferedImage imagen = decodificar(original);
+            if (imagen == null) {
+                return;
+            }
+
+            for (Variante variante : Variante.values()) {
+                int anchoLimite = Math.min(variante.anchoMaximo, anchoMaximo);
+                int altoLimite = Math.min(variante.altoMaximo, altoMaximo);
+                BufferedImage redimensionada = redimensionar(imagen, anchoLimite, altoLimite, formato);
+                escribir(redimensionada, formato, rutaVariante(original, variante));
+            }
+
+            log.info("✅ Variantes generadas para {} en {} ms", original.getFileName(),
+                    System.currentTimeMillis() - inicio);
+        } catch (IOException | RuntimeException e) {
+            log.error("❌ Error generando variantes de {}: {}", original.getFileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Lee las dimensiones de la cabecera antes de decodificar. Devuelve null si la imagen no se puede leer
+     * o supera app.upload.variantes.max-pixeles; si es mayor que la variante de detalle se decodifica
+     * submuestreada (la variante de detalle sigue saliendo de al menos su tamaño final).
+     */
+    private BufferedImage decodificar(Path original) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = entrada == null ? null : ImageIO.getImageReaders(entrada);
+            if (readers == null || !readers.hasNext()) {
+                log.warn("⚠️ No se pudo decodificar la imagen para variantes: {}", original.getFileName());
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(entrada, true, true);
+                int ancho = reader.getWidth(0);
+                int alto = reader.getHeight(0);
+                if (ancho <= 0 || alto <= 0 || (long) ancho * alto > maxPixeles) {
+                    log.warn("⚠️ Imagen de {}x{} px supera el límite de {} px, no se generan variantes: {}",
+                            ancho, alto, maxPixeles, original.getFileName());
+                    return null;
+                }
+
+                ImageReadParam parametros = reader.getDefaultReadParam();
+                int paso = (int) Math.max(1, Math.floor(Math.max(
+                        (double) ancho / anchoMaximo, (double) alto / altoMaximo)));
+                if (paso > 1) {
+                    parametros.setSourceSubsampling(paso, paso, 0, 0);
+                }
+                return reader.read(0, parametros);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Devuelve la variante solicitada por nombre (size) o por ancho (w).
+     * Si la variante aún no existe (o no aplica al formato) se devuelve el original;
+     * si falta, se programa su generación (p.ej. porque se descartó con el pool saturado).
+     */
+    public Path resolverVariante(Path original, String size, Integer ancho) {
+        Variante variante = null;
+        if (size != null) {
+            variante = Variante.desdeNombre(size);
+        } else if (ancho != null && ancho > 0) {
+            variante = varianteParaAncho(ancho);
+        }
+
+        if (variante == null || formatoSalida(original) == null) {
+            return original;
+        }
+
+        Path ruta = rutaVariante(original, variante);
+        if (Files.isRegularFile(ruta)) {
+            return ruta;
+        }
+        generarVariantes(original);
+        return original;
+    }
+
+    /**
+     * Elimina las variantes generadas para un original
+     */
+    public void eliminarVariantes(Path original) {
+        if (formatoSalida(original) == null) {
+            return;
+        }
+        for (Variante variante : Variante.values()) {
+            try {
+                Files.deleteIfExists(rutaVariante(original, variante));
+            } catch (IOException e) {
+                log.warn("⚠️ Error eliminando variante {} de {}: {}", variante.sufijo,
+                        original.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    public Path rutaVariante(Path original, Variante variante) {
+        String nombre = original.getFileName().toString();
+        int punto = nombre.lastIndexOf('.');
+        String base = punto > 0 ? nombre.substring(0, punto) : nombre;
+        return original.resolveSibling(base + "_" + variante.sufijo + "." + formatoSalida(original));
+    }
+
+    // La variante más pequeña que cubre el ancho pedido
+    private Variante varianteParaAncho(int ancho) {
+        for (Variante variante : Variante.values()) {
+            if (ancho <= Math.min(variante.anchoMaximo, anchoMaximo)) {
+                return variante;
+            }
+        }
+        return Variante.DETAIL;
+    }
+
+    // ImageIO del JDK no lee WebP: esas imágenes se sirven siempre en su tamaño original
+    private String formatoSalida(Path original) {
+        String nombre = original.getFileName().toString().toLowerCase();
+        if (nombre.endsWith(".jpg") || nombre.endsWith(".jpeg")) {
+            return "jpg";
+        }
+        if (nombre.endsWith(".png") || nombre.endsWith(".gif")) {
+            return "png";
+        }
+        return null;
+    }
+
+    private BufferedImage redimensionar(BufferedImage origen, int anchoLimite, int altoLimite, String formato) {
+        int ancho = origen.getWidth();
+        int alto = origen.getHeight();
+        double escala = Math.min(1.0, Math.min((double) anchoLimite / ancho, (double) altoLimite / alto));
+        int anchoFinal = Math.max(1, (int) Math.round(ancho * escala));
+        int altoFinal = Math.max(1, (int) Math.round(alto * escala));
+        int tipo = "jpg".equals(formato) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        // Reducción por pasos de 1/2 para evitar el aliasing de un único escalado bilineal
+        BufferedImage actual = origen;
+        int anchoActual = ancho;
+        int altoActual = alto;
+        do {
+            anchoActual = Math.max(anchoFinal, anchoActual / 2);
+            altoActual = Math.max(altoFinal, altoActual / 2);
+            if (escala == 1.0) {
+                anchoActual = anchoFinal;
+                altoActual = altoFinal;
+            }
+
+            BufferedImage paso = new BufferedImage(anchoActual, altoActual, tipo);
+            Graphics2D g = paso.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (tipo == BufferedImage.TYPE_INT_RGB) {
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, anchoActual, altoActual);
+                }
+                g.drawImage(actual, 0, 0, anchoActual, altoActual, null);
+            } finally {
+                g.dispose();
+            }
+            actual = paso;
+        } while (anchoActual != anchoFinal || altoActual != altoFinal);
+
+        return actual;
+    }
+
+    // Se escribe en un temporal y se mueve, para no servir nunca una variante a medio escribir
+    private void escribir(BufferedImage imagen, String formato, Path destino) throws IOException {
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formato);
+        if (!writers.hasNext()) {
+            throw new IOException("No hay escritor de imágenes para " + formato);
+        }
+
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream salida = ImageIO.createImageOutputStream(temporal.toFile())) {
+            writer.setOutput(salida);
+            ImageWriteParam parametros = writer.getDefaultWriteParam();
+            if ("jpg".equals(formato) && parametros.canWriteCompressed()) {
+                parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                parametros.setCompressionQuality(calidad);
+                if (parametros.canWriteProgressive()) {
+                    parametros.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                }
+            }
+            writer.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            writer.dispose();
+        }
+
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static List<String> nombresVariantes() {
+        return List.of(Variante.THUMB.sufijo, Variante.CARD.sufijo, Variante.DETAIL.sufijo);
+    }
+}
@@ -0,0 +1,235 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.dto.DestinatarioDTO;
+import com.digital.mecommerces.exception.BusinessException;
+import com.digital.mecommerces.exception.ResourceNotFoundException;
+import com.digital.mecommerces.repository.UsuarioRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envío masivo de notificaciones por email.
+ * Los destinatarios se leen por keyset en bloques de app.notificaciones.tamano-bloque (solo ID, email y nombre);
+ * cada bloque se personaliza con la plantilla "notificacion" y se encola en la bandeja de salida en su propia
+ * transacción, así la memoria usada no depende del número de usuarios. El envío SMTP lo hace EmailOutboxService.
+ * El progreso de cada envío se consulta por su ID mientras dure en memoria (24 h).
+ */
+@Service
+@Slf4j
+public class NotificacionMasivaService {
+
+    private static final String PLANTILLA = "notificacion";
+
+    private final UsuarioRepository usuarioRepository;
+    private final EmailService emailService;
+    private final Executor notificacionesExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, EnvioMasivo> envios = Caffeine.newBuilder()
+            .maximumSize(500)
+            .expireAfterWrite(Duration.ofHours(24))
+            .build();
+
+    @Value("${app.notificaciones.tamano-bloque:500}")
+    private int tamanoBloque;
+
+    @Value("${app.frontend.url:http://localhost:3000}")
+    private String frontendUrl;
+
+    public NotificacionMasivaService(UsuarioRepository usuarioRepository,
+                                     EmailService emailService,
+                                     @Qualifier("notificacionesExecutor") Executor notificacionesExecutor,
+                                     PlatformTransactionManager transactionManager) {
+        this.usuarioRepository = usuarioRepository;
+        this.emailService = emailService;
+        this.notificacionesExecutor = notificacionesExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Programa un envío masivo y devuelve su estado inicial.
+     * Con usuarioIds se notifica solo a esos usuarios; si no, a todos los activos del rol (o a todos si rol es null).
+     */
+    public EnvioMasivo iniciar(String asunto, String mensaje, String rol, List<Long> usuarioIds) {
+        if (mensaje == null || mensaje.isBlank()) {
+            throw new BusinessException("El mensaje de la notificación es obligatorio");
+        }
+
+        String asuntoFinal = asunto != null && !asunto.isBlank() ? asunto : "Notificación - MeCommerces";
+        String rolFinal = rol != null && !rol.isBlank() ? rol.trim().toUpperCase() : null;
+        List<Long> ids = usuarioIds == null ? null : usuarioIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted(Comparator.naturalOrder())
+                .toList();
+
+        long total = ids != null ? ids.size() : usuarioRepository.countDestinatarios(rolFinal);
+        EnvioMasivo envio = new EnvioMasivo(UUID.randomUUID().toString(), asuntoFinal, rolFinal, total);
+
+        try {
+            notificacionesExecutor.execute(() -> ejecutar(envio, mensaje, ids));
+        } catch (TaskRejectedException e) {
+            throw new BusinessException("Hay demasiados envíos masivos en curso. Intenta nuevamente más tarde",
+                    "TOO_MANY_REQUESTS", HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        envios.put(envio.id, envio);
+        log.info("📢 Envío masivo {} programado para {} destinatarios", envio.id, total);
+        return envio;
+    }
+
+    public EnvioMasivo obtenerEstado(String envioId) {
+        EnvioMasivo envio = envios.getIfPresent(envioId);
+        if (envio == null) {
+            throw new ResourceNotFoundException("Envío masivo", "id", envioId);
+        }
+        return envio;
+    }
+
+    public List<EnvioMasivo> listarEnvios() {
+        return envios.asMap().values().stream()
+                .sorted(Comparator.comparing((EnvioMasivo envio) -> envio.creado).reversed())
+                .toList();
+    }
+
+    private void ejecutar(EnvioMasivo envio, String mensaje, List<Long> ids) {
+        envio.iniciar();
+        try {
+            if (ids != null) {
+                for (int desde = 0; desde < ids.size(); desde += tamanoBloque) {
+                    List<Long> bloque = ids.subList(desde, Math.min(desde + tamanoBloque, ids.size()));
+                    List<DestinatarioDTO> destinatarios = usuarioRepository.findDestinatariosPorIds(bloque);
+                    procesarBloque(envio, destinatarios, mensaje);
+                    // Los IDs que no aparecen son usuarios inexistentes o inactivos
+                    envio.omitidos.addAndGet(bloque.size() - destinatarios.size());
+                }
+            } else {
+                // Keyset por usuarioId: cada consulta empieza después del último destinatario procesado
+                long ultimoId = 0L;
+                List<DestinatarioDTO> bloque;
+                do {
+                    bloque = usuarioRepository.findDestinatariosDesde(ultimoId, envio.rol, PageRequest.of(0, tamanoBloque));
+                    if (bloque.isEmpty()) {
+                        break;
+                    }
+                    procesarBloque(envio, bloque, mensaje);
+                    ultimoId = bloque.get(bloque.size() - 1).getUsuarioId();
+                } while (bloque.size() == tamanoBloque);
+            }
+            envio.terminar(null);
+            log.info("✅ Envío masivo {} terminado: {} destinatarios, {} encolados en {} ms",
+                    envio.id, envio.procesados.get(), envio.encolados.get(), envio.duracionMs());
+        } catch (RuntimeException e) {
+            envio.terminar(e.getMessage());
+            log.error("❌ Envío masivo {} interrumpido tras {} destinatarios: {}",
+                    envio.id, envio.procesados.get(), e.getMessage());
+        }
+    }
+
+    private void procesarBloque(EnvioMasivo envio, List<DestinatarioDTO> bloque, String mensaje) {
+        if (bloque.isEmpty()) {
+            return;
+        }
+        Integer encolados = transactionTemplate.execute(status -> emailService.enviarEmailMasivo(
+                PLANTILLA, envio.asunto, bloque, DestinatarioDTO::getEmail,
+                destinatario -> Map.of(
+                        "nombre", Objects.requireNonNullElse(destinatario.getUsuarioNombre(), ""),
+                        "mensaje", mensaje,
+                        "url", frontendUrl
+                )));
+
+        envio.procesados.addAndGet(bloque.size());
+        envio.encolados.addAndGet(encolados != null ? encolados : 0);
+    }
+
+    /**
+     * Estado y progreso de un envío masivo
+     */
+    public static final class EnvioMasivo {
+
+        private final String id;
+        private final String asunto;
+        private final String rol;
+        private final long total;
+        private final LocalDateTime creado = LocalDateTime.now();
+        private final AtomicLong procesados = new AtomicLong();
+        private final AtomicLong encolados = new AtomicLong();
+        private final AtomicLong omitidos = new AtomicLong();
+        private volatile String estado = "PROGRAMADO";
+        private volatile long inicioNanos;
+        private volatile long finNanos;
+        private volatile String error;
+
+        private EnvioMasivo(String id, String asunto, String rol, long total) {
+            this.id = id;
+            this.asunto = asunto;
+            this.rol = rol;
+            this.total = total;
+        }
+
+        private void iniciar() {
+            this.inicioNanos = System.nanoTime();
+            this.estado = "EN_CURSO";
+        }
+
+        private void terminar(String error) {
+            this.finNanos = System.nanoTime();
+            this.error = error;
+            this.estado = error == null ? "COMPLETADO" : "ERROR";
+        }
+
+        private long duracionMs() {
+            if (inicioNanos == 0) {
+                return 0;
+            }
+            long fin = finNanos != 0 ? finNanos : System.nanoTime();
+            return (fin - inicioNanos) / 1_000_000;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Map<String, Object> resumen() {
+            long hechos = procesados.get() + omitidos.get();
+            long duracion = duracionMs();
+
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("envioId", id);
+            resumen.put("estado", estado);
+            resumen.put("asunto", asunto);
+            resumen.put("rol", rol != null ? rol : "TODOS");
+            resumen.put("total", total);
+            resumen.put("procesados", hechos);
+            resumen.put("encolados", encolados.get());
+            resumen.put("omitidos", omitidos.get());
+            resumen.put("porcentaje", total > 0 ? Math.min(100.0, hechos * 100.0 / total) : 100.0);
+            resumen.put("duracionMs", duracion);
+            resumen.put("destinatariosPorSegundo", duracion > 0 ? hechos * 1000 / duracion : hechos);
+            resumen.put("creado", creado);
+            if (error != null) {
+                resumen.put("error", error);
+            }
+            return resumen;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.repository.OrdenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estadísticas de órdenes para el dashboard administrativo.
+ * Todo se resuelve con GROUP BY en SQL, así la memoria usada no depende del número de órdenes.
+ * El resultado se guarda unos segundos en el caché "dashboardAdmin"; sync = true hace que,
+ * al expirar, solo una petición recalcule mientras las demás esperan ese mismo resultado.
+ */
+@Service
+@Slf4j
+public class OrdenEstadisticasService {
+
+    private final OrdenRepository ordenRepository;
+
+    public OrdenEstadisticasService(OrdenRepository ordenRepository) {
+        this.ordenRepository = ordenRepository;
+    }
+
+    @Cacheable(value = "dashboardAdmin", key = "'resumenOrdenes'", sync = true)
+    @Transactional(readOnly = true)
+    public Map<String, Object> obtenerResumenOrdenes() {
+        log.info("📊 Calculando resumen de órdenes por estado");
+
+        Map<String, Long> ordenesPorEstado = new LinkedHashMap<>();
+        Map<String, Double> ingresosPorEstado = new LinkedHashMap<>();
+        long totalOrdenes = 0L;
+        double ingresosTotales = 0.0;
+
+        List<Object[]> filas = ordenRepository.findResumenPorEstado();
+        for (Object[] fila : filas) {
+            String estado = String.valueOf(fila[0]);
+            long cantidad = fila[1] instanceof Number numero ? numero.longValue() : 0L;
+            double ingresos = fila[2] instanceof Number numero ? numero.doubleValue() : 0.0;
+
+            ordenesPorEstado.put(estado, cantidad);
+            ingresosPorEstado.put(estado, ingresos);
+            totalOrdenes += cantidad;
+            ingresosTotales += ingresos;
+        }
+
+        return Map.of(
+                "ordenesPorEstado", Collections.unmodifiableMap(ordenesPorEstado),
+                "ingresosPorEstado", Collections.unmodifiableMap(ingresosPorEstado),
+                "ingresosTotales", ingresosTotales,
+                "totalOrdenes", totalOrdenes,
+                "ordenesHoy", ordenRepository.countOrdenesDeHoy(),
+                "calculadoEn", LocalDateTime.now()
+        );
+    }
+}
@@ -1,5 +1,6 @@
 package com.digital.mecommerces.service;
 
+import com.digital.mecommerces.event.UsuarioAutenticacionModificadaEvent;
 import com.digital.mecommerces.exception.BusinessException;
 import com.digital.mecommerces.exception.ResourceNotFoundException;
 import com.digital.mecommerces.exception.TokenExpiredException;
@@ -10,6 +11,7 @@ import com.digital.mecommerces.repository.PasswordResetTokensRepository;
 import com.digital.mecommerces.repository.UsuarioRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,6 +29,7 @@ public class PasswordResetTokensService {
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.password-reset.token-expiration-hours:1}")
     private int tokenExpirationHours;
@@ -43,11 +46,13 @@ public class PasswordResetTokensService {
     public PasswordResetTokensService(PasswordResetTokensRepository passwordResetTokensRepository,
                                       UsuarioRepository usuarioRepository,
                                       PasswordEncoder passwordEncoder,
-                                      EmailService emailService) {
+                                      EmailService emailService,
+                                      ApplicationEventPublisher eventPublisher) {
         this.passwordResetTokensRepository = passwordResetTokensRepository;
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -100,6 +105,7 @@ public class PasswordResetTokensService {
         Usuario usuario = resetToken.getUsuario();
         usuario.setPassword(passwordEncoder.encode(nuevaPassword));
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioAutenticacionModificadaEvent(usuario.getEmail()));
 
         // Marcar token como usado
         resetToken.marcarComoUsado();
@@ -1,6 +1,7 @@
 package com.digital.mecommerces.service;
 
 import com.digital.mecommerces.constants.RoleConstants;
+import com.digital.mecommerces.event.PermisosModificadosEvent;
 import com.digital.mecommerces.exception.BusinessException;
 import com.digital.mecommerces.exception.ResourceNotFoundException;
 import com.digital.mecommerces.model.Permiso;
@@ -8,8 +9,11 @@ import com.digital.mecommerces.repository.PermisoRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.List;
 
@@ -18,9 +22,11 @@ import java.util.List;
 public class PermisoService {
 
     private final PermisoRepository permisoRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public PermisoService(PermisoRepository permisoRepository) {
+    public PermisoService(PermisoRepository permisoRepository, ApplicationEventPublisher eventPublisher) {
         this.permisoRepository = permisoRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Cacheable("permisos")
@@ -74,10 +80,12 @@ public class PermisoService {
     }
 
     @Transactional
-    @CacheEvict(value = {"permisos", "permisosDelSistema", "permiso"}, allEntries = true)
     public Permiso crearPermiso(Permiso permiso) {
         log.info("➕ Creando nuevo permiso: {}", permiso.getCodigo());
 
+        // Los cachés de permisos se descartan solo si la transacción se confirma
+        eventPublisher.publishEvent(new PermisosModificadosEvent());
+
         // Validar que no existe un permiso con el mismo código
         if (permisoRepository.existsByCodigo(permiso.getCodigo())) {
             throw new BusinessException("Ya existe un permiso con el código: " + permiso.getCodigo());
@@ -114,10 +122,12 @@ public class PermisoService {
     }
 
     @Transactional
-    @CacheEvict(value = {"permisos", "permisosDelSistema", "permiso"}, allEntries = true)
     public Permiso actualizarPermiso(Long id, Permiso permisoDetails) {
         log.info("✏️ Actualizando permiso ID: {}", id);
 
+        // Los cachés de permisos se descartan solo si la transacción se confirma
+        eventPublisher.publishEvent(new PermisosModificadosEvent());
+
         Permiso permiso = obtenerPermisoPorId(id);
 
         // Verificar que no sea un permiso crítico del sistema
@@ -157,10 +167,12 @@ public class PermisoService {
     }
 
     @Transactional
-    @CacheEvict(value = {"permisos", "permisosDelSistema", "permiso"}, allEntries = true)
     public void eliminarPermiso(Long id) {
         log.info("🗑️ Eliminando permiso ID: {}", id);
 
+        // Los cachés de permisos se descartan solo si la transacción se confirma
+        eventPublisher.publishEvent(new PermisosModificadosEvent());
+
         Permiso permiso = obtenerPermisoPorId(id);
 
         // Verificar que no sea un permiso crítico del sistema
@@ -188,6 +200,16 @@ public class PermisoService {
         log.info("✅ Permiso eliminado exitosamente: {}", permiso.getCodigo());
     }
 
+    /**
+     * Descarta los listados de permisos tras el commit: si se vaciaran dentro de la transacción,
+     * una lectura concurrente podría volver a cachear los datos anteriores antes de confirmarse el cambio.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @CacheEvict(value = {"permisos", "permisosDelSistema", "permiso"}, allEntries = true)
+    public void onPermisosModificados(PermisosModificadosEvent evento) {
+        log.debug("🗑️ Cachés de permisos invalidados");
+    }
+
     public boolean existePermisoPorCodigo(String codigo) {
         return permisoRepository.existsByCodigo(codigo);
     }
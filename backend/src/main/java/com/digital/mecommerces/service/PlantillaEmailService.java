@@ -0,0 +1,173 @@
+package com.digital.mecommerces.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Plantillas HTML de email cargadas desde app.email.templates.path ({nombre}.html).
+ * Cada plantilla se lee y se compila una sola vez: el texto se parte en fragmentos fijos y
+ * variables {{nombre}}, así renderizar es solo concatenar en un buffer reutilizado por hilo.
+ * Los valores se escapan como HTML. renderizarLote personaliza una misma plantilla para
+ * muchos destinatarios e informa el rendimiento obtenido (emails por segundo).
+ */
+@Service
+@Slf4j
+public class PlantillaEmailService {
+
+    // Buffers más grandes que esto no se conservan entre renderizados
+    private static final int CAPACIDAD_MAXIMA_BUFFER = 256 * 1024;
+
+    private final ResourceLoader resourceLoader;
+    private final String rutaPlantillas;
+    private final Map<String, PlantillaCompilada> plantillas = new ConcurrentHashMap<>();
+    private final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(8 * 1024));
+
+    public PlantillaEmailService(ResourceLoader resourceLoader,
+                                 @Value("${app.email.templates.path:classpath:/templates/email/}") String rutaPlantillas) {
+        this.resourceLoader = resourceLoader;
+        this.rutaPlantillas = rutaPlantillas.endsWith("/") ? rutaPlantillas : rutaPlantillas + "/";
+    }
+
+    /**
+     * Plantilla compilada por nombre (sin extensión); se carga la primera vez que se pide
+     */
+    public PlantillaCompilada obtener(String nombre) {
+        return plantillas.computeIfAbsent(nombre, this::cargar);
+    }
+
+    public String renderizar(String nombre, Map<String, ?> valores) {
+        return renderizar(obtener(nombre), valores);
+    }
+
+    public String renderizar(PlantillaCompilada plantilla, Map<String, ?> valores) {
+        StringBuilder sb = buffer.get();
+        sb.setLength(0);
+        plantilla.renderizar(valores, sb);
+        String resultado = sb.toString();
+
+        if (sb.capacity() > CAPACIDAD_MAXIMA_BUFFER) {
+            buffer.remove();
+        }
+        return resultado;
+    }
+
+    /**
+     * Personaliza una misma plantilla para cada elemento de la lista (compilada una sola vez)
+     */
+    public <T> List<String> renderizarLote(String nombre, List<T> elementos, Function<T, Map<String, ?>> valores) {
+        PlantillaCompilada plantilla = obtener(nombre);
+        List<String> resultado = new ArrayList<>(elementos.size());
+
+        long inicio = System.nanoTime();
+        for (T elemento : elementos) {
+            resultado.add(renderizar(plantilla, valores.apply(elemento)));
+        }
+        long nanos = Math.max(1, System.nanoTime() - inicio);
+
+        log.info("📧 Plantilla '{}' renderizada {} veces en {} ms ({} emails/s)", nombre, elementos.size(),
+                nanos / 1_000_000, elementos.size() * 1_000_000_000L / nanos);
+        return resultado;
+    }
+
+    // Descarta las plantillas compiladas; se vuelven a leer en el siguiente uso
+    public void limpiarCache() {
+        plantillas.clear();
+        log.info("🗑️ Caché de plantillas de email limpiada");
+    }
+
+    private PlantillaCompilada cargar(String nombre) {
+        Resource recurso = resourceLoader.getResource(rutaPlantillas + nombre + ".html");
+        try (InputStream entrada = recurso.getInputStream()) {
+            PlantillaCompilada plantilla = PlantillaCompilada.compilar(new String(entrada.readAllBytes(), StandardCharsets.UTF_8));
+            log.info("✅ Plantilla de email '{}' compilada ({} variables)", nombre, plantilla.variables.length);
+            return plantilla;
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo cargar la plantilla de email: " + nombre, e);
+        }
+    }
+
+    /**
+     * Plantilla partida en fragmentos fijos y nombres de variables alternados:
+     * fijos[0] variables[0] fijos[1] ... variables[n-1] fijos[n]
+     */
+    public static final class PlantillaCompilada {
+
+        private final String[] fijos;
+        private final String[] variables;
+        private final int longitudFija;
+
+        private PlantillaCompilada(String[] fijos, String[] variables) {
+            this.fijos = fijos;
+            this.variables = variables;
+            int longitud = 0;
+            for (String fijo : fijos) {
+                longitud += fijo.length();
+            }
+            this.longitudFija = longitud;
+        }
+
+        public static PlantillaCompilada compilar(String texto) {
+            List<String> fijos = new ArrayList<>();
+            List<String> variables = new ArrayList<>();
+
+            int desde = 0;
+            int apertura;
+            while ((apertura = texto.indexOf("{{", desde)) >= 0) {
+                int cierre = texto.indexOf("}}", apertura + 2);
+                if (cierre < 0) {
+                    break;
+                }
+                fijos.add(texto.substring(desde, apertura));
+                variables.add(texto.substring(apertura + 2, cierre).trim());
+                desde = cierre + 2;
+            }
+            fijos.add(texto.substring(desde));
+
+            return new PlantillaCompilada(fijos.toArray(new String[0]), variables.toArray(new String[0]));
+        }
+
+        public void renderizar(Map<String, ?> valores, StringBuilder destino) {
+            destino.ensureCapacity(destino.length() + longitudFija + variables.length * 16);
+            for (int i = 0; i < variables.length; i++) {
+                destino.append(fijos[i]);
+                Object valor = valores.get(variables[i]);
+                if (valor != null) {
+                    escaparHtml(valor.toString(), destino);
+                }
+            }
+            destino.append(fijos[variables.length]);
+        }
+
+        public String renderizar(Map<String, ?> valores) {
+            StringBuilder destino = new StringBuilder(longitudFija + variables.length * 16);
+            renderizar(valores, destino);
+            return destino.toString();
+        }
+
+        private static void escaparHtml(String valor, StringBuilder destino) {
+            for (int i = 0; i < valor.length(); i++) {
+                char c = valor.charAt(i);
+                switch (c) {
+                    case '<' -> destino.append("&lt;");
+                    case '>' -> destino.append("&gt;");
+                    case '&' -> destino.append("&amp;");
+                    case '"' -> destino.append("&quot;");
+                    case '\'' -> destino.append("&#39;");
+                    default -> destino.append(c);
+                }
+            }
+        }
+    }
+}
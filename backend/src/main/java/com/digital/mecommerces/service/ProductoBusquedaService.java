@@ -0,0 +1,339 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.event.ProductoModificadoEvent;
+import com.digital.mecommerces.repository.ProductoRepository;
+import com.digital.mecommerces.util.TextoUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria para la búsqueda de productos.
+ * Indexa nombre, descripción, categoría y slug de los productos activos, con tildes normalizadas,
+ * coincidencia por prefijo en el último término y ranking BM25.
+ * Se reconstruye desde la base de datos al arrancar y se actualiza con cada ProductoModificadoEvent.
+ */
+@Service
+@Slf4j
+public class ProductoBusquedaService {
+
+    // Parámetros BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Peso de cada campo en la frecuencia de término
+    private static final float PESO_NOMBRE = 3.0f;
+    private static final float PESO_CATEGORIA = 2.0f;
+    private static final float PESO_DESCRIPCION = 1.0f;
+    private static final float PESO_SLUG = 1.0f;
+
+    // Factor para términos que solo coinciden por prefijo y máximo de expansiones por prefijo
+    private static final double FACTOR_PREFIJO = 0.8;
+    private static final int MAX_EXPANSIONES_PREFIJO = 50;
+
+    private static final int TAMANO_LOTE_RECONSTRUCCION = 1000;
+
+    private final ProductoRepository productoRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IndiceInvertido indice = new IndiceInvertido();
+    private volatile boolean disponible = false;
+    private boolean reconstruyendo = false;
+    private final List<ProductoModificadoEvent> eventosPendientes = new ArrayList<>();
+
+    public ProductoBusquedaService(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializarIndice() {
+        reconstruirIndice();
+    }
+
+    /**
+     * Reconstruye el índice leyendo los productos activos por lotes (keyset sobre productoId).
+     * Las búsquedas siguen usando el índice anterior hasta que el nuevo está completo.
+     */
+    public void reconstruirIndice() {
+        log.info("🔎 Reconstruyendo índice de búsqueda de productos...");
+        long inicio = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            reconstruyendo = true;
+            eventosPendientes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        IndiceInvertido nuevoIndice = new IndiceInvertido();
+        try {
+            Long ultimoId = 0L;
+            List<Object[]> lote;
+            do {
+                lote = productoRepository.findDatosIndexacionDesde(ultimoId, PageRequest.of(0, TAMANO_LOTE_RECONSTRUCCION));
+                for (Object[] fila : lote) {
+                    Long productoId = (Long) fila[0];
+                    nuevoIndice.indexar(productoId, (String) fila[1], (String) fila[2], (String) fila[3], (String) fila[4]);
+                    ultimoId = productoId;
+                }
+            } while (lote.size() == TAMANO_LOTE_RECONSTRUCCION);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                reconstruyendo = false;
+                eventosPendientes.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("❌ Error reconstruyendo índice de búsqueda: {}", e.getMessage());
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Aplicar los cambios que llegaron mientras se leía la base de datos
+            eventosPendientes.forEach(evento -> aplicarEvento(nuevoIndice, evento));
+            eventosPendientes.clear();
+            indice = nuevoIndice;
+            reconstruyendo = false;
+            disponible = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("✅ Índice de búsqueda listo: {} productos, {} términos en {} ms",
+                nuevoIndice.totalDocumentos(), nuevoIndice.totalTerminos(), System.currentTimeMillis() - inicio);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductoModificado(ProductoModificadoEvent evento) {
+        lock.writeLock().lock();
+        try {
+            aplicarEvento(indice, evento);
+            if (reconstruyendo) {
+                eventosPendientes.add(evento);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("🔎 Índice actualizado para producto {}", evento.getProductoId());
+    }
+
+    public boolean estaDisponible() {
+        return disponible;
+    }
+
+    /**
+     * Busca productos y devuelve los IDs ordenados por relevancia para la página solicitada
+     */
+    public ResultadoBusqueda buscar(String consulta, int desplazamiento, int limite) {
+        List<String> terminos = TextoUtil.tokenizar(consulta);
+        if (terminos.isEmpty()) {
+            return new ResultadoBusqueda(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> puntuaciones = indice.puntuar(terminos);
+            return new ResultadoBusqueda(seleccionarPagina(puntuaciones, desplazamiento, limite), puntuaciones.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void aplicarEvento(IndiceInvertido destino, ProductoModificadoEvent evento) {
+        if (evento.isActivo()) {
+            destino.indexar(evento.getProductoId(), evento.getProductoNombre(), evento.getDescripcion(),
+                    evento.getCategoriaNombre(), evento.getSlug());
+        } else {
+            destino.eliminar(evento.getProductoId());
+        }
+    }
+
+    // Top-K con un heap acotado: no ordena todos los resultados, solo los necesarios para la página
+    private List<Long> seleccionarPagina(Map<Long, Double> puntuaciones, int desplazamiento, int limite) {
+        int necesarios = desplazamiento + limite;
+        if (limite <= 0 || desplazamiento >= puntuaciones.size()) {
+            return List.of();
+        }
+
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(necesarios + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Double> entrada : puntuaciones.entrySet()) {
+            heap.offer(entrada);
+            if (heap.size() > necesarios) {
+                heap.poll();
+            }
+        }
+
+        List<Map.Entry<Long, Double>> ordenados = new ArrayList<>(heap);
+        ordenados.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey(Collections.reverseOrder())));
+
+        List<Long> ids = new ArrayList<>(limite);
+        for (int i = desplazamiento; i < ordenados.size(); i++) {
+            ids.add(ordenados.get(i).getKey());
+        }
+        return ids;
+    }
+
+    /**
+     * Resultado de una búsqueda: IDs de la página en orden de relevancia y total de coincidencias
+     */
+    public static class ResultadoBusqueda {
+
+        private final List<Long> productoIds;
+        private final long total;
+
+        public ResultadoBusqueda(List<Long> productoIds, long total) {
+            this.productoIds = productoIds;
+            this.total = total;
+        }
+
+        public List<Long> getProductoIds() {
+            return productoIds;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * Estructura del índice. No es thread-safe: el servicio la protege con un ReadWriteLock.
+     */
+    private static class IndiceInvertido {
+
+        // término -> (productoId -> frecuencia ponderada)
+        private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+        // términos ordenados para la búsqueda por prefijo
+        private final NavigableSet<String> terminos = new TreeSet<>();
+        // productoId -> frecuencias del documento (para poder desindexarlo)
+        private final Map<Long, Map<String, Float>> documentos = new HashMap<>();
+        private final Map<Long, Float> longitudes = new HashMap<>();
+        private double longitudTotal = 0.0;
+
+        void indexar(Long productoId, String nombre, String descripcion, String categoria, String slug) {
+            eliminar(productoId);
+
+            Map<String, Float> frecuencias = new HashMap<>();
+            acumular(frecuencias, nombre, PESO_NOMBRE);
+            acumular(frecuencias, categoria, PESO_CATEGORIA);
+            acumular(frecuencias, descripcion, PESO_DESCRIPCION);
+            acumular(frecuencias, slug, PESO_SLUG);
+
+            if (frecuencias.isEmpty()) {
+                return;
+            }
+
+            float longitud = 0f;
+            for (Map.Entry<String, Float> entrada : frecuencias.entrySet()) {
+                postings.computeIfAbsent(entrada.getKey(), t -> {
+                    terminos.add(t);
+                    return new HashMap<>();
+                }).put(productoId, entrada.getValue());
+                longitud += entrada.getValue();
+            }
+
+            documentos.put(productoId, frecuencias);
+            longitudes.put(productoId, longitud);
+            longitudTotal += longitud;
+        }
+
+        void eliminar(Long productoId) {
+            Map<String, Float> frecuencias = documentos.remove(productoId);
+            if (frecuencias == null) {
+                return;
+            }
+
+            for (String termino : frecuencias.keySet()) {
+                Map<Long, Float> lista = postings.get(termino);
+                if (lista != null) {
+                    lista.remove(productoId);
+                    if (lista.isEmpty()) {
+                        postings.remove(termino);
+                        terminos.remove(termino);
+                    }
+                }
+            }
+
+            Float longitud = longitudes.remove(productoId);
+            longitudTotal -= longitud != null ? longitud : 0f;
+        }
+
+        Map<Long, Double> puntuar(List<String> consulta) {
+            Map<Long, Double> puntuaciones = new HashMap<>();
+            if (documentos.isEmpty()) {
+                return puntuaciones;
+            }
+
+            double longitudMedia = longitudTotal / documentos.size();
+
+            for (int i = 0; i < consulta.size(); i++) {
+                String termino = consulta.get(i);
+                boolean ultimo = i == consulta.size() - 1;
+
+                sumarBm25(puntuaciones, termino, 1.0, longitudMedia);
+
+                // El último término se trata también como prefijo ("cami" -> "camiseta", "camisa")
+                if (ultimo) {
+                    int expansiones = 0;
+                    for (String candidato : terminos.tailSet(termino, false)) {
+                        if (!candidato.startsWith(termino) || expansiones++ >= MAX_EXPANSIONES_PREFIJO) {
+                            break;
+                        }
+                        sumarBm25(puntuaciones, candidato, FACTOR_PREFIJO, longitudMedia);
+                    }
+                }
+            }
+
+            return puntuaciones;
+        }
+
+        private void sumarBm25(Map<Long, Double> puntuaciones, String termino, double factor, double longitudMedia) {
+            Map<Long, Float> lista = postings.get(termino);
+            if (lista == null) {
+                return;
+            }
+
+            int n = documentos.size();
+            int df = lista.size();
+            double idf = Math.log(1.0 + (n - df + 0.5) / (df + 0.5));
+
+            for (Map.Entry<Long, Float> entrada : lista.entrySet()) {
+                double tf = entrada.getValue();
+                double longitud = longitudes.getOrDefault(entrada.getKey(), 0f);
+                double puntuacion = idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * longitud / longitudMedia));
+                puntuaciones.merge(entrada.getKey(), puntuacion * factor, Double::sum);
+            }
+        }
+
+        private void acumular(Map<String, Float> frecuencias, String texto, float peso) {
+            for (String token : TextoUtil.tokenizar(texto)) {
+                frecuencias.merge(token, peso, Float::sum);
+            }
+        }
+
+        int totalDocumentos() {
+            return documentos.size();
+        }
+
+        int totalTerminos() {
+            return postings.size();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.repository.ProductoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Conteos de productos activos para los listados paginados por cursor.
+ * El COUNT(*) solo se ejecuta si el cliente lo pide y se cachea unos segundos en "conteoProductos",
+ * así recorrer páginas no repite el conteo en cada petición.
+ */
+@Service
+@Slf4j
+public class ProductoConteoService {
+
+    private final ProductoRepository productoRepository;
+
+    public ProductoConteoService(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    @Cacheable(value = "conteoProductos", key = "'activos'", sync = true)
+    @Transactional(readOnly = true)
+    public long contarActivos() {
+        log.debug("📊 Contando productos activos");
+        return productoRepository.countProductosActivos();
+    }
+
+    @Cacheable(value = "conteoProductos", key = "'categoria:' + #categoriaId", sync = true)
+    @Transactional(readOnly = true)
+    public long contarPorCategoria(Long categoriaId) {
+        log.debug("📊 Contando productos activos de la categoría {}", categoriaId);
+        return productoRepository.countByCategoriaCategoriaIdAndActivoTrue(categoriaId);
+    }
+
+    @Cacheable(value = "conteoProductos", key = "'vendedor:' + #vendedorId", sync = true)
+    @Transactional(readOnly = true)
+    public long contarPorVendedor(Long vendedorId) {
+        log.debug("📊 Contando productos activos del vendedor {}", vendedorId);
+        return productoRepository.countByVendedorUsuarioIdAndActivoTrue(vendedorId);
+    }
+}
@@ -1,11 +1,13 @@
 package com.digital.mecommerces.service;
 
+import com.digital.mecommerces.event.ImagenLiberadaEvent;
 import com.digital.mecommerces.exception.ResourceNotFoundException;
 import com.digital.mecommerces.model.Producto;
 import com.digital.mecommerces.model.ProductoImagen;
 import com.digital.mecommerces.repository.ProductoImagenRepository;
 import com.digital.mecommerces.repository.ProductoRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,11 +28,14 @@ public class ProductoImagenService {
 
     private final ProductoImagenRepository productoImagenRepository;
     private final ProductoRepository productoRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ProductoImagenService(ProductoImagenRepository productoImagenRepository,
-                                 ProductoRepository productoRepository) {
+                                 ProductoRepository productoRepository,
+                                 ApplicationEventPublisher eventPublisher) {
         this.productoImagenRepository = productoImagenRepository;
         this.productoRepository = productoRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     // === OPERACIONES BÁSICAS CRUD ===
@@ -99,7 +104,11 @@ public class ProductoImagenService {
 
         // Actualizar campos solo si vienen en imagenDetails
         if (imagenDetails.getUrl() != null && !imagenDetails.getUrl().trim().isEmpty()) {
+            String urlAnterior = imagen.getUrl();
             imagen.setUrl(imagenDetails.getUrl());
+            if (urlAnterior != null && !urlAnterior.equals(imagen.getUrl())) {
+                eventPublisher.publishEvent(new ImagenLiberadaEvent(urlAnterior));
+            }
         }
         if (imagenDetails.getDescripcion() != null) {
             imagen.setDescripcion(imagenDetails.getDescripcion());
@@ -140,6 +149,7 @@ public class ProductoImagenService {
         }
 
         productoImagenRepository.delete(imagen);
+        eventPublisher.publishEvent(new ImagenLiberadaEvent(imagen.getUrl()));
         log.info("✅ Imagen eliminada exitosamente");
     }
 
@@ -269,6 +279,7 @@ public class ProductoImagenService {
         List<ProductoImagen> imagenes = obtenerImagenesPorProducto(productoId);
         if (!imagenes.isEmpty()) {
             productoImagenRepository.deleteAll(imagenes);
+            imagenes.forEach(imagen -> eventPublisher.publishEvent(new ImagenLiberadaEvent(imagen.getUrl())));
             log.info("✅ {} imágenes eliminadas del producto", imagenes.size());
         } else {
             log.info("ℹ️ No hay imágenes para eliminar en el producto ID: {}", productoId);
@@ -384,12 +395,11 @@ public class ProductoImagenService {
     public int limpiarImagenesHuerfanas() {
         log.info("🧹 Limpiando imágenes huérfanas");
 
-        List<ProductoImagen> imagenesHuerfanas = productoImagenRepository.findAll().stream()
-                .filter(img -> img.getProducto() == null)
-                .collect(Collectors.toList());
+        List<ProductoImagen> imagenesHuerfanas = productoImagenRepository.findByProductoIsNull();
 
         if (!imagenesHuerfanas.isEmpty()) {
             productoImagenRepository.deleteAll(imagenesHuerfanas);
+            imagenesHuerfanas.forEach(imagen -> eventPublisher.publishEvent(new ImagenLiberadaEvent(imagen.getUrl())));
             log.info("✅ {} imágenes huérfanas eliminadas", imagenesHuerfanas.size());
         }
 
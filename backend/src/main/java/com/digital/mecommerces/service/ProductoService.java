@@ -1,17 +1,28 @@
 package com.digital.mecommerces.service;
 
+import com.digital.mecommerces.dto.CursorPageDTO;
+import com.digital.mecommerces.event.ProductoModificadoEvent;
+import com.digital.mecommerces.exception.BusinessException;
 import com.digital.mecommerces.exception.ResourceNotFoundException;
 import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.model.VendedorEstadisticas;
 import com.digital.mecommerces.repository.ProductoRepository;
+import com.digital.mecommerces.util.ProductoCursor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,87 +35,75 @@ import java.util.Map;
 public class ProductoService {
 
     private final ProductoRepository productoRepository;
-
-    public ProductoService(ProductoRepository productoRepository) {
+    private final VendedorEstadisticasService vendedorEstadisticasService;
+    private final ProductoBusquedaService productoBusquedaService;
+    private final ProductoConteoService productoConteoService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.constants.pagination.max-size:100}")
+    private int maxPageSize;
+
+    public ProductoService(ProductoRepository productoRepository,
+                           VendedorEstadisticasService vendedorEstadisticasService,
+                           ProductoBusquedaService productoBusquedaService,
+                           ProductoConteoService productoConteoService,
+                           ApplicationEventPublisher eventPublisher) {
         this.productoRepository = productoRepository;
+        this.vendedorEstadisticasService = vendedorEstadisticasService;
+        this.productoBusquedaService = productoBusquedaService;
+        this.productoConteoService = productoConteoService;
+        this.eventPublisher = eventPublisher;
     }
 
     // === MÉTODOS PARA VENDEDORES ESPECÍFICOS ===
+    // Se apoyan en el resumen por vendedor (una fila materializada o una consulta agregada)
+
+    public VendedorEstadisticas obtenerEstadisticasVendedor(Long vendedorId) {
+        return vendedorEstadisticasService.obtenerEstadisticas(vendedorId);
+    }
 
     public long contarProductosPorVendedor(Long vendedorId) {
         log.info("📊 Contando productos del vendedor ID: {}", vendedorId);
-        return productoRepository.findByVendedorUsuarioIdAndActivoTrue(vendedorId).size();
+        return obtenerEstadisticasVendedor(vendedorId).getTotalProductos();
     }
 
     public long contarProductosActivosPorVendedor(Long vendedorId) {
         log.info("📊 Contando productos activos del vendedor ID: {}", vendedorId);
-        return productoRepository.findByVendedorUsuarioIdAndActivoTrue(vendedorId).size();
+        return obtenerEstadisticasVendedor(vendedorId).getTotalProductos();
     }
 
     public long contarProductosAgotadosPorVendedor(Long vendedorId) {
         log.info("📊 Contando productos agotados del vendedor ID: {}", vendedorId);
-        return productoRepository.findByVendedorUsuarioIdAndActivoTrue(vendedorId).stream()
-                .filter(p -> p.getStock() <= 0)
-                .count();
+        return obtenerEstadisticasVendedor(vendedorId).getProductosAgotados();
     }
 
     public long contarProductosConPocoStockPorVendedor(Long vendedorId) {
         log.info("📊 Contando productos con poco stock del vendedor ID: {}", vendedorId);
-        return productoRepository.findByVendedorUsuarioIdAndActivoTrue(vendedorId).stream()
-                .filter(p -> p.getStock() > 0 && p.getStock() <= 5)
-                .count();
+        return obtenerEstadisticasVendedor(vendedorId).getProductosPocoStock();
     }
 
     public long obtenerStockTotalPorVendedor(Long vendedorId) {
         log.info("📊 Obteniendo stock total del vendedor ID: {}", vendedorId);
-        return productoRepository.findByVendedorUsuarioIdAndActivoTrue(vendedorId).stream()
-                .mapToLong(p -> p.getStock() != null ? p.getStock() : 0)
-                .sum();
+        return obtenerEstadisticasVendedor(vendedorId).getStockTotal();
     }
 
     public double obtenerPrecioPromedioPorVendedor(Long vendedorId) {
         log.info("📊 Obteniendo precio promedio del vendedor ID: {}", vendedorId);
-        List<Producto> productos = productoRepository.findByVendedorUsuarioIdAndActivoTrue(vendedorId);
-        if (productos.isEmpty()) {
-            return 0.0;
-        }
-        return productos.stream()
-                .mapToDouble(p -> p.getPrecio() != null ? p.getPrecio() : 0.0)
-                .average()
-                .orElse(0.0);
+        return obtenerEstadisticasVendedor(vendedorId).getPrecioPromedio();
     }
 
     public double obtenerValorInventarioPorVendedor(Long vendedorId) {
         log.info("📊 Calculando valor de inventario del vendedor ID: {}", vendedorId);
-        List<Producto> productos = productoRepository.findByVendedorUsuarioIdAndActivoTrue(vendedorId);
-
-        return productos.stream()
-                .mapToDouble(p -> (p.getPrecio() != null ? p.getPrecio() : 0.0) *
-                        (p.getStock() != null ? p.getStock() : 0))
-                .sum();
+        return obtenerEstadisticasVendedor(vendedorId).getValorInventario();
     }
 
     public Map<String, Object> obtenerEstadisticasPorCategoriaVendedor(Long vendedorId) {
         log.info("📊 Obteniendo estadísticas por categoría del vendedor ID: {}", vendedorId);
-
-        // Implementación alternativa usando los métodos disponibles
-        List<Producto> productos = productoRepository.findByVendedorUsuarioIdAndActivoTrue(vendedorId);
-        Map<String, Object> estadisticas = new HashMap<>();
-
-        // Agrupar productos por categoría y contar
-        Map<String, Long> conteo = productos.stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        p -> p.getCategoria().getNombre(),
-                        java.util.stream.Collectors.counting()
-                ));
-
-        // Convertir a Map<String, Object>
-        conteo.forEach(estadisticas::put);
-
-        return estadisticas;
+        return agruparConteos(productoRepository.countProductosPorCategoriaVendedor(vendedorId));
     }
 
     // === MÉTODOS PARA ESTADÍSTICAS GENERALES ===
+    // Todas las estadísticas se resuelven con agregados SQL, sin cargar entidades en memoria
 
     public long contarProductos() {
         log.info("📊 Contando todos los productos");
@@ -113,82 +112,63 @@ public class ProductoService {
 
     public long contarProductosActivos() {
         log.info("📊 Contando productos activos");
-        return productoRepository.findByActivoTrue().size();
+        return productoRepository.countProductosActivos();
     }
 
     public long contarProductosDestacados() {
         log.info("📊 Contando productos destacados");
-        return productoRepository.findByDestacadoTrueAndActivoTrue().size();
+        return productoRepository.countProductosDestacados();
     }
 
     public long contarProductosAgotados() {
         log.info("📊 Contando productos agotados");
-        return productoRepository.findByActivoTrue().stream()
-                .filter(p -> p.getStock() <= 0)
-                .count();
+        return productoRepository.countProductosAgotados();
     }
 
     public long obtenerStockTotal() {
         log.info("📊 Obteniendo stock total del sistema");
-        return productoRepository.findByActivoTrue().stream()
-                .mapToLong(p -> p.getStock() != null ? p.getStock() : 0)
-                .sum();
+        Long stockTotal = productoRepository.sumStockTotal();
+        return stockTotal != null ? stockTotal : 0L;
     }
 
     public double obtenerPrecioPromedio() {
         log.info("📊 Obteniendo precio promedio del sistema");
-        List<Producto> productos = productoRepository.findByActivoTrue();
-        if (productos.isEmpty()) {
-            return 0.0;
-        }
-        return productos.stream()
-                .mapToDouble(p -> p.getPrecio() != null ? p.getPrecio() : 0.0)
-                .average()
-                .orElse(0.0);
+        Double promedio = productoRepository.findPrecioPromedio();
+        return promedio != null ? promedio : 0.0;
     }
 
-    public Map<String, Object> obtenerEstadisticasPorCategoria() {
-        log.info("📊 Obteniendo estadísticas por categoría");
+    /**
+     * Resumen de productos activos calculado con una única consulta agregada
+     */
+    public Map<String, Object> obtenerResumenProductos() {
+        log.info("📊 Obteniendo resumen de productos activos");
 
-        // Implementación alternativa usando los métodos disponibles
-        List<Producto> productos = productoRepository.findByActivoTrue();
-        Map<String, Object> estadisticas = new HashMap<>();
+        List<Object[]> filas = productoRepository.findResumenProductosActivos();
+        Object[] fila = filas.isEmpty() ? new Object[5] : filas.get(0);
 
-        // Agrupar productos por categoría y contar
-        Map<String, Long> conteo = productos.stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        p -> p.getCategoria().getNombre(),
-                        java.util.stream.Collectors.counting()
-                ));
+        Map<String, Object> resumen = new HashMap<>();
+        resumen.put("total", aLong(fila[0]));
+        resumen.put("agotados", aLong(fila[1]));
+        resumen.put("destacados", aLong(fila[2]));
+        resumen.put("stockTotal", aLong(fila[3]));
+        resumen.put("precioPromedio", aDouble(fila[4]));
 
-        // Convertir a Map<String, Object>
-        conteo.forEach(estadisticas::put);
+        return resumen;
+    }
 
-        return estadisticas;
+    public Map<String, Object> obtenerEstadisticasPorCategoria() {
+        log.info("📊 Obteniendo estadísticas por categoría");
+        return agruparConteos(productoRepository.countProductosPorCategoria());
     }
 
     public Map<String, Object> obtenerEstadisticasPorVendedor() {
         log.info("📊 Obteniendo estadísticas por vendedor");
-
-        // Implementación alternativa usando los métodos disponibles
-        List<Producto> productos = productoRepository.findByActivoTrue();
-        Map<String, Object> estadisticas = new HashMap<>();
-
-        // Agrupar productos por vendedor y contar
-        Map<String, Long> conteo = productos.stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        p -> p.getVendedor().getUsuarioNombre(),
-                        java.util.stream.Collectors.counting()
-                ));
-
-        // Convertir a Map<String, Object>
-        conteo.forEach(estadisticas::put);
-
-        return estadisticas;
+        return agruparConteos(productoRepository.countProductosPorVendedor());
     }
 
     // === MÉTODOS PARA BÚSQUEDAS Y FILTROS ===
 
+    @Transactional(readOnly = true)
     public Page<Producto> buscarProductos(String query, Pageable pageable) {
         log.info("🔍 Buscando productos con término: {}", query);
 
@@ -196,10 +176,30 @@ public class ProductoService {
             return obtenerProductosActivos(pageable);
         }
 
-        String searchTerm = "%" + query.trim().toLowerCase() + "%";
-        return productoRepository.findByTextoEnNombreODescripcion(query, pageable);
+        // Mientras el índice se construye al arrancar, se usa la consulta LIKE
+        if (!productoBusquedaService.estaDisponible()) {
+            return conImagenes(productoRepository.findByTextoEnNombreODescripcion(query, pageable));
+        }
+
+        ProductoBusquedaService.ResultadoBusqueda resultado =
+                productoBusquedaService.buscar(query, (int) pageable.getOffset(), pageable.getPageSize());
+        List<Long> ids = resultado.getProductoIds();
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, resultado.getTotal());
+        }
+
+        // Cargar solo la página y conservar el orden por relevancia del índice
+        Map<Long, Integer> posiciones = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            posiciones.put(ids.get(i), i);
+        }
+        List<Producto> productos = new ArrayList<>(productoRepository.findByProductoIdIn(ids));
+        productos.sort(Comparator.comparing(p -> posiciones.get(p.getProductoId())));
+
+        return new PageImpl<>(conImagenes(productos), pageable, resultado.getTotal());
     }
 
+    @Transactional(readOnly = true)
     public Page<Producto> filtrarProductos(Double precioMin, Double precioMax,
                                            Long categoriaId, Boolean disponible, Pageable pageable) {
         log.info("🔍 Filtrando productos con criterios múltiples");
@@ -209,13 +209,87 @@ public class ProductoService {
         if (disponible == null) disponible = true;
 
         // Usar el método de filtros avanzados que ya existe en el repositorio
-        return productoRepository.findConFiltrosAvanzados(
+        return conImagenes(productoRepository.findConFiltrosAvanzados(
                 categoriaId, 
                 null, // vendedor no especificado
                 precioMin, 
                 precioMax, 
                 disponible, 
-                pageable);
+                pageable));
+    }
+
+    // === MÉTODOS CRUD ===
+
+    @Transactional
+    public Producto crearProducto(Producto producto) {
+        log.info("➕ Creando producto: {}", producto.getProductoNombre());
+
+        if (productoRepository.existsByProductoNombre(producto.getProductoNombre())) {
+            throw new BusinessException("Ya existe un producto con el nombre: " + producto.getProductoNombre());
+        }
+
+        Producto nuevoProducto = productoRepository.save(producto);
+        vendedorEstadisticasService.actualizarEstadisticas(nuevoProducto.getVendedor().getUsuarioId());
+        eventPublisher.publishEvent(new ProductoModificadoEvent(nuevoProducto));
+
+        log.info("✅ Producto creado con ID: {}", nuevoProducto.getProductoId());
+        return nuevoProducto;
+    }
+
+    @Transactional
+    public Producto actualizarProducto(Long productoId, Producto productoDetails) {
+        log.info("🔄 Actualizando producto ID: {}", productoId);
+
+        Producto producto = obtenerProductoPorId(productoId);
+
+        if (productoDetails.getProductoNombre() != null &&
+                !productoDetails.getProductoNombre().equals(producto.getProductoNombre())) {
+            if (productoRepository.existsByProductoNombreAndProductoIdNot(productoDetails.getProductoNombre(), productoId)) {
+                throw new BusinessException("Ya existe un producto con el nombre: " + productoDetails.getProductoNombre());
+            }
+            producto.setProductoNombre(productoDetails.getProductoNombre());
+        }
+
+        if (productoDetails.getDescripcion() != null) {
+            producto.setDescripcion(productoDetails.getDescripcion());
+        }
+        if (productoDetails.getPrecio() != null) {
+            producto.setPrecio(productoDetails.getPrecio());
+        }
+        if (productoDetails.getStock() != null) {
+            producto.setStock(productoDetails.getStock());
+        }
+        if (productoDetails.getCategoria() != null) {
+            producto.setCategoria(productoDetails.getCategoria());
+        }
+        if (productoDetails.getActivo() != null) {
+            producto.setActivo(productoDetails.getActivo());
+        }
+        if (productoDetails.getDestacado() != null) {
+            producto.setDestacado(productoDetails.getDestacado());
+        }
+
+        Producto actualizado = productoRepository.save(producto);
+        vendedorEstadisticasService.actualizarEstadisticas(actualizado.getVendedor().getUsuarioId());
+        eventPublisher.publishEvent(new ProductoModificadoEvent(actualizado));
+
+        log.info("✅ Producto actualizado exitosamente");
+        return actualizado;
+    }
+
+    @Transactional
+    public void eliminarProducto(Long productoId) {
+        log.info("🗑️ Eliminando (desactivando) producto ID: {}", productoId);
+
+        // Borrado lógico: el producto puede estar referenciado por carritos y órdenes
+        Producto producto = obtenerProductoPorId(productoId);
+        producto.desactivar();
+
+        productoRepository.save(producto);
+        vendedorEstadisticasService.actualizarEstadisticas(producto.getVendedor().getUsuarioId());
+        eventPublisher.publishEvent(new ProductoModificadoEvent(producto));
+
+        log.info("✅ Producto desactivado exitosamente");
     }
 
     // === MÉTODOS PARA GESTIÓN DE STOCK Y ESTADO ===
@@ -229,6 +303,7 @@ public class ProductoService {
         producto.setUpdatedat(LocalDateTime.now());
 
         productoRepository.save(producto);
+        vendedorEstadisticasService.actualizarEstadisticas(producto.getVendedor().getUsuarioId());
         log.info("✅ Stock actualizado exitosamente");
     }
 
@@ -241,6 +316,7 @@ public class ProductoService {
         producto.setUpdatedat(LocalDateTime.now());
 
         productoRepository.save(producto);
+        eventPublisher.publishEvent(new ProductoModificadoEvent(producto));
         log.info("✅ Estado destacado actualizado");
     }
 
@@ -313,25 +389,18 @@ public class ProductoService {
     public List<Map<String, Object>> obtenerTopProductosVendedor(Long vendedorId, int limite) {
         log.info("📊 Obteniendo top {} productos del vendedor ID: {}", limite, vendedorId);
 
-        // Usar el método existente y luego limitar los resultados
-        List<Producto> todosProductos = productoRepository.findByVendedorUsuarioIdAndActivoTrue(vendedorId);
+        // Proyección limitada en SQL: no se cargan entidades ni relaciones
+        List<Object[]> filas = productoRepository.findTopProductosVendedor(vendedorId, PageRequest.of(0, limite));
 
-        // Ordenar por fecha de creación descendente (más recientes primero)
-        List<Producto> productos = todosProductos.stream()
-                .sorted((p1, p2) -> p2.getCreatedat().compareTo(p1.getCreatedat()))
-                .limit(limite)
-                .collect(java.util.stream.Collectors.toList());
-
-        // Crear una lista mutable para evitar problemas de tipo
         List<Map<String, Object>> resultado = new ArrayList<>();
 
-        for (Producto p : productos) {
+        for (Object[] fila : filas) {
             Map<String, Object> map = new HashMap<>();
-            map.put("id", p.getProductoId());
-            map.put("nombre", p.getProductoNombre());
-            map.put("precio", p.getPrecio());
-            map.put("stock", p.getStock());
-            map.put("categoria", p.getCategoria().getNombre());
+            map.put("id", fila[0]);
+            map.put("nombre", fila[1]);
+            map.put("precio", fila[2]);
+            map.put("stock", fila[3]);
+            map.put("categoria", fila[4]);
             resultado.add(map);
         }
 
@@ -352,14 +421,16 @@ public class ProductoService {
 
     // === MÉTODOS ADICIONALES PARA PRODUCTOS ===
 
+    @Transactional(readOnly = true)
     public List<Producto> obtenerProductosRecientes() {
         log.info("🆕 Obteniendo productos recientes");
-        return productoRepository.findProductosActivosRecientes();
+        return conImagenes(productoRepository.findProductosActivosRecientes());
     }
 
+    @Transactional(readOnly = true)
     public List<Producto> obtenerProductosDestacados() {
         log.info("⭐ Obteniendo productos destacados");
-        return productoRepository.findByDestacadoTrueAndActivoTrue();
+        return conImagenes(productoRepository.findByDestacadoTrueAndActivoTrue());
     }
 
     public Producto obtenerProductoPorSlug(String slug) {
@@ -375,8 +446,109 @@ public class ProductoService {
     }
 
     // Este método ya existe en el servicio original, solo verificamos que esté
+    @Transactional(readOnly = true)
     public Page<Producto> obtenerProductosActivos(Pageable pageable) {
         log.info("📋 Obteniendo productos activos con paginación");
-        return productoRepository.findByActivoTrue(pageable);
+        return conImagenes(productoRepository.findByActivoTrue(pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Producto> obtenerProductosPorCategoria(Long categoriaId, Pageable pageable) {
+        log.info("📋 Obteniendo productos de la categoría ID: {}", categoriaId);
+        return conImagenes(productoRepository.findByCategoriaIdAndActivoTrue(categoriaId, pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Producto> obtenerProductosPorVendedor(Long vendedorId, Pageable pageable) {
+        log.info("📋 Obteniendo productos del vendedor ID: {}", vendedorId);
+        return conImagenes(productoRepository.findByVendedorUsuarioIdAndActivoTrue(vendedorId, pageable));
+    }
+
+    // === PAGINACIÓN POR CURSOR (KEYSET) ===
+
+    /**
+     * Lista productos activos por cursor, opcionalmente filtrados por categoría o vendedor.
+     * Pide un elemento de más para saber si hay página siguiente sin ejecutar COUNT;
+     * el total solo se calcula (cacheado) si incluirTotal es true.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<Producto> obtenerProductosPorCursor(Long categoriaId, Long vendedorId, String orden,
+                                                            String cursor, int limite, boolean incluirTotal) {
+        int tamano = Math.max(1, Math.min(limite, maxPageSize));
+        ProductoCursor desde = ProductoCursor.decodificar(cursor, orden);
+        log.info("📋 Obteniendo productos por cursor - orden: {}, categoría: {}, vendedor: {}, tamaño: {}",
+                desde.getOrden(), categoriaId, vendedorId, tamano);
+
+        Pageable siguientes = PageRequest.of(0, tamano + 1);
+        boolean porPrecio = ProductoCursor.ORDEN_PRECIO.equals(desde.getOrden());
+
+        List<Producto> productos;
+        if (categoriaId != null) {
+            productos = porPrecio
+                    ? productoRepository.findPorCategoriaPorPrecioDesde(categoriaId, desde.getPrecio(), desde.getProductoId(), siguientes)
+                    : productoRepository.findPorCategoriaRecientesDesde(categoriaId, desde.getCreatedat(), desde.getProductoId(), siguientes);
+        } else if (vendedorId != null) {
+            productos = porPrecio
+                    ? productoRepository.findPorVendedorPorPrecioDesde(vendedorId, desde.getPrecio(), desde.getProductoId(), siguientes)
+                    : productoRepository.findPorVendedorRecientesDesde(vendedorId, desde.getCreatedat(), desde.getProductoId(), siguientes);
+        } else {
+            productos = porPrecio
+                    ? productoRepository.findActivosPorPrecioDesde(desde.getPrecio(), desde.getProductoId(), siguientes)
+                    : productoRepository.findActivosRecientesDesde(desde.getCreatedat(), desde.getProductoId(), siguientes);
+        }
+
+        boolean hayMas = productos.size() > tamano;
+        List<Producto> pagina = conImagenes(hayMas ? productos.subList(0, tamano) : productos);
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            Producto ultimo = pagina.get(pagina.size() - 1);
+            siguienteCursor = (porPrecio
+                    ? ProductoCursor.precio(ultimo.getPrecio(), ultimo.getProductoId())
+                    : ProductoCursor.recientes(ultimo.getCreatedat(), ultimo.getProductoId())).codificar();
+        }
+
+        Long total = null;
+        if (incluirTotal) {
+            total = categoriaId != null ? productoConteoService.contarPorCategoria(categoriaId)
+                    : vendedorId != null ? productoConteoService.contarPorVendedor(vendedorId)
+                    : productoConteoService.contarActivos();
+        }
+
+        return new CursorPageDTO<>(new ArrayList<>(pagina), siguienteCursor, hayMas, pagina.size(), total);
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Inicializa las imágenes de todos los productos del listado con una sola consulta.
+     * Categoría y vendedor ya vienen del entity graph "Producto.listado"; así ProductoDTO.fromEntity
+     * no dispara consultas por fila. Debe llamarse dentro de la transacción del listado.
+     */
+    private <T extends Iterable<Producto>> T conImagenes(T productos) {
+        List<Long> ids = new ArrayList<>();
+        productos.forEach(producto -> ids.add(producto.getProductoId()));
+        if (!ids.isEmpty()) {
+            productoRepository.cargarImagenes(ids);
+        }
+        return productos;
+    }
+
+    // Convierte filas [clave, conteo] de un GROUP BY en un mapa ordenado.
+    // Se agrupa por ID, así que dos filas pueden compartir nombre: sus conteos se suman
+    private Map<String, Object> agruparConteos(List<Object[]> filas) {
+        Map<String, Long> conteos = new LinkedHashMap<>();
+        for (Object[] fila : filas) {
+            conteos.merge(String.valueOf(fila[0]), aLong(fila[1]), Long::sum);
+        }
+        return new LinkedHashMap<>(conteos);
+    }
+
+    private long aLong(Object valor) {
+        return valor instanceof Number numero ? numero.longValue() : 0L;
+    }
+
+    private double aDouble(Object valor) {
+        return valor instanceof Number numero ? numero.doubleValue() : 0.0;
     }
 }
@@ -0,0 +1,521 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.dto.SugerenciaDTO;
+import com.digital.mecommerces.event.ProductoModificadoEvent;
+import com.digital.mecommerces.repository.ProductoRepository;
+import com.digital.mecommerces.util.TextoUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Autocompletado del buscador servido desde un trie en memoria.
+ * Contiene nombres de productos activos y las categorías y vendedores que tienen productos activos.
+ * Cada nodo guarda precalculadas sus mejores sugerencias, así una consulta solo recorre
+ * los caracteres del prefijo y nunca toca la base de datos.
+ * La recencia de los productos se calcula respecto a la fecha de la última reconstrucción,
+ * que se repite cada día (app.productos.sugerencias.reconstruccion-cron).
+ */
+@Service
+@Slf4j
+public class ProductoSugerenciaService {
+
+    public static final String TIPO_PRODUCTO = "PRODUCTO";
+    public static final String TIPO_CATEGORIA = "CATEGORIA";
+    public static final String TIPO_VENDEDOR = "VENDEDOR";
+
+    // Sugerencias guardadas por nodo; también es el máximo que se puede pedir
+    public static final int MAX_SUGERENCIAS = 10;
+
+    // Pesos: destacado y recencia para productos; número de productos para categorías y vendedores
+    private static final double PESO_BASE_PRODUCTO = 1.0;
+    private static final double PESO_DESTACADO = 2.0;
+    private static final double PESO_RECIENTE = 1.0;
+    private static final double DIAS_VIDA_MEDIA_RECENCIA = 30.0;
+    private static final double PESO_BASE_AGRUPADOR = 1.5;
+
+    private static final int TAMANO_LOTE_RECONSTRUCCION = 1000;
+
+    private static final Comparator<Sugerencia> POR_RELEVANCIA = Comparator
+            .comparingDouble(Sugerencia::peso).reversed()
+            .thenComparing(Sugerencia::texto);
+
+    private final ProductoRepository productoRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Catalogo catalogo = new Catalogo();
+    private boolean reconstruyendo = false;
+    private final List<ProductoModificadoEvent> eventosPendientes = new ArrayList<>();
+
+    public ProductoSugerenciaService(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializarSugerencias() {
+        reconstruirSugerencias();
+    }
+
+    // La recencia envejece: los pesos se recalculan con una reconstrucción diaria
+    @Scheduled(cron = "${app.productos.sugerencias.reconstruccion-cron:0 15 4 * * *}")
+    public void reconstruirProgramado() {
+        try {
+            reconstruirSugerencias();
+        } catch (RuntimeException e) {
+            // Ya registrado; se sigue sirviendo el trie anterior
+        }
+    }
+
+    /**
+     * Reconstruye el trie desde los productos activos. Las consultas siguen usando el trie anterior
+     * hasta que el nuevo está completo; los cambios que llegan mientras tanto se aplican al final.
+     */
+    public void reconstruirSugerencias() {
+        log.info("🔤 Reconstruyendo sugerencias de autocompletado...");
+        long inicio = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            reconstruyendo = true;
+            eventosPendientes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Catalogo nuevoCatalogo = new Catalogo();
+        try {
+            Long ultimoId = 0L;
+            List<Object[]> lote;
+            do {
+                lote = productoRepository.findDatosIndexacionDesde(ultimoId, PageRequest.of(0, TAMANO_LOTE_RECONSTRUCCION));
+                for (Object[] fila : lote) {
+                    Long productoId = (Long) fila[0];
+                    nuevoCatalogo.guardarProducto(new DatosProducto(productoId, (String) fila[1], (String) fila[3],
+                            (String) fila[5], Boolean.TRUE.equals(fila[6]), (LocalDateTime) fila[7]));
+                    ultimoId = productoId;
+                }
+            } while (lote.size() == TAMANO_LOTE_RECONSTRUCCION);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                reconstruyendo = false;
+                eventosPendientes.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("❌ Error reconstruyendo sugerencias: {}", e.getMessage());
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            eventosPendientes.forEach(evento -> aplicarEvento(nuevoCatalogo, evento));
+            eventosPendientes.clear();
+            catalogo = nuevoCatalogo;
+            reconstruyendo = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("✅ Sugerencias listas: {} productos en {} ms",
+                nuevoCatalogo.totalProductos(), System.currentTimeMillis() - inicio);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductoModificado(ProductoModificadoEvent evento) {
+        lock.writeLock().lock();
+        try {
+            aplicarEvento(catalogo, evento);
+            if (reconstruyendo) {
+                eventosPendientes.add(evento);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SugerenciaDTO> obtenerSugerencias(String prefijo, int limite) {
+        String clave = TextoUtil.normalizarFrase(prefijo);
+        if (clave.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return Arrays.stream(catalogo.trie.buscar(clave))
+                    .limit(Math.min(limite, MAX_SUGERENCIAS))
+                    .map(s -> new SugerenciaDTO(s.texto(), s.tipo(), s.productoId()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void aplicarEvento(Catalogo destino, ProductoModificadoEvent evento) {
+        if (evento.isActivo()) {
+            destino.guardarProducto(new DatosProducto(evento.getProductoId(), evento.getProductoNombre(),
+                    evento.getCategoriaNombre(), evento.getVendedorNombre(), evento.isDestacado(), evento.getCreatedat()));
+        } else {
+            destino.quitarProducto(evento.getProductoId());
+        }
+    }
+
+    private record DatosProducto(Long productoId, String nombre, String categoria, String vendedor,
+                                 boolean destacado, LocalDateTime createdat) {
+    }
+
+    private record Sugerencia(String id, String texto, String tipo, Long productoId, double peso) {
+    }
+
+    /**
+     * Trie más el estado necesario para mantenerlo al día: los datos indexados de cada producto
+     * y cuántos productos activos tiene cada categoría y cada vendedor.
+     */
+    private static class Catalogo {
+
+        private final Trie trie = new Trie();
+        // Todos los productos envejecen respecto al mismo instante, los indexados al arrancar y los de eventos
+        private final LocalDateTime referencia = LocalDateTime.now();
+        private final Map<Long, DatosProducto> productos = new HashMap<>();
+        private final Map<Long, Sugerencia> sugerenciasProducto = new HashMap<>();
+        private final Agrupador categorias = new Agrupador(TIPO_CATEGORIA);
+        private final Agrupador vendedores = new Agrupador(TIPO_VENDEDOR);
+
+        void guardarProducto(DatosProducto datos) {
+            quitarProducto(datos.productoId());
+
+            if (TextoUtil.normalizarFrase(datos.nombre()).isEmpty()) {
+                return;
+            }
+
+            Sugerencia sugerencia = new Sugerencia(TIPO_PRODUCTO + ":" + datos.productoId(), datos.nombre(),
+                    TIPO_PRODUCTO, datos.productoId(), pesoProducto(datos));
+            trie.agregar(sugerencia);
+            sugerenciasProducto.put(datos.productoId(), sugerencia);
+            productos.put(datos.productoId(), datos);
+
+            categorias.sumar(trie, datos.categoria());
+            vendedores.sumar(trie, datos.vendedor());
+        }
+
+        void quitarProducto(Long productoId) {
+            DatosProducto anterior = productos.remove(productoId);
+            if (anterior == null) {
+                return;
+            }
+
+            trie.quitar(sugerenciasProducto.remove(productoId));
+            categorias.restar(trie, anterior.categoria());
+            vendedores.restar(trie, anterior.vendedor());
+        }
+
+        int totalProductos() {
+            return productos.size();
+        }
+
+        private double pesoProducto(DatosProducto datos) {
+            double peso = PESO_BASE_PRODUCTO;
+            if (datos.destacado()) {
+                peso += PESO_DESTACADO;
+            }
+            if (datos.createdat() != null) {
+                double dias = Math.max(0, Duration.between(datos.createdat(), referencia).toHours() / 24.0);
+                peso += PESO_RECIENTE * Math.pow(0.5, dias / DIAS_VIDA_MEDIA_RECENCIA);
+            }
+            return peso;
+        }
+    }
+
+    /**
+     * Categorías o vendedores: la sugerencia existe mientras tengan productos activos
+     * y pesa más cuantos más productos tengan.
+     */
+    private static class Agrupador {
+
+        private final String tipo;
+        private final Map<String, Integer> conteos = new HashMap<>();
+        private final Map<String, Sugerencia> sugerencias = new HashMap<>();
+
+        Agrupador(String tipo) {
+            this.tipo = tipo;
+        }
+
+        void sumar(Trie trie, String nombre) {
+            String clave = TextoUtil.normalizarFrase(nombre);
+            if (!clave.isEmpty()) {
+                actualizar(trie, clave, nombre, conteos.getOrDefault(clave, 0) + 1);
+            }
+        }
+
+        void restar(Trie trie, String nombre) {
+            String clave = TextoUtil.normalizarFrase(nombre);
+            if (!clave.isEmpty() && conteos.containsKey(clave)) {
+                actualizar(trie, clave, nombre, conteos.get(clave) - 1);
+            }
+        }
+
+        private void actualizar(Trie trie, String clave, String nombre, int conteo) {
+            Sugerencia anterior = sugerencias.remove(clave);
+            if (anterior != null) {
+                trie.quitar(anterior);
+            }
+
+            if (conteo <= 0) {
+                conteos.remove(clave);
+                return;
+            }
+
+            conteos.put(clave, conteo);
+            String texto = anterior != null ? anterior.texto() : nombre;
+            Sugerencia sugerencia = new Sugerencia(tipo + ":" + clave, texto, tipo, null,
+                    PESO_BASE_AGRUPADOR + Math.log(conteo));
+            trie.agregar(sugerencia);
+            sugerencias.put(clave, sugerencia);
+        }
+    }
+
+    /**
+     * Trie radix (aristas con fragmentos de texto) sobre TextoUtil.normalizarFrase, la misma normalización
+     * que se aplica al prefijo consultado. Cada sugerencia se inserta con su texto completo y con el resto
+     * del texto a partir de cada palabra que no es stopword ("camiseta roja" también responde a "roj").
+     * Los nodos solo existen donde las claves se bifurcan o terminan (como mucho dos por clave) y guardan
+     * hijos, sugerencias y mejores en arreglos; los hijos van ordenados por su primer carácter.
+     * Cada nodo mantiene las MAX_SUGERENCIAS mejores de su subárbol, recalculadas al modificar una rama.
+     * No es thread-safe: el servicio lo protege con un ReadWriteLock.
+     */
+    private static class Trie {
+
+        private final Nodo raiz = new Nodo("");
+
+        Sugerencia[] buscar(String prefijo) {
+            Nodo nodo = raiz;
+            int i = 0;
+            while (i < prefijo.length()) {
+                nodo = nodo.hijo(prefijo.charAt(i));
+                if (nodo == null) {
+                    return SIN_SUGERENCIAS;
+                }
+                // El prefijo puede terminar a mitad de una arista: todo el subárbol coincide
+                int comparar = Math.min(nodo.etiqueta.length(), prefijo.length() - i);
+                if (!prefijo.regionMatches(i, nodo.etiqueta, 0, comparar)) {
+                    return SIN_SUGERENCIAS;
+                }
+                i += comparar;
+            }
+            return nodo.mejores;
+        }
+
+        void agregar(Sugerencia sugerencia) {
+            for (String clave : claves(sugerencia.texto())) {
+                List<Nodo> camino = new ArrayList<>();
+                Nodo nodo = raiz;
+                camino.add(nodo);
+                int i = 0;
+                while (i < clave.length()) {
+                    Nodo hijo = nodo.hijo(clave.charAt(i));
+                    if (hijo == null) {
+                        hijo = new Nodo(clave.substring(i));
+                        nodo.ponerHijo(hijo);
+                    } else {
+                        int comun = comun(clave, i, hijo.etiqueta);
+                        if (comun < hijo.etiqueta.length()) {
+                            // La clave se separa a mitad de la arista: se parte con un nodo intermedio
+                            Nodo intermedio = new Nodo(hijo.etiqueta.substring(0, comun));
+                            hijo.etiqueta = hijo.etiqueta.substring(comun);
+                            intermedio.ponerHijo(hijo);
+                            nodo.ponerHijo(intermedio);
+                            hijo = intermedio;
+                        }
+                    }
+                    i += hijo.etiqueta.length();
+                    nodo = hijo;
+                    camino.add(nodo);
+                }
+                nodo.terminales = conSugerencia(nodo.terminales, sugerencia);
+                recalcular(camino);
+            }
+        }
+
+        void quitar(Sugerencia sugerencia) {
+            if (sugerencia == null) {
+                return;
+            }
+
+            for (String clave : claves(sugerencia.texto())) {
+                List<Nodo> camino = new ArrayList<>();
+                Nodo nodo = raiz;
+                camino.add(nodo);
+                int i = 0;
+                while (nodo != null && i < clave.length()) {
+                    nodo = nodo.hijo(clave.charAt(i));
+                    if (nodo != null && !clave.startsWith(nodo.etiqueta, i)) {
+                        nodo = null;
+                    }
+                    if (nodo != null) {
+                        i += nodo.etiqueta.length();
+                        camino.add(nodo);
+                    }
+                }
+                if (nodo == null) {
+                    continue;
+                }
+                nodo.terminales = sinSugerencia(nodo.terminales, sugerencia.id());
+                recalcular(camino);
+            }
+        }
+
+        // Recalcula de abajo hacia arriba las mejores sugerencias de la rama; poda nodos vacíos
+        // y fusiona con su único hijo los nodos que ya no terminan ninguna clave
+        private void recalcular(List<Nodo> camino) {
+            for (int i = camino.size() - 1; i >= 0; i--) {
+                Nodo nodo = camino.get(i);
+
+                Map<String, Sugerencia> candidatas = new LinkedHashMap<>();
+                for (Sugerencia s : nodo.terminales) {
+                    candidatas.put(s.id(), s);
+                }
+                for (Nodo hijo : nodo.hijos) {
+                    for (Sugerencia s : hijo.mejores) {
+                        candidatas.putIfAbsent(s.id(), s);
+                    }
+                }
+                nodo.mejores = candidatas.values().stream()
+                        .sorted(POR_RELEVANCIA)
+                        .limit(MAX_SUGERENCIAS)
+                        .toArray(Sugerencia[]::new);
+
+                if (i == 0 || nodo.terminales.length > 0) {
+                    continue;
+                }
+                if (nodo.hijos.length == 0) {
+                    camino.get(i - 1).quitarHijo(nodo.etiqueta.charAt(0));
+                } else if (nodo.hijos.length == 1) {
+                    Nodo unico = nodo.hijos[0];
+                    nodo.etiqueta = nodo.etiqueta + unico.etiqueta;
+                    nodo.primeros = unico.primeros;
+                    nodo.hijos = unico.hijos;
+                    nodo.terminales = unico.terminales;
+                    nodo.mejores = unico.mejores;
+                }
+            }
+        }
+
+        private static int comun(String clave, int desde, String etiqueta) {
+            int n = 0;
+            while (n < etiqueta.length() && desde + n < clave.length()
+                    && clave.charAt(desde + n) == etiqueta.charAt(n)) {
+                n++;
+            }
+            return n;
+        }
+
+        private static Sugerencia[] conSugerencia(Sugerencia[] sugerencias, Sugerencia sugerencia) {
+            Sugerencia[] resultado = sinSugerencia(sugerencias, sugerencia.id());
+            resultado = Arrays.copyOf(resultado, resultado.length + 1);
+            resultado[resultado.length - 1] = sugerencia;
+            return resultado;
+        }
+
+        private static Sugerencia[] sinSugerencia(Sugerencia[] sugerencias, String id) {
+            return Arrays.stream(sugerencias).filter(s -> !s.id().equals(id)).toArray(Sugerencia[]::new);
+        }
+
+        private static List<String> claves(String texto) {
+            List<String> claves = new ArrayList<>();
+            String completo = TextoUtil.normalizarFrase(texto);
+            if (completo.isEmpty()) {
+                return claves;
+            }
+            claves.add(completo);
+
+            String[] palabras = completo.split(" ");
+            int inicio = 0;
+            for (int i = 0; i < palabras.length - 1; i++) {
+                inicio += palabras[i].length() + 1;
+                String resto = completo.substring(inicio);
+                if (!TextoUtil.esStopword(palabras[i + 1]) && !claves.contains(resto)) {
+                    claves.add(resto);
+                }
+            }
+            return claves;
+        }
+    }
+
+    private static final Sugerencia[] SIN_SUGERENCIAS = new Sugerencia[0];
+    private static final Nodo[] SIN_HIJOS = new Nodo[0];
+    private static final char[] SIN_PRIMEROS = new char[0];
+
+    private static class Nodo {
+
+        // Fragmento de texto de la arista que llega a este nodo
+        private String etiqueta;
+        // Primer carácter de la etiqueta de cada hijo, ordenado; hijos[i] corresponde a primeros[i]
+        private char[] primeros = SIN_PRIMEROS;
+        private Nodo[] hijos = SIN_HIJOS;
+        private Sugerencia[] terminales = SIN_SUGERENCIAS;
+        private Sugerencia[] mejores = SIN_SUGERENCIAS;
+
+        Nodo(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+
+        Nodo hijo(char c) {
+            int posicion = Arrays.binarySearch(primeros, c);
+            return posicion >= 0 ? hijos[posicion] : null;
+        }
+
+        // Añade el hijo o reemplaza el que empieza por el mismo carácter
+        void ponerHijo(Nodo hijo) {
+            char c = hijo.etiqueta.charAt(0);
+            int posicion = Arrays.binarySearch(primeros, c);
+            if (posicion >= 0) {
+                hijos[posicion] = hijo;
+                return;
+            }
+
+            int insercion = -posicion - 1;
+            char[] nuevosPrimeros = new char[primeros.length + 1];
+            Nodo[] nuevosHijos = new Nodo[hijos.length + 1];
+            System.arraycopy(primeros, 0, nuevosPrimeros, 0, insercion);
+            System.arraycopy(hijos, 0, nuevosHijos, 0, insercion);
+            nuevosPrimeros[insercion] = c;
+            nuevosHijos[insercion] = hijo;
+            System.arraycopy(primeros, insercion, nuevosPrimeros, insercion + 1, primeros.length - insercion);
+            System.arraycopy(hijos, insercion, nuevosHijos, insercion + 1, hijos.length - insercion);
+            primeros = nuevosPrimeros;
+            hijos = nuevosHijos;
+        }
+
+        void quitarHijo(char c) {
+            int posicion = Arrays.binarySearch(primeros, c);
+            if (posicion < 0) {
+                return;
+            }
+
+            char[] nuevosPrimeros = new char[primeros.length - 1];
+            Nodo[] nuevosHijos = new Nodo[hijos.length - 1];
+            System.arraycopy(primeros, 0, nuevosPrimeros, 0, posicion);
+            System.arraycopy(hijos, 0, nuevosHijos, 0, posicion);
+            System.arraycopy(primeros, posicion + 1, nuevosPrimeros, posicion, primeros.length - posicion - 1);
+            System.arraycopy(hijos, posicion + 1, nuevosHijos, posicion, hijos.length - posicion - 1);
+            primeros = nuevosPrimeros.length == 0 ? SIN_PRIMEROS : nuevosPrimeros;
+            hijos = nuevosHijos.length == 0 ? SIN_HIJOS : nuevosHijos;
+        }
+    }
+}
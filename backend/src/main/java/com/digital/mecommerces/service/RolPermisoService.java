@@ -1,6 +1,7 @@
 package com.digital.mecommerces.service;
 
 import com.digital.mecommerces.constants.RoleConstants;
+import com.digital.mecommerces.event.PermisosModificadosEvent;
 import com.digital.mecommerces.exception.BusinessException;
 import com.digital.mecommerces.exception.ResourceNotFoundException;
 import com.digital.mecommerces.model.Permiso;
@@ -10,6 +11,7 @@ import com.digital.mecommerces.repository.PermisoRepository;
 import com.digital.mecommerces.repository.RolPermisoRepository;
 import com.digital.mecommerces.repository.RolUsuarioRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,13 +25,16 @@ public class RolPermisoService {
     private final RolPermisoRepository rolPermisoRepository;
     private final RolUsuarioRepository rolUsuarioRepository;
     private final PermisoRepository permisoRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public RolPermisoService(RolPermisoRepository rolPermisoRepository,
                              RolUsuarioRepository rolUsuarioRepository,
-                             PermisoRepository permisoRepository) {
+                             PermisoRepository permisoRepository,
+                             ApplicationEventPublisher eventPublisher) {
         this.rolPermisoRepository = rolPermisoRepository;
         this.rolUsuarioRepository = rolUsuarioRepository;
         this.permisoRepository = permisoRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<RolPermiso> obtenerTodosRolPermisos() {
@@ -60,6 +65,9 @@ public class RolPermisoService {
     public RolPermiso asignarPermisoARol(Long rolId, Long permisoId) {
         log.info("➕ Asignando permiso ID: {} a rol ID: {}", permisoId, rolId);
 
+        // Los principales cacheados se descartan solo si la transacción se confirma
+        eventPublisher.publishEvent(new PermisosModificadosEvent());
+
         // Verificar que el rol existe
         RolUsuario rol = rolUsuarioRepository.findById(rolId)
                 .orElseThrow(() -> new ResourceNotFoundException("Rol no encontrado con ID: " + rolId));
@@ -89,6 +97,9 @@ public class RolPermisoService {
     public void eliminarPermisoDeRol(Long rolId, Long permisoId) {
         log.info("➖ Eliminando permiso ID: {} del rol ID: {}", permisoId, rolId);
 
+        // Los principales cacheados se descartan solo si la transacción se confirma
+        eventPublisher.publishEvent(new PermisosModificadosEvent());
+
         // Verificar que el rol existe
         if (!rolUsuarioRepository.existsById(rolId)) {
             throw new ResourceNotFoundException("Rol no encontrado con ID: " + rolId);
@@ -119,6 +130,9 @@ public class RolPermisoService {
     public void eliminarTodosPermisosDeRol(Long rolId) {
         log.info("🗑️ Eliminando todos los permisos del rol ID: {}", rolId);
 
+        // Los principales cacheados se descartan solo si la transacción se confirma
+        eventPublisher.publishEvent(new PermisosModificadosEvent());
+
         // Verificar que el rol existe
         RolUsuario rol = rolUsuarioRepository.findById(rolId)
                 .orElseThrow(() -> new ResourceNotFoundException("Rol no encontrado con ID: " + rolId));
@@ -140,6 +154,9 @@ public class RolPermisoService {
     public void asignarMultiplesPermisosARol(Long rolId, List<Long> permisosIds) {
         log.info("📋 Asignando {} permisos al rol ID: {}", permisosIds.size(), rolId);
 
+        // Los principales cacheados se descartan solo si la transacción se confirma
+        eventPublisher.publishEvent(new PermisosModificadosEvent());
+
         // Verificar que el rol existe
         RolUsuario rol = rolUsuarioRepository.findById(rolId)
                 .orElseThrow(() -> new ResourceNotFoundException("Rol no encontrado con ID: " + rolId));
@@ -207,6 +224,9 @@ public class RolPermisoService {
     public void configurarPermisosBasicosParaRol(String rolNombre) {
         log.info("⚙️ Configurando permisos básicos para rol: {}", rolNombre);
 
+        // Los principales cacheados se descartan solo si la transacción se confirma
+        eventPublisher.publishEvent(new PermisosModificadosEvent());
+
         RolUsuario rol = rolUsuarioRepository.findByNombre(rolNombre)
                 .orElseThrow(() -> new ResourceNotFoundException("Rol no encontrado: " + rolNombre));
 
@@ -232,6 +252,9 @@ public class RolPermisoService {
     public void inicializarPermisosDelSistema() {
         log.info("🏗️ Inicializando permisos del sistema para todos los roles");
 
+        // Los principales cacheados se descartan solo si la transacción se confirma
+        eventPublisher.publishEvent(new PermisosModificadosEvent());
+
         configurarPermisosBasicosParaRol(RoleConstants.ROLE_ADMINISTRADOR);
         configurarPermisosBasicosParaRol(RoleConstants.ROLE_VENDEDOR);
         configurarPermisosBasicosParaRol(RoleConstants.ROLE_COMPRADOR);
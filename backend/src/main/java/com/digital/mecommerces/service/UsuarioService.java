@@ -1,12 +1,15 @@
 package com.digital.mecommerces.service;
 
+import com.digital.mecommerces.event.UsuarioAutenticacionModificadaEvent;
 import com.digital.mecommerces.exception.ResourceNotFoundException;
 import com.digital.mecommerces.model.Usuario;
 import com.digital.mecommerces.model.RolUsuario;
 import com.digital.mecommerces.repository.UsuarioRepository;
 import com.digital.mecommerces.repository.RolUsuarioRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -29,13 +32,16 @@ public class UsuarioService {
     private final UsuarioRepository usuarioRepository;
     private final RolUsuarioRepository rolUsuarioRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     public UsuarioService(UsuarioRepository usuarioRepository, 
                          RolUsuarioRepository rolUsuarioRepository,
-                         PasswordEncoder passwordEncoder) {
+                         PasswordEncoder passwordEncoder,
+                         ApplicationEventPublisher eventPublisher) {
         this.usuarioRepository = usuarioRepository;
         this.rolUsuarioRepository = rolUsuarioRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
     }
 
     // ... métodos existentes ...
@@ -148,6 +154,7 @@ public class UsuarioService {
         usuario.setUpdatedAt(LocalDateTime.now());
 
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioAutenticacionModificadaEvent(usuario.getEmail()));
         log.info("✅ Usuario activado exitosamente");
     }
 
@@ -160,6 +167,7 @@ public class UsuarioService {
         usuario.setUpdatedAt(LocalDateTime.now());
 
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioAutenticacionModificadaEvent(usuario.getEmail()));
         log.info("✅ Usuario desactivado exitosamente");
     }
 
@@ -175,6 +183,7 @@ public class UsuarioService {
         usuario.setUpdatedAt(LocalDateTime.now());
 
         Usuario usuarioActualizado = usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioAutenticacionModificadaEvent(usuario.getEmail()));
         log.info("✅ Rol de usuario cambiado exitosamente");
         return usuarioActualizado;
     }
@@ -195,6 +204,7 @@ public class UsuarioService {
         usuario.setUpdatedAt(LocalDateTime.now());
 
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioAutenticacionModificadaEvent(usuario.getEmail()));
 
         log.info("✅ Contraseña reseteada exitosamente para usuario: {}", usuario.getEmail());
 
@@ -225,6 +235,7 @@ public class UsuarioService {
         usuario.setUpdatedAt(LocalDateTime.now());
 
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioAutenticacionModificadaEvent(usuario.getEmail()));
         log.info("✅ Contraseña cambiada exitosamente");
     }
 
@@ -243,11 +254,7 @@ public class UsuarioService {
 
     public List<Usuario> obtenerUsuariosRecientes(int limite) {
         log.info("📊 Obteniendo {} usuarios más recientes", limite);
-        List<Usuario> usuarios = usuarioRepository.findAll();
-        return usuarios.stream()
-                .sorted((u1, u2) -> u2.getCreatedAt().compareTo(u1.getCreatedAt()))
-                .limit(limite)
-                .toList();
+        return usuarioRepository.findAllByOrderByCreatedAtDesc(PageRequest.of(0, limite));
     }
 
     public List<Usuario> obtenerUltimosLogins(int limite) {
@@ -259,32 +266,6 @@ public class UsuarioService {
                 .toList();
     }
 
-    // === MÉTODOS PARA NOTIFICACIONES ===
-
-    public int enviarNotificacion(List<Long> usuariosIds, String mensaje) {
-        log.info("📧 Enviando notificación a {} usuarios", usuariosIds.size());
-
-        int notificacionesEnviadas = 0;
-
-        for (Long usuarioId : usuariosIds) {
-            try {
-                Usuario usuario = obtenerUsuarioPorId(usuarioId);
-
-                // En un sistema real, aquí se implementaría el envío real
-                // notificationService.enviarNotificacion(usuario, mensaje);
-
-                log.debug("📧 Notificación enviada a: {}", usuario.getEmail());
-                notificacionesEnviadas++;
-
-            } catch (Exception e) {
-                log.error("❌ Error enviando notificación al usuario ID {}: {}", usuarioId, e.getMessage());
-            }
-        }
-
-        log.info("✅ {} notificaciones enviadas exitosamente", notificacionesEnviadas);
-        return notificacionesEnviadas;
-    }
-
     // === MÉTODOS PARA LOGIN Y REGISTRO ===
 
     @Transactional
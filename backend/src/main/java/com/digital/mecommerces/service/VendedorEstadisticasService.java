@@ -0,0 +1,146 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.model.VendedorEstadisticas;
+import com.digital.mecommerces.repository.ProductoRepository;
+import com.digital.mecommerces.repository.VendedorEstadisticasRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estadísticas de inventario por vendedor.
+ * Con app.vendedor.estadisticas-materializadas=true el dashboard lee una sola fila de vendedorestadisticas;
+ * si no, se calcula al vuelo.
+ * Los cambios de producto y los checkouts no escriben la fila: marcan al vendedor como pendiente tras el commit
+ * y un único hilo programado la recalcula en su propia transacción. Así la fila no se bloquea dentro del checkout
+ * y un recálculo con datos antiguos nunca pisa a uno más reciente (app.vendedor.estadisticas.intervalo-ms).
+ */
+@Service
+@Slf4j
+public class VendedorEstadisticasService {
+
+    private final ProductoRepository productoRepository;
+    private final VendedorEstadisticasRepository vendedorEstadisticasRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Long> pendientes = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.vendedor.estadisticas-materializadas:true}")
+    private boolean materializadas;
+
+    public VendedorEstadisticasService(ProductoRepository productoRepository,
+                                       VendedorEstadisticasRepository vendedorEstadisticasRepository,
+                                       PlatformTransactionManager transactionManager) {
+        this.productoRepository = productoRepository;
+        this.vendedorEstadisticasRepository = vendedorEstadisticasRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Solo lectura: un vendedor sin fila todavía se calcula al vuelo y queda pendiente de materializar
+     */
+    @Transactional(readOnly = true)
+    public VendedorEstadisticas obtenerEstadisticas(Long vendedorId) {
+        log.info("📊 Obteniendo estadísticas del vendedor ID: {}", vendedorId);
+
+        if (!materializadas) {
+            return calcularEstadisticas(vendedorId);
+        }
+
+        return vendedorEstadisticasRepository.findById(vendedorId)
+                .orElseGet(() -> {
+                    pendientes.add(vendedorId);
+                    return calcularEstadisticas(vendedorId);
+                });
+    }
+
+    /**
+     * Marca la fila resumen del vendedor para recalcularla cuando la transacción actual haga commit
+     * (si se revierte, no hay nada que recalcular)
+     */
+    public void actualizarEstadisticas(Long vendedorId) {
+        if (!materializadas || vendedorId == null) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pendientes.add(vendedorId);
+                }
+            });
+        } else {
+            pendientes.add(vendedorId);
+        }
+    }
+
+    public void actualizarEstadisticas(Collection<Long> vendedorIds) {
+        vendedorIds.forEach(this::actualizarEstadisticas);
+    }
+
+    /**
+     * Recalcula los vendedores pendientes, en orden de ID y uno por transacción.
+     * Cada vendedor sale de pendientes antes de leer: un commit posterior a la lectura lo vuelve a marcar.
+     */
+    @Scheduled(fixedDelayString = "${app.vendedor.estadisticas.intervalo-ms:1000}")
+    public synchronized void recalcularPendientes() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        List<Long> vendedores = new ArrayList<>(new TreeSet<>(pendientes));
+        for (Long vendedorId : vendedores) {
+            pendientes.remove(vendedorId);
+            try {
+                VendedorEstadisticas estadisticas = transactionTemplate.execute(status ->
+                        guardar(calcularEstadisticas(vendedorId)));
+                log.debug("🔄 Estadísticas materializadas del vendedor {}: {}", vendedorId, estadisticas);
+            } catch (RuntimeException e) {
+                pendientes.add(vendedorId);
+                log.error("❌ Error recalculando las estadísticas del vendedor {}: {}", vendedorId, e.getMessage());
+            }
+        }
+    }
+
+    // Upsert en lugar de save(): con ID asignado, save() hace SELECT + INSERT
+    private VendedorEstadisticas guardar(VendedorEstadisticas estadisticas) {
+        estadisticas.preSave();
+        vendedorEstadisticasRepository.guardar(estadisticas);
+        return estadisticas;
+    }
+
+    private VendedorEstadisticas calcularEstadisticas(Long vendedorId) {
+        List<Object[]> filas = productoRepository.findResumenPorVendedor(vendedorId);
+        Object[] fila = filas.isEmpty() ? new Object[6] : filas.get(0);
+
+        VendedorEstadisticas estadisticas = new VendedorEstadisticas(vendedorId);
+        estadisticas.setTotalProductos(aLong(fila[0]));
+        estadisticas.setProductosAgotados(aLong(fila[1]));
+        estadisticas.setProductosPocoStock(aLong(fila[2]));
+        estadisticas.setStockTotal(aLong(fila[3]));
+        estadisticas.setPrecioPromedio(aDouble(fila[4]));
+        estadisticas.setValorInventario(aDouble(fila[5]));
+        return estadisticas;
+    }
+
+    private long aLong(Object valor) {
+        return valor instanceof Number numero ? numero.longValue() : 0L;
+    }
+
+    private double aDouble(Object valor) {
+        return valor instanceof Number numero ? numero.doubleValue() : 0.0;
+    }
+}
@@ -0,0 +1,107 @@
+package com.digital.mecommerces.util;
+
+import com.digital.mecommerces.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Cursor opaco para la paginación por keyset de productos.
+ * Guarda el último (createdat, productoId) o (precio, productoId) entregado, codificado en Base64 URL,
+ * para que la siguiente página se pida con "WHERE (clave, id) &lt; (ultimaClave, ultimoId)" en lugar de OFFSET.
+ */
+public final class ProductoCursor {
+
+    public static final String ORDEN_RECIENTES = "recientes";
+    public static final String ORDEN_PRECIO = "precio";
+
+    // Valores de inicio para la primera página (antes del primer elemento de cada orden)
+    private static final LocalDateTime INICIO_RECIENTES = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final double INICIO_PRECIO = -1.0;
+
+    private final String orden;
+    private final LocalDateTime createdat;
+    private final Double precio;
+    private final Long productoId;
+
+    private ProductoCursor(String orden, LocalDateTime createdat, Double precio, Long productoId) {
+        this.orden = orden;
+        this.createdat = createdat;
+        this.precio = precio;
+        this.productoId = productoId;
+    }
+
+    public static ProductoCursor recientes(LocalDateTime createdat, Long productoId) {
+        return new ProductoCursor(ORDEN_RECIENTES, createdat, null, productoId);
+    }
+
+    public static ProductoCursor precio(Double precio, Long productoId) {
+        return new ProductoCursor(ORDEN_PRECIO, null, precio, productoId);
+    }
+
+    /**
+     * Cursor de la primera página para el orden indicado
+     */
+    public static ProductoCursor inicio(String orden) {
+        return ORDEN_PRECIO.equals(validarOrden(orden))
+                ? precio(INICIO_PRECIO, 0L)
+                : recientes(INICIO_RECIENTES, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decodifica un cursor recibido del cliente; null o vacío equivale a la primera página
+     */
+    public static ProductoCursor decodificar(String cursor, String orden) {
+        String ordenValido = validarOrden(orden);
+        if (cursor == null || cursor.isBlank()) {
+            return inicio(ordenValido);
+        }
+
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (partes.length != 3 || !partes[0].equals(ordenValido)) {
+                throw new BusinessException("Cursor de paginación inválido para el orden: " + ordenValido);
+            }
+            Long id = Long.valueOf(partes[2]);
+            return ORDEN_PRECIO.equals(ordenValido)
+                    ? precio(Double.valueOf(partes[1]), id)
+                    : recientes(LocalDateTime.parse(partes[1]), id);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new BusinessException("Cursor de paginación inválido");
+        }
+    }
+
+    public String codificar() {
+        String valor = ORDEN_PRECIO.equals(orden) ? String.valueOf(precio) : createdat.toString();
+        String texto = orden + "|" + valor + "|" + productoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String validarOrden(String orden) {
+        if (orden == null || orden.isBlank()) {
+            return ORDEN_RECIENTES;
+        }
+        if (!ORDEN_RECIENTES.equals(orden) && !ORDEN_PRECIO.equals(orden)) {
+            throw new BusinessException("Orden no soportado: " + orden + " (use 'recientes' o 'precio')");
+        }
+        return orden;
+    }
+
+    public String getOrden() {
+        return orden;
+    }
+
+    public LocalDateTime getCreatedat() {
+        return createdat;
+    }
+
+    public Double getPrecio() {
+        return precio;
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+}
@@ -0,0 +1,72 @@
+package com.digital.mecommerces.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Utilidades de normalización y tokenización de texto en español
+ * usadas por el índice de búsqueda de productos
+ */
+public final class TextoUtil {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "es", "la", "las", "lo", "los",
+            "o", "para", "por", "se", "sin", "su", "sus", "un", "una", "unos", "unas", "y"
+    );
+
+    private TextoUtil() {
+    }
+
+    /**
+     * Pasa a minúsculas y elimina tildes y diéresis ("Canción" -> "cancion"); la ñ queda como n
+     */
+    public static String normalizar(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return "";
+        }
+        String descompuesto = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return MARCAS_DIACRITICAS.matcher(descompuesto).replaceAll("");
+    }
+
+    /**
+     * Texto normalizado con los términos separados por un solo espacio y sin signos
+     * ("  Cámara-réflex, 4K " -> "camara reflex 4k"). Conserva las stopwords: el autocompletado
+     * compara prefijos carácter a carácter y debe normalizar igual al indexar y al consultar.
+     */
+    public static String normalizarFrase(String texto) {
+        StringBuilder frase = new StringBuilder();
+        for (String termino : SEPARADORES.split(normalizar(texto))) {
+            if (!termino.isEmpty()) {
+                if (frase.length() > 0) {
+                    frase.append(' ');
+                }
+                frase.append(termino);
+            }
+        }
+        return frase.toString();
+    }
+
+    public static boolean esStopword(String termino) {
+        return STOPWORDS.contains(termino);
+    }
+
+    /**
+     * Divide el texto normalizado en términos, descartando stopwords
+     */
+    public static List<String> tokenizar(String texto) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARADORES.split(normalizar(texto))) {
+            if (!token.isEmpty() && !STOPWORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
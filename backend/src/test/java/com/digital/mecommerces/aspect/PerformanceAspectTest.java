@@ -0,0 +1,67 @@
+package com.digital.mecommerces.aspect;
+
+import com.digital.mecommerces.repository.ProductoRepository;
+import com.digital.mecommerces.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.lang.reflect.Proxy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Métricas por repositorio invocado: los métodos heredados de JpaRepository no se mezclan entre repositorios
+ */
+class PerformanceAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PerformanceAspect aspecto = new PerformanceAspect(meterRegistry);
+
+    @Test
+    void unMetodoHeredadoSeMidePorCadaRepositorioQueLoInvoca() {
+        UsuarioRepository usuarios = conAspecto(UsuarioRepository.class);
+        ProductoRepository productos = conAspecto(ProductoRepository.class);
+
+        usuarios.count();
+        usuarios.count();
+        productos.count();
+
+        assertThat(timer("UsuarioRepository", "ok").count()).isEqualTo(2);
+        assertThat(timer("ProductoRepository", "ok").count()).isEqualTo(1);
+        assertThat(meterRegistry.find("app.repositorio").tag("clase", "CrudRepository").timer()).isNull();
+    }
+
+    @Test
+    void losErroresTambienSeEtiquetanConElRepositorioInvocado() {
+        ProductoRepository productos = conAspecto(ProductoRepository.class);
+
+        assertThatThrownBy(() -> productos.findById(1L)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(meterRegistry.find("app.repositorio")
+                .tags("clase", "ProductoRepository", "metodo", "findById", "excepcion", "IllegalStateException")
+                .timer().count()).isEqualTo(1);
+    }
+
+    // Como Spring Data: un proxy JDK de la interfaz, envuelto por el proxy del aspecto
+    private <T> T conAspecto(Class<T> repositorio) {
+        Object target = Proxy.newProxyInstance(repositorio.getClassLoader(), new Class<?>[]{repositorio},
+                (proxy, metodo, argumentos) -> {
+                    if (metodo.getName().equals("count")) {
+                        return 0L;
+                    }
+                    throw new IllegalStateException("sin base de datos");
+                });
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(aspecto);
+        return factory.getProxy();
+    }
+
+    private Timer timer(String clase, String resultado) {
+        return meterRegistry.get("app.repositorio")
+                .tags("clase", clase, "metodo", "count", "resultado", resultado)
+                .timer();
+    }
+}
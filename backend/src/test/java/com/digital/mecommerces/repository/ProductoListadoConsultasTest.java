@@ -0,0 +1,79 @@
+package com.digital.mecommerces.repository;
+
+import com.digital.mecommerces.dto.ProductoDTO;
+import com.digital.mecommerces.model.CategoriaProducto;
+import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.model.ProductoImagen;
+import com.digital.mecommerces.model.RolUsuario;
+import com.digital.mecommerces.model.Usuario;
+import com.digital.mecommerces.model.VendedorDetalles;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cuenta las sentencias SQL de un listado de productos: el número no debe crecer con la cantidad de vendedores
+ */
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class ProductoListadoConsultasTest {
+
+    private static final int VENDEDORES = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @BeforeEach
+    void preparar() {
+        RolUsuario rol = entityManager.persist(new RolUsuario("VENDEDOR", "Vendedor"));
+        CategoriaProducto categoria = entityManager.persist(new CategoriaProducto("ELECTRONICA", "Electrónica"));
+        for (int v = 0; v < VENDEDORES; v++) {
+            Usuario vendedor = entityManager.persist(new Usuario("Vendedor " + v, "vendedor" + v + "@test.com", "x", rol));
+            entityManager.persist(new VendedorDetalles(vendedor));
+            for (int p = 0; p < 2; p++) {
+                Producto producto = entityManager.persist(
+                        new Producto("Producto " + v + "-" + p, "Prueba", 10.0, 5, categoria, vendedor));
+                entityManager.persist(new ProductoImagen("/uploads/productos/" + v + "-" + p + ".jpg", "Imagen", true, producto));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void elListadoUsaDosConsultasSinImportarElNumeroDeVendedores() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        // Mismo recorrido que ProductoService.listarProductosCursor: página con su plan de carga + imágenes en bloque
+        List<Producto> pagina = productoRepository.findActivosRecientesDesde(
+                LocalDateTime.of(9999, 12, 31, 23, 59), Long.MAX_VALUE, PageRequest.of(0, 20));
+        productoRepository.cargarImagenes(pagina.stream().map(Producto::getProductoId).toList());
+        List<ProductoDTO> dtos = pagina.stream().map(ProductoDTO::fromEntity).toList();
+
+        assertThat(dtos).hasSize(VENDEDORES * 2);
+        assertThat(dtos).allSatisfy(dto -> assertThat(dto.getImagenes()).hasSize(1));
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,75 @@
+package com.digital.mecommerces.repository;
+
+import com.digital.mecommerces.model.CategoriaProducto;
+import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.model.RolUsuario;
+import com.digital.mecommerces.model.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class ProductoRepositoryEstadisticasTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private CategoriaProducto categoria;
+    private Usuario vendedor;
+
+    @BeforeEach
+    void preparar() {
+        RolUsuario rol = entityManager.persist(new RolUsuario("VENDEDOR", "Vendedor"));
+        categoria = entityManager.persist(new CategoriaProducto("ELECTRONICA", "Electrónica"));
+        vendedor = entityManager.persist(new Usuario("Vendedor", "vendedor@test.com", "x", rol));
+    }
+
+    @Test
+    void losAgotadosCoincidenEntreConteoYResumen() {
+        crearProducto("Cable", 0);
+        crearProducto("Cargador", -2);
+        crearProducto("Audífonos", 7);
+        entityManager.flush();
+
+        long agotados = productoRepository.countProductosAgotados();
+        Object[] resumen = productoRepository.findResumenProductosActivos().get(0);
+        Object[] resumenVendedor = productoRepository.findResumenPorVendedor(vendedor.getUsuarioId()).get(0);
+
+        assertThat(agotados).isEqualTo(2);
+        assertThat(((Number) resumen[1]).longValue()).isEqualTo(agotados);
+        assertThat(((Number) resumenVendedor[1]).longValue()).isEqualTo(agotados);
+        assertThat(productoRepository.findProductosAgotados()).hasSize(2);
+    }
+
+    @Test
+    void losConteosPorVendedorSeparanVendedoresConElMismoNombre() {
+        Usuario homonimo = entityManager.persist(new Usuario("Vendedor", "otro@test.com", "x", vendedor.getRol()));
+        crearProducto("Cable", 3);
+        Producto ajeno = new Producto("Mouse", "Producto de prueba", 10.0, 4, categoria, homonimo);
+        entityManager.persist(ajeno);
+        entityManager.flush();
+
+        List<Object[]> filas = productoRepository.countProductosPorVendedor();
+
+        assertThat(filas).hasSize(2);
+        assertThat(filas).allSatisfy(fila -> assertThat(fila[0]).isEqualTo("Vendedor"));
+    }
+
+    private void crearProducto(String nombre, int stock) {
+        entityManager.persist(new Producto(nombre, "Producto de prueba", 10.0, stock, categoria, vendedor));
+    }
+}
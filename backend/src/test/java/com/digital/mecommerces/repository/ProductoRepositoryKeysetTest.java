@@ -0,0 +1,91 @@
+package com.digital.mecommerces.repository;
+
+import com.digital.mecommerces.model.CategoriaProducto;
+import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.model.RolUsuario;
+import com.digital.mecommerces.model.Usuario;
+import com.digital.mecommerces.util.ProductoCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class ProductoRepositoryKeysetTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private final List<Long> conFecha = new ArrayList<>();
+    private Long sinFecha;
+
+    @BeforeEach
+    void preparar() {
+        RolUsuario rol = entityManager.persist(new RolUsuario("VENDEDOR", "Vendedor"));
+        CategoriaProducto categoria = entityManager.persist(new CategoriaProducto("ELECTRONICA", "Electrónica"));
+        Usuario vendedor = entityManager.persist(new Usuario("Vendedor", "vendedor@test.com", "x", rol));
+
+        // Dos productos comparten createdat: el desempate es productoId
+        LocalDateTime[] fechas = {BASE, BASE.plusHours(1), BASE.plusHours(1), BASE.plusHours(2), BASE.plusHours(3)};
+        for (int i = 0; i < fechas.length; i++) {
+            Producto producto = new Producto("Producto " + i, "Prueba", 10.0 + i, 5, categoria, vendedor);
+            producto.setCreatedat(fechas[i]);
+            conFecha.add(entityManager.persist(producto).getProductoId());
+        }
+        Producto legado = entityManager.persist(new Producto("Legado", "Prueba", 1.0, 5, categoria, vendedor));
+        sinFecha = legado.getProductoId();
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE producto SET createdat = NULL WHERE productoid = " + sinFecha)
+                .executeUpdate();
+        entityManager.clear();
+    }
+
+    @Test
+    void recorreTodasLasPaginasSinRepetirYExcluyeProductosSinFecha() {
+        List<Long> vistos = recorrer();
+
+        assertThat(vistos).doesNotContain(sinFecha).containsExactlyInAnyOrderElementsOf(conFecha);
+    }
+
+    @Test
+    void completarFechasCreacionIncorporaLosProductosLegados() {
+        assertThat(productoRepository.completarFechasCreacion()).isEqualTo(1);
+        entityManager.clear();
+
+        assertThat(recorrer()).contains(sinFecha).hasSize(conFecha.size() + 1);
+    }
+
+    // Pide páginas de 2 siguiendo el cursor codificado, como lo hace el cliente
+    private List<Long> recorrer() {
+        List<Long> vistos = new ArrayList<>();
+        String cursor = null;
+        do {
+            ProductoCursor desde = ProductoCursor.decodificar(cursor, ProductoCursor.ORDEN_RECIENTES);
+            List<Producto> pagina = productoRepository.findActivosRecientesDesde(
+                    desde.getCreatedat(), desde.getProductoId(), PageRequest.of(0, 2));
+            pagina.forEach(producto -> vistos.add(producto.getProductoId()));
+            cursor = pagina.size() < 2 ? null : ProductoCursor.recientes(
+                    pagina.get(1).getCreatedat(), pagina.get(1).getProductoId()).codificar();
+        } while (cursor != null);
+        return vistos;
+    }
+}
@@ -0,0 +1,119 @@
+package com.digital.mecommerces.security;
+
+import com.digital.mecommerces.config.AsyncConfig;
+import com.digital.mecommerces.exception.BusinessException;
+import com.digital.mecommerces.exception.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pool de hash de contraseñas saturado: rechazo inmediato con 429 y Retry-After, y cola dimensionada con el timeout
+ */
+class PasswordEncoderAcotadoTest {
+
+    private static final long TIEMPO_MAXIMO_MS = 5000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch liberar = new CountDownLatch(1);
+
+    private ThreadPoolTaskExecutor executor;
+    private PasswordEncoderAcotado passwordEncoder;
+
+    @BeforeEach
+    void preparar() {
+        // Un hilo y un hueco en cola, ambos ocupados por hashes que no terminan hasta liberar
+        executor = new AsyncConfig().hashExecutor(1, TIEMPO_MAXIMO_MS, 250, 1);
+        passwordEncoder = new PasswordEncoderAcotado(4, executor, TIEMPO_MAXIMO_MS, meterRegistry);
+        executor.execute(this::esperarLiberacion);
+        executor.execute(this::esperarLiberacion);
+    }
+
+    @AfterEach
+    void liberarPool() {
+        liberar.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void conElPoolSaturadoSeRechazaSinEsperarAlTimeout() {
+        long inicio = System.currentTimeMillis();
+
+        assertThatThrownBy(() -> passwordEncoder.encode("secreto"))
+                .isInstanceOfSatisfying(BusinessException.class,
+                        e -> assertThat(e.getHttpStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+
+        assertThat(System.currentTimeMillis() - inicio).isLessThan(TIEMPO_MAXIMO_MS / 5);
+        assertThat(meterRegistry.counter("seguridad.password.rechazos").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void laPeticionRecibe429ConRetryAfter() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new LoginPrueba(passwordEncoder))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        long inicio = System.currentTimeMillis();
+
+        mockMvc.perform(post("/login-prueba"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+
+        assertThat(System.currentTimeMillis() - inicio).isLessThan(TIEMPO_MAXIMO_MS / 5);
+    }
+
+    @Test
+    void laColaPorDefectoSeVaciaAntesDelTimeout() {
+        // 2 hilos, 5000 ms de espera máxima y ~250 ms por hash de coste 12
+        ThreadPoolTaskExecutor porDefecto = new AsyncConfig().hashExecutor(2, TIEMPO_MAXIMO_MS, 250, 0);
+        try {
+            int capacidad = porDefecto.getQueueCapacity();
+            assertThat(capacidad).isEqualTo(20);
+            // El último encolado espera a los anteriores y a su propio hash
+            assertThat((capacidad / 2 + 1) * 250L).isLessThan(TIEMPO_MAXIMO_MS);
+        } finally {
+            porDefecto.shutdown();
+        }
+
+        assertThat(AsyncConfig.capacidadColaHash(4, 2000, 250)).isEqualTo(16);
+        assertThat(AsyncConfig.capacidadColaHash(1, 100, 250)).isEqualTo(1);
+    }
+
+    private void esperarLiberacion() {
+        try {
+            liberar.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @RestController
+    static class LoginPrueba {
+
+        private final PasswordEncoderAcotado passwordEncoder;
+
+        LoginPrueba(PasswordEncoderAcotado passwordEncoder) {
+            this.passwordEncoder = passwordEncoder;
+        }
+
+        @PostMapping("/login-prueba")
+        boolean login() {
+            return passwordEncoder.matches("secreto", "$2a$04$abcdefghijklmnopqrstuu");
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.digital.mecommerces.security;
+
+import com.digital.mecommerces.event.PermisosModificadosEvent;
+import com.digital.mecommerces.event.UsuarioAutenticacionModificadaEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Invalidación del caché de principales: ocurre tras el commit y no deja entradas viejas
+ * aunque una carga concurrente termine después de invalidarse
+ */
+@SpringJUnitConfig(UsuarioAutenticadoCacheTest.Config.class)
+class UsuarioAutenticadoCacheTest {
+
+    private static final String EMAIL = "comprador@test.com";
+
+    @Configuration
+    @EnableCaching
+    @EnableTransactionManagement
+    @Import({UsuarioAutenticadoCache.class, UsuarioAutenticadoCacheListener.class})
+    static class Config {
+
+        @Bean
+        UserDetailsService userDetailsService() {
+            return mock(UserDetailsService.class);
+        }
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(UsuarioAutenticadoCache.CACHE_NAME);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new DataSourceTransactionManager(
+                    new DriverManagerDataSource("jdbc:h2:mem:usuarioscache;DB_CLOSE_DELAY=-1"));
+        }
+    }
+
+    @Autowired
+    private UsuarioAutenticadoCache cache;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicReference<String> autoridad = new AtomicReference<>("PERMISO_A");
+
+    @BeforeEach
+    void preparar() {
+        cache.invalidarTodos();
+        clearInvocations(userDetailsService);
+        when(userDetailsService.loadUserByUsername(anyString())).thenAnswer(inv -> usuario(autoridad.get()));
+    }
+
+    @Test
+    void cargaUnaSolaVezMientrasNoSeInvalide() {
+        cache.cargarUsuario(EMAIL);
+        cache.cargarUsuario(EMAIL);
+
+        verify(userDetailsService, times(1)).loadUserByUsername(EMAIL);
+    }
+
+    @Test
+    void cambioDePermisosInvalidaSoloDespuesDelCommit() {
+        cache.cargarUsuario(EMAIL);
+        autoridad.set("PERMISO_B");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            eventPublisher.publishEvent(new PermisosModificadosEvent());
+            // Antes del commit sigue vigente la entrada anterior
+            assertThat(autoridadDe(cache.cargarUsuario(EMAIL))).isEqualTo("PERMISO_A");
+        });
+
+        assertThat(autoridadDe(cache.cargarUsuario(EMAIL))).isEqualTo("PERMISO_B");
+    }
+
+    @Test
+    void rollbackNoInvalida() {
+        cache.cargarUsuario(EMAIL);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            eventPublisher.publishEvent(new UsuarioAutenticacionModificadaEvent(EMAIL));
+            estado.setRollbackOnly();
+        });
+        cache.cargarUsuario(EMAIL);
+
+        verify(userDetailsService, times(1)).loadUserByUsername(EMAIL);
+    }
+
+    @Test
+    void cambioDelUsuarioInvalidaSuEntradaTrasElCommit() {
+        cache.cargarUsuario(EMAIL);
+        cache.cargarUsuario("otro@test.com");
+        autoridad.set("PERMISO_B");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado ->
+                eventPublisher.publishEvent(new UsuarioAutenticacionModificadaEvent(EMAIL)));
+
+        assertThat(autoridadDe(cache.cargarUsuario(EMAIL))).isEqualTo("PERMISO_B");
+        assertThat(autoridadDe(cache.cargarUsuario("otro@test.com"))).isEqualTo("PERMISO_A");
+    }
+
+    @Test
+    void cargaQueTerminaDespuesDeInvalidarNoQuedaVigente() {
+        // La carga lee los permisos anteriores y, antes de guardarse, otro hilo confirma el cambio
+        when(userDetailsService.loadUserByUsername(EMAIL)).thenAnswer(inv -> {
+            UserDetails viejo = usuario("PERMISO_A");
+            autoridad.set("PERMISO_B");
+            eventPublisher.publishEvent(new PermisosModificadosEvent());
+            return viejo;
+        }).thenAnswer(inv -> usuario(autoridad.get()));
+
+        assertThat(autoridadDe(cache.cargarUsuario(EMAIL))).isEqualTo("PERMISO_A");
+
+        assertThat(autoridadDe(cache.cargarUsuario(EMAIL))).isEqualTo("PERMISO_B");
+    }
+
+    private static UserDetails usuario(String autoridad) {
+        return User.withUsername(EMAIL)
+                .password("hash")
+                .authorities(new SimpleGrantedAuthority(autoridad))
+                .build();
+    }
+
+    private static String autoridadDe(UserDetails userDetails) {
+        return userDetails.getAuthorities().iterator().next().getAuthority();
+    }
+}
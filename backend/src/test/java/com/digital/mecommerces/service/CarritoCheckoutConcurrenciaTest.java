@@ -0,0 +1,209 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.constants.RoleConstants;
+import com.digital.mecommerces.exception.BusinessException;
+import com.digital.mecommerces.model.CarritoCompra;
+import com.digital.mecommerces.model.CarritoItem;
+import com.digital.mecommerces.model.CategoriaProducto;
+import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.model.RolUsuario;
+import com.digital.mecommerces.model.Usuario;
+import com.digital.mecommerces.repository.CarritoCompraRepository;
+import com.digital.mecommerces.repository.CategoriaProductoRepository;
+import com.digital.mecommerces.repository.ProductoRepository;
+import com.digital.mecommerces.repository.RolUsuarioRepository;
+import com.digital.mecommerces.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checkout con muchos compradores a la vez sobre el mismo stock: nunca se vende más de lo que hay.
+ * H2 espera 1 s por un bloqueo de fila y su timeout hace que Hikari cierre la conexión;
+ * con 500 compradores sobre la misma fila se amplía la espera, como innodb_lock_wait_timeout en MySQL.
+ */
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY, properties = {
+        "app.checkout.max-reintentos=10",
+        "spring.datasource.url=jdbc:h2:mem:checkout;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=60000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({CarritoService.class, CarritoMemoriaService.class, VendedorEstadisticasService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CarritoCheckoutConcurrenciaTest {
+
+    private static final int COMPRADORES = 500;
+    private static final int STOCK_P = 100;
+    private static final int STOCK_Q = 40;
+
+    @Autowired
+    private CarritoService carritoService;
+
+    @Autowired
+    private VendedorEstadisticasService vendedorEstadisticasService;
+
+    @Autowired
+    private RolUsuarioRepository rolUsuarioRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private CategoriaProductoRepository categoriaProductoRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CarritoCompraRepository carritoCompraRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long vendedorId;
+    private Long productoP;
+    private Long productoQ;
+    private final List<Long> compradores = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            RolUsuario rolVendedor = rolUsuarioRepository.save(new RolUsuario("VENDEDOR", "Vendedor"));
+            RolUsuario rolComprador = rolUsuarioRepository.save(new RolUsuario(RoleConstants.ROLE_COMPRADOR, "Comprador"));
+            Usuario vendedor = usuarioRepository.save(new Usuario("Vendedor", "vendedor@test.com", "x", rolVendedor));
+            vendedorId = vendedor.getUsuarioId();
+            CategoriaProducto categoria = categoriaProductoRepository.save(new CategoriaProducto("ELECTRONICA", "Electrónica"));
+            Producto p = productoRepository.save(new Producto("P", "Muy pedido", 10.0, STOCK_P, categoria, vendedor));
+            Producto q = productoRepository.save(new Producto("Q", "Escaso", 25.0, STOCK_Q, categoria, vendedor));
+            productoP = p.getProductoId();
+            productoQ = q.getProductoId();
+
+            // Todos piden una unidad de P; uno de cada cinco pide además dos de Q
+            for (int i = 0; i < COMPRADORES; i++) {
+                Usuario comprador = usuarioRepository.save(
+                        new Usuario("Comprador " + i, "comprador" + i + "@test.com", "x", rolComprador));
+                CarritoCompra carrito = new CarritoCompra(comprador);
+                carrito.addItem(new CarritoItem(p, 1, carrito));
+                if (i % 5 == 0) {
+                    carrito.addItem(new CarritoItem(q, 2, carrito));
+                }
+                carritoCompraRepository.save(carrito);
+                compradores.add(comprador.getUsuarioId());
+            }
+        });
+    }
+
+    @AfterEach
+    void limpiar() {
+        // El pool no usa auto-commit: el borrado necesita su propia transacción
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (String tabla : List.of("ordendetalle", "orden", "carritoitem", "carritocompra", "vendedorestadisticas",
+                    "producto", "categoriaproducto", "usuario", "rolusuario")) {
+                jdbcTemplate.update("DELETE FROM " + tabla);
+            }
+        });
+    }
+
+    @Test
+    void compradoresConcurrentesNoVendenMasDelStockDisponible() throws Exception {
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger compras = new AtomicInteger();
+        AtomicInteger rechazos = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<CompletableFuture<Void>> checkouts = new ArrayList<>();
+            for (Long usuarioId : compradores) {
+                checkouts.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        salida.await();
+                        carritoService.convertirCarritoAOrden(usuarioId);
+                        compras.incrementAndGet();
+                    } catch (BusinessException e) {
+                        rechazos.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                }, executor));
+            }
+
+            salida.countDown();
+            for (CompletableFuture<Void> checkout : checkouts) {
+                try {
+                    checkout.get();
+                } catch (ExecutionException e) {
+                    throw new AssertionError("Error no esperado en el checkout", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int stockP = stock(productoP);
+        int stockQ = stock(productoQ);
+        // Hay cuatro compradores por unidad de P: se agota, pero nunca queda en negativo
+        assertThat(stockP).isZero();
+        assertThat(stockQ).isBetween(0, STOCK_Q);
+
+        // Cada unidad descontada corresponde exactamente a una unidad vendida en alguna orden
+        assertThat(vendido(productoP)).isEqualTo(STOCK_P - stockP);
+        assertThat(vendido(productoQ)).isEqualTo(STOCK_Q - stockQ);
+
+        // Cada compra aceptada tiene su orden y ninguna orden lleva más de una unidad de P
+        assertThat(compras.get() + rechazos.get()).isEqualTo(COMPRADORES);
+        assertThat(contarOrdenes()).isEqualTo(compras.get());
+        assertThat(compras.get()).isEqualTo(STOCK_P - stockP);
+
+        // El resumen del vendedor, recalculado tras los commits, coincide con el inventario real
+        vendedorEstadisticasService.recalcularPendientes();
+        Map<String, Object> resumen = jdbcTemplate.queryForMap(
+                "SELECT totalproductos, productosagotados, productospocostock, stocktotal, valorinventario " +
+                        "FROM vendedorestadisticas WHERE vendedorid = ?", vendedorId);
+        assertThat(((Number) resumen.get("totalproductos")).longValue()).isEqualTo(2);
+        assertThat(((Number) resumen.get("productosagotados")).longValue())
+                .isEqualTo((stockP <= 0 ? 1 : 0) + (stockQ <= 0 ? 1 : 0));
+        assertThat(((Number) resumen.get("productospocostock")).longValue())
+                .isEqualTo((stockQ > 0 && stockQ <= 5 ? 1 : 0));
+        assertThat(((Number) resumen.get("stocktotal")).longValue()).isEqualTo(stockP + stockQ);
+        assertThat(((Number) resumen.get("valorinventario")).doubleValue()).isEqualTo(10.0 * stockP + 25.0 * stockQ);
+    }
+
+    private int stock(Long productoId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM producto WHERE productoid = ?", Integer.class, productoId);
+    }
+
+    private int vendido(Long productoId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(cantidad), 0) FROM ordendetalle WHERE productoid = ?", Integer.class, productoId);
+    }
+
+    private int contarOrdenes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orden", Integer.class);
+    }
+}
@@ -0,0 +1,233 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.constants.RoleConstants;
+import com.digital.mecommerces.event.ProductoModificadoEvent;
+import com.digital.mecommerces.exception.BusinessException;
+import com.digital.mecommerces.model.CarritoCompra;
+import com.digital.mecommerces.model.CarritoItem;
+import com.digital.mecommerces.model.CategoriaProducto;
+import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.model.RolUsuario;
+import com.digital.mecommerces.model.Usuario;
+import com.digital.mecommerces.repository.CarritoCompraRepository;
+import com.digital.mecommerces.repository.CategoriaProductoRepository;
+import com.digital.mecommerces.repository.ProductoRepository;
+import com.digital.mecommerces.repository.RolUsuarioRepository;
+import com.digital.mecommerces.repository.UsuarioRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Carritos en memoria (write-behind): guardado en bloque, checkout, copias de lectura, stock y precio actuales
+ */
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({CarritoService.class, CarritoMemoriaService.class, VendedorEstadisticasService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CarritoMemoriaServiceTest {
+
+    private static final int COMPRADORES = 5;
+
+    @Autowired
+    private CarritoService carritoService;
+
+    @Autowired
+    private CarritoMemoriaService carritoMemoriaService;
+
+    @Autowired
+    private RolUsuarioRepository rolUsuarioRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private CategoriaProductoRepository categoriaProductoRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CarritoCompraRepository carritoCompraRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Long productoId;
+    private final List<Long> compradores = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            RolUsuario rolVendedor = rolUsuarioRepository.save(new RolUsuario("VENDEDOR", "Vendedor"));
+            RolUsuario rolComprador = rolUsuarioRepository.save(new RolUsuario(RoleConstants.ROLE_COMPRADOR, "Comprador"));
+            Usuario vendedor = usuarioRepository.save(new Usuario("Vendedor", "vendedor@test.com", "x", rolVendedor));
+            CategoriaProducto categoria = categoriaProductoRepository.save(new CategoriaProducto("ELECTRONICA", "Electrónica"));
+            Producto producto = productoRepository.save(new Producto("P", "Prueba", 10.0, 10, categoria, vendedor));
+            productoId = producto.getProductoId();
+
+            for (int i = 0; i < COMPRADORES; i++) {
+                Usuario comprador = usuarioRepository.save(
+                        new Usuario("Comprador " + i, "comprador" + i + "@test.com", "x", rolComprador));
+                CarritoCompra carrito = new CarritoCompra(comprador);
+                carrito.addItem(new CarritoItem(producto, 1, carrito));
+                carritoCompraRepository.save(carrito);
+                compradores.add(comprador.getUsuarioId());
+            }
+        });
+    }
+
+    @AfterEach
+    void limpiar() {
+        // La caché es del contexto, compartida entre pruebas
+        compradores.forEach(carritoMemoriaService::descartar);
+        // El pool no usa auto-commit: el borrado necesita su propia transacción
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String tabla : List.of("ordendetalle", "orden", "carritoitem", "carritocompra", "vendedorestadisticas",
+                    "producto", "categoriaproducto", "usuario", "rolusuario")) {
+                jdbcTemplate.update("DELETE FROM " + tabla);
+            }
+        });
+    }
+
+    @Test
+    void unaCopiaCargadaAntesDelCheckoutNoReactivaElCarritoConvertido() {
+        Long usuarioId = compradores.get(0);
+        // Copia leída por otra petición mientras el checkout aún no había terminado
+        CarritoCompra copiaAnterior = transactionTemplate.execute(status ->
+                carritoCompraRepository.findActivoCompletoByUsuarioId(usuarioId).orElseThrow());
+
+        carritoService.convertirCarritoAOrden(usuarioId);
+
+        carritoMemoriaService.modificar(usuarioId, id -> copiaAnterior, carrito -> {
+            carrito.setTotalEstimado(99.0);
+            return null;
+        });
+        carritoMemoriaService.persistirPendientes();
+
+        Map<String, Object> fila = jdbcTemplate.queryForMap(
+                "SELECT activo, estado, totalestimado FROM carritocompra WHERE carritoid = ?", copiaAnterior.getCarritoId());
+        assertThat(fila.get("activo")).isEqualTo(false);
+        assertThat(fila.get("estado")).isEqualTo("CONVERTIDO");
+        assertThat(fila.get("totalestimado")).isEqualTo(10.0);
+        assertThat(carritoMemoriaService.contarCarritosEnMemoria()).isZero();
+    }
+
+    @Test
+    void losCarritosPendientesSeGuardanConUnaConsultaYUpdatesEnLote() {
+        List<Long> items = new ArrayList<>();
+        for (Long usuarioId : compradores) {
+            Long itemId = carritoService.obtenerCarritoActivo(usuarioId).getItems().get(0).getItemId();
+            carritoService.actualizarCantidadProducto(usuarioId, itemId, 2);
+            items.add(itemId);
+        }
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        carritoMemoriaService.persistirPendientes();
+
+        // Un SELECT para todos los carritos y un UPDATE en lote por tabla, sin importar cuántos carritos haya
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(cantidades(items)).containsOnly(2);
+
+        // La copia en memoria quedó con la versión nueva: el siguiente guardado no se descarta
+        for (int i = 0; i < compradores.size(); i++) {
+            carritoService.actualizarCantidadProducto(compradores.get(i), items.get(i), 3);
+        }
+        carritoMemoriaService.persistirPendientes();
+
+        assertThat(cantidades(items)).containsOnly(3);
+        assertThat(carritoMemoriaService.contarCarritosEnMemoria()).isEqualTo(COMPRADORES);
+    }
+
+    @Test
+    void obtenerDevuelveUnaCopiaQueNoCambiaConLasModificacionesPosteriores() {
+        Long usuarioId = compradores.get(0);
+        CarritoCompra leido = carritoService.obtenerCarritoActivo(usuarioId);
+        Long itemId = leido.getItems().get(0).getItemId();
+
+        carritoService.actualizarCantidadProducto(usuarioId, itemId, 4);
+
+        assertThat(leido.getItems().get(0).getCantidad()).isEqualTo(1);
+        assertThat(carritoService.obtenerCarritoActivo(usuarioId).getItems().get(0).getCantidad()).isEqualTo(4);
+    }
+
+    @Test
+    void laNuevaCantidadSeValidaContraElStockActualDelProducto() {
+        Long usuarioId = compradores.get(0);
+        Long itemId = carritoService.obtenerCarritoActivo(usuarioId).getItems().get(0).getItemId();
+
+        // El carrito ya está en memoria con stock 10; otra venta lo deja en 2
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update("UPDATE producto SET stock = 2 WHERE productoid = ?", productoId));
+
+        assertThatThrownBy(() -> carritoService.actualizarCantidadProducto(usuarioId, itemId, 5))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Disponible: 2");
+        assertThat(carritoService.obtenerCarritoActivo(usuarioId).getItems().get(0).getCantidad()).isEqualTo(1);
+    }
+
+    @Test
+    void unCambioDePrecioLlegaALosCarritosEnMemoriaTrasElCommit() {
+        Long usuarioId = compradores.get(0);
+        assertThat(carritoService.obtenerCarritoActivo(usuarioId).getTotalEstimado()).isEqualTo(10.0);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Producto producto = productoRepository.findById(productoId).orElseThrow();
+            producto.setPrecio(12.5);
+            eventPublisher.publishEvent(new ProductoModificadoEvent(productoRepository.save(producto)));
+        });
+
+        CarritoCompra carrito = carritoService.obtenerCarritoActivo(usuarioId);
+        assertThat(carrito.getItems().get(0).getPrecioUnitario()).isEqualTo(12.5);
+        assertThat(carrito.getTotalEstimado()).isEqualTo(12.5);
+
+        // El carrito quedó pendiente: el siguiente guardado lleva el total nuevo a la base de datos
+        carritoMemoriaService.persistirPendientes();
+        assertThat(jdbcTemplate.queryForObject("SELECT totalestimado FROM carritocompra WHERE usuarioid = ?",
+                Double.class, usuarioId)).isEqualTo(12.5);
+    }
+
+    private List<Integer> cantidades(List<Long> items) {
+        List<Integer> cantidades = new ArrayList<>();
+        for (Long itemId : items) {
+            cantidades.add(jdbcTemplate.queryForObject("SELECT cantidad FROM carritoitem WHERE itemid = ?",
+                    Integer.class, itemId));
+        }
+        return cantidades;
+    }
+}
@@ -0,0 +1,171 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.model.EmailOutbox;
+import com.digital.mecommerces.repository.EmailOutboxRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Envío de la bandeja de salida: grupos por conexión SMTP, fallos parciales y reintentos con espera
+ */
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailOutboxServiceTest {
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final JavaMailSender mailSender = mock(JavaMailSender.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private EmailOutboxService emailOutboxService;
+
+    @BeforeEach
+    void preparar() {
+        when(mailSender.createMimeMessage()).thenAnswer(invocacion -> new MimeMessage(Session.getInstance(new Properties())));
+
+        emailOutboxService = new EmailOutboxService(emailOutboxRepository, mailSender, executor, transactionManager);
+        ReflectionTestUtils.setField(emailOutboxService, "fromEmail", "noreply@test.com");
+        ReflectionTestUtils.setField(emailOutboxService, "emailEnabled", true);
+        ReflectionTestUtils.setField(emailOutboxService, "tamanoLote", 50);
+        ReflectionTestUtils.setField(emailOutboxService, "mensajesPorConexion", 10);
+        ReflectionTestUtils.setField(emailOutboxService, "maxIntentos", 2);
+        ReflectionTestUtils.setField(emailOutboxService, "backoffInicialSegundos", 30L);
+        ReflectionTestUtils.setField(emailOutboxService, "backoffMaximoSegundos", 3600L);
+        ReflectionTestUtils.setField(emailOutboxService, "reservaSegundos", 300L);
+    }
+
+    @AfterEach
+    void limpiar() {
+        executor.shutdown();
+        emailOutboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void cadaGrupoDeMensajesSaleEnUnaSolaConexion() {
+        encolar(25, "cliente");
+
+        emailOutboxService.procesarPendientes();
+
+        // 25 mensajes en grupos de 10: tres llamadas a send
+        verify(mailSender, times(3)).send(any(MimeMessage[].class));
+        assertThat(emailOutboxRepository.findAll())
+                .hasSize(25)
+                .allSatisfy(email -> assertThat(email.getEstado()).isEqualTo(EmailOutbox.ESTADO_ENVIADO));
+    }
+
+    @Test
+    void soloSeReprogramanLosMensajesQueFallaron() {
+        encolar(3, "cliente");
+        encolar(1, "malo");
+        doAnswer(invocacion -> {
+            Map<Object, Exception> fallidos = new LinkedHashMap<>();
+            for (MimeMessage mensaje : mensajes(invocacion.getArguments())) {
+                if (mensaje.getAllRecipients()[0].toString().startsWith("malo")) {
+                    fallidos.put(mensaje, new MessagingException("550 buzón inexistente"));
+                }
+            }
+            throw new MailSendException(fallidos);
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        LocalDateTime antes = LocalDateTime.now();
+        emailOutboxService.procesarPendientes();
+
+        for (EmailOutbox email : emailOutboxRepository.findAll()) {
+            if (email.getDestinatario().startsWith("malo")) {
+                assertThat(email.getEstado()).isEqualTo(EmailOutbox.ESTADO_PENDIENTE);
+                assertThat(email.getIntentos()).isEqualTo(1);
+                assertThat(email.getUltimoError()).contains("550");
+                assertThat(email.getProximoIntento()).isAfterOrEqualTo(antes.plusSeconds(30));
+            } else {
+                assertThat(email.getEstado()).isEqualTo(EmailOutbox.ESTADO_ENVIADO);
+            }
+        }
+    }
+
+    @Test
+    void unFalloDeConexionReintentaHastaElMaximoYLuegoQuedaFallido() {
+        encolar(2, "cliente");
+        doThrow(new MailAuthenticationException("credenciales inválidas")).when(mailSender).send(any(MimeMessage[].class));
+
+        emailOutboxService.procesarPendientes();
+        assertThat(emailOutboxRepository.findAll()).allSatisfy(email -> {
+            assertThat(email.getEstado()).isEqualTo(EmailOutbox.ESTADO_PENDIENTE);
+            assertThat(email.getIntentos()).isEqualTo(1);
+        });
+
+        // Sin esperar la espera exponencial: el reintento vence ahora
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jdbcTemplate.update("UPDATE emailoutbox SET proximointento = ?", LocalDateTime.now().minusSeconds(1)));
+        emailOutboxService.procesarPendientes();
+
+        assertThat(emailOutboxRepository.findAll()).allSatisfy(email -> {
+            assertThat(email.getEstado()).isEqualTo(EmailOutbox.ESTADO_FALLIDO);
+            assertThat(email.getIntentos()).isEqualTo(2);
+        });
+    }
+
+    private void encolar(int cantidad, String prefijo) {
+        List<EmailOutbox> emails = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            emails.add(new EmailOutbox(prefijo + i + "@test.com", "Asunto " + i, "Contenido", false));
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> emailOutboxService.encolarTodos(emails));
+    }
+
+    // Mockito puede entregar el varargs de send(MimeMessage...) como arreglo o ya expandido
+    private static List<MimeMessage> mensajes(Object[] argumentos) {
+        List<MimeMessage> mensajes = new ArrayList<>();
+        for (Object argumento : argumentos) {
+            if (argumento instanceof MimeMessage[] arreglo) {
+                mensajes.addAll(List.of(arreglo));
+            } else {
+                mensajes.add((MimeMessage) argumento);
+            }
+        }
+        return mensajes;
+    }
+}
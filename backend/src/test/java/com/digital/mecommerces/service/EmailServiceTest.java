@@ -0,0 +1,76 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.model.RolUsuario;
+import com.digital.mecommerces.model.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Emails compuestos con las plantillas reales: un dato ausente del usuario no impide encolarlos
+ */
+class EmailServiceTest {
+
+    private final EmailOutboxService emailOutboxService = mock(EmailOutboxService.class);
+    private EmailService emailService;
+    private Usuario sinNombre;
+
+    @BeforeEach
+    void preparar() {
+        emailService = new EmailService(emailOutboxService,
+                new PlantillaEmailService(new DefaultResourceLoader(), "classpath:/templates/email/"));
+        ReflectionTestUtils.setField(emailService, "frontendUrl", "http://tienda.test");
+        emailService.setEmailEnabled(true);
+
+        sinNombre = new Usuario(null, "cliente@test.com", "x", new RolUsuario("COMPRADOR", null));
+    }
+
+    @Test
+    void bienvenidaSinNombreNiDescripcionDeRol() {
+        emailService.enviarEmailBienvenida(sinNombre);
+
+        assertThat(contenidoEncolado()).contains("cliente@test.com").contains("http://tienda.test/login");
+    }
+
+    @Test
+    void resetPasswordSinNombre() {
+        emailService.enviarEmailResetPassword(sinNombre, "token-123");
+
+        assertThat(contenidoEncolado()).contains("http://tienda.test/reset-password?token=token-123");
+    }
+
+    @Test
+    void confirmacionDeOrdenSinNombreNiTotal() {
+        emailService.enviarEmailConfirmacionOrden(sinNombre, 42L, null);
+
+        assertThat(contenidoEncolado()).contains("42").doesNotContain("null");
+    }
+
+    @Test
+    void cambioDeEstadoSinNombreNiEstado() {
+        emailService.enviarEmailCambioEstadoOrden(sinNombre, 42L, null);
+
+        assertThat(contenidoEncolado()).contains("http://tienda.test/orden/42");
+    }
+
+    @Test
+    void vendedorVerificadoSinNombre() {
+        emailService.enviarEmailVendedorVerificado(sinNombre);
+
+        assertThat(contenidoEncolado()).contains("http://tienda.test/vendedor/dashboard");
+    }
+
+    private String contenidoEncolado() {
+        ArgumentCaptor<String> contenido = ArgumentCaptor.forClass(String.class);
+        verify(emailOutboxService).encolar(eq("cliente@test.com"), anyString(), contenido.capture(), eq(true));
+        return contenido.getValue();
+    }
+}
@@ -0,0 +1,193 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.event.ImagenLiberadaEvent;
+import com.digital.mecommerces.exception.BusinessException;
+import com.digital.mecommerces.model.CategoriaProducto;
+import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.model.ProductoImagen;
+import com.digital.mecommerces.model.RolUsuario;
+import com.digital.mecommerces.model.Usuario;
+import com.digital.mecommerces.repository.CategoriaProductoRepository;
+import com.digital.mecommerces.repository.ProductoImagenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Conteo de referencias a archivos almacenados (por clave tipo/nombre, con cualquier base URL)
+ * y periodo de gracia de los archivos recién subidos o reutilizados
+ */
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class ImageStorageServiceReferenciasTest {
+
+    private static final String NOMBRE = "a".repeat(64) + ".jpg";
+
+    @TempDir
+    Path directorio;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ProductoImagenRepository productoImagenRepository;
+
+    @Autowired
+    private CategoriaProductoRepository categoriaProductoRepository;
+
+    private ImageStorageService imageStorageService;
+
+    @BeforeEach
+    void preparar() {
+        imageStorageService = new ImageStorageService(directorio.toString(), mock(ImagenVarianteService.class),
+                productoImagenRepository, categoriaProductoRepository);
+        ReflectionTestUtils.setField(imageStorageService, "baseUrl", "http://localhost:8080");
+        ReflectionTestUtils.setField(imageStorageService, "maxFileSize", 1024L);
+
+        RolUsuario rol = entityManager.persist(new RolUsuario("VENDEDOR", "Vendedor"));
+        Usuario vendedor = entityManager.persist(new Usuario("Vendedor", "vendedor@test.com", "x", rol));
+        CategoriaProducto categoria = entityManager.persist(new CategoriaProducto("ELECTRONICA", "Electrónica"));
+        Producto producto = entityManager.persist(new Producto("Producto", "Prueba", 10.0, 5, categoria, vendedor));
+        entityManager.persist(new ProductoImagen(
+                imageStorageService.generarUrlPublica("productos", NOMBRE), "Imagen", true, producto));
+        entityManager.flush();
+    }
+
+    @Test
+    void cuentaLasReferenciasPorUrlPublica() {
+        assertThat(imageStorageService.contarReferencias("productos", NOMBRE)).isEqualTo(1);
+        assertThat(imageStorageService.contarReferencias("productos", "b" + NOMBRE.substring(1))).isZero();
+    }
+
+    @Test
+    void cuentaLasUrlsGuardadasConOtraBaseUrl() {
+        // El producto se guardó con http://localhost:8080; la aplicación ahora publica con otro host
+        ReflectionTestUtils.setField(imageStorageService, "baseUrl", "https://tienda.com");
+        assertThat(imageStorageService.contarReferencias("productos", NOMBRE)).isEqualTo(1);
+        assertThat(imageStorageService.contarReferencias("categorias", NOMBRE)).isZero();
+
+        // URL antigua sin tipo: cuenta para cualquier tipo
+        String otro = "b" + NOMBRE.substring(1);
+        CategoriaProducto categoria = new CategoriaProducto("HOGAR", "Hogar");
+        categoria.setImagen("/api/imagenes/" + otro);
+        entityManager.persist(categoria);
+        entityManager.flush();
+        assertThat(imageStorageService.contarReferencias("productos", otro)).isEqualTo(1);
+        assertThat(imageStorageService.contarReferencias("categorias", otro)).isEqualTo(1);
+    }
+
+    @Test
+    void laClaveDeAlmacenamientoNoDependeDelHost() {
+        assertThat(ImageStorageService.claveAlmacenamiento("http://localhost:8080/api/imagenes/productos/" + NOMBRE))
+                .isEqualTo("productos/" + NOMBRE);
+        assertThat(ImageStorageService.claveAlmacenamiento("https://cdn.tienda.com/x/productos/" + NOMBRE + "?v=1#a"))
+                .isEqualTo("productos/" + NOMBRE);
+        assertThat(ImageStorageService.claveAlmacenamiento("/api/imagenes/" + NOMBRE)).isEqualTo(NOMBRE);
+        assertThat(ImageStorageService.claveAlmacenamiento(NOMBRE)).isEqualTo(NOMBRE);
+        assertThat(ImageStorageService.claveAlmacenamiento("http://localhost:8080/api/imagenes/")).isNull();
+        assertThat(ImageStorageService.claveAlmacenamiento(" ")).isNull();
+    }
+
+    @Test
+    void elMismoNombreEnOtroTipoNoComparteReferencias() {
+        assertThat(imageStorageService.contarReferencias("categorias", NOMBRE)).isZero();
+        assertThat(imageStorageService.contarReferencias("perfiles", NOMBRE)).isZero();
+    }
+
+    @Test
+    void incluyeLasImagenesDeCategorias() {
+        CategoriaProducto categoria = new CategoriaProducto("HOGAR", "Hogar");
+        categoria.setImagen(imageStorageService.generarUrlPublica("categorias", NOMBRE));
+        entityManager.persist(categoria);
+        entityManager.flush();
+
+        assertThat(imageStorageService.contarReferencias("categorias", NOMBRE)).isEqualTo(1);
+        assertThat(imageStorageService.contarReferencias("productos", NOMBRE)).isEqualTo(1);
+    }
+
+    @Test
+    void eliminarRespetaLasReferenciasDeSuTipo() throws Exception {
+        Path enProductos = crearArchivo("productos");
+        Path enCategorias = crearArchivo("categorias");
+
+        assertThatThrownBy(() -> imageStorageService.eliminarImagen(NOMBRE, "productos"))
+                .isInstanceOf(BusinessException.class);
+        assertThat(imageStorageService.eliminarImagen(NOMBRE, "categorias")).isTrue();
+
+        assertThat(enProductos).exists();
+        assertThat(enCategorias).doesNotExist();
+    }
+
+    @Test
+    void unaSubidaDuplicadaMarcaLaReutilizacionSinTocarElArchivo() throws Exception {
+        String url = imageStorageService.almacenarImagen(subida(), "categorias");
+        String nombre = url.substring(url.lastIndexOf('/') + 1);
+        Path ruta = imageStorageService.resolverImagen("categorias", nombre);
+        FileTime antigua = envejecer(ruta);
+
+        assertThat(imageStorageService.almacenarImagen(subida(), "categorias")).isEqualTo(url);
+
+        assertThat(Files.getLastModifiedTime(ruta)).isEqualTo(antigua);
+        assertThat(imageStorageService.rutaMarcaReuso(ruta)).exists();
+        assertThat(imageStorageService.enPeriodoDeGracia(ruta)).isTrue();
+
+        // Ni el DELETE explícito ni la liberación tras el commit lo borran durante la gracia
+        assertThatThrownBy(() -> imageStorageService.eliminarImagen(nombre, "categorias"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("no se puede eliminar todavía");
+        imageStorageService.onImagenLiberada(new ImagenLiberadaEvent(url));
+        assertThat(ruta).exists();
+
+        envejecer(imageStorageService.rutaMarcaReuso(ruta));
+        assertThat(imageStorageService.eliminarImagen(nombre, "categorias")).isTrue();
+        assertThat(ruta).doesNotExist();
+        assertThat(imageStorageService.rutaMarcaReuso(ruta)).doesNotExist();
+    }
+
+    @Test
+    void eliminarNoBorraUnArchivoRecienSubido() throws Exception {
+        Path reciente = Files.writeString(
+                Files.createDirectories(directorio.resolve("categorias").resolve("aa").resolve("aa")).resolve(NOMBRE), "x");
+
+        assertThatThrownBy(() -> imageStorageService.eliminarImagen(NOMBRE, "categorias"))
+                .isInstanceOf(BusinessException.class);
+        assertThat(reciente).exists();
+    }
+
+    private MockMultipartFile subida() {
+        return new MockMultipartFile("archivo", "foto.jpg", "image/jpeg", new byte[]{1, 2, 3});
+    }
+
+    // Los archivos por contenido se guardan en {tipo}/{ab}/{cd}/{hash}.{ext}, fuera del periodo de gracia
+    private Path crearArchivo(String tipo) throws Exception {
+        Path subdirectorio = Files.createDirectories(directorio.resolve(tipo).resolve("aa").resolve("aa"));
+        Path archivo = Files.writeString(subdirectorio.resolve(NOMBRE), "x");
+        envejecer(archivo);
+        return archivo;
+    }
+
+    private FileTime envejecer(Path archivo) throws Exception {
+        FileTime antigua = FileTime.from(Instant.now().minus(Duration.ofDays(2)));
+        Files.setLastModifiedTime(archivo, antigua);
+        return antigua;
+    }
+}
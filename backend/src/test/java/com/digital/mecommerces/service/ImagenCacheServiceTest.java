@@ -0,0 +1,89 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.repository.ProductoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Admisión y vistas de los buffers de la caché de imágenes en memoria
+ */
+class ImagenCacheServiceTest {
+
+    private static final String CONTENIDO = "0123456789";
+
+    @TempDir
+    Path directorio;
+
+    private ImagenCacheService imagenCacheService;
+    private Path archivo;
+    private long modificacion;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        imagenCacheService = new ImagenCacheService(mock(ProductoRepository.class), mock(ProductoImagenService.class),
+                mock(ImageStorageService.class), mock(ImagenVarianteService.class), new SimpleMeterRegistry(),
+                true, 1024, 256);
+        archivo = Files.writeString(directorio.resolve("imagen.jpg"), CONTENIDO, StandardCharsets.US_ASCII);
+        modificacion = Files.getLastModifiedTime(archivo).toMillis();
+    }
+
+    @Test
+    void laPrimeraPeticionNoReservaMemoria() {
+        assertThat(imagenCacheService.obtenerContenido(archivo, CONTENIDO.length(), modificacion)).isNull();
+        assertThat(imagenCacheService.obtenerEstadisticas().get("entradas")).isEqualTo(0L);
+
+        ByteBuffer contenido = imagenCacheService.obtenerContenido(archivo, CONTENIDO.length(), modificacion);
+        assertThat(contenido).isNotNull();
+        assertThat(contenido.isReadOnly()).isTrue();
+        assertThat(texto(contenido.position(2).limit(6))).isEqualTo("2345");
+        assertThat(imagenCacheService.obtenerEstadisticas().get("entradas")).isEqualTo(1L);
+    }
+
+    @Test
+    void archivosGrandesNoSeCachean() {
+        long grande = 1000;
+        assertThat(imagenCacheService.obtenerContenido(archivo, grande, modificacion)).isNull();
+        assertThat(imagenCacheService.obtenerContenido(archivo, grande, modificacion)).isNull();
+    }
+
+    @Test
+    void cadaPeticionRecibeSuPropiaVista() {
+        imagenCacheService.obtenerContenido(archivo, CONTENIDO.length(), modificacion);
+        ByteBuffer primera = imagenCacheService.obtenerContenido(archivo, CONTENIDO.length(), modificacion);
+        ByteBuffer segunda = imagenCacheService.obtenerContenido(archivo, CONTENIDO.length(), modificacion);
+
+        primera.position(5);
+        assertThat(texto(segunda)).isEqualTo(CONTENIDO);
+        assertThat(texto(primera)).isEqualTo("56789");
+    }
+
+    @Test
+    void elContenidoReemplazadoSigueSiendoValidoParaElEnvioEnCurso() throws Exception {
+        imagenCacheService.obtenerContenido(archivo, CONTENIDO.length(), modificacion);
+        ByteBuffer enCurso = imagenCacheService.obtenerContenido(archivo, CONTENIDO.length(), modificacion);
+
+        // El archivo cambia mientras se envía: la entrada se reemplaza, pero la vista conserva su buffer
+        Files.writeString(archivo, "abcdefghij", StandardCharsets.US_ASCII);
+        ByteBuffer nuevo = imagenCacheService.obtenerContenido(archivo, CONTENIDO.length(), modificacion + 1000);
+
+        assertThat(texto(nuevo)).isEqualTo("abcdefghij");
+        assertThat(texto(enCurso)).isEqualTo(CONTENIDO);
+        assertThat(imagenCacheService.obtenerEstadisticas().get("entradas")).isEqualTo(1L);
+    }
+
+    private static String texto(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,146 @@
+package com.digital.mecommerces.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Entrega de imágenes: cabecera Range (rangos válidos, sufijos, límites, cabeceras ignoradas) y ETag
+ */
+class ImagenEntregaServiceTest {
+
+    private static final String CONTENIDO = "0123456789";
+
+    @TempDir
+    Path directorio;
+
+    private ImagenEntregaService imagenEntregaService;
+    private Path archivo;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        ImagenCacheService imagenCacheService = mock(ImagenCacheService.class);
+        when(imagenCacheService.obtenerContenido(any(), anyLong(), anyLong())).thenReturn(null);
+        imagenEntregaService = new ImagenEntregaService(imagenCacheService);
+        archivo = Files.writeString(directorio.resolve("imagen.jpg"), CONTENIDO, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void rangoCompletoDevuelveContenidoParcial() throws Exception {
+        MockHttpServletResponse response = pedir("bytes=2-5");
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void sufijoDevuelveLosUltimosBytes() throws Exception {
+        MockHttpServletResponse response = pedir("bytes=-3");
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("789");
+    }
+
+    @Test
+    void finMayorQueElArchivoSeRecorta() throws Exception {
+        MockHttpServletResponse response = pedir("bytes=8-100");
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 8-9/10");
+        assertThat(response.getContentAsString()).isEqualTo("89");
+    }
+
+    @Test
+    void inicioFueraDelArchivoResponde416() throws Exception {
+        MockHttpServletResponse response = pedir("bytes=10-");
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    @Test
+    void inicioQueDesbordaUnLongResponde416() throws Exception {
+        MockHttpServletResponse response = pedir("bytes=99999999999999999999-");
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    @Test
+    void finOSufijoQueDesbordanUnLongAbarcanHastaElFinal() throws Exception {
+        assertThat(pedir("bytes=4-99999999999999999999").getContentAsString()).isEqualTo("456789");
+        assertThat(pedir("bytes=-99999999999999999999").getContentAsString()).isEqualTo(CONTENIDO);
+    }
+
+    @Test
+    void rangoQueNoSeEntiendeSeIgnoraYSeEntregaElArchivoCompleto() throws Exception {
+        // Inicio mayor que el final, varios rangos, otra unidad o valores no numéricos
+        for (String rango : new String[]{"bytes=5-2", "bytes=0-1,4-5", "items=0-3", "bytes=abc", "bytes=-"}) {
+            MockHttpServletResponse response = pedir(rango);
+
+            assertThat(response.getStatus()).as(rango).isEqualTo(200);
+            assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).as(rango).isNull();
+            assertThat(response.getContentAsString()).as(rango).isEqualTo(CONTENIDO);
+        }
+    }
+
+    @Test
+    void sufijoDeCeroBytesResponde416() throws Exception {
+        MockHttpServletResponse response = pedir("bytes=-0");
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    @Test
+    void elEtagDeUnArchivoPorContenidoEsSuHashYNoDependeDeLaFecha() throws Exception {
+        String hash = "a".repeat(64);
+        Path porContenido = Files.writeString(directorio.resolve(hash + ".jpg"), CONTENIDO, StandardCharsets.US_ASCII);
+        Path variante = Files.writeString(directorio.resolve(hash + "_thumb.jpg"), "x", StandardCharsets.US_ASCII);
+
+        String etag = pedir(porContenido, null).getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isEqualTo("\"" + hash + "\"");
+        assertThat(pedir(variante, null).getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + hash + "_thumb\"");
+
+        Files.setLastModifiedTime(porContenido, FileTime.from(Instant.now().plusSeconds(3600)));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/productos/" + hash + ".jpg");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        imagenEntregaService.servir(porContenido, "image/jpeg", request, response);
+        assertThat(response.getStatus()).isEqualTo(304);
+
+        // Sin hash en el nombre, el ETag sigue dependiendo de tamaño y fecha
+        String anterior = pedir(archivo, null).getHeader(HttpHeaders.ETAG);
+        Files.setLastModifiedTime(archivo, FileTime.from(Instant.now().plusSeconds(3600)));
+        assertThat(pedir(archivo, null).getHeader(HttpHeaders.ETAG)).isNotEqualTo(anterior);
+    }
+
+    private MockHttpServletResponse pedir(String rango) throws Exception {
+        return pedir(archivo, rango);
+    }
+
+    private MockHttpServletResponse pedir(Path imagen, String rango) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/productos/" + imagen.getFileName());
+        if (rango != null) {
+            request.addHeader(HttpHeaders.RANGE, rango);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        imagenEntregaService.servir(imagen, "image/jpeg", request, response);
+        return response;
+    }
+}
@@ -0,0 +1,224 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.model.CategoriaProducto;
+import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.model.ProductoImagen;
+import com.digital.mecommerces.model.RolUsuario;
+import com.digital.mecommerces.model.Usuario;
+import com.digital.mecommerces.repository.CategoriaProductoRepository;
+import com.digital.mecommerces.repository.ProductoImagenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recolector de imágenes: borra solo archivos sin referencias de productos y categorías
+ */
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class ImagenRecolectorServiceTest {
+
+    private static final String PRODUCTO_USADO = "a".repeat(64) + ".jpg";
+    private static final String PRODUCTO_HUERFANO = "b".repeat(64) + ".jpg";
+    private static final String CATEGORIA_USADA = "c".repeat(64) + ".png";
+
+    @TempDir
+    Path directorio;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ProductoImagenRepository productoImagenRepository;
+
+    @Autowired
+    private CategoriaProductoRepository categoriaProductoRepository;
+
+    private ImageStorageService imageStorageService;
+    private ImagenVarianteService imagenVarianteService;
+    private ImagenRecolectorService imagenRecolectorService;
+
+    @BeforeEach
+    void preparar() {
+        imagenVarianteService = new ImagenVarianteService(Runnable::run, new SimpleMeterRegistry());
+        imageStorageService = new ImageStorageService(directorio.toString(), imagenVarianteService,
+                productoImagenRepository, categoriaProductoRepository);
+        ReflectionTestUtils.setField(imageStorageService, "baseUrl", "http://localhost:8080");
+        imagenRecolectorService = new ImagenRecolectorService(imageStorageService, imagenVarianteService,
+                productoImagenRepository, categoriaProductoRepository, Runnable::run);
+        ReflectionTestUtils.setField(imagenRecolectorService, "duracionMaximaSegundos", 60L);
+        ReflectionTestUtils.setField(imagenRecolectorService, "simulacion", false);
+
+        RolUsuario rol = entityManager.persist(new RolUsuario("VENDEDOR", "Vendedor"));
+        Usuario vendedor = entityManager.persist(new Usuario("Vendedor", "vendedor@test.com", "x", rol));
+        CategoriaProducto categoria = new CategoriaProducto("ELECTRONICA", "Electrónica");
+        categoria.setImagen(imageStorageService.generarUrlPublica("categorias", CATEGORIA_USADA));
+        entityManager.persist(categoria);
+        Producto producto = entityManager.persist(new Producto("Producto", "Prueba", 10.0, 5, categoria, vendedor));
+        entityManager.persist(new ProductoImagen(
+                imageStorageService.generarUrlPublica("productos", PRODUCTO_USADO), "Imagen", true, producto));
+        entityManager.flush();
+    }
+
+    @Test
+    void borraSoloLosArchivosSinReferenciasYSusVariantes() throws Exception {
+        Path usado = crearPorContenido("productos", PRODUCTO_USADO, true);
+        Path huerfano = crearPorContenido("productos", PRODUCTO_HUERFANO, true);
+        Path varianteHuerfana = huerfano.resolveSibling("b".repeat(64) + "_thumb.jpg");
+        Files.writeString(varianteHuerfana, "x");
+        envejecer(varianteHuerfana);
+        Path categoria = crearPorContenido("categorias", CATEGORIA_USADA, true);
+
+        Map<String, Object> resultado = imagenRecolectorService.ejecutar();
+
+        assertThat(usado).exists();
+        assertThat(categoria).exists();
+        assertThat(huerfano).doesNotExist();
+        assertThat(varianteHuerfana).doesNotExist();
+        assertThat(resultado.get("archivosEliminados")).isEqualTo(2L);
+        assertThat(resultado.get("completo")).isEqualTo(true);
+    }
+
+    @Test
+    void elMismoHashReferenciadoEnOtroTipoNoProtegeAlArchivo() throws Exception {
+        // El producto usa el hash en "productos"; la copia en "categorias" no tiene referencias
+        Path copiaEnCategorias = crearPorContenido("categorias", PRODUCTO_USADO, true);
+
+        imagenRecolectorService.ejecutar();
+
+        assertThat(copiaEnCategorias).doesNotExist();
+    }
+
+    @Test
+    void noTocaPerfilesNiSistema() throws Exception {
+        Path perfil = crear(directorio.resolve("perfiles"), "d".repeat(64) + ".jpg", true);
+        Path perfilPorContenido = crearPorContenido("perfiles", "e".repeat(64) + ".jpg", true);
+        Path sistema = crear(directorio.resolve("sistema"), "logo.png", true);
+
+        imagenRecolectorService.ejecutar();
+
+        assertThat(perfil).exists();
+        assertThat(perfilPorContenido).exists();
+        assertThat(sistema).exists();
+    }
+
+    @Test
+    void conservaLosArchivosReferenciadosConOtraBaseUrlOSinTipo() throws Exception {
+        // URLs guardadas antes de cambiar app.base-url, detrás de un CDN o con el formato antiguo sin tipo
+        String otroHost = "d".repeat(64) + ".jpg";
+        String relativa = "e".repeat(64) + ".jpg";
+        String sinTipo = "f".repeat(64) + ".png";
+        Producto producto = productoImagenRepository.findAll().get(0).getProducto();
+        entityManager.persist(new ProductoImagen(
+                "https://cdn.tienda.com/api/imagenes/productos/" + otroHost + "?v=2", "CDN", false, producto));
+        entityManager.persist(new ProductoImagen("/api/imagenes/productos/" + relativa, "Relativa", false, producto));
+        CategoriaProducto categoria = new CategoriaProducto("HOGAR", "Hogar");
+        categoria.setImagen("http://antiguo.example:9090/api/imagenes/" + sinTipo);
+        entityManager.persist(categoria);
+        entityManager.flush();
+
+        Path enOtroHost = crearPorContenido("productos", otroHost, true);
+        Path enRelativa = crearPorContenido("productos", relativa, true);
+        Path enSinTipo = crearPorContenido("categorias", sinTipo, true);
+        Path huerfano = crearPorContenido("productos", PRODUCTO_HUERFANO, true);
+
+        imagenRecolectorService.ejecutar();
+
+        assertThat(enOtroHost).exists();
+        assertThat(enRelativa).exists();
+        assertThat(enSinTipo).exists();
+        assertThat(huerfano).doesNotExist();
+    }
+
+    @Test
+    void enModoSimulacionSoloCuentaLoQueBorraria() throws Exception {
+        ReflectionTestUtils.setField(imagenRecolectorService, "simulacion", true);
+        Path huerfano = crearPorContenido("productos", PRODUCTO_HUERFANO, true);
+        Path temporal = crear(directorio.resolve("temp"), "subida.part", true);
+
+        Map<String, Object> resultado = imagenRecolectorService.ejecutar();
+
+        assertThat(huerfano).exists();
+        assertThat(temporal).exists();
+        assertThat(resultado.get("simulacion")).isEqualTo(true);
+        assertThat(resultado.get("archivosEliminados")).isEqualTo(1L);
+    }
+
+    @Test
+    void conservaLosArchivosRecientes() throws Exception {
+        Path reciente = crearPorContenido("productos", PRODUCTO_HUERFANO, false);
+
+        imagenRecolectorService.ejecutar();
+
+        assertThat(reciente).exists();
+    }
+
+    @Test
+    void conservaLosArchivosReutilizadosRecientementeSegunSuMarca() throws Exception {
+        Path reutilizado = crearPorContenido("productos", PRODUCTO_HUERFANO, true);
+        Path marca = imageStorageService.rutaMarcaReuso(reutilizado);
+        Files.writeString(marca, "");
+
+        imagenRecolectorService.ejecutar();
+
+        assertThat(reutilizado).exists();
+        assertThat(marca).exists();
+
+        // Pasado el periodo de gracia se borran el archivo y su marca
+        envejecer(marca);
+        imagenRecolectorService.ejecutar();
+
+        assertThat(reutilizado).doesNotExist();
+        assertThat(marca).doesNotExist();
+    }
+
+    @Test
+    void borraLasMarcasDeArchivosQueYaNoExisten() throws Exception {
+        Path usado = crearPorContenido("productos", PRODUCTO_USADO, true);
+        Path marcaHuerfana = usado.resolveSibling(PRODUCTO_HUERFANO + ImageStorageService.SUFIJO_MARCA_REUSO);
+        Files.writeString(marcaHuerfana, "");
+        envejecer(marcaHuerfana);
+
+        imagenRecolectorService.ejecutar();
+
+        assertThat(usado).exists();
+        assertThat(marcaHuerfana).doesNotExist();
+    }
+
+    private Path crearPorContenido(String tipo, String nombre, boolean antiguo) throws Exception {
+        Path subdirectorio = Files.createDirectories(
+                directorio.resolve(tipo).resolve(nombre.substring(0, 2)).resolve(nombre.substring(2, 4)));
+        return crear(subdirectorio, nombre, antiguo);
+    }
+
+    private Path crear(Path carpeta, String nombre, boolean antiguo) throws Exception {
+        Path archivo = Files.writeString(Files.createDirectories(carpeta).resolve(nombre), "x");
+        if (antiguo) {
+            envejecer(archivo);
+        }
+        return archivo;
+    }
+
+    // Fuera del periodo de gracia por reutilización
+    private void envejecer(Path archivo) throws Exception {
+        Files.setLastModifiedTime(archivo, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+    }
+}
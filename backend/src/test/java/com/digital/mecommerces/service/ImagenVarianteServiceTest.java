@@ -0,0 +1,173 @@
+package com.digital.mecommerces.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Generación de variantes cuando el pool "imagenesExecutor" está saturado y límites de decodificación
+ */
+class ImagenVarianteServiceTest {
+
+    @TempDir
+    Path directorio;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Runnable> encoladas = new ArrayList<>();
+    private boolean saturado;
+    private boolean ejecutarAlRecibir;
+
+    private ImagenVarianteService imagenVarianteService;
+    private Path original;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        Executor executor = tarea -> {
+            if (saturado) {
+                throw new TaskRejectedException("Cola llena");
+            }
+            if (ejecutarAlRecibir) {
+                tarea.run();
+            } else {
+                encoladas.add(tarea);
+            }
+        };
+        imagenVarianteService = new ImagenVarianteService(executor, meterRegistry);
+        ReflectionTestUtils.setField(imagenVarianteService, "calidad", 0.85f);
+        ReflectionTestUtils.setField(imagenVarianteService, "anchoMaximo", 1920);
+        ReflectionTestUtils.setField(imagenVarianteService, "altoMaximo", 1080);
+        ReflectionTestUtils.setField(imagenVarianteService, "maxPixeles", 40_000_000L);
+
+        original = directorio.resolve("foto.png");
+        ImageIO.write(new BufferedImage(600, 400, BufferedImage.TYPE_INT_ARGB), "png", original.toFile());
+    }
+
+    @Test
+    void tareaRechazadaSeCuentaYSeGeneraAlPedirLaVariante() {
+        saturado = true;
+        imagenVarianteService.generarVariantes(original);
+
+        assertThat(meterRegistry.counter("imagenes.variantes.rechazadas").count()).isEqualTo(1.0);
+        Path miniatura = imagenVarianteService.rutaVariante(original, ImagenVarianteService.Variante.THUMB);
+        assertThat(miniatura).doesNotExist();
+
+        // La siguiente petición de una variante que falta vuelve a programar la generación
+        saturado = false;
+        ejecutarAlRecibir = true;
+        assertThat(imagenVarianteService.resolverVariante(original, "thumb", null)).isEqualTo(original);
+
+        assertThat(miniatura).exists();
+        assertThat(imagenVarianteService.resolverVariante(original, "thumb", null)).isEqualTo(miniatura);
+    }
+
+    @Test
+    void noProgramaDosVecesElMismoOriginal() {
+        imagenVarianteService.generarVariantes(original);
+        imagenVarianteService.resolverVariante(original, "card", null);
+        imagenVarianteService.resolverVariante(original, null, 150);
+
+        assertThat(encoladas).hasSize(1);
+
+        encoladas.get(0).run();
+        assertThat(imagenVarianteService.resolverVariante(original, "card", null))
+                .isEqualTo(imagenVarianteService.rutaVariante(original, ImagenVarianteService.Variante.CARD));
+    }
+
+    @Test
+    void formatoSinVariantesNoSeProgramaNiSeCuenta() throws Exception {
+        Path webp = Files.writeString(directorio.resolve("foto.webp"), "x");
+        saturado = true;
+
+        imagenVarianteService.generarVariantes(webp);
+
+        assertThat(imagenVarianteService.resolverVariante(webp, "thumb", null)).isEqualTo(webp);
+        assertThat(meterRegistry.counter("imagenes.variantes.rechazadas").count()).isZero();
+    }
+
+    @Test
+    void imagenConDimensionesDesmesuradasNoSeDecodifica() throws Exception {
+        // Cabecera PNG válida de 100000x100000 px sin datos: decodificarla reservaría ~40 GB
+        Path bomba = directorio.resolve("bomba.png");
+        Files.write(bomba, pngSoloCabecera(100_000, 100_000));
+        ejecutarAlRecibir = true;
+
+        imagenVarianteService.generarVariantes(bomba);
+
+        for (ImagenVarianteService.Variante variante : ImagenVarianteService.Variante.values()) {
+            assertThat(imagenVarianteService.rutaVariante(bomba, variante)).doesNotExist();
+        }
+        assertThat(imagenVarianteService.resolverVariante(bomba, "thumb", null)).isEqualTo(bomba);
+    }
+
+    @Test
+    void respetaElLimiteDePixelesConfigurado() {
+        ReflectionTestUtils.setField(imagenVarianteService, "maxPixeles", 600L * 400 - 1);
+        ejecutarAlRecibir = true;
+
+        imagenVarianteService.generarVariantes(original);
+
+        assertThat(imagenVarianteService.rutaVariante(original, ImagenVarianteService.Variante.THUMB)).doesNotExist();
+    }
+
+    @Test
+    void lasImagenesGrandesSeLeenSubmuestreadasSinPerderElTamanoDeDetalle() throws Exception {
+        ReflectionTestUtils.setField(imagenVarianteService, "anchoMaximo", 250);
+        ReflectionTestUtils.setField(imagenVarianteService, "altoMaximo", 150);
+        ejecutarAlRecibir = true;
+
+        imagenVarianteService.generarVariantes(original);
+
+        BufferedImage detalle = ImageIO.read(
+                imagenVarianteService.rutaVariante(original, ImagenVarianteService.Variante.DETAIL).toFile());
+        BufferedImage miniatura = ImageIO.read(
+                imagenVarianteService.rutaVariante(original, ImagenVarianteService.Variante.THUMB).toFile());
+        assertThat(detalle.getWidth()).isEqualTo(225);
+        assertThat(detalle.getHeight()).isEqualTo(150);
+        assertThat(miniatura.getWidth()).isEqualTo(200);
+    }
+
+    // Firma PNG + IHDR (RGBA de 8 bits) + IEND, con CRC correctos
+    private static byte[] pngSoloCabecera(int ancho, int alto) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream salida = new DataOutputStream(bytes);
+        salida.write(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'});
+
+        ByteArrayOutputStream ihdr = new ByteArrayOutputStream();
+        DataOutputStream datos = new DataOutputStream(ihdr);
+        datos.writeInt(ancho);
+        datos.writeInt(alto);
+        datos.write(new byte[]{8, 6, 0, 0, 0});
+        escribirChunk(salida, "IHDR", ihdr.toByteArray());
+        escribirChunk(salida, "IEND", new byte[0]);
+        return bytes.toByteArray();
+    }
+
+    private static void escribirChunk(DataOutputStream salida, String tipo, byte[] datos) throws IOException {
+        byte[] nombre = tipo.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(nombre);
+        crc.update(datos);
+        salida.writeInt(datos.length);
+        salida.write(nombre);
+        salida.write(datos);
+        salida.writeInt((int) crc.getValue());
+    }
+}
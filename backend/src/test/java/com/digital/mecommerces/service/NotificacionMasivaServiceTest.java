@@ -0,0 +1,171 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.exception.BusinessException;
+import com.digital.mecommerces.exception.ResourceNotFoundException;
+import com.digital.mecommerces.model.EmailOutbox;
+import com.digital.mecommerces.model.RolUsuario;
+import com.digital.mecommerces.model.Usuario;
+import com.digital.mecommerces.repository.EmailOutboxRepository;
+import com.digital.mecommerces.repository.RolUsuarioRepository;
+import com.digital.mecommerces.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Envío masivo: bloques por keyset o por IDs, encolado en la bandeja de salida y progreso del envío
+ */
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificacionMasivaServiceTest {
+
+    private static final int COMPRADORES = 7;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private RolUsuarioRepository rolUsuarioRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> compradores = new ArrayList<>();
+    private Long inactivo;
+    private Long vendedor;
+
+    @BeforeEach
+    void preparar() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            RolUsuario rolComprador = rolUsuarioRepository.save(new RolUsuario("COMPRADOR", "Comprador"));
+            RolUsuario rolVendedor = rolUsuarioRepository.save(new RolUsuario("VENDEDOR", "Vendedor"));
+            for (int i = 0; i < COMPRADORES; i++) {
+                compradores.add(usuarioRepository.save(
+                        new Usuario("Comprador " + i, "comprador" + i + "@test.com", "x", rolComprador)).getUsuarioId());
+            }
+            Usuario baja = new Usuario("Baja", "baja@test.com", "x", rolComprador);
+            baja.setActivo(false);
+            inactivo = usuarioRepository.save(baja).getUsuarioId();
+            vendedor = usuarioRepository.save(new Usuario("Vendedor", "vendedor@test.com", "x", rolVendedor)).getUsuarioId();
+        });
+    }
+
+    @AfterEach
+    void limpiar() {
+        emailOutboxRepository.deleteAllInBatch();
+        usuarioRepository.deleteAllInBatch();
+        rolUsuarioRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void porRolRecorreTodosLosBloquesYSoloNotificaALosActivosDeEseRol() {
+        NotificacionMasivaService servicio = crearServicio(Runnable::run);
+
+        NotificacionMasivaService.EnvioMasivo envio = servicio.iniciar(null, "Ofertas de la semana", "comprador", null);
+
+        // 7 compradores activos en bloques de 3: 3 + 3 + 1
+        Map<String, Object> resumen = servicio.obtenerEstado(envio.getId()).resumen();
+        assertThat(resumen)
+                .containsEntry("estado", "COMPLETADO")
+                .containsEntry("rol", "COMPRADOR")
+                .containsEntry("asunto", "Notificación - MeCommerces")
+                .containsEntry("total", (long) COMPRADORES)
+                .containsEntry("encolados", (long) COMPRADORES)
+                .containsEntry("porcentaje", 100.0);
+
+        List<EmailOutbox> emails = emailOutboxRepository.findAll();
+        assertThat(emails).extracting(EmailOutbox::getDestinatario)
+                .containsExactlyInAnyOrder(Arrays.stream(new int[]{0, 1, 2, 3, 4, 5, 6})
+                        .mapToObj(i -> "comprador" + i + "@test.com").toArray(String[]::new));
+        assertThat(emails).allSatisfy(email -> {
+            assertThat(email.getContenido()).contains("Ofertas de la semana").contains("http://tienda.test");
+            assertThat(email.getEstado()).isEqualTo(EmailOutbox.ESTADO_PENDIENTE);
+        });
+        assertThat(emails).filteredOn(email -> email.getDestinatario().equals("comprador1@test.com"))
+                .singleElement()
+                .satisfies(email -> assertThat(email.getContenido()).contains("Comprador 1"));
+    }
+
+    @Test
+    void porIdsIgnoraRepetidosYCuentaLosInexistentesOInactivosComoOmitidos() {
+        NotificacionMasivaService servicio = crearServicio(Runnable::run);
+        List<Long> ids = new ArrayList<>(List.of(compradores.get(1), compradores.get(1), vendedor, inactivo, -1L));
+        ids.add(null);
+
+        NotificacionMasivaService.EnvioMasivo envio = servicio.iniciar("Aviso", "Mantenimiento programado", null, ids);
+
+        assertThat(envio.resumen())
+                .containsEntry("estado", "COMPLETADO")
+                .containsEntry("total", 4L)
+                .containsEntry("encolados", 2L)
+                .containsEntry("omitidos", 2L);
+        assertThat(emailOutboxRepository.findAll()).extracting(EmailOutbox::getDestinatario)
+                .containsExactlyInAnyOrder("comprador1@test.com", "vendedor@test.com");
+    }
+
+    @Test
+    void conLaColaLlenaSeRechazaConTooManyRequests() {
+        NotificacionMasivaService servicio = crearServicio(tarea -> {
+            throw new TaskRejectedException("cola llena");
+        });
+
+        assertThatThrownBy(() -> servicio.iniciar("Aviso", "Mensaje", null, null))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("demasiados envíos masivos");
+        assertThat(servicio.listarEnvios()).isEmpty();
+        assertThat(emailOutboxRepository.count()).isZero();
+    }
+
+    @Test
+    void validaElMensajeYElIdDelEnvio() {
+        NotificacionMasivaService servicio = crearServicio(Runnable::run);
+
+        assertThatThrownBy(() -> servicio.iniciar("Aviso", "  ", null, null))
+                .isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> servicio.obtenerEstado("no-existe"))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    // Executor síncrono: el envío termina antes de que iniciar devuelva
+    private NotificacionMasivaService crearServicio(Executor executor) {
+        EmailOutboxService emailOutboxService = new EmailOutboxService(
+                emailOutboxRepository, mock(JavaMailSender.class), Runnable::run, transactionManager);
+        EmailService emailService = new EmailService(emailOutboxService,
+                new PlantillaEmailService(new DefaultResourceLoader(), "classpath:/templates/email/"));
+        emailService.setEmailEnabled(true);
+
+        NotificacionMasivaService servicio = new NotificacionMasivaService(
+                usuarioRepository, emailService, executor, transactionManager);
+        ReflectionTestUtils.setField(servicio, "tamanoBloque", 3);
+        ReflectionTestUtils.setField(servicio, "frontendUrl", "http://tienda.test");
+        return servicio;
+    }
+}
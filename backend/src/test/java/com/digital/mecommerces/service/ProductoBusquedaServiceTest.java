@@ -0,0 +1,78 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.event.ProductoModificadoEvent;
+import com.digital.mecommerces.model.CategoriaProducto;
+import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductoBusquedaServiceTest {
+
+    private ProductoBusquedaService productoBusquedaService;
+
+    @BeforeEach
+    void preparar() {
+        List<Object[]> filas = new ArrayList<>();
+        filas.add(new Object[]{1L, "Cámara réflex", "Cuerpo de cámara con lente", "Electrónica", "camara-reflex"});
+        filas.add(new Object[]{2L, "Funda", "Funda acolchada para cámara", "Accesorios", "funda"});
+        filas.add(new Object[]{3L, "Camiseta", "Algodón", "Ropa", "camiseta"});
+
+        ProductoRepository productoRepository = mock(ProductoRepository.class);
+        when(productoRepository.findDatosIndexacionDesde(anyLong(), any(Pageable.class)))
+                .thenReturn(filas)
+                .thenReturn(List.of());
+
+        productoBusquedaService = new ProductoBusquedaService(productoRepository);
+        productoBusquedaService.reconstruirIndice();
+    }
+
+    @Test
+    void ignoraTildesYOrdenaPorRelevancia() {
+        ProductoBusquedaService.ResultadoBusqueda resultado = productoBusquedaService.buscar("camara", 0, 10);
+
+        // La coincidencia en el nombre pesa más que en la descripción
+        assertThat(resultado.getProductoIds()).containsExactly(1L, 2L);
+        assertThat(resultado.getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    void elUltimoTerminoCoincidePorPrefijo() {
+        assertThat(productoBusquedaService.buscar("cami", 0, 10).getProductoIds()).containsExactly(3L);
+        assertThat(productoBusquedaService.buscar("cam", 0, 10).getProductoIds()).contains(1L, 3L);
+    }
+
+    @Test
+    void paginaSobreLosResultadosOrdenados() {
+        assertThat(productoBusquedaService.buscar("camara", 1, 1).getProductoIds()).containsExactly(2L);
+        assertThat(productoBusquedaService.buscar("camara", 5, 10).getProductoIds()).isEmpty();
+    }
+
+    @Test
+    void losEventosActualizanYRetiranProductos() {
+        Producto producto = new Producto();
+        producto.setProductoId(3L);
+        producto.setProductoNombre("Camiseta térmica");
+        producto.setDescripcion("Ideal para invierno");
+        producto.setCategoria(new CategoriaProducto("Ropa", "Ropa"));
+        producto.setSlug("camiseta-termica");
+        productoBusquedaService.onProductoModificado(new ProductoModificadoEvent(producto));
+
+        assertThat(productoBusquedaService.buscar("invierno", 0, 10).getProductoIds()).containsExactly(3L);
+
+        producto.setActivo(false);
+        productoBusquedaService.onProductoModificado(new ProductoModificadoEvent(producto));
+
+        assertThat(productoBusquedaService.buscar("camiseta", 0, 10).getProductoIds()).isEmpty();
+    }
+}
@@ -0,0 +1,49 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.repository.ProductoRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductoServiceEstadisticasTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private VendedorEstadisticasService vendedorEstadisticasService;
+
+    @Mock
+    private ProductoBusquedaService productoBusquedaService;
+
+    @Mock
+    private ProductoConteoService productoConteoService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ProductoService productoService;
+
+    @Test
+    void vendedoresConElMismoNombreSumanSusConteos() {
+        when(productoRepository.countProductosPorVendedor()).thenReturn(List.of(
+                new Object[]{"Tienda Sol", 5L},
+                new Object[]{"Otra Tienda", 3L},
+                new Object[]{"Tienda Sol", 2L}));
+
+        Map<String, Object> estadisticas = productoService.obtenerEstadisticasPorVendedor();
+
+        assertThat(estadisticas).containsEntry("Tienda Sol", 7L).containsEntry("Otra Tienda", 3L).hasSize(2);
+    }
+}
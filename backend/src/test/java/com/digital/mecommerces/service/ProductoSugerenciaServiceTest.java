@@ -0,0 +1,204 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.dto.SugerenciaDTO;
+import com.digital.mecommerces.event.ProductoModificadoEvent;
+import com.digital.mecommerces.model.CategoriaProducto;
+import com.digital.mecommerces.model.Producto;
+import com.digital.mecommerces.model.Usuario;
+import com.digital.mecommerces.repository.ProductoRepository;
+import com.digital.mecommerces.util.TextoUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductoSugerenciaServiceTest {
+
+    private static final LocalDateTime AHORA = LocalDateTime.now();
+
+    private ProductoSugerenciaService productoSugerenciaService;
+
+    @BeforeEach
+    void preparar() {
+        List<Object[]> filas = new ArrayList<>();
+        filas.add(fila(1L, "Cámara réflex", "Electrónica", "Tienda Sol", false, AHORA.minusDays(400)));
+        filas.add(fila(2L, "Camiseta roja", "Ropa", "Tienda Sol", false, AHORA.minusDays(1)));
+        filas.add(fila(3L, "Cama doble", "Hogar", "Muebles Luna", true, AHORA.minusDays(400)));
+        filas.add(fila(4L, "Funda de cámara", "Electrónica", "Tienda Sol", false, AHORA.minusDays(400)));
+
+        ProductoRepository productoRepository = mock(ProductoRepository.class);
+        when(productoRepository.findDatosIndexacionDesde(anyLong(), any(Pageable.class)))
+                .thenReturn(filas)
+                .thenReturn(List.of());
+
+        productoSugerenciaService = new ProductoSugerenciaService(productoRepository);
+        productoSugerenciaService.reconstruirSugerencias();
+    }
+
+    @Test
+    void unPrefijoDevuelveProductosCategoriasYVendedores() {
+        assertThat(textos("cam")).containsExactlyInAnyOrder("Cama doble", "Camiseta roja", "Cámara réflex", "Funda de cámara");
+        assertThat(sugerencias("elec")).extracting(SugerenciaDTO::getTipo, SugerenciaDTO::getTexto)
+                .containsExactly(tuple(ProductoSugerenciaService.TIPO_CATEGORIA, "Electrónica"));
+        assertThat(sugerencias("tienda")).extracting(SugerenciaDTO::getTipo)
+                .containsExactly(ProductoSugerenciaService.TIPO_VENDEDOR);
+        assertThat(textos("xyz")).isEmpty();
+    }
+
+    @Test
+    void elPrefijoSeNormalizaComoElTextoIndexado() {
+        // Tildes, mayúsculas, signos y espacios repetidos
+        assertThat(textos("CÁMARA  Ré")).containsExactly("Cámara réflex");
+        assertThat(textos("camara-reflex")).containsExactly("Cámara réflex");
+        assertThat(textos("  funda, de ")).containsExactly("Funda de cámara");
+        assertThat(textos("!!!")).isEmpty();
+    }
+
+    @Test
+    void cadaPalabraQueNoEsStopwordTambienEsPrefijo() {
+        assertThat(textos("roj")).containsExactly("Camiseta roja");
+        assertThat(textos("doble")).containsExactly("Cama doble");
+        // "de" es stopword: "de camara" no se indexa aparte
+        assertThat(textos("de c")).isEmpty();
+    }
+
+    @Test
+    void ordenaPorDestacadoRecenciaYNumeroDeProductos() {
+        // Cama doble es destacada; Camiseta roja es la más reciente; las otras dos empatan y van por texto
+        assertThat(textos("cam")).containsExactly("Cama doble", "Camiseta roja", "Cámara réflex", "Funda de cámara");
+        // Tienda Sol tiene tres productos y Tejidos Mar uno
+        productoSugerenciaService.onProductoModificado(new ProductoModificadoEvent(
+                producto(5L, "Bufanda", "Ropa", "Tejidos Mar")));
+        assertThat(sugerencias("t")).extracting(SugerenciaDTO::getTexto).containsExactly("Tienda Sol", "Tejidos Mar");
+        assertThat(productoSugerenciaService.obtenerSugerencias("cam", 2)).hasSize(2);
+    }
+
+    @Test
+    void losEventosRenombranYRetiranProductosYSusAgrupadores() {
+        Producto producto = producto(3L, "Sofá cama", "Hogar", "Muebles Luna");
+        productoSugerenciaService.onProductoModificado(new ProductoModificadoEvent(producto));
+
+        assertThat(textos("cama d")).isEmpty();
+        assertThat(textos("sofa")).containsExactly("Sofá cama");
+        assertThat(textos("cama")).contains("Sofá cama");
+
+        producto.setActivo(false);
+        productoSugerenciaService.onProductoModificado(new ProductoModificadoEvent(producto));
+
+        assertThat(textos("sofa")).isEmpty();
+        // Hogar y Muebles Luna ya no tienen productos activos
+        assertThat(sugerencias("hog")).isEmpty();
+        assertThat(sugerencias("muebles")).isEmpty();
+        assertThat(textos("cam")).containsExactlyInAnyOrder("Camiseta roja", "Cámara réflex", "Funda de cámara");
+    }
+
+    @Test
+    void altasYBajasAleatoriasCoincidenConUnaBusquedaExhaustiva() {
+        String[] palabras = {"cama", "camara", "camisa", "camiseta", "roja", "rojo", "de", "la", "funda", "azul"};
+        Random random = new Random(42);
+        Map<Long, String> activos = new HashMap<>();
+        // Catálogo vacío y solo productos: las 10 sugerencias son siempre productos
+        ProductoRepository vacio = mock(ProductoRepository.class);
+        when(vacio.findDatosIndexacionDesde(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        ProductoSugerenciaService servicio = new ProductoSugerenciaService(vacio);
+        servicio.reconstruirSugerencias();
+
+        for (int paso = 0; paso < 2000; paso++) {
+            long id = 100 + random.nextInt(60);
+            Producto producto;
+            if (random.nextInt(4) == 0) {
+                producto = producto(id, activos.getOrDefault(id, "x"), null, null);
+                producto.setActivo(false);
+                activos.remove(id);
+            } else {
+                StringBuilder nombre = new StringBuilder();
+                for (int i = 0, n = 1 + random.nextInt(3); i < n; i++) {
+                    nombre.append(i > 0 ? " " : "").append(palabras[random.nextInt(palabras.length)]);
+                }
+                producto = producto(id, nombre.toString(), null, null);
+                activos.put(id, nombre.toString());
+            }
+            servicio.onProductoModificado(new ProductoModificadoEvent(producto));
+        }
+
+        for (String prefijo : List.of("c", "ca", "cam", "cama", "camar", "cami", "camis", "r", "roj", "rojo",
+                "f", "funda", "funda c", "cama r", "azul c", "a", "l", "la", "d")) {
+            Set<Long> esperados = new TreeSet<>();
+            for (Map.Entry<Long, String> activo : activos.entrySet()) {
+                if (claves(activo.getValue()).stream().anyMatch(clave -> clave.startsWith(prefijo))) {
+                    esperados.add(activo.getKey());
+                }
+            }
+            Set<Long> obtenidos = new TreeSet<>();
+            for (SugerenciaDTO sugerencia : servicio.obtenerSugerencias(prefijo, 10)) {
+                obtenidos.add(sugerencia.getProductoId());
+            }
+
+            if (esperados.size() <= 10) {
+                assertThat(obtenidos).as(prefijo).isEqualTo(esperados);
+            } else {
+                assertThat(obtenidos).as(prefijo).hasSize(10);
+                assertThat(esperados).as(prefijo).containsAll(obtenidos);
+            }
+        }
+    }
+
+    // Texto completo y resto desde cada palabra que no es stopword, como lo indexa el servicio
+    private static List<String> claves(String nombre) {
+        String[] palabras = TextoUtil.normalizarFrase(nombre).split(" ");
+        List<String> claves = new ArrayList<>();
+        for (int i = 0; i < palabras.length; i++) {
+            if (i == 0 || !TextoUtil.esStopword(palabras[i])) {
+                claves.add(String.join(" ", List.of(palabras).subList(i, palabras.length)));
+            }
+        }
+        return claves;
+    }
+
+    private List<SugerenciaDTO> sugerencias(String prefijo) {
+        return productoSugerenciaService.obtenerSugerencias(prefijo, ProductoSugerenciaService.MAX_SUGERENCIAS);
+    }
+
+    private List<String> textos(String prefijo) {
+        return sugerencias(prefijo).stream()
+                .filter(s -> ProductoSugerenciaService.TIPO_PRODUCTO.equals(s.getTipo()))
+                .map(SugerenciaDTO::getTexto)
+                .toList();
+    }
+
+    private static Object[] fila(Long id, String nombre, String categoria, String vendedor, boolean destacado,
+                                 LocalDateTime createdat) {
+        return new Object[]{id, nombre, null, categoria, null, vendedor, destacado, createdat};
+    }
+
+    private static Producto producto(Long id, String nombre, String categoria, String vendedor) {
+        Producto producto = new Producto();
+        producto.setProductoId(id);
+        producto.setProductoNombre(nombre);
+        producto.setCreatedat(AHORA.minusDays(400));
+        if (categoria != null) {
+            producto.setCategoria(new CategoriaProducto(categoria, categoria));
+        }
+        if (vendedor != null) {
+            Usuario usuario = new Usuario();
+            usuario.setUsuarioNombre(vendedor);
+            producto.setVendedor(usuario);
+        }
+        return producto;
+    }
+}
@@ -0,0 +1,113 @@
+package com.digital.mecommerces.service;
+
+import com.digital.mecommerces.model.VendedorEstadisticas;
+import com.digital.mecommerces.repository.VendedorEstadisticasRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(bootstrapMode = BootstrapMode.LAZY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(VendedorEstadisticasService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VendedorEstadisticasServiceTest {
+
+    @Autowired
+    private VendedorEstadisticasService vendedorEstadisticasService;
+
+    @Autowired
+    private VendedorEstadisticasRepository vendedorEstadisticasRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void limpiar() {
+        vendedorEstadisticasRepository.deleteAll();
+    }
+
+    @Test
+    void primerasLecturasConcurrentesNoEscribenYSeMaterializanUnaVez() throws Exception {
+        int hilos = 8;
+        CyclicBarrier salida = new CyclicBarrier(hilos);
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<CompletableFuture<VendedorEstadisticas>> lecturas = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                lecturas.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        salida.await();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return vendedorEstadisticasService.obtenerEstadisticas(42L);
+                }, executor));
+            }
+
+            for (CompletableFuture<VendedorEstadisticas> lectura : lecturas) {
+                assertThat(lectura.get().getVendedorId()).isEqualTo(42L);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // La lectura no escribe: la fila la crea el recálculo programado
+        assertThat(vendedorEstadisticasRepository.count()).isZero();
+        vendedorEstadisticasService.recalcularPendientes();
+        assertThat(vendedorEstadisticasRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void actualizarSobreUnaFilaExistenteLaReemplaza() {
+        VendedorEstadisticas anterior = new VendedorEstadisticas(7L);
+        anterior.setTotalProductos(10L);
+        anterior.setStockTotal(99L);
+        vendedorEstadisticasRepository.saveAndFlush(anterior);
+
+        vendedorEstadisticasService.actualizarEstadisticas(7L);
+        vendedorEstadisticasService.recalcularPendientes();
+
+        VendedorEstadisticas actual = vendedorEstadisticasRepository.findById(7L).orElseThrow();
+        assertThat(actual.getTotalProductos()).isZero();
+        assertThat(actual.getStockTotal()).isZero();
+    }
+
+    @Test
+    void soloSeRecalculaTrasElCommitDeLaTransaccionQueCambioLosProductos() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            vendedorEstadisticasService.actualizarEstadisticas(8L);
+            status.setRollbackOnly();
+        });
+        vendedorEstadisticasService.recalcularPendientes();
+        assertThat(vendedorEstadisticasRepository.existsById(8L)).isFalse();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            vendedorEstadisticasService.actualizarEstadisticas(9L);
+            // Dentro de la transacción todavía no hay nada pendiente
+            vendedorEstadisticasService.recalcularPendientes();
+            assertThat(vendedorEstadisticasRepository.existsById(9L)).isFalse();
+        });
+        vendedorEstadisticasService.recalcularPendientes();
+        assertThat(vendedorEstadisticasRepository.existsById(9L)).isTrue();
+    }
+}